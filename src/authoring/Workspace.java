@@ -13,10 +13,11 @@ import authoring.networking.Networking;
 import authoring.networking.Packet;
 import authoring.panel.Panel;
 import data.Game;
+import data.BackgroundSaver;
+import data.BackgroundSaver.SaveTask;
 import data.GameData;
 import engine.entities.Entity;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.TextInputDialog;
 import javafx.stage.DirectoryChooser;
@@ -46,6 +47,7 @@ public class Workspace extends View {
 	private ResourceBundle IOResources;
 	private ComponentMaker maker;
 	private GameData data;
+	private BackgroundSaver saver;
 	private SplitPane pane;
 	private LevelEditor levelEditor;
 	private Panel panel;
@@ -145,6 +147,7 @@ public class Workspace extends View {
 		redoStack = new Stack<UndoableCommand>();
 		networking = new Networking(this);
 		data = new GameData();
+		saver = new BackgroundSaver(Platform::runLater);
 		maker = new ComponentMaker(polyglot, IOResources);
 		defaults = new DefaultEntities(this);
 		pane = new SplitPane();
@@ -221,7 +224,8 @@ public class Workspace extends View {
 	/**
 	 * Save the Game to disk. A DirectoryChooser is presented to the user; the
 	 * Game's construction is finalized; and a call to GameData is made to save
-	 * the Game.
+	 * the Game. A snapshot of the Game is taken on the JavaFX thread, and is
+	 * written to disk in the background.
 	 * 
 	 * This implementation is delegated to an overloaded, save(String title),
 	 * method. This method presents a TextInputDialog, and only calls
@@ -237,15 +241,24 @@ public class Workspace extends View {
 		game.setName(title);
 		String path = askForOutputPath();
 		if (!path.equals("")) {
-			Task<Void> task = new Task<Void>() {
+			createGame();
+			Game snapshot = game.clone();
+			saver.save(path, new SaveTask() {
 				@Override
-				public Void call() throws InterruptedException {
-					createGame();
-					data.saveGame(game, path);
-					return null;
+				public void write() {
+					data.saveGame(snapshot, path);
 				}
-			};
-			maker.showProgressForTask(task, true);
+
+				@Override
+				public void succeeded() {
+					maker.showSuccess();
+				}
+
+				@Override
+				public void failed(Exception exception) {
+					maker.showFailure();
+				}
+			});
 		}
 
 	}
@@ -5,6 +5,8 @@ import java.util.Random;
 
 import authoring.Workspace;
 import engine.entities.Entity;
+import engine.entities.entities.TileLayerEntity;
+import engine.graphics.TileLayerView;
 import javafx.event.EventHandler;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.image.Image;
@@ -34,7 +36,8 @@ import javafx.scene.paint.Color;
  * EntityView is resized accordingly.<br>
  * 
  * The ImageView is automatically resized to fit correctly in the grid with the
- * given grid tile size.
+ * given grid tile size. A TileLayerEntity is shown as an image of its tiles,
+ * and is painted rather than resized.
  * 
  * @author jimmy (modified by Elliott Bolzan)
  *
@@ -70,7 +73,7 @@ public class EntityView extends VBox {
 
 	public EntityView(Entity entity, long entityId, Canvas canvas, int gridSize, double x, double y) {
 		this.entity = entity.clone();
-		this.image = new ImageView(new Image(entity.getImagePath()));
+		this.image = new ImageView(getImage(entity));
 		this.canvas = canvas;
 		this.setMinHeight(entity.getHeight());
 		this.setMinWidth(entity.getWidth());
@@ -102,7 +105,26 @@ public class EntityView extends VBox {
 		this.getChildren().add(image);
 
 		DragUtil.makeDraggable(this, tileSize);
-		DragUtil.makeResizeable(this, tileSize);
+		if (!(entity instanceof TileLayerEntity)) {
+			DragUtil.makeResizeable(this, tileSize);
+		}
+	}
+
+	private Image getImage(Entity entity) {
+		if (entity instanceof TileLayerEntity) {
+			return TileLayerView.snapshot((TileLayerEntity) entity);
+		}
+		return new Image(entity.getImagePath());
+	}
+
+	/**
+	 * Shows the tiles of a TileLayerEntity again, after they were painted.
+	 */
+	public void refresh() {
+		TileLayerEntity layer = (TileLayerEntity) entity;
+		image.setImage(getImage(layer));
+		this.setMinWidth(layer.getColumns() * layer.getTileSize());
+		this.setMinHeight(layer.getRows() * layer.getTileSize());
 	}
 
 	private void setupEdit() {
@@ -137,7 +159,7 @@ public class EntityView extends VBox {
 
 	public void setEntity(Entity entity) {
 		this.entity = entity.clone();
-		image.setImage(new Image(entity.getImagePath()));
+		image.setImage(getImage(entity));
 		this.setMinHeight(entity.getHeight());
 		this.setMinWidth(entity.getWidth());
 		setupBounds();
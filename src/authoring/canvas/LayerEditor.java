@@ -4,22 +4,29 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import authoring.Workspace;
 import authoring.command.DeleteInfo;
 import authoring.command.MoveInfo;
 import authoring.command.MultiEntityInfo;
+import authoring.command.PaintInfo;
 import authoring.command.ResizeInfo;
+import authoring.networking.MoveEntityUpdate;
 import engine.entities.Entity;
 import engine.entities.entities.BackgroundEntity;
+import engine.entities.entities.BlockEntity;
 import engine.entities.entities.CameraEntity;
+import engine.entities.entities.TileLayerEntity;
 import engine.game.Level;
 import javafx.event.EventHandler;
+import javafx.geometry.Point2D;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.shape.Rectangle;
 import utils.views.View;
@@ -186,6 +193,7 @@ public class LayerEditor extends View
 		levelCameraView = new EntityView(new CameraEntity(), canvas, Canvas.TILE_SIZE, 0, 0);
 		levelBackgroundView = new EntityView(new BackgroundEntity(), canvas, Canvas.TILE_SIZE, 0, 0);
 		addKeyActions();
+		addTilePainting();
 		newLayer();
 	}
 
@@ -211,6 +219,179 @@ public class LayerEditor extends View
 		});
 	}
 
+	/**
+	 * Dragging on the canvas with alt held down paints the selected Block into
+	 * the current layer's tile layer. Dragging with the secondary button erases
+	 * tiles instead. Cells are painted as the stroke goes; once it ends, the
+	 * stroke is sent as a whole, so that it is shared and undone at once.
+	 */
+	private void addTilePainting()
+	{
+		List<PaintInfo> stroke = new ArrayList<PaintInfo>();
+		EventHandler<MouseEvent> painter = e -> {
+			if (!e.isAltDown()) {
+				return;
+			}
+			Point2D point = canvas.getExpandablePane().sceneToLocal(e.getSceneX(), e.getSceneY());
+			PaintInfo paintInfo = e.getButton().equals(MouseButton.SECONDARY) ? eraseTile(point.getX(), point.getY())
+					: paintTile(workspace.getSelectedEntity(), point.getX(), point.getY());
+			if (paintInfo != null) {
+				stroke.add(paintInfo);
+			}
+			e.consume();
+		};
+		canvas.getExpandablePane().addEventFilter(MouseEvent.MOUSE_PRESSED, painter);
+		canvas.getExpandablePane().addEventFilter(MouseEvent.MOUSE_DRAGGED, painter);
+		canvas.getExpandablePane().addEventFilter(MouseEvent.MOUSE_RELEASED, e -> {
+			if (!stroke.isEmpty()) {
+				workspace.getNetworking().sendIfConnected(new MultiEntityInfo<PaintInfo>(stroke));
+				stroke.clear();
+			}
+		});
+	}
+
+	/**
+	 * Paint a Block into the cell at the given position of the current layer's
+	 * tile layer.
+	 * 
+	 * @param block
+	 *            the Block whose name and image the tile takes
+	 * @param x
+	 *            x position of the cell
+	 * @param y
+	 *            y position of the cell
+	 * @return the PaintInfo describing the painting, or null if nothing was
+	 *         painted
+	 */
+	public PaintInfo paintTile(Entity block, double x, double y)
+	{
+		if (!(block instanceof BlockEntity)) {
+			return null;
+		}
+		EntityView view = getTileLayer(currLayer);
+		long layerId = view == null ? new Random().nextLong() : view.getEntityId();
+		String oldName = getTileName(view, x, y);
+		if (block.getName().equals(oldName)) {
+			return null;
+		}
+		setTile(layerId, currLayer, x, y, block.getName(), block.getImagePath());
+		return new PaintInfo(block.getName(), oldName, x, y, currLayer, layerId);
+	}
+
+	/**
+	 * Erase the tile at the given position of the current layer's tile layer.
+	 * 
+	 * @param x
+	 *            x position of the cell
+	 * @param y
+	 *            y position of the cell
+	 * @return the PaintInfo describing the erasing, or null if the cell was
+	 *         empty
+	 */
+	public PaintInfo eraseTile(double x, double y)
+	{
+		EntityView view = getTileLayer(currLayer);
+		String oldName = getTileName(view, x, y);
+		if (oldName == null) {
+			return null;
+		}
+		setTile(view.getEntityId(), currLayer, x, y, null, null);
+		return new PaintInfo(null, oldName, x, y, currLayer, view.getEntityId());
+	}
+
+	/**
+	 * Put a tile in the cell at the given position of a tile layer, which is
+	 * created or grown as needed.
+	 * 
+	 * @param layerId
+	 *            id of the tile layer's EntityView
+	 * @param z
+	 *            layer of the tile layer
+	 * @param x
+	 *            x position of the cell
+	 * @param y
+	 *            y position of the cell
+	 * @param name
+	 *            name of the Block the tile stands for, or null to erase the
+	 *            cell
+	 * @param imagePath
+	 *            image of the Block
+	 */
+	public void setTile(long layerId, int z, double x, double y, String name, String imagePath)
+	{
+		EntityView view = getTileLayer(layerId, z);
+		if (view == null) {
+			if (name == null) {
+				return;
+			}
+			int size = Canvas.TILE_SIZE;
+			view = addEntity(new EntityView(new TileLayerEntity(), layerId, canvas, canvas.getTileSize(),
+					Math.floor(x / size) * size, Math.floor(y / size) * size), z);
+		}
+		TileLayerEntity layer = (TileLayerEntity) view.getEntity();
+		if (name == null) {
+			layer.paint(x, y, TileLayerEntity.EMPTY);
+			view.refresh();
+			return;
+		}
+		if (imagePath == null && !layer.getTileNames().contains(name)) {
+			return;
+		}
+		int size = layer.getTileSize();
+		double left = Math.min(layer.getX(), layer.getX() + layer.getColumn(x) * size);
+		double top = Math.min(layer.getY(), layer.getY() + layer.getRow(y) * size);
+		double right = Math.max(layer.getX() + layer.getColumns() * size,
+				layer.getX() + (layer.getColumn(x) + 1) * size);
+		double bottom = Math.max(layer.getY() + layer.getRows() * size,
+				layer.getY() + (layer.getRow(y) + 1) * size);
+		if (left != layer.getX() || top != layer.getY() || right - left != layer.getColumns() * size
+				|| bottom - top != layer.getRows() * size) {
+			layer.resize(left, top, (int) Math.round((right - left) / size), (int) Math.round((bottom - top) / size));
+			view.setX(left);
+			view.setY(top);
+		}
+		layer.paint(x, y, layer.addTile(name, imagePath));
+		view.refresh();
+	}
+
+	private String getTileName(EntityView view, double x, double y)
+	{
+		if (view == null) {
+			return null;
+		}
+		TileLayerEntity layer = (TileLayerEntity) view.getEntity();
+		short tile = layer.getTile(layer.getColumn(x), layer.getRow(y));
+		return tile == TileLayerEntity.EMPTY ? null : layer.getTileNames().get(tile - 1);
+	}
+
+	private EntityView getTileLayer(int z)
+	{
+		return getTileLayer(0, z);
+	}
+
+	/**
+	 * @return the tile layer with the given id, or else any tile layer on the
+	 *         layer, or null if there is none
+	 */
+	private EntityView getTileLayer(long layerId, int z)
+	{
+		EntityView found = null;
+		if (layers.get(z) == null) {
+			return null;
+		}
+		for (EntityView view : layers.get(z).getEntities()) {
+			if (view.getEntity() instanceof TileLayerEntity) {
+				if (view.getEntityId() == layerId) {
+					return view;
+				}
+				if (found == null) {
+					found = view;
+				}
+			}
+		}
+		return found;
+	}
+
 	/**
 	 * Place the entity at the position of the given MouseEvent.
 	 * 
@@ -263,6 +444,11 @@ public class LayerEditor extends View
 		entity.addEventHandler(MouseEvent.DRAG_DETECTED, e -> {
 			Rectangle oldBounds = new Rectangle(entity.getTranslateX(), entity.getTranslateY(), entity.getMinWidth(),
 					entity.getMinHeight());
+			EventHandler<MouseEvent> dragHandler = event -> {
+				if (entity.getMinWidth() == oldBounds.getWidth() && entity.getMinHeight() == oldBounds.getHeight()) {
+					workspace.getNetworking().streamDrag(makeDragUpdates());
+				}
+			};
 			EventHandler<MouseEvent> dragFinishHandler = new EventHandler<MouseEvent>()
 			{
 				@Override
@@ -290,13 +476,27 @@ public class LayerEditor extends View
 						MultiEntityInfo<MoveInfo> multiMoveInfo = new MultiEntityInfo<MoveInfo>(moveInfo);
 						workspace.getNetworking().sendIfConnected(multiMoveInfo);
 					}
+					entity.removeEventHandler(MouseEvent.MOUSE_DRAGGED, dragHandler);
 					entity.removeEventHandler(MouseEvent.MOUSE_RELEASED, this);
 				}
 			};
+			entity.addEventHandler(MouseEvent.MOUSE_DRAGGED, dragHandler);
 			entity.addEventHandler(MouseEvent.MOUSE_RELEASED, dragFinishHandler);
 		});
 	}
 
+	private List<MoveEntityUpdate> makeDragUpdates()
+	{
+		List<MoveEntityUpdate> updates = new ArrayList<MoveEntityUpdate>();
+		for (Layer layer : layers.values()) {
+			layer.getSelectedEntities().forEach(selectedEntity -> {
+				updates.add(new MoveEntityUpdate(selectedEntity.getTranslateX(), selectedEntity.getTranslateY(),
+						selectedEntity.getEntityId()));
+			});
+		}
+		return updates;
+	}
+
 	private MoveInfo makeMove(EntityView entityView, double shiftX, double shiftY)
 	{
 		return new MoveInfo(entityView.getEntity().getName(), entityView.getEntityId(),
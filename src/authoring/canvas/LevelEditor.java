@@ -1,19 +1,29 @@
 package authoring.canvas;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import authoring.Workspace;
 import authoring.command.AddDeleteCommand;
 import authoring.command.AddInfo;
+import authoring.command.CompoundCommand;
 import authoring.command.DeleteInfo;
 import authoring.command.MoveCommand;
 import authoring.command.MoveInfo;
 import authoring.command.MultiEntityInfo;
+import authoring.command.PaintCommand;
+import authoring.command.PaintInfo;
 import authoring.command.ResizeCommand;
 import authoring.command.ResizeInfo;
+import authoring.command.UndoableCommand;
 import authoring.components.CustomTooltip;
+import authoring.networking.DragUpdate;
 import authoring.networking.Packet;
 import engine.entities.Entity;
 import engine.game.Level;
@@ -45,6 +55,8 @@ public class LevelEditor extends View {
 	private List<EntityView> copiedEntities;
 	private List<LayerEditor> levels;
 	private int levelCount;
+	private Queue<Packet> incoming = new ConcurrentLinkedQueue<Packet>();
+	private AtomicBoolean applyScheduled = new AtomicBoolean();
 
 	/**
 	 * Make a new LevelEditor
@@ -186,75 +198,99 @@ public class LevelEditor extends View {
 		return null;
 	}
 
+	/**
+	 * Receives a Packet from the network, or from this machine when it is not
+	 * connected. Every Packet received before the next pulse is applied during
+	 * that pulse. Each Packet is recorded as a single undoable command, even
+	 * when it holds many entities, while DragUpdates only move the entities
+	 * and are not recorded.
+	 * 
+	 * @param packet
+	 *            the Packet that was received.
+	 */
 	public void received(Packet packet) {
-		if (packet instanceof MultiEntityInfo) {
-			MultiEntityInfo<?> multiInfo = (MultiEntityInfo<?>) packet;
-			if (multiInfo.getInfo() != null) {
-				multiInfo.getInfo().forEach(e -> {
-					LevelEditor.this.received(e);
-				});
-			}
+		incoming.add(packet);
+		if (applyScheduled.compareAndSet(false, true)) {
+			Platform.runLater(() -> applyReceived());
 		}
+	}
 
-		if (packet instanceof AddInfo) {
-			Platform.runLater(new Runnable() {
-				@Override
-				public void run() {
-					AddInfo addInfo = (AddInfo) packet;
-					double x = addInfo.getX();
-					double y = addInfo.getY();
-					long entityId = addInfo.getEntityId();
-					Entity entity = workspace.getDefaults().getEntity(addInfo.getEntityName()).clone();
-					entity.setZ(addInfo.getZ());
-					entity.setId(entity.generateId());
-					EntityView newEntity = new EntityView(entity, entityId, getCurrentLevel().getCanvas(),
-							getCurrentLevel().getCanvas().getTileSize(), x, y);
-					AddDeleteCommand addCommand = new AddDeleteCommand(newEntity, LevelEditor.this, true);
-					workspace.execute(addCommand);
-
+	private void applyReceived() {
+		applyScheduled.set(false);
+		Packet packet;
+		while ((packet = incoming.poll()) != null) {
+			if (packet instanceof DragUpdate) {
+				applyDrag((DragUpdate) packet);
+			} else {
+				List<UndoableCommand> commands = new ArrayList<UndoableCommand>();
+				makeCommands(packet, commands, new HashMap<Long, EntityView>());
+				if (commands.size() == 1) {
+					workspace.execute(commands.get(0));
+				} else if (commands.size() > 1) {
+					workspace.execute(new CompoundCommand(commands));
 				}
-			});
-		} else if (packet instanceof DeleteInfo) {
-			Platform.runLater(new Runnable() {
+			}
+		}
+	}
 
-				@Override
-				public void run() {
-					DeleteInfo deleteInfo = (DeleteInfo) packet;
-					EntityView deletedEntity = LevelEditor.this.getEntity(deleteInfo.getEntityId());
-					AddDeleteCommand deleteCommand = new AddDeleteCommand(deletedEntity, LevelEditor.this, false);
-					workspace.execute(deleteCommand);
-				}
+	private void applyDrag(DragUpdate dragUpdate) {
+		dragUpdate.getUpdates().forEach(update -> {
+			EntityView draggedEntity = getEntity(update.getEntityId());
+			if (draggedEntity != null) {
+				draggedEntity.setTranslateX(update.getX());
+				draggedEntity.setTranslateY(update.getY());
+			}
+		});
+	}
 
-			});
+	private void makeCommands(Packet packet, List<UndoableCommand> commands, Map<Long, EntityView> added) {
+		if (packet instanceof MultiEntityInfo) {
+			MultiEntityInfo<?> multiInfo = (MultiEntityInfo<?>) packet;
+			if (multiInfo.getInfo() != null) {
+				multiInfo.getInfo().forEach(e -> makeCommands(e, commands, added));
+			}
+		} else if (packet instanceof AddInfo) {
+			AddInfo addInfo = (AddInfo) packet;
+			Entity entity = workspace.getDefaults().getEntity(addInfo.getEntityName()).clone();
+			entity.setZ(addInfo.getZ());
+			entity.setId(entity.generateId());
+			EntityView newEntity = new EntityView(entity, addInfo.getEntityId(), getCurrentLevel().getCanvas(),
+					getCurrentLevel().getCanvas().getTileSize(), addInfo.getX(), addInfo.getY());
+			added.put(newEntity.getEntityId(), newEntity);
+			commands.add(new AddDeleteCommand(newEntity, LevelEditor.this, true));
+		} else if (packet instanceof DeleteInfo) {
+			EntityView deletedEntity = findEntity(((DeleteInfo) packet).getEntityId(), added);
+			if (deletedEntity != null) {
+				commands.add(new AddDeleteCommand(deletedEntity, LevelEditor.this, false));
+			}
 		} else if (packet instanceof MoveInfo) {
-			Platform.runLater(new Runnable() {
-				@Override
-				public void run() {
-					MoveInfo moveInfo = (MoveInfo) packet;
-					EntityView movedEntity = LevelEditor.this.getEntity(moveInfo.getEntityId());
-					if (movedEntity != null) {
-						MoveCommand moveCommand = new MoveCommand(movedEntity, moveInfo);
-						workspace.execute(moveCommand);
-					}
-				}
-
-			});
+			MoveInfo moveInfo = (MoveInfo) packet;
+			EntityView movedEntity = findEntity(moveInfo.getEntityId(), added);
+			if (movedEntity != null) {
+				commands.add(new MoveCommand(movedEntity, moveInfo));
+			}
 		} else if (packet instanceof ResizeInfo) {
-			Platform.runLater(new Runnable() {
-				@Override
-				public void run() {
-					ResizeInfo resizeInfo = (ResizeInfo) packet;
-					EntityView resizedEntity = LevelEditor.this.getEntity(resizeInfo.getEntityId());
-					if (resizedEntity != null) {
-						ResizeCommand resizeCommand = new ResizeCommand(resizedEntity, resizeInfo);
-						workspace.execute(resizeCommand);
-					}
-				}
-
-			});
+			ResizeInfo resizeInfo = (ResizeInfo) packet;
+			EntityView resizedEntity = findEntity(resizeInfo.getEntityId(), added);
+			if (resizedEntity != null) {
+				commands.add(new ResizeCommand(resizedEntity, resizeInfo));
+			}
+		} else if (packet instanceof PaintInfo) {
+			PaintInfo paintInfo = (PaintInfo) packet;
+			commands.add(new PaintCommand(getCurrentLevel(), paintInfo, getImagePath(paintInfo.getEntityName()),
+					getImagePath(paintInfo.getOldName())));
 		}
 	}
 
+	private String getImagePath(String entityName) {
+		Entity entity = entityName == null ? null : workspace.getDefaults().getEntity(entityName);
+		return entity == null ? null : entity.getImagePath();
+	}
+
+	private EntityView findEntity(long entityId, Map<Long, EntityView> added) {
+		return added.containsKey(entityId) ? added.get(entityId) : getEntity(entityId);
+	}
+
 	/**
 	 * Make a close confirmation request. This is created whenever the user
 	 * tries to exit out of a level.
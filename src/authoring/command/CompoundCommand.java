@@ -0,0 +1,45 @@
+package authoring.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A command made of several commands, which are executed and undone together.
+ * This lets a batch of moves or resizes received over the network be undone in
+ * a single step.
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class CompoundCommand implements UndoableCommand
+{
+
+	private List<UndoableCommand> commands;
+
+	/**
+	 * A command that will execute the given commands in order, and undo them
+	 * in reverse order.
+	 *
+	 * @param commands
+	 *            the commands to be executed together.
+	 */
+	public CompoundCommand(List<UndoableCommand> commands)
+	{
+		this.commands = new ArrayList<UndoableCommand>(commands);
+	}
+
+	@Override
+	public void execute()
+	{
+		commands.forEach(command -> command.execute());
+	}
+
+	@Override
+	public void unexecute()
+	{
+		for (int i = commands.size() - 1; i >= 0; i--) {
+			commands.get(i).unexecute();
+		}
+	}
+
+}
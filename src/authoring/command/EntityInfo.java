@@ -22,7 +22,8 @@ import javafx.scene.image.Image;
  * information can be sent over a network to communicate the entity to another
  * client. The EntityInfo consists of the actual entity. When this class is
  * serialized, the stored Entity's image is saved and serialized so that it can
- * be sent across a server.
+ * be sent across a server, unless the image was given an asset hash: in that
+ * case, only the hash is sent, and the image is fetched separately.
  * 
  * @author jimmy
  *
@@ -34,6 +35,7 @@ public class EntityInfo implements Serializable
 	private String extension;
 	// private transient Image image;
 	private String xmlString;
+	private String asset;
 
 	public EntityInfo(Entity entity)
 	{
@@ -47,6 +49,25 @@ public class EntityInfo implements Serializable
 		return entity;
 	}
 
+	/**
+	 * @return the hash of the Entity's image in an AssetStore, or null if the
+	 *         image is sent along with the Entity.
+	 */
+	public String getAsset()
+	{
+		return asset;
+	}
+
+	/**
+	 * @param asset
+	 *            the hash of the Entity's image in an AssetStore, so that the
+	 *            image itself is not sent along with the Entity.
+	 */
+	public void setAsset(String asset)
+	{
+		this.asset = asset;
+	}
+
 	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException
 	{
 		s.defaultReadObject();
@@ -54,6 +75,9 @@ public class EntityInfo implements Serializable
 		xStream.registerConverter(new EntityConverter());
 		xmlString = (String) s.readObject();
 		entity = (Entity) xStream.fromXML(xmlString);
+		if (asset != null) {
+			return;
+		}
 
 		RenderedImage renderedImage = SwingFXUtils.fromFXImage(SwingFXUtils.toFXImage(ImageIO.read(s), null), null);
 		writeImageTempFile(renderedImage);
@@ -67,6 +91,9 @@ public class EntityInfo implements Serializable
 		xStream.registerConverter(new EntityConverter());
 		xmlString = xStream.toXML(entity);
 		s.writeObject(xmlString);
+		if (asset != null) {
+			return;
+		}
 
 		ImageIO.write(SwingFXUtils.fromFXImage(new Image(entity.getImagePath()), null), extension, s);
 	}
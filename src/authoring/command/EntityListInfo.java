@@ -28,6 +28,11 @@ public class EntityListInfo extends Packet
 		});
 	}
 
+	public List<EntityInfo> getEntityInfo()
+	{
+		return entityInfo;
+	}
+
 	public List<Entity> getEntities()
 	{
 		List<Entity> returned = new ArrayList<Entity>();
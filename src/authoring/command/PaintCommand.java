@@ -0,0 +1,54 @@
+package authoring.command;
+
+import authoring.canvas.LayerEditor;
+
+/**
+ * A command to paint a tile into a cell of a tile layer, or to erase it.
+ * 
+ * @author Elliott Bolzan
+ *
+ */
+public class PaintCommand implements UndoableCommand
+{
+
+	private LayerEditor level;
+	private PaintInfo paintInfo;
+	private String newImagePath;
+	private String oldImagePath;
+
+	/**
+	 * A command that will paint the cell described by the given paintInfo.
+	 * When the command is unexecuted, the cell gets back the tile it held.
+	 * 
+	 * @param level
+	 *            LayerEditor holding the tile layer
+	 * @param paintInfo
+	 *            Information about the painting that will be performed.
+	 * @param newImagePath
+	 *            image of the Block painted, or null when erasing
+	 * @param oldImagePath
+	 *            image of the Block the cell held, or null if it was empty
+	 */
+	public PaintCommand(LayerEditor level, PaintInfo paintInfo, String newImagePath, String oldImagePath)
+	{
+		this.level = level;
+		this.paintInfo = paintInfo;
+		this.newImagePath = newImagePath;
+		this.oldImagePath = oldImagePath;
+	}
+
+	@Override
+	public void execute()
+	{
+		level.setTile(paintInfo.getEntityId(), paintInfo.getZ(), paintInfo.getX(), paintInfo.getY(),
+				paintInfo.getEntityName(), newImagePath);
+	}
+
+	@Override
+	public void unexecute()
+	{
+		level.setTile(paintInfo.getEntityId(), paintInfo.getZ(), paintInfo.getX(), paintInfo.getY(),
+				paintInfo.getOldName(), oldImagePath);
+	}
+
+}
@@ -0,0 +1,42 @@
+package authoring.command;
+
+/**
+ * Info needed to paint a tile into a cell of a tile layer in the game
+ * authoring environment, or to erase it. This information can be sent over a
+ * network to communicate a paintCommand to another client.
+ * 
+ * @author Elliott Bolzan
+ *
+ */
+public class PaintInfo extends PositionInfo
+{
+	private static final long serialVersionUID = -2930846614957150721L;
+	private String oldName;
+
+	/**
+	 * @param entityName
+	 *            name of the Block painted into the cell, or null to erase it
+	 * @param oldName
+	 *            name of the Block the cell held before, or null if it was
+	 *            empty
+	 * @param xPos
+	 *            x position of the cell
+	 * @param yPos
+	 *            y position of the cell
+	 * @param zPos
+	 *            layer of the tile layer
+	 * @param entityId
+	 *            id of the tile layer, which is created if it does not exist
+	 */
+	public PaintInfo(String entityName, String oldName, double xPos, double yPos, int zPos, long entityId)
+	{
+		super(entityName, xPos, yPos, zPos, entityId);
+		this.oldName = oldName;
+	}
+
+	public String getOldName()
+	{
+		return oldName;
+	}
+
+}
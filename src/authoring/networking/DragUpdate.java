@@ -0,0 +1,46 @@
+package authoring.networking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * A Packet holding the current positions of entities that a user is still
+ * dragging.
+ *
+ * A DragUpdate is applied as soon as it is received, and is not recorded for
+ * undo: the move itself is sent, as a MoveInfo, once the drag ends. The origin
+ * identifies the machine that sent the update, so that a machine can ignore
+ * the positions it sent itself.
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class DragUpdate extends Packet {
+
+	private static final long serialVersionUID = -3061873624519824376L;
+	private long origin;
+	private List<MoveEntityUpdate> updates;
+
+	/**
+	 * Creates a DragUpdate.
+	 *
+	 * @param origin
+	 *            the number identifying the machine that sent the update.
+	 * @param updates
+	 *            the current positions of the dragged entities.
+	 */
+	public DragUpdate(long origin, List<MoveEntityUpdate> updates) {
+		this.origin = origin;
+		this.updates = new ArrayList<MoveEntityUpdate>(updates);
+	}
+
+	public long getOrigin() {
+		return origin;
+	}
+
+	public List<MoveEntityUpdate> getUpdates() {
+		return updates;
+	}
+
+}
@@ -8,6 +8,8 @@ public class MoveEntityUpdate extends EntityUpdate {
 
 	public MoveEntityUpdate(double newX, double newY, long entityId) {
 		super(entityId);
+		this.newX = newX;
+		this.newY = newY;
 	}
 
 	public double getX() {
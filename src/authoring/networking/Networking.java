@@ -7,11 +7,14 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 
 import authoring.Workspace;
 import authoring.command.AddInfo;
 import authoring.command.EntityCommandInfo;
+import authoring.command.EntityInfo;
 import authoring.command.EntityListInfo;
 import authoring.command.MultiEntityInfo;
 import authoring.panel.chat.Message;
@@ -21,11 +24,17 @@ import javafx.concurrent.Task;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.TextInputDialog;
-import networking.io.Serializer;
-import networking.io.Unserializer;
+import networking.io.BinarySerializer;
+import networking.io.BinaryUnserializer;
+import networking.io.CodecRegistry;
+import networking.net.AssetStore;
+import networking.net.Connection;
+import networking.net.ConstantModifier;
+import networking.net.Lane;
 import networking.net.ObservableClient;
-import networking.net.ObservableServer;
-import networking.net.SocketConnection;
+import networking.net.NioObservableServer;
+import networking.net.requests.ModifierRequest;
+import networking.net.requests.Request;
 
 /**
  * 
@@ -36,6 +45,21 @@ import networking.net.SocketConnection;
  * user has to do. The only information a user has to input is the server IP
  * address, when joing a different server.
  * 
+ * Packets are sent with the compact binary codecs defined in PacketCodecs.
+ * Moves and resizes sent with sendIfConnected() go through a PacketBatcher,
+ * which merges the updates made to an entity in quick succession and sends
+ * them in batches, at a capped rate. The positions of entities that are still
+ * being dragged can be streamed with streamDrag().
+ * 
+ * Chat messages and lists of entities are sent on their own lanes, so that
+ * sharing a large list of entities holds back neither edits nor chat.
+ * 
+ * Images are not sent along with the entities that use them. Each image is
+ * kept in the AssetStore under the hash of its contents, and only its hash is
+ * sent: the server asks for the images it has never seen, and other users
+ * fetch the ones they are missing before the entities are handed to the
+ * Workspace. An image is therefore transferred to each machine once.
+ * 
  * It provides four public methods: start(), which starts a server, join(),
  * which joins a server, showIP(), which displays the IP address to the user,
  * and send(Packet packet), which sends a Packet over the network.
@@ -46,9 +70,16 @@ import networking.net.SocketConnection;
 public class Networking implements ConnectionObserver {
 
 	private Workspace workspace;
-	private ObservableServer<Packet> server;
+	private NioObservableServer<Packet> server;
+	private boolean sharedLevel;
 	private ObservableClient<Packet> client;
+	private PacketBatcher batcher;
+	private long origin;
+	private boolean streamingDrags;
+	private AssetStore assets;
+	private CompletableFuture<Void> receiving;
 	private static final int PORT = 1337;
+	private static final CodecRegistry CODECS = PacketCodecs.createRegistry();
 
 	/**
 	 * Creates a Networking instance.
@@ -58,6 +89,11 @@ public class Networking implements ConnectionObserver {
 	 */
 	public Networking(Workspace workspace) {
 		this.workspace = workspace;
+		this.origin = ThreadLocalRandom.current().nextLong();
+		this.batcher = new PacketBatcher(this::send, origin, PacketBatcher.DEFAULT_WINDOW);
+		this.streamingDrags = true;
+		this.assets = AssetStore.getDefault();
+		this.receiving = CompletableFuture.completedFuture(null);
 	}
 
 	/**
@@ -76,11 +112,12 @@ public class Networking implements ConnectionObserver {
 		workspace.getMaker().showProgressForTask(task, true);
 	}
 
-	@SuppressWarnings("unchecked")
 	private void startHelper() throws InterruptedException {
 		try {
-			server = new ObservableServer<Packet>(null, PORT, Serializer.NONE, Unserializer.NONE, Duration.ofSeconds(5),
-					this);
+			server = new NioObservableServer<Packet>(null, PORT, new BinarySerializer<Packet>(CODECS),
+					new BinaryUnserializer<Packet>(CODECS), Duration.ofSeconds(5), this);
+			server.setLaneSelector(Networking::laneOf);
+			server.setAssetStore(assets);
 			Executors.newSingleThreadExecutor().submit(server);
 			join(getIP());
 		} catch (Exception e) {
@@ -110,17 +147,30 @@ public class Networking implements ConnectionObserver {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	private void join(String IP) throws InterruptedException {
 		try {
-			client = new ObservableClient<>(IP, PORT, Serializer.NONE, Unserializer.NONE, Duration.ofSeconds(5));
-			client.addListener(client -> received(client));
+			client = new ObservableClient<>(IP, PORT, new BinarySerializer<Packet>(CODECS),
+					new BinaryUnserializer<Packet>(CODECS), Duration.ofSeconds(5));
+			client.resumeFrom(null, 0);
+			client.setLaneSelector(Networking::laneOf);
+			client.setAssetStore(assets);
+			client.addListener(packet -> receivedFromNetwork(packet));
+			client.setDropListener(modifier -> Platform.runLater(() -> showNotShared()));
 			Executors.newSingleThreadExecutor().submit(client);
 		} catch (IOException e) {
 			throw new InterruptedException();
 		}
 	}
 
+	/**
+	 * Tells the user that one of his or her edits was not applied for the
+	 * other users.
+	 */
+	private void showNotShared() {
+		workspace.getMaker().makeAlert(AlertType.ERROR, "ErrorTitle", "ErrorHeader",
+				workspace.getPolyglot().get("EditNotShared").get()).show();
+	}
+
 	/**
 	 * Shows the IP address for the current machine. Runs the operation on a
 	 * separate thread, and uses an Alert to inform the user of his or her IP.
@@ -156,6 +206,7 @@ public class Networking implements ConnectionObserver {
 	 * Closes the connections opened on this machine.
 	 */
 	public void close() {
+		batcher.flush();
 		if (server != null && server.isActive())
 			server.close();
 		if (client != null && client.isActive())
@@ -171,44 +222,145 @@ public class Networking implements ConnectionObserver {
 	}
 
 	public void send(Packet packet) {
-		client.addToOutbox(state -> packet);
+		publishAssets(packet);
+		client.addToOutbox(new ConstantModifier<Packet>(packet));
+	}
+
+	/**
+	 * Replaces the images of the entities in a Packet by their hashes, and
+	 * offers the images to the server. An image that cannot be read is sent
+	 * along with its entity, as before.
+	 */
+	private void publishAssets(Packet packet) {
+		List<String> hashes = new ArrayList<String>();
+		for (EntityListInfo entityList : findEntityLists(packet, new ArrayList<EntityListInfo>())) {
+			for (EntityInfo info : entityList.getEntityInfo()) {
+				try {
+					info.setAsset(assets.put(info.getEntity().getImagePath()));
+					hashes.add(info.getAsset());
+				} catch (IOException | RuntimeException e) {
+					info.setAsset(null);
+				}
+			}
+		}
+		if (!hashes.isEmpty()) {
+			client.offerAssets(hashes);
+		}
+	}
+
+	/**
+	 * Points the entities in a Packet at their images in the AssetStore, and
+	 * hands the Packet on once the missing images have been fetched. Packets
+	 * are handed on in the order they were received, so that the Packets
+	 * following an entity list are not applied before it.
+	 */
+	private synchronized void receivedFromNetwork(Packet packet) {
+		List<String> hashes = new ArrayList<String>();
+		for (EntityListInfo entityList : findEntityLists(packet, new ArrayList<EntityListInfo>())) {
+			for (EntityInfo info : entityList.getEntityInfo()) {
+				if (AssetStore.isHash(info.getAsset())) {
+					info.getEntity().setImagePath(assets.getURL(info.getAsset()));
+					hashes.add(info.getAsset());
+				}
+			}
+		}
+		CompletableFuture<Void> fetched = hashes.isEmpty() ? CompletableFuture.completedFuture(null)
+				: client.fetchAssets(hashes);
+		receiving = receiving.thenCompose(done -> fetched).handle((done, e) -> (Void) null)
+				.thenRun(() -> received(packet));
+	}
+
+	private List<EntityListInfo> findEntityLists(Object packet, List<EntityListInfo> found) {
+		if (packet instanceof EntityListInfo) {
+			found.add((EntityListInfo) packet);
+		} else if (packet instanceof MultiEntityInfo && ((MultiEntityInfo<?>) packet).getInfo() != null) {
+			((MultiEntityInfo<?>) packet).getInfo().forEach(info -> findEntityLists(info, found));
+		}
+		return found;
 	}
 
 	/**
 	 * Sends the packet if you are connected to the network. If you aren't
-	 * connected, then receives the packet immediately.
+	 * connected, then receives the packet immediately. Moves and resizes are
+	 * coalesced by the PacketBatcher before being sent.
 	 * 
 	 * @param packet
 	 *            the Packet to be sent.
 	 */
 	public void sendIfConnected(Packet packet) {
 		if (isConnected()) {
-			this.send(packet);
+			batcher.submit(packet);
 		} else {
 			this.received(packet);
 		}
 	}
 
+	/**
+	 * Streams the current positions of entities that are being dragged, so
+	 * that other users can follow the drag. Does nothing if you aren't
+	 * connected, or if streaming is turned off.
+	 * 
+	 * @param updates
+	 *            the current positions of the dragged entities.
+	 */
+	public void streamDrag(List<MoveEntityUpdate> updates) {
+		if (streamingDrags && isConnected()) {
+			batcher.stream(updates);
+		}
+	}
+
+	/**
+	 * @param streamingDrags
+	 *            whether the positions of dragged entities should be streamed
+	 *            before the drag ends.
+	 */
+	public void setStreamingDrags(boolean streamingDrags) {
+		this.streamingDrags = streamingDrags;
+	}
+
 	private void received(Packet packet) {
 		if (packet != null) {
 			if (packet instanceof Message) {
 				workspace.getPanel().getChat().received(packet);
 			} else if (packet instanceof EntityCommandInfo || packet instanceof MultiEntityInfo) {
+				findEntityLists(packet, new ArrayList<EntityListInfo>()).forEach(workspace::received);
 				workspace.getLevelEditor().received(packet);
+			} else if (packet instanceof DragUpdate) {
+				if (((DragUpdate) packet).getOrigin() != origin) {
+					workspace.getLevelEditor().received(packet);
+				}
 			} else if (packet instanceof EntityListInfo) {
 				workspace.received(packet);
 			}
 		}
 	}
 
+	private static Lane laneOf(Request request) {
+		if (request instanceof ModifierRequest && ((ModifierRequest<?>) request).get() instanceof ConstantModifier) {
+			Object packet = ((ConstantModifier<?>) ((ModifierRequest<?>) request).get()).getValue();
+			if (packet instanceof Message) {
+				return Lane.CHAT;
+			} else if (packet instanceof EntityListInfo) {
+				return Lane.BULK;
+			}
+		}
+		return Lane.EDIT;
+	}
+
 	private Optional<String> askForIP() {
 		TextInputDialog dialog = workspace.getMaker().makeTextInputDialog("JoinTitle", "JoinHeader", "JoinPrompt", "");
 		return dialog.showAndWait();
 	}
 
+	/**
+	 * Shares the current level when the session starts, and again whenever
+	 * the server's commit log no longer reaches back to the start of the
+	 * session. Otherwise, joining clients start from commit 0 and catch up
+	 * from the commit log.
+	 */
 	@Override
-	public void newConnection(SocketConnection connection) {
-		if (server != null && server.isActive()) {
+	public void newConnection(Connection connection) {
+		if (server != null && server.isActive() && (!sharedLevel || !server.canResumeFrom(0))) {
 			List<? extends Entity> addedEntityList = workspace.getDefaults().getEntities();
 			EntityListInfo currentEntities = new EntityListInfo(addedEntityList);
 			List<AddInfo> addedEntities = new ArrayList<AddInfo>();
@@ -223,6 +375,7 @@ public class Networking implements ConnectionObserver {
 			startingState.add(currentEntities);
 			startingState.add(multiAdd);
 			send(new MultiEntityInfo<Packet>(startingState));
+			sharedLevel = true;
 		}
 	}
 
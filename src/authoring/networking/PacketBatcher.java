@@ -0,0 +1,201 @@
+package authoring.networking;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import authoring.command.MoveInfo;
+import authoring.command.MultiEntityInfo;
+import authoring.command.ResizeInfo;
+import authoring.command.SingleEntityCommandInfo;
+
+/**
+ *
+ * This class coalesces the moves and resizes sent by a user before they are
+ * sent over the network.
+ *
+ * Moves and resizes are kept per entity: when an entity is moved again before
+ * its previous move was sent, the two are merged into a single move, from the
+ * first move's old position to the last move's new position. Pending moves and
+ * resizes are sent together, as a single MultiEntityInfo, at most once per
+ * window. A Packet of any other type is sent right away, after the pending
+ * moves and resizes, so that the order in which the user acted is kept.
+ *
+ * The positions of entities that are still being dragged are kept the same
+ * way, and sent as a single DragUpdate at the same capped rate.
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class PacketBatcher {
+
+	public static final long DEFAULT_WINDOW = 50;
+	private final Consumer<Packet> sender;
+	private final long origin;
+	private final long window;
+	private final ScheduledExecutorService scheduler;
+	private final Map<Long, SingleEntityCommandInfo> pending;
+	private final Map<Long, MoveEntityUpdate> dragged;
+	private boolean scheduled;
+	private long lastFlush;
+	private long submitted;
+	private long sent;
+
+	/**
+	 * Creates a PacketBatcher.
+	 *
+	 * @param sender
+	 *            the Consumer that sends a Packet over the network.
+	 * @param origin
+	 *            the number identifying this machine in the DragUpdates it
+	 *            sends.
+	 * @param window
+	 *            the minimum time between two batches, in milliseconds.
+	 */
+	public PacketBatcher(Consumer<Packet> sender, long origin, long window) {
+		this.sender = sender;
+		this.origin = origin;
+		this.window = TimeUnit.MILLISECONDS.toNanos(window);
+		this.pending = new LinkedHashMap<Long, SingleEntityCommandInfo>();
+		this.dragged = new LinkedHashMap<Long, MoveEntityUpdate>();
+		this.lastFlush = System.nanoTime() - this.window;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "PacketBatcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Sends a Packet. Moves and resizes, alone or in a MultiEntityInfo, are
+	 * coalesced with the pending ones; any other Packet is sent right away.
+	 *
+	 * @param packet
+	 *            the Packet to be sent.
+	 */
+	public synchronized void submit(Packet packet) {
+		if (isCoalescable(packet)) {
+			if (packet instanceof MultiEntityInfo) {
+				((MultiEntityInfo<?>) packet).getInfo().forEach(info -> merge((SingleEntityCommandInfo) info));
+			} else {
+				merge((SingleEntityCommandInfo) packet);
+			}
+			schedule();
+		} else {
+			flush();
+			submitted++;
+			send(packet);
+		}
+	}
+
+	/**
+	 * Records the current positions of entities that are being dragged. Only
+	 * the latest position of each entity is sent, at most once per window.
+	 *
+	 * @param updates
+	 *            the current positions of the dragged entities.
+	 */
+	public synchronized void stream(List<MoveEntityUpdate> updates) {
+		updates.forEach(update -> dragged.put(update.getEntityId(), update));
+		schedule();
+	}
+
+	/**
+	 * Sends the pending moves, resizes and drag positions right away.
+	 */
+	public synchronized void flush() {
+		scheduled = false;
+		if (!dragged.isEmpty()) {
+			pending.keySet().forEach(dragged::remove);
+			if (!dragged.isEmpty()) {
+				send(new DragUpdate(origin, new ArrayList<MoveEntityUpdate>(dragged.values())));
+			}
+			dragged.clear();
+		}
+		if (pending.size() == 1) {
+			send(pending.values().iterator().next());
+		} else if (pending.size() > 1) {
+			send(new MultiEntityInfo<Packet>(new ArrayList<Packet>(pending.values())));
+		}
+		pending.clear();
+		lastFlush = System.nanoTime();
+	}
+
+	/**
+	 * Sends the pending Packets, and stops the thread that sends batches.
+	 */
+	public void close() {
+		flush();
+		scheduler.shutdown();
+	}
+
+	/**
+	 * @return the number of Packets sent to this batcher, counting each entity
+	 *         in a MultiEntityInfo separately.
+	 */
+	public synchronized long getSubmittedCount() {
+		return submitted;
+	}
+
+	/**
+	 * @return the number of Packets actually sent over the network.
+	 */
+	public synchronized long getSentCount() {
+		return sent;
+	}
+
+	private boolean isCoalescable(Packet packet) {
+		if (packet instanceof MultiEntityInfo) {
+			List<?> info = ((MultiEntityInfo<?>) packet).getInfo();
+			return info != null && !info.isEmpty() && info.stream().allMatch(this::isMoveOrResize);
+		}
+		return isMoveOrResize(packet);
+	}
+
+	private boolean isMoveOrResize(Object packet) {
+		return packet instanceof MoveInfo || packet instanceof ResizeInfo;
+	}
+
+	private void merge(SingleEntityCommandInfo info) {
+		submitted++;
+		SingleEntityCommandInfo previous = pending.get(info.getEntityId());
+		if (previous != null && previous.getClass() != info.getClass()) {
+			flush();
+			previous = null;
+		}
+		pending.put(info.getEntityId(), previous == null ? info : combine(previous, info));
+	}
+
+	private SingleEntityCommandInfo combine(SingleEntityCommandInfo first, SingleEntityCommandInfo last) {
+		if (first instanceof MoveInfo) {
+			MoveInfo firstMove = (MoveInfo) first;
+			MoveInfo lastMove = (MoveInfo) last;
+			return new MoveInfo(last.getEntityName(), last.getEntityId(), firstMove.getOldX(), firstMove.getOldY(),
+					lastMove.getNewX(), lastMove.getNewY());
+		}
+		ResizeInfo firstResize = (ResizeInfo) first;
+		ResizeInfo lastResize = (ResizeInfo) last;
+		return new ResizeInfo(last.getEntityName(), last.getEntityId(), firstResize.getOldHeight(),
+				firstResize.getOldWidth(), lastResize.getNewHeight(), lastResize.getNewWidth(), firstResize.getOldX(),
+				firstResize.getOldY(), lastResize.getNewX(), lastResize.getNewY());
+	}
+
+	private void schedule() {
+		if (!scheduled) {
+			scheduled = true;
+			long delay = Math.max(0, lastFlush + window - System.nanoTime());
+			scheduler.schedule(this::flush, delay, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void send(Packet packet) {
+		sent++;
+		sender.accept(packet);
+	}
+
+}
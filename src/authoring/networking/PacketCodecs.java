@@ -0,0 +1,200 @@
+package authoring.networking;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import authoring.command.AddInfo;
+import authoring.command.DeleteInfo;
+import authoring.command.MoveInfo;
+import authoring.command.MultiEntityInfo;
+import authoring.command.PaintInfo;
+import authoring.command.ResizeInfo;
+import authoring.panel.chat.Message;
+import networking.io.CodecRegistry;
+import networking.io.ObjectCodec;
+
+/**
+ * This class holds the binary codecs for the Packets sent between authoring
+ * environments.
+ *
+ * Chat messages, entity commands and drag updates are sent many times a
+ * second while users drag entities around, so each is written field by field. The EntityListInfo,
+ * which is only sent when entities are defined or a user joins, keeps its own
+ * custom serialization; the images of its entities are sent separately, as
+ * assets.
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class PacketCodecs {
+
+	private static final int MESSAGE = CodecRegistry.FIRST_USER_TAG;
+	private static final int ADD = MESSAGE + 1;
+	private static final int DELETE = MESSAGE + 2;
+	private static final int MOVE = MESSAGE + 3;
+	private static final int RESIZE = MESSAGE + 4;
+	private static final int MULTI = MESSAGE + 5;
+	private static final int DRAG = MESSAGE + 6;
+	private static final int PAINT = MESSAGE + 7;
+
+	private PacketCodecs() {
+	}
+
+	/**
+	 * @return a registry holding a codec for every Packet sent frequently.
+	 */
+	public static CodecRegistry createRegistry() {
+		CodecRegistry registry = new CodecRegistry();
+		registry.register(MESSAGE, Message.class, new ObjectCodec<Message>() {
+			@Override
+			public void write(Message obj, DataOutput out, CodecRegistry registry) throws IOException {
+				CodecRegistry.writeString(out, obj.getUsername());
+				CodecRegistry.writeString(out, obj.getMessage());
+			}
+
+			@Override
+			public Message read(DataInput in, CodecRegistry registry) throws IOException {
+				return new Message(CodecRegistry.readString(in), CodecRegistry.readString(in));
+			}
+		});
+		registry.register(ADD, AddInfo.class, new ObjectCodec<AddInfo>() {
+			@Override
+			public void write(AddInfo obj, DataOutput out, CodecRegistry registry) throws IOException {
+				CodecRegistry.writeString(out, obj.getEntityName());
+				writePosition(out, obj.getX(), obj.getY(), obj.getZ(), obj.getEntityId());
+			}
+
+			@Override
+			public AddInfo read(DataInput in, CodecRegistry registry) throws IOException {
+				return new AddInfo(CodecRegistry.readString(in), in.readDouble(), in.readDouble(), in.readInt(),
+						in.readLong());
+			}
+		});
+		registry.register(DELETE, DeleteInfo.class, new ObjectCodec<DeleteInfo>() {
+			@Override
+			public void write(DeleteInfo obj, DataOutput out, CodecRegistry registry) throws IOException {
+				CodecRegistry.writeString(out, obj.getEntityName());
+				writePosition(out, obj.getX(), obj.getY(), obj.getZ(), obj.getEntityId());
+			}
+
+			@Override
+			public DeleteInfo read(DataInput in, CodecRegistry registry) throws IOException {
+				return new DeleteInfo(CodecRegistry.readString(in), in.readDouble(), in.readDouble(), in.readInt(),
+						in.readLong());
+			}
+		});
+		registry.register(MOVE, MoveInfo.class, new ObjectCodec<MoveInfo>() {
+			@Override
+			public void write(MoveInfo obj, DataOutput out, CodecRegistry registry) throws IOException {
+				CodecRegistry.writeString(out, obj.getEntityName());
+				out.writeLong(obj.getEntityId());
+				writeDoubles(out, obj.getOldX(), obj.getOldY(), obj.getNewX(), obj.getNewY());
+			}
+
+			@Override
+			public MoveInfo read(DataInput in, CodecRegistry registry) throws IOException {
+				return new MoveInfo(CodecRegistry.readString(in), in.readLong(), in.readDouble(), in.readDouble(),
+						in.readDouble(), in.readDouble());
+			}
+		});
+		registry.register(RESIZE, ResizeInfo.class, new ObjectCodec<ResizeInfo>() {
+			@Override
+			public void write(ResizeInfo obj, DataOutput out, CodecRegistry registry) throws IOException {
+				CodecRegistry.writeString(out, obj.getEntityName());
+				out.writeLong(obj.getEntityId());
+				writeDoubles(out, obj.getOldHeight(), obj.getOldWidth(), obj.getNewHeight(), obj.getNewWidth(),
+						obj.getOldX(), obj.getOldY(), obj.getNewX(), obj.getNewY());
+			}
+
+			@Override
+			public ResizeInfo read(DataInput in, CodecRegistry registry) throws IOException {
+				return new ResizeInfo(CodecRegistry.readString(in), in.readLong(), in.readDouble(), in.readDouble(),
+						in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+						in.readDouble());
+			}
+		});
+		registry.register(MULTI, multiEntityInfoClass(), new ObjectCodec<MultiEntityInfo<?>>() {
+			@Override
+			public void write(MultiEntityInfo<?> obj, DataOutput out, CodecRegistry registry) throws IOException {
+				List<?> info = obj.getInfo();
+				out.writeInt(info.size());
+				for (Object packet : info) {
+					registry.writeObject(packet, out);
+				}
+			}
+
+			@Override
+			public MultiEntityInfo<?> read(DataInput in, CodecRegistry registry) throws IOException {
+				int size = in.readInt();
+				List<Packet> info = new ArrayList<Packet>();
+				for (int i = 0; i < size; i++) {
+					info.add((Packet) registry.readObject(in));
+				}
+				return new MultiEntityInfo<Packet>(info);
+			}
+		});
+		registry.register(DRAG, DragUpdate.class, new ObjectCodec<DragUpdate>() {
+			@Override
+			public void write(DragUpdate obj, DataOutput out, CodecRegistry registry) throws IOException {
+				out.writeLong(obj.getOrigin());
+				out.writeInt(obj.getUpdates().size());
+				for (MoveEntityUpdate update : obj.getUpdates()) {
+					out.writeLong(update.getEntityId());
+					writeDoubles(out, update.getX(), update.getY());
+				}
+			}
+
+			@Override
+			public DragUpdate read(DataInput in, CodecRegistry registry) throws IOException {
+				long origin = in.readLong();
+				int size = in.readInt();
+				List<MoveEntityUpdate> updates = new ArrayList<MoveEntityUpdate>();
+				for (int i = 0; i < size; i++) {
+					long entityId = in.readLong();
+					updates.add(new MoveEntityUpdate(in.readDouble(), in.readDouble(), entityId));
+				}
+				return new DragUpdate(origin, updates);
+			}
+		});
+		registry.register(PAINT, PaintInfo.class, new ObjectCodec<PaintInfo>() {
+			@Override
+			public void write(PaintInfo obj, DataOutput out, CodecRegistry registry) throws IOException {
+				CodecRegistry.writeString(out, obj.getEntityName());
+				CodecRegistry.writeString(out, obj.getOldName());
+				writePosition(out, obj.getX(), obj.getY(), obj.getZ(), obj.getEntityId());
+			}
+
+			@Override
+			public PaintInfo read(DataInput in, CodecRegistry registry) throws IOException {
+				return new PaintInfo(CodecRegistry.readString(in), CodecRegistry.readString(in), in.readDouble(),
+						in.readDouble(), in.readInt(), in.readLong());
+			}
+		});
+		return registry;
+	}
+
+	/**
+	 * @return the class of MultiEntityInfo, typed so that its codec needs no
+	 *         raw types.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Class<MultiEntityInfo<?>> multiEntityInfoClass() {
+		return (Class<MultiEntityInfo<?>>) (Class<?>) MultiEntityInfo.class;
+	}
+
+	private static void writePosition(DataOutput out, double x, double y, int z, long entityId) throws IOException {
+		writeDoubles(out, x, y);
+		out.writeInt(z);
+		out.writeLong(entityId);
+	}
+
+	private static void writeDoubles(DataOutput out, double... values) throws IOException {
+		for (double value : values) {
+			out.writeDouble(value);
+		}
+	}
+
+}
@@ -0,0 +1,232 @@
+package data;
+
+import static data.ArchiveEntry.CENTRAL_HEADER_SIGNATURE;
+import static data.ArchiveEntry.CENTRAL_HEADER_SIZE;
+import static data.ArchiveEntry.END_SIGNATURE;
+import static data.ArchiveEntry.END_SIZE;
+import static data.ArchiveEntry.LOCAL_HEADER_SIGNATURE;
+import static data.ArchiveEntry.LOCAL_HEADER_SIZE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * This class adds a single file to an existing .vs archive without
+ * recompressing the files that are already inside it. The archive's bytes are
+ * copied as they are to a temporary file next to it, the new entry and a new
+ * central directory are written after them, and the copy then replaces the
+ * archive in a single atomic move. If the game stops while saving, the
+ * archive is left as it was.
+ *
+ * If an entry with the same name already exists, it is dropped from the
+ * central directory so that readers see the newest version. Its bytes stay in
+ * the archive until the dropped entries make up more than a quarter of it;
+ * the copy then only keeps the entries that are still in the central
+ * directory.
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class ArchiveAppender {
+
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+	private static final double MAX_DEAD_FRACTION = 0.25;
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/**
+	 * A central directory record kept in the new archive, along with the
+	 * local header and data it points to.
+	 */
+	private static class Record {
+		private byte[] central;
+		private long localOffset;
+		private long localLength;
+
+		/**
+		 * @return the central directory record, pointing to localOffset.
+		 */
+		private byte[] movedTo(long localOffset) {
+			byte[] moved = central.clone();
+			ByteBuffer.wrap(moved).order(ByteOrder.LITTLE_ENDIAN).putInt(42, (int) localOffset);
+			return moved;
+		}
+	}
+
+	/**
+	 * Appends a file to the archive.
+	 *
+	 * @param archive
+	 *            the .vs archive to append to.
+	 * @param entryName
+	 *            the name of the file inside the archive.
+	 * @param contents
+	 *            the uncompressed contents of the file.
+	 * @throws IOException
+	 *             if the archive cannot be read or written.
+	 */
+	public void append(File archive, String entryName, byte[] contents) throws IOException {
+		ArchiveEntry entry = ArchiveEntry.deflated(entryName, contents, Deflater.DEFAULT_COMPRESSION);
+		int dosTime = ArchiveEntry.toDosTime(LocalDateTime.now());
+		Path path = archive.toPath();
+		Path copyPath = path.resolveSibling(archive.getName() + TEMP_SUFFIX);
+
+		try {
+			try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+					FileChannel copy = FileChannel.open(copyPath, StandardOpenOption.CREATE,
+							StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				ByteBuffer end = readEnd(file, archive);
+				long directoryOffset = end.getInt(16) & 0xFFFFFFFFL;
+				int directorySize = end.getInt(12);
+				byte[] directory = read(file, directoryOffset, directorySize).array();
+				List<Record> kept = readEntriesExcept(file, directory, entry.getName());
+
+				ByteArrayOutputStream newDirectory = new ByteArrayOutputStream(directorySize + CENTRAL_HEADER_SIZE);
+				long liveBytes = kept.stream().mapToLong(record -> record.localLength).sum();
+				if (directoryOffset - liveBytes > MAX_DEAD_FRACTION * directoryOffset) {
+					for (Record record : kept) {
+						newDirectory.write(record.movedTo(copy.position()));
+						transfer(file, record.localOffset, record.localLength, copy);
+					}
+				} else {
+					transfer(file, 0, directoryOffset, copy);
+					for (Record record : kept) {
+						newDirectory.write(record.central);
+					}
+				}
+
+				long entryOffset = copy.position();
+				write(copy, entry.localHeader(dosTime));
+				write(copy, entry.getData());
+				newDirectory.write(entry.centralHeader(dosTime, entryOffset));
+
+				long newDirectoryOffset = copy.position();
+				byte[] newDirectoryBytes = newDirectory.toByteArray();
+				write(copy, newDirectoryBytes);
+				write(copy, ArchiveEntry.end(kept.size() + 1, newDirectoryBytes.length, newDirectoryOffset));
+				copy.force(true);
+			}
+			Files.move(copyPath, path, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(copyPath);
+		}
+	}
+
+	/**
+	 * Locates and reads the end of central directory record.
+	 */
+	private ByteBuffer readEnd(FileChannel file, File archive) throws IOException {
+		long length = file.size();
+		int searchSize = (int) Math.min(length, END_SIZE + MAX_COMMENT_SIZE);
+		ByteBuffer tail = read(file, length - searchSize, searchSize);
+		for (int i = searchSize - END_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_SIGNATURE) {
+				return ArchiveEntry.buffer(END_SIZE).put(tail.array(), i, END_SIZE);
+			}
+		}
+		throw new ZipException("Not a game archive: " + archive);
+	}
+
+	/**
+	 * Reads every central directory record except the one named
+	 * excludedName.
+	 */
+	private List<Record> readEntriesExcept(FileChannel file, byte[] directory, byte[] excludedName)
+			throws IOException {
+		ByteBuffer buffer = ArchiveEntry.buffer(directory.length).put(directory);
+		List<Record> records = new ArrayList<Record>();
+		int position = 0;
+		while (position + CENTRAL_HEADER_SIZE <= directory.length) {
+			if (buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Corrupt central directory");
+			}
+			int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+			int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+			int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+			int recordLength = CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+			if (!sameName(directory, position + CENTRAL_HEADER_SIZE, nameLength, excludedName)) {
+				Record record = new Record();
+				record.central = Arrays.copyOfRange(directory, position, position + recordLength);
+				record.localOffset = buffer.getInt(position + 42) & 0xFFFFFFFFL;
+				record.localLength = localLength(file, record.localOffset, buffer.getInt(position + 20) & 0xFFFFFFFFL,
+						buffer.getShort(position + 8));
+				records.add(record);
+			}
+			position += recordLength;
+		}
+		return records;
+	}
+
+	/**
+	 * @return the length of a local header, its data, and the data descriptor
+	 *         that follows the data when the sizes were not known in advance.
+	 */
+	private long localLength(FileChannel file, long offset, long compressedSize, int flags) throws IOException {
+		ByteBuffer header = read(file, offset, LOCAL_HEADER_SIZE);
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Corrupt local header");
+		}
+		long length = LOCAL_HEADER_SIZE + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF)
+				+ compressedSize;
+		if ((flags & DATA_DESCRIPTOR_FLAG) != 0) {
+			length += read(file, offset + length, 4).getInt(0) == DATA_DESCRIPTOR_SIGNATURE ? 16 : 12;
+		}
+		return length;
+	}
+
+	private boolean sameName(byte[] directory, int offset, int length, byte[] name) {
+		if (length != name.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (directory[offset + i] != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private ByteBuffer read(FileChannel file, long position, int size) throws IOException {
+		ByteBuffer buffer = ArchiveEntry.buffer(size);
+		while (buffer.hasRemaining()) {
+			if (file.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Truncated game archive");
+			}
+		}
+		return buffer;
+	}
+
+	private void write(FileChannel file, byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+			file.write(buffer);
+		}
+	}
+
+	private void transfer(FileChannel source, long position, long count, FileChannel target) throws IOException {
+		while (count > 0) {
+			long transferred = source.transferTo(position, count, target);
+			if (transferred <= 0) {
+				throw new EOFException("Truncated game archive");
+			}
+			position += transferred;
+			count -= transferred;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package data;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A file that has been prepared for a .vs archive: its contents are already
+ * compressed (or deliberately left uncompressed) and checksummed, so writing
+ * it is a matter of copying bytes. This lets entries be prepared in parallel
+ * and written in order afterwards.
+ *
+ * Also holds the zip record layouts shared by the Packager and the
+ * ArchiveAppender.
+ *
+ * @author Elliott Bolzan
+ *
+ */
+class ArchiveEntry {
+
+	static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	static final int END_SIGNATURE = 0x06054b50;
+	static final int LOCAL_HEADER_SIZE = 30;
+	static final int CENTRAL_HEADER_SIZE = 46;
+	static final int END_SIZE = 22;
+	static final long MAX_OFFSET = 0xFFFFFFFFL;
+	static final int MAX_ENTRIES = 0xFFFF;
+	private static final short VERSION = 20;
+	private static final short UTF8_FLAG = 0x0800;
+	private static final short STORED = 0;
+	private static final short DEFLATED = 8;
+
+	private final byte[] name;
+	private final short method;
+	private final int crc;
+	private final byte[] data;
+	private final int size;
+
+	private ArchiveEntry(String name, short method, int crc, byte[] data, int size) {
+		this.name = name.getBytes(StandardCharsets.UTF_8);
+		this.method = method;
+		this.crc = crc;
+		this.data = data;
+		this.size = size;
+	}
+
+	/**
+	 * Prepares an entry that is stored as is, for contents that are already
+	 * compressed.
+	 */
+	static ArchiveEntry stored(String name, byte[] contents) {
+		return new ArchiveEntry(name, STORED, checksum(contents), contents, contents.length);
+	}
+
+	/**
+	 * Prepares an entry that is deflated.
+	 */
+	static ArchiveEntry deflated(String name, byte[] contents, int level) {
+		return new ArchiveEntry(name, DEFLATED, checksum(contents), deflate(contents, level), contents.length);
+	}
+
+	/**
+	 * @return the entry's name, as stored in the archive.
+	 */
+	byte[] getName() {
+		return name;
+	}
+
+	/**
+	 * @return the entry's bytes, as stored in the archive.
+	 */
+	byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * @return the length of the local header and data.
+	 */
+	long getRecordLength() {
+		return LOCAL_HEADER_SIZE + name.length + data.length;
+	}
+
+	byte[] localHeader(int dosTime) {
+		ByteBuffer local = buffer(LOCAL_HEADER_SIZE + name.length);
+		local.putInt(LOCAL_HEADER_SIGNATURE).putShort(VERSION).putShort(UTF8_FLAG).putShort(method).putInt(dosTime)
+				.putInt(crc).putInt(data.length).putInt(size).putShort((short) name.length).putShort((short) 0)
+				.put(name);
+		return local.array();
+	}
+
+	byte[] centralHeader(int dosTime, long localHeaderOffset) {
+		ByteBuffer central = buffer(CENTRAL_HEADER_SIZE + name.length);
+		central.putInt(CENTRAL_HEADER_SIGNATURE).putShort(VERSION).putShort(VERSION).putShort(UTF8_FLAG)
+				.putShort(method).putInt(dosTime).putInt(crc).putInt(data.length).putInt(size)
+				.putShort((short) name.length).putShort((short) 0).putShort((short) 0).putShort((short) 0)
+				.putShort((short) 0).putInt(0).putInt((int) localHeaderOffset).put(name);
+		return central.array();
+	}
+
+	static byte[] end(int entryCount, int directorySize, long directoryOffset) {
+		ByteBuffer end = buffer(END_SIZE);
+		end.putInt(END_SIGNATURE).putShort((short) 0).putShort((short) 0).putShort((short) entryCount)
+				.putShort((short) entryCount).putInt(directorySize).putInt((int) directoryOffset).putShort((short) 0);
+		return end.array();
+	}
+
+	static int toDosTime(LocalDateTime time) {
+		int date = ((time.getYear() - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+		int clock = (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+		return (date << 16) | clock;
+	}
+
+	static ByteBuffer buffer(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static int checksum(byte[] contents) {
+		CRC32 crc = new CRC32();
+		crc.update(contents);
+		return (int) crc.getValue();
+	}
+
+	private static byte[] deflate(byte[] contents, int level) {
+		Deflater deflater = new Deflater(level, true);
+		deflater.setInput(contents);
+		deflater.finish();
+		ByteArrayOutputStream output = new ByteArrayOutputStream(contents.length / 4 + 64);
+		byte[] buffer = new byte[65536];
+		while (!deflater.finished()) {
+			int count = deflater.deflate(buffer);
+			output.write(buffer, 0, count);
+		}
+		deflater.end();
+		return output.toByteArray();
+	}
+}
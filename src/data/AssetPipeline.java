@@ -0,0 +1,186 @@
+package data;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import engine.entities.Entity;
+import engine.entities.entities.TileLayerEntity;
+import engine.game.Level;
+import javafx.scene.image.Image;
+import javafx.scene.media.Media;
+
+/**
+ * This class decodes a game's images and prepares its song in the background,
+ * while the rest of the game is still being loaded. The GameLoader submits
+ * every image as soon as it reads the Entity that refers to it; by the time
+ * the Player builds its nodes, the decoded images are usually waiting in the
+ * cache, so the first frame of a level does not stall on decoding.
+ *
+ * Decoding happens on a small, bounded pool of daemon threads. Images and
+ * songs are cached by path until the next game is unpacked, since every game
+ * is unpacked to the same temporary folder.
+ *
+ * Example of use:
+ *
+ * <pre>
+ * AssetPipeline.ready(game).thenRun(() -&gt; Platform.runLater(() -&gt; loop.startTimeline()));
+ * ...
+ * Image image = AssetPipeline.getImage(entity.getImagePath());
+ * </pre>
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class AssetPipeline {
+
+	private static final int MAX_THREADS = 4;
+	private static final ExecutorService POOL = Executors.newFixedThreadPool(
+			Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors())), runnable -> {
+				Thread thread = new Thread(runnable, "AssetPipeline");
+				thread.setDaemon(true);
+				return thread;
+			});
+	private static final Map<String, CompletableFuture<Image>> IMAGES = new ConcurrentHashMap<String, CompletableFuture<Image>>();
+	private static final Map<String, CompletableFuture<Media>> SONGS = new ConcurrentHashMap<String, CompletableFuture<Media>>();
+	private static final AtomicInteger SUBMITTED = new AtomicInteger();
+	private static final AtomicInteger COMPLETED = new AtomicInteger();
+
+	private AssetPipeline() {
+	}
+
+	/**
+	 * Starts decoding an image, unless it is already decoded or being decoded.
+	 *
+	 * @param imagePath
+	 *            the URL of the image, as stored in an Entity.
+	 * @return a future for the decoded image.
+	 */
+	public static CompletableFuture<Image> prefetchImage(String imagePath) {
+		return IMAGES.computeIfAbsent(imagePath, path -> submit(() -> new Image(path)));
+	}
+
+	/**
+	 * Starts preparing a song, unless it is already prepared or being
+	 * prepared.
+	 *
+	 * @param songPath
+	 *            the path to the song file, as stored in the Game.
+	 * @return a future for the song.
+	 */
+	public static CompletableFuture<Media> prefetchSong(String songPath) {
+		return SONGS.computeIfAbsent(songPath, path -> submit(() -> new Media(new File(path).toURI().toString())));
+	}
+
+	/**
+	 * Returns a decoded image, waiting for it if it is still being decoded.
+	 *
+	 * @param imagePath
+	 *            the URL of the image.
+	 * @return the image.
+	 */
+	public static Image getImage(String imagePath) {
+		try {
+			return prefetchImage(imagePath).join();
+		} catch (CompletionException e) {
+			IMAGES.remove(imagePath);
+			return new Image(imagePath);
+		}
+	}
+
+	/**
+	 * Returns a prepared song, waiting for it if it is still being prepared.
+	 *
+	 * @param songPath
+	 *            the path to the song file.
+	 * @return the song.
+	 */
+	public static Media getSong(String songPath) {
+		try {
+			return prefetchSong(songPath).join();
+		} catch (CompletionException e) {
+			SONGS.remove(songPath);
+			return new Media(new File(songPath).toURI().toString());
+		}
+	}
+
+	/**
+	 * Submits every image and the song of a game, and returns a future that
+	 * completes once all of them are ready (or have failed, in which case
+	 * they will be loaded on demand).
+	 *
+	 * @param game
+	 *            the game about to be played.
+	 * @return a future that completes when the game's assets are ready.
+	 */
+	public static CompletableFuture<Void> ready(Game game) {
+		List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>();
+		for (Level level : game.getLevels()) {
+			for (Entity entity : level.getEntities()) {
+				addImage(futures, entity);
+			}
+			addImage(futures, level.getBackground());
+		}
+		if (!game.getSongPath().equals("")) {
+			futures.add(prefetchSong(game.getSongPath()));
+		}
+		return CompletableFuture
+				.allOf(futures.stream().map(future -> future.exceptionally(e -> null))
+						.toArray(CompletableFuture[]::new));
+	}
+
+	/**
+	 * @return the fraction of submitted images and songs that are ready,
+	 *         between 0 and 1.
+	 */
+	public static double getProgress() {
+		int submitted = SUBMITTED.get();
+		return submitted == 0 ? 1 : Math.min(1, COMPLETED.get() / (double) submitted);
+	}
+
+	/**
+	 * Forgets every cached image and song. Called when a game is unpacked,
+	 * since its files replace those of the previous game.
+	 */
+	public static void clear() {
+		IMAGES.clear();
+		SONGS.clear();
+		SUBMITTED.set(0);
+		COMPLETED.set(0);
+	}
+
+	private static void addImage(List<CompletableFuture<?>> futures, Entity entity) {
+		if (entity != null && entity.getImagePath() != null) {
+			futures.add(prefetchImage(entity.getImagePath()));
+		}
+		if (entity instanceof TileLayerEntity) {
+			((TileLayerEntity) entity).getTileImages().forEach(path -> futures.add(prefetchImage(path)));
+		}
+	}
+
+	private interface Decoder<T> {
+		T decode() throws Exception;
+	}
+
+	private static <T> CompletableFuture<T> submit(Decoder<T> decoder) {
+		SUBMITTED.incrementAndGet();
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		POOL.execute(() -> {
+			try {
+				future.complete(decoder.decode());
+			} catch (Exception e) {
+				future.completeExceptionally(e);
+			} finally {
+				COMPLETED.incrementAndGet();
+			}
+		});
+		return future;
+	}
+}
@@ -0,0 +1,128 @@
+package data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class writes games to disk on a background thread, so that the thread
+ * requesting the save only pays for taking a snapshot of the Game. Since the
+ * game loop runs on its own SimulationThread, the snapshot is taken there,
+ * between two steps, and save() may be called from that thread.
+ *
+ * Saves are written one at a time, in the order they were requested. If a
+ * save is requested for a target while another save for the same target is
+ * still waiting to be written, the waiting save is replaced: only the most
+ * recent snapshot is written, and the replaced save is dropped without
+ * reporting. Saves for different targets are never coalesced.
+ *
+ * Example of use:
+ *
+ * <pre>
+ * BackgroundSaver saver = new BackgroundSaver(Platform::runLater);
+ * Game snapshot = game.clone(); // between two steps of the game
+ * saver.save(path, new SaveTask() {
+ * 	public void write() throws Exception {
+ * 		new GameData().saveGame(snapshot, path);
+ * 	}
+ * });
+ * </pre>
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class BackgroundSaver {
+
+	/**
+	 * The work done by a save, and how its completion is reported.
+	 * {@link #write()} runs on the background thread;
+	 * {@link #succeeded()} and {@link #failed(Exception)} run on the
+	 * BackgroundSaver's callback Executor.
+	 */
+	public interface SaveTask {
+
+		/**
+		 * Serializes, compresses and writes the snapshot.
+		 *
+		 * @throws Exception
+		 *             if the save could not be written.
+		 */
+		void write() throws Exception;
+
+		/**
+		 * Called once the save has been written.
+		 */
+		default void succeeded() {
+		}
+
+		/**
+		 * Called if the save could not be written.
+		 *
+		 * @param exception
+		 *            the reason for the failure.
+		 */
+		default void failed(Exception exception) {
+		}
+	}
+
+	private final ExecutorService writer;
+	private final Executor callbackExecutor;
+	private final Map<Object, SaveTask> pending;
+
+	/**
+	 * Creates a BackgroundSaver.
+	 *
+	 * @param callbackExecutor
+	 *            the Executor completion callbacks are run on (for instance,
+	 *            Platform::runLater).
+	 */
+	public BackgroundSaver(Executor callbackExecutor) {
+		this.callbackExecutor = callbackExecutor;
+		this.pending = new ConcurrentHashMap<Object, SaveTask>();
+		this.writer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "BackgroundSaver");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.NORM_PRIORITY - 1);
+			return thread;
+		});
+	}
+
+	/**
+	 * Requests a save. Returns immediately.
+	 *
+	 * @param target
+	 *            what is being saved to (for instance, the path of the game
+	 *            archive). Saves to equal targets are coalesced.
+	 * @param task
+	 *            the save to perform. It must only refer to a snapshot of the
+	 *            Game, never to objects the game loop is still modifying.
+	 */
+	public void save(Object target, SaveTask task) {
+		if (pending.put(target, task) == null) {
+			writer.execute(() -> write(target));
+		}
+	}
+
+	/**
+	 * Stops accepting saves. Saves that were already requested are still
+	 * written.
+	 */
+	public void shutdown() {
+		writer.shutdown();
+	}
+
+	private void write(Object target) {
+		SaveTask task = pending.remove(target);
+		if (task == null) {
+			return;
+		}
+		try {
+			task.write();
+			callbackExecutor.execute(task::succeeded);
+		} catch (Exception e) {
+			callbackExecutor.execute(() -> task.failed(e));
+		}
+	}
+}
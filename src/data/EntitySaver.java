@@ -19,6 +19,7 @@ import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.DomDriver;
 
 import engine.entities.Entity;
+import engine.entities.entities.TileLayerEntity;
 
 /**
  * This class provides the methods for saving Entities and lists of Entities using XStream.
@@ -59,7 +60,8 @@ public class EntitySaver {
 
 	/**
 	 * Converts an entity into an element node to be used in XML. Also saves the
-	 * entity's image into game resources.
+	 * entity's image into game resources, and the images of a tile layer's
+	 * tiles.
 	 * 
 	 * @param entity
 	 *            : Entity to be converted into element
@@ -73,11 +75,26 @@ public class EntitySaver {
 		this.saveImage(absoluteImagePath, relativeImagePath, gameFolderPath);
 
 		entity.setImagePath(relativeImagePath);
+		List<String> absoluteTileImages = null;
+		if (entity instanceof TileLayerEntity) {
+			TileLayerEntity layer = (TileLayerEntity) entity;
+			absoluteTileImages = layer.getTileImages();
+			List<String> relativeTileImages = new ArrayList<String>();
+			for (int i = 0; i < absoluteTileImages.size(); i++) {
+				String relativeTileImage = "resources" + File.separator + layer.getTileNames().get(i) + "Image.png";
+				this.saveImage(absoluteTileImages.get(i), relativeTileImage, gameFolderPath);
+				relativeTileImages.add(relativeTileImage);
+			}
+			layer.setTileImages(relativeTileImages);
+		}
 
 		XStream xStream = new XStream(new DomDriver());
 		xStream.registerConverter(new EntityConverter());
 		String xmlString = xStream.toXML(entity);
 		entity.setImagePath(absoluteImagePath);
+		if (absoluteTileImages != null) {
+			((TileLayerEntity) entity).setTileImages(absoluteTileImages);
+		}
 
 		return gameXMLFactory.stringToElement(xmlString);
 	}
@@ -37,6 +37,7 @@ public class Game {
 	private double currentTime;
 	private Set<Integer> unlockedLevels;
 	private int numberOfLives;
+	private int score;
 	
 
 	/**
@@ -329,6 +330,14 @@ public class Game {
 		return clockGoingDown;
 	}
 	
+	public void setScore(int inputScore){
+		score = inputScore;
+	}
+	
+	public int getScore(){
+		return score;
+	}
+	
 	public Game clone() {
 		Game cloneGame = new Game();
 		cloneGame.setName(this.name);
@@ -338,6 +347,9 @@ public class Game {
 		cloneGame.setInfo(this.info);
 		cloneGame.setClockGoingDown(this.clockGoingDown);
 		cloneGame.setCurrentTime(this.currentTime);
+		cloneGame.setScore(this.score);
+		cloneGame.setNumberOfLives(this.numberOfLives);
+		cloneGame.setUnlockedLevels(new HashSet<Integer>(this.unlockedLevels));
 		cloneGame.setAchievements(this.cloneAchievements());
 		return cloneGame;
 	}
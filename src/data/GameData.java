@@ -20,9 +20,26 @@ public class GameData {
 	 * @param folderPath
 	 * @param saveName
 	 */
-	public void saveGameState(Game game, String folderPath, String saveName){
+	public void saveGameState(Game game, String folderPath, String saveName) throws Exception {
+		saveGameState(game, loadBaseGame(folderPath), folderPath, saveName);
+	}
+	
+	/**
+	 * Saves the game to the chosen name, as a set of differences from the base game.
+	 * @param game
+	 * 			game to be saved
+	 * @param baseGame
+	 * 			the game as it was authored, as returned by loadBaseGame
+	 * @param folderPath
+	 * 			path to the game archive
+	 * @param saveName
+	 * 			name of the save
+	 * @throws Exception
+	 * 			if the save could not be written
+	 */
+	public void saveGameState(Game game, Game baseGame, String folderPath, String saveName) throws Exception {
 		GameSaver gs = new GameSaver();
-		gs.saveGameState(game, folderPath, saveName);
+		gs.saveGameState(game, baseGame, folderPath, saveName);
 	}
 	
 	/**
@@ -32,19 +49,43 @@ public class GameData {
 	 * @return
 	 */
 	public Game loadGame(String folderPath) throws Exception {
-		GameLoader gl = new GameLoader();
+		return loadGame(folderPath, false);
+	}
+	
+	/**
+	 * Loads the game, converting its blocks into tile layers if it is to be played
+	 * @param folderPath
+	 * 			folder path where the game wants to be loaded
+	 * @param tileLayers
+	 * 			true if the game is loaded to be played rather than edited
+	 * @return
+	 */
+	public Game loadGame(String folderPath, boolean tileLayers) throws Exception {
+		GameLoader gl = new GameLoader(tileLayers);
 		return gl.loadGame(folderPath, "settings.xml");
 	}
 	
 	/**
-	 * Load a save file
+	 * Load a save file, to be played
 	 * @param folderPath
 	 * @param saveName
 	 * @return
 	 */
 	public Game loadGameState(String folderPath, String saveName) throws Exception {
-		GameLoader gl = new GameLoader();
+		GameLoader gl = new GameLoader(true);
 		return gl.loadGame(folderPath, saveName);
 	}
+	
+	/**
+	 * Loads the game as it was authored, without its save states, as it is played
+	 * (see loadGame(folderPath, true)). The game must already have been loaded once.
+	 * @param folderPath
+	 * 			path to the game archive
+	 * @return
+	 */
+	public Game loadBaseGame(String folderPath) throws Exception {
+		GameLoader gl = new GameLoader(true);
+		return gl.loadBaseGame(folderPath);
+	}
 
-}
\ No newline at end of file
+}
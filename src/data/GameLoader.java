@@ -1,12 +1,15 @@
 package data;
 
 import java.io.File;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -28,6 +31,7 @@ import engine.entities.Entity;
 import engine.entities.entities.AchievementEntity;
 import engine.entities.entities.BackgroundEntity;
 import engine.entities.entities.CameraEntity;
+import engine.entities.entities.TileLayerEntity;
 import engine.game.Level;
 import exceptions.NotAGameFolderException;
 import javafx.collections.FXCollections;
@@ -40,12 +44,33 @@ import javafx.collections.ObservableList;
  * variables so the Player/Editor will have everything needed to load up the
  * game.
  * 
+ * Games loaded to be played can have the blocks laid out on the grid
+ * converted into tile layers. Games loaded into the authoring environment
+ * keep their blocks, so that saving them does not replace the author's blocks.
+ * 
  * @author Jay Doherty
  * @author Michael Li
  */
 public class GameLoader {
 
 	private ResourceManager resourceManager;
+	private boolean tileLayers;
+
+	/**
+	 * Creates a GameLoader that loads games as they were authored.
+	 */
+	public GameLoader() {
+		this(false);
+	}
+
+	/**
+	 * @param tileLayers
+	 *            : whether blocks laid out on the grid are converted into tile
+	 *            layers, as when the game is loaded to be played
+	 */
+	public GameLoader(boolean tileLayers) {
+		this.tileLayers = tileLayers;
+	}
 
 	/**
 	 * Loads game given the folder path and returns the entities and songpath
@@ -59,12 +84,8 @@ public class GameLoader {
 	 */
 	public Game loadGame(String gameFolderPath, String saveName) throws Exception {
 		resourceManager = new ResourceManager();
-		String tempFolderPath = System.getProperty(resourceManager.getTempDir()) + File.separator
-				+ resourceManager.getVoogaName();
-		File voogaDirectory = new File(tempFolderPath);
-		if (!voogaDirectory.exists()) {
-			voogaDirectory.mkdirs();
-		}
+		String tempFolderPath = getTempFolderPath();
+		AssetPipeline.clear();
 		(new Unpackager()).unzip(gameFolderPath, tempFolderPath);
 		File dataFile = new File(tempFolderPath + File.separator + saveName);
 		if (!dataFile.exists()) {
@@ -72,7 +93,69 @@ public class GameLoader {
 		}
 		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 		DocumentBuilder docBuilder = factory.newDocumentBuilder();
-		Document doc = docBuilder.parse(tempFolderPath + File.separator + saveName);
+		Document doc = docBuilder.parse(dataFile);
+		if (!GameStateDelta.isDelta(doc)) {
+			return buildGame(doc, tempFolderPath);
+		}
+		Document settings = docBuilder
+				.parse(tempFolderPath + File.separator + resourceManager.getFileName() + resourceManager.getXML());
+		Game game = buildGame(settings, tempFolderPath);
+		new GameStateDelta(doc).applyTo(game, tempFolderPath);
+		return game;
+	}
+
+	/**
+	 * Loads the game as it was authored, reading its settings directly from
+	 * the archive. Nothing is unzipped: the game must already have been loaded
+	 * once, so that its resources are in the temporary folder. Used as the
+	 * base that save states are compared against.
+	 * 
+	 * @param gameFolderPath
+	 *            : path to the game archive
+	 * @return the pristine game.
+	 * @throws Exception
+	 *             if the archive cannot be read.
+	 */
+	public Game loadBaseGame(String gameFolderPath) throws Exception {
+		resourceManager = new ResourceManager();
+		try (ZipFile zipFile = new ZipFile(gameFolderPath)) {
+			ZipEntry settings = zipFile.getEntry(resourceManager.getFileName() + resourceManager.getXML());
+			if (settings == null) {
+				throw new NotAGameFolderException();
+			}
+			DocumentBuilder docBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			Document doc;
+			try (InputStream input = zipFile.getInputStream(settings)) {
+				doc = docBuilder.parse(input);
+			}
+			return buildGame(doc, getTempFolderPath());
+		}
+	}
+
+	/**
+	 * @return the path to the temporary folder games are unzipped to, which
+	 *         is created if needed.
+	 */
+	private String getTempFolderPath() {
+		String tempFolderPath = System.getProperty(resourceManager.getTempDir()) + File.separator
+				+ resourceManager.getVoogaName();
+		File voogaDirectory = new File(tempFolderPath);
+		if (!voogaDirectory.exists()) {
+			voogaDirectory.mkdirs();
+		}
+		return tempFolderPath;
+	}
+
+	/**
+	 * Builds a Game from a settings document.
+	 * 
+	 * @param doc
+	 *            : doc where information is derived from
+	 * @param tempFolderPath
+	 *            : path string to game folder in the temp folder
+	 * @return the game.
+	 */
+	private Game buildGame(Document doc, String tempFolderPath) {
 		Game game = new Game();
 		addGameSettings(game, doc, tempFolderPath);
 		return game;
@@ -237,6 +320,7 @@ public class GameLoader {
 			NodeList songNodes = doc.getElementsByTagName(resourceManager.getResourceTitle());
 			game.setSongPath(gameFolderPath + File.separator
 					+ convertPathForSystem(songNodes.item(0).getAttributes().item(0).getNodeValue()));
+			AssetPipeline.prefetchSong(game.getSongPath());
 		} catch (Exception e) {
 			game.setSongPath("");
 		}
@@ -295,7 +379,9 @@ public class GameLoader {
 	}
 
 	/**
-	 * Converts an element from the XML into a level by filling it with entities
+	 * Converts an element from the XML into a level by filling it with
+	 * entities. If asked to, blocks laid out on the grid are converted into
+	 * tile layers.
 	 * 
 	 * @param levelElement
 	 *            : extracted level element from XML
@@ -306,7 +392,8 @@ public class GameLoader {
 	private Level convertElementToLevel(Element levelElement, String gameFolderPath) {
 		Element entitiesNode = (Element) levelElement.getChildNodes().item(0);
 		Level returnedLevel = new Level();
-		for (Entity entity : getEntities(entitiesNode, gameFolderPath)) {
+		List<Entity> entities = getEntities(entitiesNode, gameFolderPath);
+		for (Entity entity : tileLayers ? TileLayerEntity.fromBlocks(entities) : entities) {
 			returnedLevel.addEntity(entity);
 		}
 
@@ -343,7 +430,8 @@ public class GameLoader {
 	}
 
 	/**
-	 * Converts an element node from XML into an entity
+	 * Converts an element node from XML into an entity. The entity's image
+	 * starts decoding in the background right away.
 	 * 
 	 * @param entityElement
 	 *            : element to be converted into an entity
@@ -356,6 +444,15 @@ public class GameLoader {
 		Entity entity = (Entity) xStream.fromXML(getXMLStringFromElement(entityElement));
 		entity.setImagePath(resourceManager.getFileStart() + gameFolderPath + File.separator
 				+ convertPathForSystem(entity.getImagePath()));
+		AssetPipeline.prefetchImage(entity.getImagePath());
+		if (entity instanceof TileLayerEntity) {
+			TileLayerEntity layer = (TileLayerEntity) entity;
+			layer.setTileImages(layer.getTileImages().stream()
+					.map(path -> resourceManager.getFileStart() + gameFolderPath + File.separator
+							+ convertPathForSystem(path))
+					.collect(Collectors.toList()));
+			layer.getTileImages().forEach(AssetPipeline::prefetchImage);
+		}
 
 		return entity;
 	}
@@ -387,7 +484,7 @@ public class GameLoader {
 	 *            element to be converted into a string
 	 * @return
 	 */
-	private String getXMLStringFromElement(Element entityElement) {
+	String getXMLStringFromElement(Element entityElement) {
 		StreamResult result = null;
 		NodeList entityChildren = entityElement.getChildNodes();
 		Element entityXMLElement = null;
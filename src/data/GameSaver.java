@@ -2,6 +2,7 @@ package data;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -55,25 +56,37 @@ public class GameSaver {
 	}
 
 	/**
-	 * Alternate method to save the entire game that is currently being played
-	 * to the selected file path. Utilizes GameXMLFactory to create the XML
-	 * file.
+	 * Saves the state of the game that is currently being played. Only the
+	 * differences between the game and the game as it was authored are
+	 * written, and they are appended to the game archive without rewriting
+	 * it.
 	 * 
 	 * @param game
 	 *            : game to be saved
+	 * @param baseGame
+	 *            : the game as it was authored, as returned by
+	 *            GameLoader.loadBaseGame
 	 * @param zipFolderPath
 	 *            : path to zip Folder that represents the current game being
 	 *            played
 	 * @param saveName
 	 *            : name of the new file being added to the game
+	 * @throws IOException
+	 *             if the archive cannot be written
+	 * @throws TransformerException
+	 *             if the save state cannot be serialized
 	 */
-	protected void saveGameState(Game game, String zipFolderPath, String saveName) {
-		String gameFolderPath = zipFolderPath.replace(resourceManager.getVS(), "");
-		try {
-			(new Unpackager()).unzip(zipFolderPath, gameFolderPath);
-		} catch (Exception e) {
-		}
-		this.saveAndCompress(game, gameFolderPath, saveName);
+	protected void saveGameState(Game game, Game baseGame, String zipFolderPath, String saveName)
+			throws IOException, TransformerException {
+		String tempFolderPath = System.getProperty(resourceManager.getTempDir()) + File.separator
+				+ resourceManager.getVoogaName();
+		GameStateDelta delta = new GameStateDelta(baseGame, game, tempFolderPath);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		TransformerFactory transformerFactory = TransformerFactory.newInstance();
+		Transformer transformer = transformerFactory.newTransformer();
+		transformer.setOutputProperty(OutputKeys.ENCODING, resourceManager.getXMLFormat());
+		transformer.transform(new DOMSource(delta.getDocument()), new StreamResult(output));
+		new ArchiveAppender().append(new File(zipFolderPath), saveName, output.toByteArray());
 	}
 
 	/**
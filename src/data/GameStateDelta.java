@@ -0,0 +1,445 @@
+package data;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+
+import engine.Parameter;
+import engine.entities.Entity;
+import engine.entities.entities.AchievementEntity;
+import engine.game.Level;
+
+/**
+ * This class represents a save state as a set of differences from the
+ * pristine game stored in the archive's settings file. Rather than storing
+ * every Entity of every Level, a delta only stores:
+ * <ul>
+ * <li>the fields and parameters of Entities that changed,</li>
+ * <li>the Entities that were removed, by their position in the original
+ * Level,</li>
+ * <li>the Entities that were spawned during play, in full,</li>
+ * <li>the score, timer, lives and unlocked levels.</li>
+ * </ul>
+ *
+ * Entities are matched against the original Level by id, class and name,
+ * none of which change during play. Ids are not guaranteed to be unique:
+ * Entities that share all three are matched in the order they appear, so
+ * when one of them is removed, the ones after it are matched to their
+ * predecessors and the last one is recorded as removed. Their position, size
+ * and simple parameters are still restored, since the delta stores them as
+ * changes to the Entity they were matched to, but anything a delta does not
+ * store, such as their events, is that of the Entity they were matched to.
+ *
+ * Example of use:
+ *
+ * <pre>
+ * GameStateDelta delta = new GameStateDelta(baseGame, currentGame, tempFolderPath);
+ * byte[] bytes = ...delta.getDocument()...;
+ * ...
+ * new GameStateDelta(document).applyTo(baseGame, tempFolderPath);
+ * </pre>
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class GameStateDelta {
+
+	private static final String ROOT = "SaveState";
+	private static final String SCORE = "Score";
+	private static final String TIME = "CurrentTime";
+	private static final String COUNTDOWN = "TimeGoingDown";
+	private static final String LIVES = "NumberOfLives";
+	private static final String UNLOCKED = "UnlockedLevel";
+	private static final String LEVEL = "Level";
+	private static final String CAMERA = "Camera";
+	private static final String BACKGROUND = "Background";
+	private static final String CHANGED = "Changed";
+	private static final String REMOVED = "Removed";
+	private static final String SPAWNED = "Spawned";
+	private static final String FIELD = "Field";
+	private static final String PARAM = "Param";
+	private static final String INDEX = "index";
+	private static final String NAME = "name";
+	private static final String VALUE = "value";
+
+	private static final String X = "X";
+	private static final String Y = "Y";
+	private static final String WIDTH = "Width";
+	private static final String HEIGHT = "Height";
+	private static final String Z = "Z";
+	private static final String ROTATE = "Rotate";
+	private static final String VISIBLE = "Visible";
+
+	private Document doc;
+	private ResourceManager resourceManager = new ResourceManager();
+
+	/**
+	 * Computes the delta between an original game and its current state.
+	 *
+	 * @param base
+	 *            the game as stored in the archive's settings file.
+	 * @param current
+	 *            the game as it is being played.
+	 * @param gameFolderPath
+	 *            the folder the game's resources were loaded from, used to
+	 *            make the image paths of spawned Entities relative.
+	 */
+	public GameStateDelta(Game base, Game current, String gameFolderPath) {
+		doc = newDocument();
+		Element root = doc.createElement(ROOT);
+		doc.appendChild(root);
+		root.appendChild(valueElement(SCORE, Integer.toString(current.getScore())));
+		root.appendChild(valueElement(TIME, Double.toString(current.getCurrentTime())));
+		root.appendChild(valueElement(COUNTDOWN, Boolean.toString(current.getClockGoingDown())));
+		root.appendChild(valueElement(LIVES, Integer.toString(current.getNumberOfLives())));
+		for (Integer level : current.getUnlockedLevels()) {
+			root.appendChild(valueElement(UNLOCKED, level.toString()));
+		}
+		int levelCount = Math.min(base.getLevels().size(), current.getLevels().size());
+		for (int i = 0; i < levelCount; i++) {
+			Element levelElement = diffLevel(base.getLevels().get(i), current.getLevels().get(i), gameFolderPath);
+			if (levelElement.hasChildNodes()) {
+				levelElement.setAttribute(INDEX, Integer.toString(i));
+				root.appendChild(levelElement);
+			}
+		}
+	}
+
+	/**
+	 * Wraps a delta that was read back from an archive.
+	 *
+	 * @param doc
+	 *            the parsed save file.
+	 */
+	public GameStateDelta(Document doc) {
+		this.doc = doc;
+	}
+
+	/**
+	 * @param doc
+	 *            a parsed save file.
+	 * @return whether the save file is a delta, as opposed to a complete game.
+	 */
+	public static boolean isDelta(Document doc) {
+		return doc.getDocumentElement() != null && doc.getDocumentElement().getTagName().equals(ROOT);
+	}
+
+	/**
+	 * @return the XML document representing this delta.
+	 */
+	public Document getDocument() {
+		return doc;
+	}
+
+	/**
+	 * Applies this delta on top of the original game, turning it into the
+	 * saved game.
+	 *
+	 * @param base
+	 *            the game as loaded from the archive's settings file; it is
+	 *            modified in place.
+	 * @param gameFolderPath
+	 *            the folder the game's resources were unpacked to.
+	 */
+	public void applyTo(Game base, String gameFolderPath) {
+		Element root = doc.getDocumentElement();
+		Set<Integer> unlockedLevels = new HashSet<Integer>();
+		for (Element element : children(root)) {
+			String value = element.getAttribute(VALUE);
+			switch (element.getTagName()) {
+			case SCORE:
+				base.setScore(Integer.parseInt(value));
+				break;
+			case TIME:
+				base.setCurrentTime(Double.parseDouble(value));
+				break;
+			case COUNTDOWN:
+				base.setClockGoingDown(Boolean.parseBoolean(value));
+				break;
+			case LIVES:
+				base.setNumberOfLives(Integer.parseInt(value));
+				break;
+			case UNLOCKED:
+				unlockedLevels.add(Integer.parseInt(value));
+				break;
+			case LEVEL:
+				int index = Integer.parseInt(element.getAttribute(INDEX));
+				if (index < base.getLevels().size()) {
+					applyToLevel(element, base.getLevels().get(index), gameFolderPath);
+				}
+				break;
+			}
+		}
+		base.setUnlockedLevels(unlockedLevels);
+	}
+
+	private Element diffLevel(Level base, Level current, String gameFolderPath) {
+		Element levelElement = doc.createElement(LEVEL);
+		appendIfChanged(levelElement, CAMERA, base.getCamera(), current.getCamera());
+		appendIfChanged(levelElement, BACKGROUND, base.getBackground(), current.getBackground());
+
+		List<Entity> baseEntities = new ArrayList<Entity>(base.getEntities());
+		Map<String, Deque<Integer>> unmatched = new HashMap<String, Deque<Integer>>();
+		for (int i = 0; i < baseEntities.size(); i++) {
+			if (isTracked(baseEntities.get(i), base)) {
+				unmatched.computeIfAbsent(matchKey(baseEntities.get(i)), key -> new ArrayDeque<Integer>()).add(i);
+			}
+		}
+		List<Entity> spawned = new ArrayList<Entity>();
+		for (Entity entity : current.getEntities()) {
+			if (!isTracked(entity, current)) {
+				continue;
+			}
+			Deque<Integer> candidates = unmatched.get(matchKey(entity));
+			if (candidates == null || candidates.isEmpty()) {
+				spawned.add(entity);
+				continue;
+			}
+			int index = candidates.poll();
+			Element changed = diffEntity(CHANGED, baseEntities.get(index), entity);
+			if (changed.hasChildNodes()) {
+				changed.setAttribute(INDEX, Integer.toString(index));
+				levelElement.appendChild(changed);
+			}
+		}
+		unmatched.values().stream().flatMap(Deque::stream).sorted().forEach(index -> {
+			Element removed = doc.createElement(REMOVED);
+			removed.setAttribute(INDEX, Integer.toString(index));
+			levelElement.appendChild(removed);
+		});
+		for (Entity entity : spawned) {
+			levelElement.appendChild(spawnedElement(entity, gameFolderPath));
+		}
+		return levelElement;
+	}
+
+	private String matchKey(Entity entity) {
+		return entity.getId() + " " + entity.getClass().getName() + " " + entity.getName();
+	}
+
+	/**
+	 * A Level's camera is stored separately from its other Entities, but is
+	 * added to the Entity list when the Level is played; achievements are
+	 * added to every Level from the game's defaults. Neither is part of the
+	 * Level's own Entity list. Other cameras in the list, such as copies kept
+	 * by earlier full saves, are tracked like any Entity.
+	 */
+	private boolean isTracked(Entity entity, Level level) {
+		return entity != level.getCamera() && !(entity instanceof AchievementEntity);
+	}
+
+	private void appendIfChanged(Element parent, String tagName, Entity base, Entity current) {
+		if (base == null || current == null) {
+			return;
+		}
+		Element changed = diffEntity(tagName, base, current);
+		if (changed.hasChildNodes()) {
+			parent.appendChild(changed);
+		}
+	}
+
+	private Element diffEntity(String tagName, Entity base, Entity current) {
+		Element element = doc.createElement(tagName);
+		addFieldIfChanged(element, X, base.getX(), current.getX());
+		addFieldIfChanged(element, Y, base.getY(), current.getY());
+		addFieldIfChanged(element, WIDTH, base.getWidth(), current.getWidth());
+		addFieldIfChanged(element, HEIGHT, base.getHeight(), current.getHeight());
+		addFieldIfChanged(element, Z, base.getZ(), current.getZ());
+		addFieldIfChanged(element, ROTATE, base.getRotate(), current.getRotate());
+		addFieldIfChanged(element, VISIBLE, base.getIsVisible(), current.getIsVisible());
+		for (Parameter param : current.getParams()) {
+			Parameter baseParam = findParameter(base, param.getName());
+			if (isEncodable(param)
+					&& (baseParam == null || !Objects.equals(baseParam.getObject(), param.getObject()))) {
+				Element paramElement = doc.createElement(PARAM);
+				paramElement.setAttribute(NAME, param.getName());
+				paramElement.setAttribute(VALUE, param.getObject().toString());
+				element.appendChild(paramElement);
+			}
+		}
+		return element;
+	}
+
+	private void addFieldIfChanged(Element element, String name, Object base, Object current) {
+		if (!base.equals(current)) {
+			Element field = doc.createElement(FIELD);
+			field.setAttribute(NAME, name);
+			field.setAttribute(VALUE, current.toString());
+			element.appendChild(field);
+		}
+	}
+
+	private Element spawnedElement(Entity entity, String gameFolderPath) {
+		String absoluteImagePath = entity.getImagePath();
+		String prefix = getFolderPrefix(gameFolderPath);
+		if (absoluteImagePath != null && absoluteImagePath.startsWith(prefix)) {
+			entity.setImagePath(absoluteImagePath.substring(prefix.length()));
+		}
+		XStream xStream = new XStream(new DomDriver());
+		xStream.registerConverter(new EntityConverter());
+		String xmlString = xStream.toXML(entity);
+		entity.setImagePath(absoluteImagePath);
+
+		Element spawned = doc.createElement(SPAWNED);
+		Element entityElement = new GameXMLFactory().stringToElement(xmlString);
+		spawned.appendChild(doc.importNode(entityElement, true));
+		return spawned;
+	}
+
+	private void applyToLevel(Element levelElement, Level level, String gameFolderPath) {
+		List<Entity> entities = new ArrayList<Entity>(level.getEntities());
+		List<Entity> removed = new ArrayList<Entity>();
+		for (Element element : children(levelElement)) {
+			switch (element.getTagName()) {
+			case CAMERA:
+				applyToEntity(element, level.getCamera());
+				break;
+			case BACKGROUND:
+				applyToEntity(element, level.getBackground());
+				break;
+			case CHANGED:
+				applyToEntity(element, entities.get(Integer.parseInt(element.getAttribute(INDEX))));
+				break;
+			case REMOVED:
+				removed.add(entities.get(Integer.parseInt(element.getAttribute(INDEX))));
+				break;
+			case SPAWNED:
+				Entity spawned = readSpawned(element, gameFolderPath);
+				if (spawned != null) {
+					level.addEntity(spawned);
+				}
+				break;
+			}
+		}
+		removed.forEach(entity -> level.removeEntity(entity));
+	}
+
+	private void applyToEntity(Element element, Entity entity) {
+		for (Element change : children(element)) {
+			String name = change.getAttribute(NAME);
+			String value = change.getAttribute(VALUE);
+			if (change.getTagName().equals(PARAM)) {
+				Parameter param = findParameter(entity, name);
+				if (param != null) {
+					param.setObject(decode(param.getParameterClass(), value));
+				}
+			} else {
+				applyField(entity, name, value);
+			}
+		}
+	}
+
+	private void applyField(Entity entity, String name, String value) {
+		switch (name) {
+		case X:
+			entity.setX(Double.parseDouble(value));
+			break;
+		case Y:
+			entity.setY(Double.parseDouble(value));
+			break;
+		case WIDTH:
+			entity.setWidth(Double.parseDouble(value));
+			break;
+		case HEIGHT:
+			entity.setHeight(Double.parseDouble(value));
+			break;
+		case Z:
+			entity.setZ(Double.parseDouble(value));
+			break;
+		case ROTATE:
+			entity.setRotate(Double.parseDouble(value));
+			break;
+		case VISIBLE:
+			entity.setIsVisible(Boolean.parseBoolean(value));
+			break;
+		}
+	}
+
+	private Entity readSpawned(Element element, String gameFolderPath) {
+		XStream xStream = new XStream(new DomDriver());
+		xStream.registerConverter(new EntityConverter());
+		Entity entity = (Entity) xStream.fromXML(new GameLoader().getXMLStringFromElement(element));
+		if (entity != null && entity.getImagePath() != null && !entity.getImagePath().contains(":")) {
+			entity.setImagePath(getFolderPrefix(gameFolderPath) + entity.getImagePath());
+		}
+		return entity;
+	}
+
+	private String getFolderPrefix(String gameFolderPath) {
+		return resourceManager.getFileStart() + gameFolderPath + File.separator;
+	}
+
+	private Parameter findParameter(Entity entity, String name) {
+		for (Parameter param : entity.getParams()) {
+			if (param.getName().equals(name)) {
+				return param;
+			}
+		}
+		return null;
+	}
+
+	private boolean isEncodable(Parameter param) {
+		Class<?> clazz = param.getParameterClass();
+		return param.getObject() != null && (clazz.isPrimitive() || clazz.equals(String.class) || clazz.isEnum()
+				|| Number.class.isAssignableFrom(clazz) || clazz.equals(Boolean.class));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object decode(Class<?> clazz, String value) {
+		if (clazz.equals(double.class) || clazz.equals(Double.class)) {
+			return Double.parseDouble(value);
+		} else if (clazz.equals(int.class) || clazz.equals(Integer.class)) {
+			return Integer.parseInt(value);
+		} else if (clazz.equals(boolean.class) || clazz.equals(Boolean.class)) {
+			return Boolean.parseBoolean(value);
+		} else if (clazz.equals(long.class) || clazz.equals(Long.class)) {
+			return Long.parseLong(value);
+		} else if (clazz.isEnum()) {
+			return Enum.valueOf((Class<? extends Enum>) clazz, value);
+		}
+		return value;
+	}
+
+	private Element valueElement(String tagName, String value) {
+		Element element = doc.createElement(tagName);
+		element.setAttribute(VALUE, value);
+		return element;
+	}
+
+	private List<Element> children(Element parent) {
+		List<Element> children = new ArrayList<Element>();
+		NodeList nodes = parent.getChildNodes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+				children.add((Element) nodes.item(i));
+			}
+		}
+		return children;
+	}
+
+	private Document newDocument() {
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
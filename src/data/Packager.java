@@ -1,33 +1,176 @@
 package data;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.Deflater;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.ZipException;
 
+/**
+ * Packs files and folders into a .vs archive.
+ *
+ * Images and songs are usually already compressed, so deflating them again
+ * costs time without saving space. For those files, a sample of the file is
+ * deflated first, and the file is only deflated in full if the sample shrinks
+ * noticeably; otherwise, it is stored as it is. Small files are simply
+ * deflated, and stored if that does not make them smaller. The remaining files (the
+ * game's XML) are always deflated. Files are prepared in parallel, one file
+ * per task, and the entries are then written to the archive in their original
+ * order.
+ */
 public class Packager
 {
+	static final int BUFFER_SIZE = 1 << 16;
+	private static final int SAMPLE_SIZE = 1 << 16;
+	private static final double MIN_SAMPLE_SAVINGS = 0.1;
+	private static final ExecutorService POOL = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+				Thread thread = new Thread(runnable, "Packager");
+				thread.setDaemon(true);
+				return thread;
+			});
+	private static final Set<String> MEDIA_EXTENSIONS = new HashSet<String>(
+			Arrays.asList("png", "jpg", "jpeg", "gif", "bmp", "mp3", "wav", "m4a", "aac", "ogg", "zip", "vs"));
+
 	public void packZip(File output, List<File> sources) throws IOException
 	{
-		ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(output));
-		zipOut.setLevel(Deflater.DEFAULT_COMPRESSION);
-
+		List<File> files = new ArrayList<File>();
+		List<String> names = new ArrayList<String>();
 		for (File source: sources)
 		{
 			if (source.isDirectory())
 			{
-				zipDir(zipOut, "", source);
+				collectDir(files, names, "", source);
 			} else
 			{
-				zipFile(zipOut, "", source);
+				collectFile(files, names, "", source);
 			}
 		}
-		zipOut.flush();
-		zipOut.close();
+
+		List<Future<ArchiveEntry>> entries = new ArrayList<Future<ArchiveEntry>>();
+		for (int i = 0; i < files.size(); i++)
+		{
+			File file = files.get(i);
+			String name = names.get(i);
+			entries.add(POOL.submit(() -> prepare(name, file)));
+		}
+		try
+		{
+			write(output, entries);
+		} finally
+		{
+			entries.forEach(entry -> entry.cancel(true));
+		}
+	}
+
+	private ArchiveEntry prepare(String name, File file) throws IOException
+	{
+		byte[] contents = Files.readAllBytes(file.toPath());
+		if (!isMedia(name))
+		{
+			return ArchiveEntry.deflated(name, contents, Deflater.DEFAULT_COMPRESSION);
+		}
+		if (contents.length <= SAMPLE_SIZE)
+		{
+			ArchiveEntry deflated = ArchiveEntry.deflated(name, contents, Deflater.DEFAULT_COMPRESSION);
+			return deflated.getData().length < contents.length ? deflated : ArchiveEntry.stored(name, contents);
+		}
+		if (sampleCompresses(contents))
+		{
+			return ArchiveEntry.deflated(name, contents, Deflater.DEFAULT_COMPRESSION);
+		}
+		return ArchiveEntry.stored(name, contents);
+	}
+
+	private boolean isMedia(String name)
+	{
+		int dot = name.lastIndexOf('.');
+		return dot >= 0 && MEDIA_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+	}
+
+	private boolean sampleCompresses(byte[] contents)
+	{
+		int sampleLength = Math.min(contents.length, SAMPLE_SIZE);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+		deflater.setInput(contents, 0, sampleLength);
+		deflater.finish();
+		byte[] buffer = new byte[SAMPLE_SIZE];
+		while (!deflater.finished())
+		{
+			deflater.deflate(buffer);
+		}
+		long compressedLength = deflater.getBytesWritten();
+		deflater.end();
+		return compressedLength < sampleLength * (1 - MIN_SAMPLE_SAVINGS);
+	}
+
+	private void write(File output, List<Future<ArchiveEntry>> entries) throws IOException
+	{
+		if (entries.size() > ArchiveEntry.MAX_ENTRIES)
+		{
+			throw new ZipException("Too many files for a game archive: " + entries.size());
+		}
+		int dosTime = ArchiveEntry.toDosTime(LocalDateTime.now());
+		List<byte[]> directory = new ArrayList<byte[]>();
+		int directorySize = 0;
+		long offset = 0;
+		FileOutputStream fileOut = new FileOutputStream(output);
+		try (OutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE))
+		{
+			for (Future<ArchiveEntry> future : entries)
+			{
+				ArchiveEntry entry = get(future);
+				if (offset > ArchiveEntry.MAX_OFFSET)
+				{
+					throw new ZipException("Game archive is too large: " + output);
+				}
+				out.write(entry.localHeader(dosTime));
+				out.write(entry.getData());
+				byte[] central = entry.centralHeader(dosTime, offset);
+				directory.add(central);
+				directorySize += central.length;
+				offset += entry.getRecordLength();
+			}
+			for (byte[] central : directory)
+			{
+				out.write(central);
+			}
+			out.write(ArchiveEntry.end(directory.size(), directorySize, offset));
+			out.flush();
+			fileOut.getFD().sync();
+		}
+	}
+
+	private ArchiveEntry get(Future<ArchiveEntry> future) throws IOException
+	{
+		try
+		{
+			return future.get();
+		} catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
 	}
 
 	private String buildPath(String path, String file)
@@ -41,40 +184,30 @@ public class Packager
 		}
 	}
 
-	private void zipDir(ZipOutputStream zos, String path, File dir) throws IOException
+	private void collectDir(List<File> files, List<String> names, String path, File dir)
 	{
 		if (!dir.canRead())
 		{            return; }
 
-		File[] files = dir.listFiles();
+		File[] children = dir.listFiles();
 		path = buildPath(path, dir.getName());
 
-		for (File source : files)
+		for (File source : children)
 		{
 			if (source.isDirectory())
 			{
-				zipDir(zos, path, source);
+				collectDir(files, names, path, source);
 			} else
 			{
-				zipFile(zos, path, source);
+				collectFile(files, names, path, source);
 			}
 		}
 	}
 
-	private void zipFile(ZipOutputStream zos, String path, File file) throws IOException
+	private void collectFile(List<File> files, List<String> names, String path, File file)
 	{
 		if (!file.canRead()) return;
-		zos.putNextEntry(new ZipEntry(buildPath(path, file.getName())));
-		FileInputStream fis = new FileInputStream(file);
-
-		byte[] buffer = new byte[4092];
-		int byteCount = 0;
-		while ((byteCount = fis.read(buffer)) != -1)
-		{
-			zos.write(buffer, 0, byteCount);
-		}
-
-		fis.close();
-		zos.closeEntry();
+		files.add(file);
+		names.add(buildPath(path, file.getName()));
 	}
-}
\ No newline at end of file
+}
@@ -1,8 +1,11 @@
 package data;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -20,19 +23,25 @@ public class Unpackager {
 	 * @throws Exception
 	 */
 	public void unzip(String zipFile, String outputFolder) throws Exception {
-		byte[] buffer = new byte[4092];
+		byte[] buffer = new byte[Packager.BUFFER_SIZE];
 		File folder = new File(outputFolder);
 		if (!folder.exists()) {
 			folder.mkdir();
 		}
-		ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile));
+		ZipInputStream zis = new ZipInputStream(
+				new BufferedInputStream(new FileInputStream(zipFile), Packager.BUFFER_SIZE));
 		ZipEntry ze = zis.getNextEntry();
 		while (ze != null) {
 			String fileName = ze.getName();
 			int len;
 			File newFile = new File(outputFolder + File.separator + fileName);
+			if (ze.isDirectory()) {
+				newFile.mkdirs();
+				ze = zis.getNextEntry();
+				continue;
+			}
 			new File(newFile.getParent()).mkdirs();
-			FileOutputStream fos = new FileOutputStream(newFile);
+			OutputStream fos = new BufferedOutputStream(new FileOutputStream(newFile), Packager.BUFFER_SIZE);
 			while ((len = zis.read(buffer)) > 0) {
 				fos.write(buffer, 0, len);
 			}
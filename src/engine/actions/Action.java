@@ -16,6 +16,14 @@ public abstract class Action extends GameObject implements ActionInterface {
 	@Override
 	public abstract void act();
 
+	/**
+	 * @return true if acting can move or resize the Entity holding this
+	 *         action. Blocks whose actions cannot are baked as static geometry.
+	 */
+	public boolean movesEntity() {
+		return false;
+	}
+
 	@Override
 	public GameInfo getGameInfo() {
 		return getEntity().getGameInfo();
@@ -0,0 +1,42 @@
+package engine.actions.regular_actions;
+
+import java.util.Collection;
+
+import engine.Parameter;
+import engine.actions.Action;
+import engine.entities.Entity;
+import engine.entities.entities.ParticleEmitterEntity;
+
+/**
+ * Make the particle emitter specified by the parameter emit particles from
+ * the center of this entity, such as when a coin is picked up.
+ * 
+ * @author Elliott Bolzan
+ *
+ */
+public class EmitParticlesAction extends Action {
+
+	public EmitParticlesAction() {
+		this.addParam(new Parameter(getResource("Emitter"), String.class, ""));
+		this.addParam(new Parameter(getResource("ParticleCount"), int.class, 100));
+	}
+
+	@Override
+	public void act() {
+		ParticleEmitterEntity emitter = getEmitter(getResource("Emitter"));
+		if (emitter == null)
+			return;
+		emitter.emit(getEntity().getX() + getEntity().getWidth() / 2,
+				getEntity().getY() + getEntity().getHeight() / 2, (int) getParam(getResource("ParticleCount")));
+	}
+
+	private ParticleEmitterEntity getEmitter(String parameterName) {
+		Collection<Entity> entities = this.getEntity().getGameInfo().getLevelManager().getCurrentLevel().getEntities();
+		for (Entity entity : entities) {
+			if (entity instanceof ParticleEmitterEntity && ((String) getParam(parameterName)).equals(entity.getName())) {
+				return (ParticleEmitterEntity) entity;
+			}
+		}
+		return null;
+	}
+}
@@ -1,7 +1,6 @@
 package engine.actions.regular_actions;
 
 import engine.actions.Action;
-import javafx.application.Platform;
 
 /**
  * Remove the Entity associated with this Action from the game.
@@ -13,7 +12,7 @@ public class EntityRemoveAction extends Action {
 
 	@Override
 	public void act() {
-		Platform.runLater(new Runnable() {
+		getGameInfo().getLevelManager().runAfterStep(new Runnable() {
 			@Override
 			public void run() {
 				getEntity().setIsVisible(false);
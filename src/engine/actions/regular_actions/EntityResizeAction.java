@@ -26,4 +26,9 @@ public class EntityResizeAction extends Action {
 		}
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 }
@@ -5,7 +5,6 @@ import engine.actions.Action;
 import engine.collisions.CollisionSide;
 import engine.entities.Entity;
 import exceptions.ActionException;
-import javafx.application.Platform;
 
 /**
  * Spawn an entity with given parameters.
@@ -24,7 +23,7 @@ public class EntitySpawnAction extends Action {
 	@Override
 	public void act() {
 		if (Math.random() < (double) getParam(getResource("SpawnProbability"))) {
-			Platform.runLater(new Runnable() {
+			getGameInfo().getLevelManager().runAfterStep(new Runnable() {
 				@Override
 				public void run() {
 					spawn();
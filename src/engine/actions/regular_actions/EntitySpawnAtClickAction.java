@@ -1,7 +1,6 @@
 package engine.actions.regular_actions;
 
 import engine.entities.Entity;
-import javafx.application.Platform;
 
 /**
  * Spawn an entity where the mouse was last clicked
@@ -17,7 +16,7 @@ public class EntitySpawnAtClickAction extends EntitySpawnAction {
 
 	@Override
 	public void act() {
-		Platform.runLater(new Runnable() {
+		getGameInfo().getLevelManager().runAfterStep(new Runnable() {
 			@Override
 			public void run() {
 				spawn();
@@ -42,6 +42,11 @@ public class FaceTowardsAction extends Action {
 		}
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 	private Entity getParameterEntity(String parameterName) {
 		Collection<Entity> entities = this.getEntity().getGameInfo().getLevelManager().getCurrentLevel().getEntities();
 		for (Entity entity : entities) {
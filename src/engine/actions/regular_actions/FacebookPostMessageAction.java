@@ -2,6 +2,7 @@ package engine.actions.regular_actions;
 
 import engine.Parameter;
 import engine.actions.Action;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import poster.FacebookPoster;
@@ -33,13 +34,17 @@ public class FacebookPostMessageAction extends Action {
 		poster.post((String) getParam(getResource("Message")), new FacebookResponse() {
 			@Override
 			public void doResponse(boolean condition) {
-				Alert alert = new Alert(AlertType.INFORMATION,
-						condition ? getResource("FacebookSuccessString") : getResource("FacebookFailString"));
-				alert.setTitle(condition ? getResource("FacebookSuccessTitle") : getResource("ErrorTitle"));
-				alert.setHeaderText(condition ? getResource("FacebookSuccessHeader") : getResource("ErrorHeader"));
-				alert.setOnHidden(e -> getGameInfo().getTimelineManipulator().start());
-				alert.show();
+				Platform.runLater(() -> showResponse(condition));
 			}
 		});
 	}
+
+	private void showResponse(boolean condition) {
+		Alert alert = new Alert(AlertType.INFORMATION,
+				condition ? getResource("FacebookSuccessString") : getResource("FacebookFailString"));
+		alert.setTitle(condition ? getResource("FacebookSuccessTitle") : getResource("ErrorTitle"));
+		alert.setHeaderText(condition ? getResource("FacebookSuccessHeader") : getResource("ErrorHeader"));
+		alert.setOnHidden(e -> getGameInfo().getTimelineManipulator().start());
+		alert.show();
+	}
 }
@@ -39,4 +39,9 @@ public class FlipCameraSideAction extends Action {
 		}
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 }
@@ -35,6 +35,11 @@ public class FollowAction extends Action {
 		}
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 	private void shiftHorizontally(Entity other) {
 		double thisEntityCenterX = this.getEntity().getX() + this.getEntity().getWidth() / 2;
 		double otherEntityCenterX = other.getX() + other.getWidth() / 2;
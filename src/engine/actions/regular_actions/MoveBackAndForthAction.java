@@ -32,6 +32,11 @@ public class MoveBackAndForthAction extends Action {
 		stepAmount++;
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 	private void updateSpeeds() {
 		if (((int) getParam(getResource("AllowedXSteps")) != 0)
 				&& stepAmount % (int) getParam(getResource("AllowedXSteps")) == 0)
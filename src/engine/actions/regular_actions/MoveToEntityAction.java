@@ -21,6 +21,11 @@ public class MoveToEntityAction extends Action{
 		getEntity().setZ(getParameterEntity("Entity").getZ());
 		
 	}
+
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
 	
 	private Entity getParameterEntity(String parameterName) {
 		Collection<Entity> entities = this.getEntity().getGameInfo().getLevelManager().getCurrentLevel().getEntities();
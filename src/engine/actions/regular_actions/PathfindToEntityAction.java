@@ -0,0 +1,96 @@
+package engine.actions.regular_actions;
+
+import java.util.Collection;
+
+import engine.Parameter;
+import engine.actions.Action;
+import engine.collisions.NavigationGrid;
+import engine.entities.Entity;
+
+/**
+ * Make this entity walk towards the entity specified by the parameter, going
+ * around static blocks and tiles rather than through them. Meant to be
+ * triggered every step, such as by an AlwaysEvent.
+ *
+ * The entity walks from the center of one cell of the NavigationGrid to the
+ * center of the next, along one axis at a time, so that it fits through
+ * corridors one cell wide. While the next cell is not known yet, the entity
+ * keeps moving as it was. Where the target cannot be reached, the entity
+ * stops.
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class PathfindToEntityAction extends Action {
+
+	public PathfindToEntityAction() {
+		this.addParam(new Parameter(getResource("Entity"), String.class, ""));
+		this.addParam(new Parameter(getResource("Speed"), double.class, 1.0));
+	}
+
+	@Override
+	public void act() {
+		Entity target = getParameterEntity(getResource("Entity"));
+		if (target == null)
+			return;
+		Entity entity = getEntity();
+		NavigationGrid grid = getGameInfo().getObservableBundle().getCollisionObservable()
+				.getNavigationGrid(entity.getZ());
+		double centerX = entity.getX() + entity.getWidth() / 2;
+		double centerY = entity.getY() + entity.getHeight() / 2;
+		double targetX = target.getX() + target.getWidth() / 2;
+		double targetY = target.getY() + target.getHeight() / 2;
+		int start = grid.getCell(centerX, centerY);
+		int goal = grid.getCell(targetX, targetY);
+		if (start == NavigationGrid.OUTSIDE || goal == NavigationGrid.OUTSIDE || start == goal) {
+			head(targetX - centerX, targetY - centerY);
+			return;
+		}
+		int next = grid.getNextCell(start, goal);
+		if (next == NavigationGrid.PENDING)
+			return;
+		if (next == NavigationGrid.UNREACHABLE) {
+			entity.setXSpeed(0);
+			entity.setYSpeed(0);
+			return;
+		}
+		// Line up with the center of this cell before leaving it.
+		boolean horizontal = grid.getCellY(next) == grid.getCellY(start);
+		double offset = horizontal ? grid.getCellY(start) - centerY : grid.getCellX(start) - centerX;
+		if (Math.abs(offset) > 1e-6) {
+			head(horizontal ? 0 : offset, horizontal ? offset : 0);
+		} else {
+			head(grid.getCellX(next) - centerX, grid.getCellY(next) - centerY);
+		}
+	}
+
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
+	/**
+	 * Sets the speed of the entity along the longer of the two components,
+	 * slowing down so as not to go past them.
+	 */
+	private void head(double x, double y) {
+		double speed = (double) getParam(getResource("Speed"));
+		if (Math.abs(x) >= Math.abs(y)) {
+			getEntity().setXSpeed(Math.signum(x) * Math.min(speed, Math.abs(x) / Entity.TIME_STEP));
+			getEntity().setYSpeed(0);
+		} else {
+			getEntity().setXSpeed(0);
+			getEntity().setYSpeed(Math.signum(y) * Math.min(speed, Math.abs(y) / Entity.TIME_STEP));
+		}
+	}
+
+	private Entity getParameterEntity(String parameterName) {
+		Collection<Entity> entities = this.getEntity().getGameInfo().getLevelManager().getCurrentLevel().getEntities();
+		for (Entity entity : entities) {
+			if (((String) getParam(parameterName)).equals(entity.getName())) {
+				return entity;
+			}
+		}
+		return null;
+	}
+}
@@ -27,6 +27,11 @@ public class RandomMoveAction extends Action {
 		steps++;
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 	private int getRandomSign() {
 		return Math.random() > 0.5 ? -1 : 1;
 	}
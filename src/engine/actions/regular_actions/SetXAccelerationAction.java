@@ -20,4 +20,9 @@ public class SetXAccelerationAction extends Action {
 		getEntity().setXAcceleration((double) getParam(getResource("XAcceleration")));
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 }
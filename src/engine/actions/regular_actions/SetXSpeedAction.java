@@ -20,4 +20,9 @@ public class SetXSpeedAction extends Action {
 	public void act() {
 		getEntity().setXSpeed((Double) getParam(getResource("XSpeed")));
 	}
+
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
 }
\ No newline at end of file
@@ -20,4 +20,9 @@ public class SetYAccelerationAction extends Action {
 		getEntity().setYAcceleration((double) getParam(getResource("YAcceleration")));
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 }
@@ -20,4 +20,9 @@ public class SetYSpeedAction extends Action {
 	public void act() {
 		getEntity().setYSpeed(((Double) getParam(getResource("YSpeed"))));
 	}
+
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
 }
\ No newline at end of file
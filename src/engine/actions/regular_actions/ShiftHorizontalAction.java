@@ -20,4 +20,9 @@ public class ShiftHorizontalAction extends Action {
 	public void act() {
 		getEntity().setX(getEntity().getX() + (Double) getParam(getResource("MoveAmount")));
 	}
+
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
 }
\ No newline at end of file
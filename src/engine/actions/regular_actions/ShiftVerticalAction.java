@@ -20,4 +20,9 @@ public class ShiftVerticalAction extends Action {
 	public void act() {
 		getEntity().setY(getEntity().getY() + (Double) getParam(getResource("MoveAmount")));
 	}
+
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
 }
\ No newline at end of file
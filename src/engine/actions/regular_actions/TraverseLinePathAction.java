@@ -37,4 +37,9 @@ public class TraverseLinePathAction extends Action {
 		traverser.updatePhysics();
 	}
 
+	@Override
+	public boolean movesEntity() {
+		return true;
+	}
+
 }
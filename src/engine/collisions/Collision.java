@@ -17,6 +17,7 @@ public class Collision implements CollisionInterface {
 	private Entity secondEntity;
 	private CollisionSide firstRelativeToSecond;
 	private double collisionDepth;
+	private double timeOfImpact;
 	private IntChecker checker;
 
 	/**
@@ -34,10 +35,32 @@ public class Collision implements CollisionInterface {
 	 *            before a collision happens
 	 */
 	public Collision(Entity one, Entity two, CollisionSide side, double depth) {
+		this(one, two, side, depth, 1);
+	}
+
+	/**
+	 * Create a new Collision found by sweeping an entity along its last move.
+	 * 
+	 * @param one
+	 *            the first entity participating in the collision
+	 * @param two
+	 *            the second entity participating in the collision
+	 * @param side
+	 *            the side the collision is taking place on from the perspective
+	 *            of the first entity
+	 * @param depth
+	 *            the amount of pixels which the entities are allowed to overlap
+	 *            before a collision happens
+	 * @param timeOfImpact
+	 *            the fraction of the last move after which the entities
+	 *            touched
+	 */
+	public Collision(Entity one, Entity two, CollisionSide side, double depth, double timeOfImpact) {
 		firstEntity = one;
 		secondEntity = two;
 		firstRelativeToSecond = side;
 		collisionDepth = depth;
+		this.timeOfImpact = timeOfImpact;
 		checker = new IntChecker();
 	}
 
@@ -57,6 +80,15 @@ public class Collision implements CollisionInterface {
 		return collisionDepth;
 	}
 
+	/**
+	 * @return the fraction of the last move after which the entities touched:
+	 *         1 for collisions found where the entities stand at the end of a
+	 *         step, and less for collisions found by sweeping a fast entity
+	 */
+	public double getTimeOfImpact() {
+		return timeOfImpact;
+	}
+
 	/**
 	 * Check whether this collision is between two entities with the respective
 	 * names
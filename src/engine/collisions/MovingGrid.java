@@ -0,0 +1,174 @@
+package engine.collisions;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.entities.Entity;
+
+/**
+ * Holds the moving entities of a level for one step, in a grid of CELL_SIZE
+ * pixel cells, so that each moving entity is only tested against the moving
+ * entities near it rather than against all of them.
+ *
+ * The grid is filled again every step. An entity that is moved during the
+ * step, such as one put back by a sweep, must be updated. An entity spanning
+ * more than MAX_CELLS cells is not put in the grid: it is returned by every
+ * query instead.
+ *
+ * @author Elliott Bolzan
+ * @see StaticGeometry,engine.game.eventobserver.CollisionObservable
+ */
+public class MovingGrid {
+	public static final double CELL_SIZE = StaticGeometry.CELL_SIZE;
+	public static final int MAX_CELLS = 256;
+	private static final int ORDER = 4;
+	private static final int MAX_CELL = 1 << 30;
+
+	private Map<Long, List<Entity>> cells;
+	private Map<Entity, int[]> bounds;
+	private List<Entity> oversized;
+	private int inserted;
+
+	public MovingGrid() {
+		this.cells = new HashMap<Long, List<Entity>>();
+		this.bounds = new IdentityHashMap<Entity, int[]>();
+		this.oversized = new ArrayList<Entity>();
+	}
+
+	/**
+	 * Empties the grid, before it is filled for a new step.
+	 */
+	public void clear() {
+		cells.clear();
+		bounds.clear();
+		oversized.clear();
+		inserted = 0;
+	}
+
+	/**
+	 * Adds entity where it currently is.
+	 *
+	 * @param entity
+	 */
+	public void insert(Entity entity) {
+		if (!bounds.containsKey(entity)) {
+			place(entity, inserted++);
+		}
+	}
+
+	/**
+	 * Moves entity to the cells it now overlaps, after it was moved during the
+	 * step.
+	 *
+	 * @param entity
+	 */
+	public void update(Entity entity) {
+		int[] cellBounds = bounds.get(entity);
+		if (cellBounds != null) {
+			remove(entity, cellBounds);
+			place(entity, cellBounds[ORDER]);
+		}
+	}
+
+	/**
+	 * @param entity
+	 * @return the entities in the cells entity overlaps, which may touch it,
+	 *         entity included
+	 */
+	public List<Entity> query(Entity entity) {
+		return query(entity.getX(), entity.getY(), entity.getWidth(), entity.getHeight());
+	}
+
+	/**
+	 * @return the entities in the cells a box overlaps, such as the box swept
+	 *         by a moving entity. Each is listed once, in the order they were
+	 *         inserted.
+	 */
+	public List<Entity> query(double x, double y, double width, double height) {
+		List<Entity> found = new ArrayList<Entity>(oversized);
+		int minX = cell(x);
+		int minY = cell(y);
+		int maxX = cell(x + width);
+		int maxY = cell(y + height);
+		if (((long) maxX - minX + 1) * ((long) maxY - minY + 1) > bounds.size()) {
+			// The box covers more cells than there are entities: test each.
+			for (Entity candidate : bounds.keySet()) {
+				int[] cellBounds = bounds.get(candidate);
+				if (cellBounds[0] <= cellBounds[2] && cellBounds[0] <= maxX && cellBounds[2] >= minX
+						&& cellBounds[1] <= maxY && cellBounds[3] >= minY) {
+					found.add(candidate);
+				}
+			}
+		} else {
+			for (int i = minX; i <= maxX; i++) {
+				for (int j = minY; j <= maxY; j++) {
+					List<Entity> cell = cells.get(key(i, j));
+					if (cell == null) {
+						continue;
+					}
+					for (Entity candidate : cell) {
+						int[] cellBounds = bounds.get(candidate);
+						// An entity spanning several cells is only listed from
+						// the first cell both share.
+						if (i == Math.max(minX, cellBounds[0]) && j == Math.max(minY, cellBounds[1])) {
+							found.add(candidate);
+						}
+					}
+				}
+			}
+		}
+		found.sort(Comparator.comparingInt(this::order));
+		return found;
+	}
+
+	/**
+	 * @return the number of entities in the grid
+	 */
+	public int size() {
+		return inserted;
+	}
+
+	private void place(Entity entity, int order) {
+		int[] cellBounds = { cell(entity.getX()), cell(entity.getY()), cell(entity.getX() + entity.getWidth()),
+				cell(entity.getY() + entity.getHeight()), order };
+		if (((long) cellBounds[2] - cellBounds[0] + 1) * ((long) cellBounds[3] - cellBounds[1] + 1) > MAX_CELLS) {
+			oversized.add(entity);
+			cellBounds[2] = cellBounds[0] - 1;
+		}
+		for (int i = cellBounds[0]; i <= cellBounds[2]; i++) {
+			for (int j = cellBounds[1]; j <= cellBounds[3]; j++) {
+				cells.computeIfAbsent(key(i, j), k -> new ArrayList<Entity>()).add(entity);
+			}
+		}
+		bounds.put(entity, cellBounds);
+	}
+
+	private void remove(Entity entity, int[] cellBounds) {
+		oversized.remove(entity);
+		for (int i = cellBounds[0]; i <= cellBounds[2]; i++) {
+			for (int j = cellBounds[1]; j <= cellBounds[3]; j++) {
+				List<Entity> cell = cells.get(key(i, j));
+				cell.remove(entity);
+				if (cell.isEmpty()) {
+					cells.remove(key(i, j));
+				}
+			}
+		}
+	}
+
+	private int order(Entity entity) {
+		return bounds.get(entity)[ORDER];
+	}
+
+	private int cell(double coordinate) {
+		return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, Math.floor(coordinate / CELL_SIZE)));
+	}
+
+	private long key(int i, int j) {
+		return ((long) i << 32) | (j & 0xFFFFFFFFL);
+	}
+}
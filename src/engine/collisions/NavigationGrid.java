@@ -0,0 +1,385 @@
+package engine.collisions;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import authoring.canvas.Canvas;
+import engine.entities.Entity;
+import engine.entities.entities.TileLayerEntity;
+
+/**
+ * Finds paths around the static blocks and tiles of a level, for the entities
+ * on one layer, on a grid of CELL_SIZE pixel cells. A cell is blocked when a
+ * static block or a tile overlaps it.
+ *
+ * Paths are found by A*, and cached as the next cell to go to, for each cell
+ * on the path and the goal cell. Entities chasing the same goal from nearby
+ * cells therefore share a search, as do entities walking along a path already
+ * found. The cache is emptied when the StaticGeometry or a tile layer changes.
+ *
+ * A path that is not cached is not searched for right away: the request is
+ * queued, and step() searches for queued paths once a step, expanding at most
+ * EXPANSIONS_PER_STEP cells. A long search is resumed where it stopped on the
+ * next step, so that many requests at once never make a step slow. Requests
+ * not made again since the last step are dropped.
+ *
+ * @author Elliott Bolzan
+ * @see engine.actions.regular_actions.PathfindToEntityAction
+ */
+public class NavigationGrid {
+	public static final int CELL_SIZE = Canvas.TILE_SIZE;
+	public static final int EXPANSIONS_PER_STEP = 4000;
+	public static final int MAX_CACHED = 1 << 16;
+	public static final int OUTSIDE = -1;
+	public static final int PENDING = -2;
+	public static final int UNREACHABLE = -3;
+
+	private StaticGeometry staticGeometry;
+	private List<TileLayerEntity> tileLayers;
+	private double z;
+	private long builtVersion;
+	private double left;
+	private double top;
+	private int columns;
+	private int rows;
+	private boolean[] blocked;
+	private Map<Long, Integer> nextCells;
+	private Map<Long, Integer> requests;
+	private int step;
+
+	private boolean searching;
+	private int start;
+	private int goal;
+	private int searchId;
+	private int[] cost;
+	private int[] parent;
+	private int[] opened;
+	private int[] closed;
+	private int[] heap;
+	private int[] heapPriority;
+	private int heapSize;
+
+	/**
+	 * @param staticGeometry
+	 *            the static blocks of the level
+	 * @param tileLayers
+	 *            the tile layers of the level
+	 * @param z
+	 *            the layer paths are found on
+	 */
+	public NavigationGrid(StaticGeometry staticGeometry, List<TileLayerEntity> tileLayers, double z) {
+		this.staticGeometry = staticGeometry;
+		this.tileLayers = tileLayers;
+		this.z = z;
+		this.builtVersion = Long.MIN_VALUE;
+		this.nextCells = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+				return size() > MAX_CACHED;
+			}
+		};
+		this.requests = new LinkedHashMap<Long, Integer>();
+	}
+
+	/**
+	 * @return the cell containing (x, y), or OUTSIDE if it is outside the grid
+	 *         or blocked
+	 */
+	public int getCell(double x, double y) {
+		validate();
+		int column = (int) Math.floor((x - left) / CELL_SIZE);
+		int row = (int) Math.floor((y - top) / CELL_SIZE);
+		if (column < 0 || row < 0 || column >= columns || row >= rows || blocked[row * columns + column]) {
+			return OUTSIDE;
+		}
+		return row * columns + column;
+	}
+
+	/**
+	 * @return the x coordinate of the center of cell
+	 */
+	public double getCellX(int cell) {
+		return left + (cell % columns + 0.5) * CELL_SIZE;
+	}
+
+	/**
+	 * @return the y coordinate of the center of cell
+	 */
+	public double getCellY(int cell) {
+		return top + (cell / columns + 0.5) * CELL_SIZE;
+	}
+
+	/**
+	 * @param start
+	 *            a cell returned by getCell()
+	 * @param goal
+	 *            a cell returned by getCell()
+	 * @return the next cell on a shortest path from start to goal, goal if
+	 *         they are the same, UNREACHABLE if there is no path, or PENDING if
+	 *         the path is not known yet: it is then searched for over the
+	 *         next steps
+	 */
+	public int getNextCell(int start, int goal) {
+		validate();
+		if (start == goal) {
+			return goal;
+		}
+		long key = key(start, goal);
+		Integer next = nextCells.get(key);
+		if (next != null) {
+			return next;
+		}
+		requests.put(key, step);
+		return PENDING;
+	}
+
+	/**
+	 * Searches for queued paths, within EXPANSIONS_PER_STEP expansions. Called
+	 * once a step.
+	 */
+	public void step() {
+		step++;
+		validate();
+		int budget = EXPANSIONS_PER_STEP;
+		while (budget > 0) {
+			if (!searching && !startSearch()) {
+				return;
+			}
+			budget = search(budget);
+		}
+	}
+
+	private void validate() {
+		long version = staticGeometry.getVersion();
+		for (TileLayerEntity layer : tileLayers) {
+			version = version * 31 + layer.getVersion();
+		}
+		if (version != builtVersion) {
+			build();
+			builtVersion = version;
+		}
+	}
+
+	/**
+	 * Marks the cells overlapped by static blocks and tiles, over their bounds
+	 * and a margin of one cell, and forgets every path found before.
+	 */
+	private void build() {
+		nextCells.clear();
+		requests.clear();
+		searching = false;
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (Entity block : staticGeometry.getEntities()) {
+			if (isObstacle(block)) {
+				minX = Math.min(minX, block.getX());
+				minY = Math.min(minY, block.getY());
+				maxX = Math.max(maxX, block.getX() + block.getWidth());
+				maxY = Math.max(maxY, block.getY() + block.getHeight());
+			}
+		}
+		for (TileLayerEntity layer : tileLayers) {
+			if (isObstacle(layer)) {
+				minX = Math.min(minX, layer.getX());
+				minY = Math.min(minY, layer.getY());
+				maxX = Math.max(maxX, layer.getX() + layer.getColumns() * layer.getTileSize());
+				maxY = Math.max(maxY, layer.getY() + layer.getRows() * layer.getTileSize());
+			}
+		}
+		if (minX > maxX) {
+			columns = 0;
+			rows = 0;
+			blocked = new boolean[0];
+			return;
+		}
+		left = Math.floor(minX / CELL_SIZE) * CELL_SIZE - CELL_SIZE;
+		top = Math.floor(minY / CELL_SIZE) * CELL_SIZE - CELL_SIZE;
+		columns = (int) Math.ceil((maxX - left) / CELL_SIZE) + 1;
+		rows = (int) Math.ceil((maxY - top) / CELL_SIZE) + 1;
+		blocked = new boolean[columns * rows];
+		for (Entity block : staticGeometry.getEntities()) {
+			if (isObstacle(block)) {
+				block(block.getX(), block.getY(), block.getWidth(), block.getHeight());
+			}
+		}
+		for (TileLayerEntity layer : tileLayers) {
+			if (isObstacle(layer)) {
+				int size = layer.getTileSize();
+				for (int row = 0; row < layer.getRows(); row++) {
+					for (int column = 0; column < layer.getColumns(); column++) {
+						if (layer.getTile(column, row) != TileLayerEntity.EMPTY) {
+							block(layer.getX() + column * size, layer.getY() + row * size, size, size);
+						}
+					}
+				}
+			}
+		}
+		int cells = columns * rows;
+		cost = new int[cells];
+		parent = new int[cells];
+		opened = new int[cells];
+		closed = new int[cells];
+		heap = new int[cells];
+		heapPriority = new int[cells];
+		searchId = 0;
+	}
+
+	private boolean isObstacle(Entity entity) {
+		return entity.getZ() == z && entity.getIsVisible();
+	}
+
+	private void block(double x, double y, double width, double height) {
+		// Boxes that only touch a cell do not block it.
+		int minColumn = (int) Math.floor((x - left) / CELL_SIZE + 1e-6);
+		int minRow = (int) Math.floor((y - top) / CELL_SIZE + 1e-6);
+		int maxColumn = (int) Math.ceil((x + width - left) / CELL_SIZE - 1e-6) - 1;
+		int maxRow = (int) Math.ceil((y + height - top) / CELL_SIZE - 1e-6) - 1;
+		for (int row = Math.max(0, minRow); row <= Math.min(rows - 1, maxRow); row++) {
+			for (int column = Math.max(0, minColumn); column <= Math.min(columns - 1, maxColumn); column++) {
+				blocked[row * columns + column] = true;
+			}
+		}
+	}
+
+	/**
+	 * Starts searching for the oldest request made since the last step.
+	 *
+	 * @return false if there is nothing left to search for
+	 */
+	private boolean startSearch() {
+		Iterator<Map.Entry<Long, Integer>> iterator = requests.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Long, Integer> request = iterator.next();
+			iterator.remove();
+			long key = request.getKey();
+			if (request.getValue() >= step - 1 && !nextCells.containsKey(key)) {
+				start = (int) (key >> 32);
+				goal = (int) key;
+				searchId++;
+				heapSize = 0;
+				cost[start] = 0;
+				opened[start] = searchId;
+				push(start, heuristic(start));
+				searching = true;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the current search for at most budget expansions.
+	 *
+	 * @return what is left of the budget
+	 */
+	private int search(int budget) {
+		while (heapSize > 0 && budget > 0) {
+			int cell = pop();
+			if (closed[cell] == searchId) {
+				continue;
+			}
+			closed[cell] = searchId;
+			budget--;
+			if (cell == goal) {
+				cachePath();
+				searching = false;
+				return budget;
+			}
+			int column = cell % columns;
+			int row = cell / columns;
+			if (column > 0) {
+				expand(cell, cell - 1);
+			}
+			if (column < columns - 1) {
+				expand(cell, cell + 1);
+			}
+			if (row > 0) {
+				expand(cell, cell - columns);
+			}
+			if (row < rows - 1) {
+				expand(cell, cell + columns);
+			}
+		}
+		if (heapSize == 0) {
+			nextCells.put(key(start, goal), UNREACHABLE);
+			searching = false;
+		}
+		return budget;
+	}
+
+	private void expand(int cell, int neighbor) {
+		if (blocked[neighbor] || closed[neighbor] == searchId) {
+			return;
+		}
+		int neighborCost = cost[cell] + 1;
+		if (opened[neighbor] != searchId || neighborCost < cost[neighbor]) {
+			opened[neighbor] = searchId;
+			cost[neighbor] = neighborCost;
+			parent[neighbor] = cell;
+			push(neighbor, neighborCost + heuristic(neighbor));
+		}
+	}
+
+	private int heuristic(int cell) {
+		return Math.abs(cell % columns - goal % columns) + Math.abs(cell / columns - goal / columns);
+	}
+
+	/**
+	 * Caches, for every cell on the path found, the cell that follows it.
+	 */
+	private void cachePath() {
+		int cell = goal;
+		while (cell != start) {
+			nextCells.put(key(parent[cell], goal), cell);
+			cell = parent[cell];
+		}
+	}
+
+	private void push(int cell, int priority) {
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heapSize * 2);
+			heapPriority = Arrays.copyOf(heapPriority, heapSize * 2);
+		}
+		int i = heapSize++;
+		while (i > 0 && heapPriority[(i - 1) / 2] > priority) {
+			heap[i] = heap[(i - 1) / 2];
+			heapPriority[i] = heapPriority[(i - 1) / 2];
+			i = (i - 1) / 2;
+		}
+		heap[i] = cell;
+		heapPriority[i] = priority;
+	}
+
+	private int pop() {
+		int top = heap[0];
+		int cell = heap[--heapSize];
+		int priority = heapPriority[heapSize];
+		int i = 0;
+		while (2 * i + 1 < heapSize) {
+			int child = 2 * i + 1;
+			if (child + 1 < heapSize && heapPriority[child + 1] < heapPriority[child]) {
+				child++;
+			}
+			if (heapPriority[child] >= priority) {
+				break;
+			}
+			heap[i] = heap[child];
+			heapPriority[i] = heapPriority[child];
+			i = child;
+		}
+		heap[i] = cell;
+		heapPriority[i] = priority;
+		return top;
+	}
+
+	private long key(int start, int goal) {
+		return ((long) start << 32) | (goal & 0xFFFFFFFFL);
+	}
+}
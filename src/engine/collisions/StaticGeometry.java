@@ -0,0 +1,212 @@
+package engine.collisions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.actions.Action;
+import engine.entities.Entity;
+import engine.entities.entities.BlockEntity;
+import engine.events.Event;
+
+/**
+ * Holds the static blocks of a level, so that moving entities find the blocks
+ * they touch without testing every block, and blocks are never tested against
+ * each other.
+ *
+ * A block is static when it has no speed, no acceleration, and none of its
+ * events' actions can move it, as told by Action.movesEntity(). Static blocks
+ * are baked into a grid of CELL_SIZE pixel cells when they are attached to the
+ * CollisionObservable. A static block whose position, size, speed or
+ * acceleration is changed, by an action the check did not foresee, is
+ * promoted: it leaves the grid and is treated as a moving entity from then
+ * on.
+ *
+ * @author Elliott Bolzan
+ * @see engine.game.eventobserver.CollisionObservable
+ */
+public class StaticGeometry {
+	public static final double CELL_SIZE = 128;
+
+	private Map<Long, List<Entity>> cells;
+	private Map<Entity, int[]> bounds;
+	private int promoted;
+	private int version;
+
+	public StaticGeometry() {
+		this.cells = new HashMap<Long, List<Entity>>();
+		this.bounds = new IdentityHashMap<Entity, int[]>();
+	}
+
+	/**
+	 * @param entity
+	 * @return true if entity is a block that can be baked
+	 */
+	public static boolean isStatic(Entity entity) {
+		if (!(entity instanceof BlockEntity) || entity.getXSpeed() != 0 || entity.getYSpeed() != 0
+				|| entity.getXAcceleration() != 0 || entity.getYAcceleration() != 0) {
+			return false;
+		}
+		for (Event event : entity.getEvents()) {
+			for (Action action : event.getActions()) {
+				if (action.movesEntity()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Bakes entity into the grid if it is static.
+	 *
+	 * @param entity
+	 * @return true if entity was baked
+	 */
+	public boolean bake(Entity entity) {
+		if (bounds.containsKey(entity) || !isStatic(entity)) {
+			return false;
+		}
+		int[] cellBounds = { cell(entity.getX()), cell(entity.getY()), cell(entity.getX() + entity.getWidth()),
+				cell(entity.getY() + entity.getHeight()) };
+		for (int i = cellBounds[0]; i <= cellBounds[2]; i++) {
+			for (int j = cellBounds[1]; j <= cellBounds[3]; j++) {
+				cells.computeIfAbsent(key(i, j), k -> new ArrayList<Entity>()).add(entity);
+			}
+		}
+		bounds.put(entity, cellBounds);
+		entity.setStaticGeometry(this);
+		version++;
+		return true;
+	}
+
+	/**
+	 * Removes entity from the grid, such as when it is detached.
+	 *
+	 * @param entity
+	 */
+	public void remove(Entity entity) {
+		int[] cellBounds = bounds.remove(entity);
+		if (cellBounds == null) {
+			return;
+		}
+		for (int i = cellBounds[0]; i <= cellBounds[2]; i++) {
+			for (int j = cellBounds[1]; j <= cellBounds[3]; j++) {
+				List<Entity> cell = cells.get(key(i, j));
+				cell.remove(entity);
+				if (cell.isEmpty()) {
+					cells.remove(key(i, j));
+				}
+			}
+		}
+		entity.setStaticGeometry(null);
+		version++;
+	}
+
+	/**
+	 * Called by a baked entity about to move: it leaves the grid, and collides
+	 * as a moving entity from then on.
+	 *
+	 * @param entity
+	 */
+	public void promote(Entity entity) {
+		if (bounds.containsKey(entity)) {
+			remove(entity);
+			promoted++;
+		}
+	}
+
+	/**
+	 * @param entity
+	 * @return the baked entities in the cells entity overlaps, which may touch
+	 *         it. Each is listed once.
+	 */
+	public List<Entity> query(Entity entity) {
+		return query(entity.getX(), entity.getY(), entity.getWidth(), entity.getHeight());
+	}
+
+	/**
+	 * @return the baked entities in the cells a box overlaps, such as the box
+	 *         swept by a moving entity. Each is listed once.
+	 */
+	public List<Entity> query(double x, double y, double width, double height) {
+		List<Entity> found = new ArrayList<Entity>();
+		int minX = cell(x);
+		int minY = cell(y);
+		int maxX = cell(x + width);
+		int maxY = cell(y + height);
+		for (int i = minX; i <= maxX; i++) {
+			for (int j = minY; j <= maxY; j++) {
+				List<Entity> cell = cells.get(key(i, j));
+				if (cell == null) {
+					continue;
+				}
+				for (Entity candidate : cell) {
+					int[] cellBounds = bounds.get(candidate);
+					// A block spanning several cells is only listed from the
+					// first cell both share.
+					if (i == Math.max(minX, cellBounds[0]) && j == Math.max(minY, cellBounds[1])) {
+						found.add(candidate);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @return the baked entities
+	 */
+	public Collection<Entity> getEntities() {
+		return Collections.unmodifiableSet(bounds.keySet());
+	}
+
+	public boolean contains(Entity entity) {
+		return entity.getStaticGeometry() == this;
+	}
+
+	/**
+	 * @return the number of entities baked
+	 */
+	public int size() {
+		return bounds.size();
+	}
+
+	/**
+	 * @return the number of entities promoted since the last clear()
+	 */
+	public int getPromoted() {
+		return promoted;
+	}
+
+	/**
+	 * @return a number that changes whenever an entity is baked or removed,
+	 *         so that what is built from the grid knows to build again
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Empties the grid, such as when a level starts.
+	 */
+	public void clear() {
+		bounds.keySet().forEach(entity -> entity.setStaticGeometry(null));
+		bounds.clear();
+		cells.clear();
+		promoted = 0;
+		version++;
+	}
+
+	private int cell(double coordinate) {
+		return (int) Math.floor(coordinate / CELL_SIZE);
+	}
+
+	private long key(int i, int j) {
+		return ((long) i << 32) | (j & 0xFFFFFFFFL);
+	}
+}
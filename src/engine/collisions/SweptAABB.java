@@ -0,0 +1,103 @@
+package engine.collisions;
+
+/**
+ * Tests a moving box against a still one over the course of a move, so that
+ * an entity moving further than its own size in a step cannot pass through
+ * what is in its way. Finds the time of impact, as a fraction of the move,
+ * and the side of the moving box that hits.
+ *
+ * Example of use:
+ *
+ * <pre>
+ * SweptAABB sweep = new SweptAABB();
+ * if (sweep.test(x, y, width, height, dx, dy, blockX, blockY, blockWidth, blockHeight)) {
+ * 	double contactX = x + dx * sweep.getTime();
+ * 	CollisionSide side = sweep.getSide();
+ * }
+ * </pre>
+ *
+ * @author Elliott Bolzan
+ */
+public class SweptAABB {
+	private double time;
+	private CollisionSide side;
+
+	/**
+	 * @param x
+	 *            left edge of the moving box at the start of the move
+	 * @param y
+	 *            top edge of the moving box at the start of the move
+	 * @param width
+	 * @param height
+	 * @param dx
+	 *            horizontal distance moved
+	 * @param dy
+	 *            vertical distance moved
+	 * @param otherX
+	 *            left edge of the still box
+	 * @param otherY
+	 *            top edge of the still box
+	 * @param otherWidth
+	 * @param otherHeight
+	 * @return true if the boxes start apart and touch during the move, in
+	 *         which case getTime() and getSide() describe the impact
+	 */
+	public boolean test(double x, double y, double width, double height, double dx, double dy, double otherX,
+			double otherY, double otherWidth, double otherHeight) {
+		double xEntry;
+		double xExit;
+		double yEntry;
+		double yExit;
+		if (dx > 0) {
+			xEntry = (otherX - (x + width)) / dx;
+			xExit = (otherX + otherWidth - x) / dx;
+		} else if (dx < 0) {
+			xEntry = (otherX + otherWidth - x) / dx;
+			xExit = (otherX - (x + width)) / dx;
+		} else if (x + width < otherX || otherX + otherWidth < x) {
+			return false;
+		} else {
+			xEntry = Double.NEGATIVE_INFINITY;
+			xExit = Double.POSITIVE_INFINITY;
+		}
+		if (dy > 0) {
+			yEntry = (otherY - (y + height)) / dy;
+			yExit = (otherY + otherHeight - y) / dy;
+		} else if (dy < 0) {
+			yEntry = (otherY + otherHeight - y) / dy;
+			yExit = (otherY - (y + height)) / dy;
+		} else if (y + height < otherY || otherY + otherHeight < y) {
+			return false;
+		} else {
+			yEntry = Double.NEGATIVE_INFINITY;
+			yExit = Double.POSITIVE_INFINITY;
+		}
+		double entry = Math.max(xEntry, yEntry);
+		double exit = Math.min(xExit, yExit);
+		if (entry > exit || entry < 0 || entry > 1) {
+			return false;
+		}
+		time = entry;
+		if (xEntry > yEntry) {
+			side = dx > 0 ? CollisionSide.RIGHT : CollisionSide.LEFT;
+		} else {
+			side = dy > 0 ? CollisionSide.BOTTOM : CollisionSide.TOP;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the fraction of the move after which the boxes touch
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the side of the moving box that hits, as in
+	 *         Collision.getCollisionSide()
+	 */
+	public CollisionSide getSide() {
+		return side;
+	}
+}
@@ -10,7 +10,9 @@ import authoring.canvas.LayerEditor;
 import engine.GameObject;
 import engine.Parameter;
 import engine.actions.Action;
+import engine.collisions.StaticGeometry;
 import engine.events.Event;
+import engine.events.EventIndex;
 import engine.game.gameloop.Screen;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
@@ -30,6 +32,8 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 	private SimpleBooleanProperty isVisible;
 	private List<Event> events;
 	private List<Class<?>> additionalEventClasses, additionalActionClasses;
+	private transient StaticGeometry staticGeometry;
+	private transient double lastMoveX, lastMoveY;
 
 	/**
 	 * Create a new entity, initializing all instance variables and relevant
@@ -70,14 +74,103 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	/**
 	 * Update the position of this entity according to its speed and
-	 * acceleration. Then tell all events to check if they are triggered. is
+	 * acceleration, unless it is a static block. Then tell all events woken by the EventIndex this step to
+	 * check if they are triggered. is
 	 * called once per step of the game loop. If events are triggered, their
 	 * actions act.
 	 */
 	@Override
 	public void update() {
-		move();
-		List<Event> eventsToTrigger = events.stream().filter(s -> s.isTriggered(false)).collect(Collectors.toList());
+		update(TIME_STEP);
+	}
+
+	/**
+	 * Same as update(), moving the entity by timeStep rather than TIME_STEP.
+	 * Used to update entities far from the camera less often, by a longer
+	 * step.
+	 * 
+	 * @param timeStep
+	 */
+	public void update(double timeStep) {
+		if (!isStatic()) {
+			move(timeStep);
+		}
+		EventIndex index = getGameInfo().getObservableBundle().getEventIndex();
+		List<Event> eventsToTrigger = events.stream().filter(s -> index.isAwake(s) && s.isTriggered(false))
+				.collect(Collectors.toList());
+		eventsToTrigger.forEach(event -> event.trigger());
+	}
+
+	/**
+	 * Computes where move() would put this entity, without moving it. Used to
+	 * move entities in parallel: nothing is written to the entity itself.
+	 * 
+	 * @param next
+	 *            receives the entity's next x, y, x speed and y speed
+	 * @param offset
+	 *            index of the next x in next
+	 * @param timeStep
+	 *            time to move the entity by, TIME_STEP for a regular step
+	 * @return false if the entity does not move, in which case nothing is
+	 *         written to next
+	 */
+	public boolean predictMove(double[] next, int offset, double timeStep) {
+		if (isStatic()) {
+			return false;
+		}
+		next[offset] = getX() + getXSpeed() * timeStep;
+		next[offset + 1] = getY() + getYSpeed() * timeStep;
+		next[offset + 2] = getXSpeed() + getXAcceleration() * timeStep;
+		next[offset + 3] = getYSpeed() + getYAcceleration() * timeStep;
+		return true;
+	}
+
+	/**
+	 * Moves this entity to the state computed by predictMove().
+	 * 
+	 * @param next
+	 * @param offset
+	 */
+	public void commitMove(double[] next, int offset) {
+		lastMoveX = next[offset] - getX();
+		lastMoveY = next[offset + 1] - getY();
+		setX(next[offset]);
+		setY(next[offset + 1]);
+		setXSpeed(next[offset + 2]);
+		setYSpeed(next[offset + 3]);
+	}
+
+	/**
+	 * Asks this entity's events woken this step whether they are happening,
+	 * without counting or triggering them. Only writes the state of this
+	 * entity's own events, so that entities can be evaluated in parallel.
+	 * 
+	 * @param results
+	 *            receives, for each event in order, whether it is happening
+	 * @param offset
+	 *            index of the first event's result in results
+	 */
+	public void evaluateEvents(boolean[] results, int offset) {
+		EventIndex index = getGameInfo().getObservableBundle().getEventIndex();
+		for (int i = 0; i < events.size(); i++) {
+			results[offset + i] = index.isAwake(events.get(i)) && events.get(i).act();
+		}
+	}
+
+	/**
+	 * Counts and triggers the events evaluated by evaluateEvents(), as
+	 * update() does.
+	 * 
+	 * @param results
+	 * @param offset
+	 */
+	public void triggerEvents(boolean[] results, int offset) {
+		List<Event> eventsToTrigger = new ArrayList<Event>();
+		for (int i = 0; i < events.size(); i++) {
+			if (events.get(i).isTriggered(false, results[offset + i])) {
+				eventsToTrigger.add(events.get(i));
+			}
+		}
 		eventsToTrigger.forEach(event -> event.trigger());
 	}
 
@@ -85,10 +178,21 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 	 * Move this entity according to its speed and acceleration.
 	 */
 	protected void move() {
-		setX(getX() + getXSpeed() * TIME_STEP);
-		setY(getY() + getYSpeed() * TIME_STEP);
-		setXSpeed(getXSpeed() + getXAcceleration() * TIME_STEP);
-		setYSpeed(getYSpeed() + getYAcceleration() * TIME_STEP);
+		move(TIME_STEP);
+	}
+
+	/**
+	 * Move this entity according to its speed and acceleration, by timeStep.
+	 * 
+	 * @param timeStep
+	 */
+	protected void move(double timeStep) {
+		lastMoveX = getXSpeed() * timeStep;
+		lastMoveY = getYSpeed() * timeStep;
+		setX(getX() + getXSpeed() * timeStep);
+		setY(getY() + getYSpeed() * timeStep);
+		setXSpeed(getXSpeed() + getXAcceleration() * timeStep);
+		setYSpeed(getYSpeed() + getYAcceleration() * timeStep);
 	}
 
 	@Override
@@ -127,6 +231,7 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	@Override
 	public void setX(double x) {
+		promote(this.x.get(), x);
 		this.x.set(x);
 	}
 
@@ -231,6 +336,7 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	@Override
 	public void setY(double y) {
+		promote(this.y.get(), y);
 		this.y.set(y);
 	}
 
@@ -241,6 +347,7 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	@Override
 	public void setWidth(double width) {
+		promote(this.width.get(), width);
 		this.width.set(width);
 	}
 
@@ -251,6 +358,7 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	@Override
 	public void setHeight(double height) {
+		promote(this.height.get(), height);
 		this.height.set(height);
 	}
 
@@ -261,6 +369,7 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	@Override
 	public void setXSpeed(double xSpeed) {
+		promote(0, xSpeed);
 		this.updateParam(getResource("XSpeed"), xSpeed);
 	}
 
@@ -271,6 +380,7 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	@Override
 	public void setYSpeed(double ySpeed) {
+		promote(0, ySpeed);
 		this.updateParam(getResource("YSpeed"), ySpeed);
 	}
 
@@ -281,6 +391,7 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	@Override
 	public void setXAcceleration(double xAcceleration) {
+		promote(0, xAcceleration);
 		this.updateParam(getResource("XAcceleration"), xAcceleration);
 	}
 
@@ -291,6 +402,7 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 
 	@Override
 	public void setYAcceleration(double yAcceleration) {
+		promote(0, yAcceleration);
 		this.updateParam(getResource("YAcceleration"), yAcceleration);
 	}
 
@@ -401,4 +513,62 @@ public abstract class Entity extends GameObject implements EntityInterface, Clon
 	public SimpleDoubleProperty zProperty() {
 		return zIndex;
 	}
+
+	/**
+	 * @return the horizontal distance this entity moved by its speed during
+	 *         its last move, until clearLastMove() is called
+	 */
+	public double getLastMoveX() {
+		return lastMoveX;
+	}
+
+	/**
+	 * @return the vertical distance this entity moved by its speed during its
+	 *         last move, until clearLastMove() is called
+	 */
+	public double getLastMoveY() {
+		return lastMoveY;
+	}
+
+	/**
+	 * Called once the last move has been checked for collisions.
+	 */
+	public void clearLastMove() {
+		lastMoveX = 0;
+		lastMoveY = 0;
+	}
+
+	/**
+	 * @return the StaticGeometry this entity is baked into, or null if it
+	 *         moves
+	 */
+	public StaticGeometry getStaticGeometry() {
+		return staticGeometry;
+	}
+
+	/**
+	 * Called by StaticGeometry when this entity is baked or leaves the grid.
+	 *
+	 * @param staticGeometry
+	 */
+	public void setStaticGeometry(StaticGeometry staticGeometry) {
+		this.staticGeometry = staticGeometry;
+	}
+
+	/**
+	 * @return true if this entity is baked into a StaticGeometry
+	 */
+	public boolean isStatic() {
+		return staticGeometry != null;
+	}
+
+	/**
+	 * Promotes a baked entity to a moving one before one of its bounds, speeds
+	 * or accelerations changes.
+	 */
+	private void promote(double oldValue, double newValue) {
+		if (staticGeometry != null && oldValue != newValue) {
+			staticGeometry.promote(this);
+		}
+	}
 }
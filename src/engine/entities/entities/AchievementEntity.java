@@ -29,7 +29,12 @@ public class AchievementEntity extends Entity {
 	 * Achievements don't move.
 	 */
 	@Override
-	protected void move() {
+	protected void move(double timeStep) {
+	}
+
+	@Override
+	public boolean predictMove(double[] next, int offset, double timeStep) {
+		return false;
 	}
 
 	/**
@@ -0,0 +1,282 @@
+package engine.entities.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import engine.Parameter;
+import engine.entities.Entity;
+
+/**
+ * Emits particles, for effects such as explosions or sparkles. Particles are
+ * not entities: they have no events, are not observed, and do not collide.
+ * Each has a position, a velocity, a lifetime and a color, stored in arrays
+ * of primitives that the emitter moves on every step, and that the
+ * GraphicsEngine draws in a single image.
+ *
+ * Particles are emitted by an EmitParticlesAction, or at a steady rate from
+ * the center of the emitter. Once emitted, they stay where they are in the
+ * level, even if the emitter moves. At the end of each step, the emitter
+ * publishes a Frame of its particles, so that the JavaFX thread can draw them
+ * while the next step is taken.
+ *
+ * @author Elliott Bolzan
+ * @see engine.actions.regular_actions.EmitParticlesAction
+ * @see engine.graphics.ParticleView
+ */
+public class ParticleEmitterEntity extends Entity {
+	private transient float[] x;
+	private transient float[] y;
+	private transient float[] xSpeed;
+	private transient float[] ySpeed;
+	private transient float[] life;
+	private transient byte[] color;
+	private transient int count;
+	private transient double owed;
+	private transient Random random;
+	private transient Frame back;
+	private transient AtomicReference<Frame> ready;
+	private transient Frame front;
+
+	@Override
+	protected void setupDefaultParameters() {
+		defaultSetup();
+		addParam(new Parameter(getResource("Capacity"), int.class, 20000));
+		addParam(new Parameter(getResource("EmissionRate"), double.class, 0.0));
+		addParam(new Parameter(getResource("ParticleLifetime"), double.class, 10.0));
+		addParam(new Parameter(getResource("ParticleSpeed"), double.class, 20.0));
+		addParam(new Parameter(getResource("ParticleDirection"), double.class, 0.0));
+		addParam(new Parameter(getResource("ParticleSpread"), double.class, 360.0));
+		addParam(new Parameter(getResource("ParticleGravity"), double.class, 0.0));
+		addParam(new Parameter(getResource("ParticleSize"), int.class, 3));
+		addParam(new Parameter(getResource("ParticleColors"), String.class, "#FFD700,#FFA500,#FFFFFF"));
+		this.setName(getResource("ParticleEmitterEntity"));
+		this.setImagePath(getClass().getClassLoader().getResource("resources/images/block.png").toExternalForm());
+		this.setWidth(25);
+		this.setHeight(25);
+	}
+
+	@Override
+	public void update(double timeStep) {
+		simulate(timeStep);
+		super.update(timeStep);
+	}
+
+	@Override
+	public boolean predictMove(double[] next, int offset, double timeStep) {
+		simulate(timeStep);
+		return super.predictMove(next, offset, timeStep);
+	}
+
+	/**
+	 * Emits particles from a point, in random directions within the spread, at
+	 * random speeds and lifetimes of up to those set. Particles beyond the
+	 * capacity of the emitter are not emitted.
+	 *
+	 * @param fromX
+	 * @param fromY
+	 * @param number
+	 *            number of particles to emit
+	 */
+	public void emit(double fromX, double fromY, int number) {
+		allocate();
+		int colors = Math.max(1, getParticleColors().size());
+		double speed = (double) getParam(getResource("ParticleSpeed"));
+		double lifetime = (double) getParam(getResource("ParticleLifetime"));
+		double direction = Math.toRadians((double) getParam(getResource("ParticleDirection")));
+		double spread = Math.toRadians((double) getParam(getResource("ParticleSpread")));
+		int end = Math.min(x.length, count + number);
+		for (int i = count; i < end; i++) {
+			double angle = direction + (random.nextDouble() - 0.5) * spread;
+			double particleSpeed = speed * (0.5 + random.nextDouble() / 2);
+			x[i] = (float) fromX;
+			y[i] = (float) fromY;
+			xSpeed[i] = (float) (Math.cos(angle) * particleSpeed);
+			ySpeed[i] = (float) (Math.sin(angle) * particleSpeed);
+			life[i] = (float) (lifetime * (0.5 + random.nextDouble() / 2));
+			color[i] = (byte) random.nextInt(Math.min(colors, Byte.MAX_VALUE));
+		}
+		count = end;
+	}
+
+	/**
+	 * @return the number of particles alive
+	 */
+	public int getParticleCount() {
+		return count;
+	}
+
+	/**
+	 * @return the colors particles are drawn in, as web color strings
+	 */
+	public List<String> getParticleColors() {
+		List<String> colors = new ArrayList<String>();
+		for (String color : ((String) getParam(getResource("ParticleColors"))).split(",")) {
+			if (!color.trim().isEmpty()) {
+				colors.add(color.trim());
+			}
+		}
+		return colors;
+	}
+
+	public int getParticleSize() {
+		return (int) getParam(getResource("ParticleSize"));
+	}
+
+	/**
+	 * Called by the JavaFX thread to draw the particles.
+	 *
+	 * @return the latest frame published, or null if none was
+	 */
+	public Frame getFrame() {
+		if (ready == null) {
+			return null;
+		}
+		if (ready.get().fresh) {
+			front.fresh = false;
+			front = ready.getAndSet(front);
+		}
+		return front;
+	}
+
+	@Override
+	public Entity clone() {
+		ParticleEmitterEntity copy = (ParticleEmitterEntity) super.clone();
+		copy.x = null;
+		copy.count = 0;
+		copy.owed = 0;
+		copy.ready = null;
+		return copy;
+	}
+
+	/**
+	 * Moves every particle, removes those whose lifetime is over, emits those
+	 * due from the center of the emitter, and publishes a frame.
+	 */
+	private void simulate(double timeStep) {
+		allocate();
+		float step = (float) timeStep;
+		float gravity = (float) (double) getParam(getResource("ParticleGravity"));
+		int i = 0;
+		while (i < count) {
+			life[i] -= step;
+			if (life[i] <= 0) {
+				count--;
+				x[i] = x[count];
+				y[i] = y[count];
+				xSpeed[i] = xSpeed[count];
+				ySpeed[i] = ySpeed[count];
+				life[i] = life[count];
+				color[i] = color[count];
+				continue;
+			}
+			ySpeed[i] += gravity * step;
+			x[i] += xSpeed[i] * step;
+			y[i] += ySpeed[i] * step;
+			i++;
+		}
+		owed += (double) getParam(getResource("EmissionRate")) * timeStep / TIME_STEP;
+		if (owed >= 1) {
+			emit(getX() + getWidth() / 2, getY() + getHeight() / 2, (int) owed);
+			owed -= (int) owed;
+		}
+		publish();
+	}
+
+	/**
+	 * Copies the particles to the back frame, sorted by color so that each
+	 * color is drawn in one run, and swaps it with the ready frame.
+	 */
+	private void publish() {
+		back.fill(x, y, color, count);
+		back.fresh = true;
+		back = ready.getAndSet(back);
+	}
+
+	/**
+	 * Creates the arrays of particles, and the frames, when the emitter is
+	 * first updated or its capacity changes.
+	 */
+	private void allocate() {
+		int capacity = Math.max(0, (int) getParam(getResource("Capacity")));
+		if (x != null && x.length == capacity) {
+			return;
+		}
+		x = new float[capacity];
+		y = new float[capacity];
+		xSpeed = new float[capacity];
+		ySpeed = new float[capacity];
+		life = new float[capacity];
+		color = new byte[capacity];
+		count = 0;
+		random = new Random();
+		back = new Frame(capacity);
+		front = new Frame(capacity);
+		ready = new AtomicReference<Frame>(new Frame(capacity));
+	}
+
+	/**
+	 * The positions and colors of the particles of an emitter at the end of a
+	 * step. Positions are stored as x, y pairs, sorted by color.
+	 */
+	public static class Frame {
+		private float[] positions;
+		private int[] colorEnds;
+		private int count;
+		private volatile boolean fresh;
+
+		private Frame(int capacity) {
+			this.positions = new float[capacity * 2];
+			this.colorEnds = new int[Byte.MAX_VALUE];
+		}
+
+		private void fill(float[] x, float[] y, byte[] color, int count) {
+			if (positions.length < count * 2) {
+				positions = new float[count * 2];
+			}
+			Arrays.fill(colorEnds, 0);
+			for (int i = 0; i < count; i++) {
+				colorEnds[color[i]]++;
+			}
+			int start = 0;
+			for (int i = 0; i < colorEnds.length; i++) {
+				int particles = colorEnds[i];
+				colorEnds[i] = start;
+				start += particles;
+			}
+			for (int i = 0; i < count; i++) {
+				int index = colorEnds[color[i]]++;
+				positions[index * 2] = x[i];
+				positions[index * 2 + 1] = y[i];
+			}
+			this.count = count;
+		}
+
+		/**
+		 * @return the number of particles
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the positions of the particles, as x, y pairs
+		 */
+		public float[] getPositions() {
+			return positions;
+		}
+
+		/**
+		 * @param color
+		 *            index of a color in getParticleColors()
+		 * @return the index, in getPositions(), after the last particle of
+		 *         that color. Its first particle follows those of the color
+		 *         before it.
+		 */
+		public int getColorEnd(int color) {
+			return colorEnds[color];
+		}
+	}
+}
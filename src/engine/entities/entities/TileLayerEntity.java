@@ -0,0 +1,408 @@
+package engine.entities.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import authoring.canvas.Canvas;
+import engine.Parameter;
+import engine.actions.Action;
+import engine.collisions.StaticGeometry;
+import engine.entities.Entity;
+import engine.events.Event;
+import engine.events.EventTrigger;
+
+/**
+ * A grid of tiles, drawn and collided against as a single entity. Each cell
+ * holds the id of a tile in the layer's tileset, or EMPTY. A tile has the name
+ * and image of the block it stands for.
+ *
+ * A level built from thousands of small blocks costs one entity per layer
+ * instead of one per block: the layer is drawn in one pass, and an entity
+ * collides with the cells it overlaps, found by lookup. For each cell it
+ * touches, the entity collides with a block carrying the tile's name and
+ * covering the cell, so that collision events written for the blocks keep
+ * working.
+ *
+ * Blocks are converted into layers when a game is loaded to be played, by
+ * fromBlocks(); the authoring environment keeps them as blocks.
+ *
+ * @author Elliott Bolzan
+ */
+public class TileLayerEntity extends Entity {
+	public static final short EMPTY = 0;
+
+	private int tileSize;
+	private int columns;
+	private int rows;
+	private short[] tiles;
+	private List<String> tileNames;
+	private List<String> tileImages;
+	private transient List<List<Entity>> proxies;
+	private transient int[] proxiesUsed;
+	private transient int version;
+
+	@Override
+	protected void setupDefaultParameters() {
+		defaultSetup();
+		this.setName(getResource("TileLayerEntity"));
+		this.setImagePath(getClass().getClassLoader().getResource("resources/images/block.png").toExternalForm());
+		this.tileSize = Canvas.TILE_SIZE;
+		this.columns = 1;
+		this.rows = 1;
+		this.tiles = new short[1];
+		this.tileNames = new ArrayList<String>();
+		this.tileImages = new ArrayList<String>();
+		this.setWidth(tileSize);
+		this.setHeight(tileSize);
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the names of the tiles, the tile with id i being at index i - 1
+	 */
+	public List<String> getTileNames() {
+		return tileNames;
+	}
+
+	/**
+	 * @return the image paths of the tiles, in the order of getTileNames()
+	 */
+	public List<String> getTileImages() {
+		return tileImages;
+	}
+
+	/**
+	 * @param tileImages
+	 *            new image paths for the tiles, such as when a game is saved or
+	 *            loaded
+	 */
+	public void setTileImages(List<String> tileImages) {
+		this.tileImages = new ArrayList<String>(tileImages);
+	}
+
+	/**
+	 * Adds a tile to the tileset, unless a tile with the same name is already
+	 * there.
+	 *
+	 * @param name
+	 *            name of the block the tile stands for
+	 * @param imagePath
+	 * @return the id of the tile
+	 */
+	public short addTile(String name, String imagePath) {
+		int index = tileNames.indexOf(name);
+		if (index < 0) {
+			tileNames.add(name);
+			tileImages.add(imagePath);
+			index = tileNames.size() - 1;
+		}
+		return (short) (index + 1);
+	}
+
+	/**
+	 * @return the tile in a cell, or EMPTY if the cell is outside the layer
+	 */
+	public short getTile(int column, int row) {
+		if (column < 0 || row < 0 || column >= columns || row >= rows) {
+			return EMPTY;
+		}
+		return tiles[row * columns + column];
+	}
+
+	public void setTile(int column, int row, short tile) {
+		tiles[row * columns + column] = tile;
+		version++;
+	}
+
+	/**
+	 * @return a number that changes whenever a tile is set or the layer is
+	 *         resized
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the column of the cell containing x
+	 */
+	public int getColumn(double x) {
+		return (int) Math.floor((x - getX()) / tileSize);
+	}
+
+	/**
+	 * @return the row of the cell containing y
+	 */
+	public int getRow(double y) {
+		return (int) Math.floor((y - getY()) / tileSize);
+	}
+
+	/**
+	 * Puts a tile in the cell containing (x, y), growing the layer if the cell
+	 * is outside it.
+	 *
+	 * @param x
+	 * @param y
+	 * @param tile
+	 *            id of the tile, or EMPTY to erase the cell
+	 */
+	public void paint(double x, double y, short tile) {
+		int column = getColumn(x);
+		int row = getRow(y);
+		if (column < 0 || row < 0 || column >= columns || row >= rows) {
+			if (tile == EMPTY) {
+				return;
+			}
+			int left = Math.min(column, 0);
+			int top = Math.min(row, 0);
+			resize(getX() + left * tileSize, getY() + top * tileSize, Math.max(column + 1, columns) - left,
+					Math.max(row + 1, rows) - top);
+			column -= left;
+			row -= top;
+		}
+		setTile(column, row, tile);
+	}
+
+	/**
+	 * Changes the bounds of the layer, keeping each tile where it is.
+	 * Position and size are only set when they are not bound, as they are in
+	 * the authoring environment: the caller then moves the view instead.
+	 *
+	 * @param x
+	 *            new left edge, on the grid
+	 * @param y
+	 *            new top edge, on the grid
+	 * @param columns
+	 * @param rows
+	 */
+	public void resize(double x, double y, int columns, int rows) {
+		int shiftX = (int) Math.round((getX() - x) / tileSize);
+		int shiftY = (int) Math.round((getY() - y) / tileSize);
+		short[] resized = new short[columns * rows];
+		for (int row = 0; row < this.rows; row++) {
+			for (int column = 0; column < this.columns; column++) {
+				int newColumn = column + shiftX;
+				int newRow = row + shiftY;
+				if (newColumn >= 0 && newRow >= 0 && newColumn < columns && newRow < rows) {
+					resized[newRow * columns + newColumn] = tiles[row * this.columns + column];
+				}
+			}
+		}
+		this.tiles = resized;
+		this.columns = columns;
+		this.rows = rows;
+		version++;
+		if (!xProperty().isBound()) {
+			setX(x);
+			setY(y);
+		}
+		if (!widthProperty().isBound()) {
+			setWidth(columns * tileSize);
+			setHeight(rows * tileSize);
+		}
+	}
+
+	/**
+	 * Called at the start of each step, before collide(), so that the blocks
+	 * it hands out can be reused.
+	 */
+	public void resetCollisions() {
+		if (proxiesUsed != null) {
+			Arrays.fill(proxiesUsed, 0);
+		}
+	}
+
+	/**
+	 * Finds the tiles entity overlaps, or touches. For each cell of a tile,
+	 * hands out a block named after the tile and covering the cell, so that
+	 * the side and depth of each collision are those the block the cell was
+	 * painted with would have given. Blocks are valid until the next call to
+	 * resetCollisions().
+	 *
+	 * @param entity
+	 * @param consumer
+	 *            receives the blocks entity collides with
+	 */
+	public void collide(Entity entity, Consumer<Entity> consumer) {
+		int minColumn = Math.max(0, getColumn(entity.getX()));
+		int minRow = Math.max(0, getRow(entity.getY()));
+		int maxColumn = Math.min(columns - 1, getColumn(entity.getX() + entity.getWidth()));
+		int maxRow = Math.min(rows - 1, getRow(entity.getY() + entity.getHeight()));
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				if (tiles[row * columns + column] != EMPTY) {
+					consumer.accept(getTileBlock(column, row));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a block standing for the tile in a cell, valid until the next
+	 *         call to resetCollisions(), or null if the cell is empty
+	 */
+	public Entity getTileBlock(int column, int row) {
+		short tile = getTile(column, row);
+		if (tile == EMPTY) {
+			return null;
+		}
+		Entity block = getProxy(tile);
+		block.setX(getX() + column * tileSize);
+		block.setY(getY() + row * tileSize);
+		block.setWidth(tileSize);
+		block.setHeight(tileSize);
+		block.setZ(getZ());
+		return block;
+	}
+
+	private Entity getProxy(int tile) {
+		if (proxies == null || proxies.size() < tileNames.size() + 1) {
+			proxies = new ArrayList<List<Entity>>();
+			for (int i = 0; i <= tileNames.size(); i++) {
+				proxies.add(new ArrayList<Entity>());
+			}
+			proxiesUsed = new int[tileNames.size() + 1];
+		}
+		List<Entity> pool = proxies.get(tile);
+		if (proxiesUsed[tile] == pool.size()) {
+			Entity block = new BlockEntity();
+			block.setName(tileNames.get(tile - 1));
+			block.setImagePath(tileImages.get(tile - 1));
+			block.setId(getId());
+			block.setGameInfo(getGameInfo());
+			pool.add(block);
+		}
+		return pool.get(proxiesUsed[tile]++);
+	}
+
+	@Override
+	public Entity clone() {
+		TileLayerEntity copy = (TileLayerEntity) super.clone();
+		copy.tileSize = tileSize;
+		copy.columns = columns;
+		copy.rows = rows;
+		copy.tiles = tiles.clone();
+		copy.tileNames = new ArrayList<String>(tileNames);
+		copy.tileImages = new ArrayList<String>(tileImages);
+		return copy;
+	}
+
+	/**
+	 * Converts the blocks of a level that could be tiles into tile layers, one
+	 * per layer of the level. A block is converted when it is tileSize pixels
+	 * wide and high, sits on the grid, cannot move, has no events, and is not
+	 * referred to by any event or action other than a collision event. Other
+	 * entities are kept, in order; each tile layer takes the place of its
+	 * first block.
+	 *
+	 * @param entities
+	 *            the entities of a level
+	 * @param tileSize
+	 * @return the entities of the level, with tile layers in place of blocks
+	 */
+	public static List<Entity> fromBlocks(Collection<Entity> entities, int tileSize) {
+		Set<String> referenced = getReferences(entities);
+		Map<Double, List<Entity>> blocks = new LinkedHashMap<Double, List<Entity>>();
+		for (Entity entity : entities) {
+			if (isTile(entity, tileSize, referenced)) {
+				blocks.computeIfAbsent(entity.getZ(), z -> new ArrayList<Entity>()).add(entity);
+			}
+		}
+		List<Entity> converted = new ArrayList<Entity>();
+		for (Entity entity : entities) {
+			List<Entity> layerBlocks = blocks.get(entity.getZ());
+			if (layerBlocks == null || !layerBlocks.contains(entity)) {
+				converted.add(entity);
+			} else if (layerBlocks.get(0) == entity) {
+				converted.add(toLayer(layerBlocks, tileSize));
+			}
+		}
+		return converted;
+	}
+
+	/**
+	 * Same as fromBlocks(entities, tileSize), for the grid of the authoring
+	 * environment.
+	 */
+	public static List<Entity> fromBlocks(Collection<Entity> entities) {
+		return fromBlocks(entities, Canvas.TILE_SIZE);
+	}
+
+	private static TileLayerEntity toLayer(List<Entity> blocks, int tileSize) {
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (Entity block : blocks) {
+			minX = Math.min(minX, block.getX());
+			minY = Math.min(minY, block.getY());
+			maxX = Math.max(maxX, block.getX());
+			maxY = Math.max(maxY, block.getY());
+		}
+		TileLayerEntity layer = new TileLayerEntity();
+		layer.tileSize = tileSize;
+		layer.setX(minX);
+		layer.setY(minY);
+		layer.setZ(blocks.get(0).getZ());
+		layer.setId(blocks.get(0).getId());
+		layer.setGameInfo(blocks.get(0).getGameInfo());
+		layer.resize(minX, minY, (int) Math.round((maxX - minX) / tileSize) + 1,
+				(int) Math.round((maxY - minY) / tileSize) + 1);
+		for (Entity block : blocks) {
+			layer.paint(block.getX(), block.getY(), layer.addTile(block.getName(), block.getImagePath()));
+		}
+		return layer;
+	}
+
+	private static boolean isTile(Entity entity, int tileSize, Set<String> referenced) {
+		return entity.getClass() == BlockEntity.class && entity.getEvents().isEmpty()
+				&& StaticGeometry.isStatic(entity) && entity.getIsVisible() && entity.getRotate() == 0
+				&& entity.getWidth() == tileSize && entity.getHeight() == tileSize
+				&& entity.getX() % tileSize == 0 && entity.getY() % tileSize == 0
+				&& !referenced.contains(entity.getName()) && !referenced.contains(Integer.toString(entity.getId()));
+	}
+
+	/**
+	 * @return the values of the parameters of every action, and of every event
+	 *         other than collision events, which keep working with tiles
+	 */
+	private static Set<String> getReferences(Collection<Entity> entities) {
+		Set<String> referenced = new HashSet<String>();
+		for (Entity entity : entities) {
+			for (Event event : entity.getEvents()) {
+				if (event.getTrigger().getSource() != EventTrigger.Source.COLLISION) {
+					addReferences(referenced, event.getParams());
+				}
+				for (Action action : event.getActions()) {
+					addReferences(referenced, action.getParams());
+				}
+			}
+		}
+		return referenced;
+	}
+
+	private static void addReferences(Set<String> referenced, List<Parameter> params) {
+		for (Parameter param : params) {
+			if (param.getObject() != null) {
+				referenced.add(param.getObject().toString());
+			}
+		}
+	}
+}
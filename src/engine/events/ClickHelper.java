@@ -19,8 +19,7 @@ public final class ClickHelper {
 	}
 
 	public boolean buttonPressed(Event event, MouseButton button) {
-		return event.getGameInfo().getObservableBundle().getInputObservable().getLastPressedMouseButton()
-				.equals(button);
+		return event.getGameInfo().getObservableBundle().getInputObservable().wasMouseButtonClicked(button);
 	}
 
 	public boolean withinBounds(Event event) {
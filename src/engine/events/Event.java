@@ -19,6 +19,8 @@ public abstract class Event extends GameObject implements EventInterface {
 	private List<Action> actions;
 	private SimpleIntegerProperty timesEventHasOccurred;
 	private int timesTriggered;
+	private transient boolean indexed;
+	private transient int wokenStep;
 
 	/**
 	 * Create a new event, setting the default parameters for the user to enter.
@@ -61,6 +63,33 @@ public abstract class Event extends GameObject implements EventInterface {
 	@Override
 	public abstract boolean act();
 
+	/**
+	 * Declares what can make this event happen, so that it is only asked to
+	 * act() when that happens. Overridden by events that wait on input or
+	 * collisions.
+	 * 
+	 * @return EventTrigger.ALWAYS, so that act() is called on every step
+	 */
+	public EventTrigger getTrigger() {
+		return EventTrigger.ALWAYS;
+	}
+
+	boolean isIndexed() {
+		return indexed;
+	}
+
+	void setIndexed(boolean indexed) {
+		this.indexed = indexed;
+	}
+
+	int getWokenStep() {
+		return wokenStep;
+	}
+
+	void setWokenStep(int wokenStep) {
+		this.wokenStep = wokenStep;
+	}
+
 	/**
 	 * Check whether or not to trigger the actions to fire. Depends on how many
 	 * times event is set to trigger, and how often it is set to trigger.
@@ -70,7 +99,19 @@ public abstract class Event extends GameObject implements EventInterface {
 	 * @return whether the event is triggered or not.
 	 */
 	public boolean isTriggered(boolean check) {
-		boolean act = act();
+		return isTriggered(check, act());
+	}
+
+	/**
+	 * Same as isTriggered(check), given the result of act(), for events asked
+	 * whether they are happening ahead of time.
+	 * 
+	 * @param check
+	 * @param act
+	 *            result of act()
+	 * @return whether the event is triggered or not.
+	 */
+	public boolean isTriggered(boolean check, boolean act) {
 		if (act && !check)
 			timesEventHasOccurred.set(timesEventHasOccurred.get() + 1);
 		boolean ret = (act && timesEventHasOccurred.get() != 0
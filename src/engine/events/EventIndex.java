@@ -0,0 +1,196 @@
+package engine.events;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.collisions.Collision;
+import engine.entities.Entity;
+import engine.events.EventTrigger.Source;
+import engine.game.eventobserver.InputObservable;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+
+/**
+ * Indexes the Events of a level's Entities by their EventTrigger, so that
+ * Events waiting on a key, a mouse button or a collision are only asked to
+ * act() on the steps where it fired. Before Entities are updated, dispatch()
+ * looks up the keys pressed, released and held, the buttons clicked and the
+ * participants of every collision, and wakes the Events indexed under them;
+ * Entity's update() then skips the Events that were not woken. Events whose
+ * trigger is ALWAYS, and Events that were never indexed, are asked on every
+ * step, as before.
+ * 
+ * Example of use:
+ * 
+ * <pre>
+ * index.add(entity);
+ * index.dispatch(inputObservable, collisions);
+ * if (index.isAwake(event)) {
+ * 	event.isTriggered(false);
+ * }
+ * </pre>
+ * 
+ * @author Elliott Bolzan
+ * @see EventTrigger
+ */
+public class EventIndex {
+	private Map<Source, Map<Object, List<Event>>> index;
+	private int step;
+
+	public EventIndex() {
+		index = new EnumMap<Source, Map<Object, List<Event>>>(Source.class);
+		for (Source source : Source.values()) {
+			index.put(source, new HashMap<Object, List<Event>>());
+		}
+	}
+
+	/**
+	 * Indexes the Events of entity.
+	 * 
+	 * @param entity
+	 */
+	public void add(Entity entity) {
+		for (Event event : entity.getEvents()) {
+			add(event);
+		}
+	}
+
+	/**
+	 * Removes the Events of entity from the index.
+	 * 
+	 * @param entity
+	 */
+	public void remove(Entity entity) {
+		for (Event event : entity.getEvents()) {
+			remove(event);
+		}
+	}
+
+	/**
+	 * Indexes an Event under its EventTrigger.
+	 * 
+	 * @param event
+	 */
+	public void add(Event event) {
+		EventTrigger trigger = event.getTrigger();
+		List<Object> keys = getKeys(trigger);
+		event.setIndexed(!keys.isEmpty());
+		event.setWokenStep(-1);
+		for (Object key : keys) {
+			index.get(trigger.getSource()).computeIfAbsent(key, k -> new ArrayList<Event>()).add(event);
+		}
+	}
+
+	/**
+	 * Removes an Event from the index.
+	 * 
+	 * @param event
+	 */
+	public void remove(Event event) {
+		EventTrigger trigger = event.getTrigger();
+		Map<Object, List<Event>> events = index.get(trigger.getSource());
+		for (Object key : getKeys(trigger)) {
+			List<Event> indexed = events.get(key);
+			if (indexed != null) {
+				indexed.remove(event);
+				if (indexed.isEmpty()) {
+					events.remove(key);
+				}
+			}
+		}
+		event.setIndexed(false);
+	}
+
+	/**
+	 * Empties the index, such as when a level starts.
+	 */
+	public void clear() {
+		for (Map<Object, List<Event>> events : index.values()) {
+			events.clear();
+		}
+	}
+
+	/**
+	 * Starts a new step, and wakes the Events whose trigger fired during it.
+	 * Assumed to be called once per step, once input has been processed and
+	 * collisions detected, and before Entities are updated.
+	 * 
+	 * @param input
+	 * @param stepCollisions
+	 *            the collisions detected during this step
+	 */
+	public void dispatch(InputObservable input, Collection<Collision> stepCollisions) {
+		step++;
+		for (Map.Entry<Object, List<Event>> entry : index.get(Source.KEY_PRESS).entrySet()) {
+			if (input.wasKeyPressed((KeyCode) entry.getKey())) {
+				wake(entry.getValue());
+			}
+		}
+		for (Map.Entry<Object, List<Event>> entry : index.get(Source.KEY_RELEASE).entrySet()) {
+			if (input.wasKeyReleased((KeyCode) entry.getKey())) {
+				wake(entry.getValue());
+			}
+		}
+		for (Map.Entry<Object, List<Event>> entry : index.get(Source.KEY_HELD).entrySet()) {
+			if (input.isKeyDown((KeyCode) entry.getKey())) {
+				wake(entry.getValue());
+			}
+		}
+		for (Map.Entry<Object, List<Event>> entry : index.get(Source.MOUSE_CLICK).entrySet()) {
+			if (input.wasMouseButtonClicked((MouseButton) entry.getKey())) {
+				wake(entry.getValue());
+			}
+		}
+		Map<Object, List<Event>> collisions = index.get(Source.COLLISION);
+		if (!collisions.isEmpty()) {
+			for (Collision collision : stepCollisions) {
+				Entity first = collision.getFirstEntity();
+				wake(collisions.get(first.getName()));
+				wake(collisions.get(Integer.toString(first.getId())));
+			}
+		}
+	}
+
+	/**
+	 * @param event
+	 * @return true if event should be asked to act() during this step
+	 */
+	public boolean isAwake(Event event) {
+		return !event.isIndexed() || event.getWokenStep() == step;
+	}
+
+	private void wake(List<Event> events) {
+		if (events != null) {
+			for (Event event : events) {
+				event.setWokenStep(step);
+			}
+		}
+	}
+
+	/**
+	 * @return the keys an Event is indexed under: none for ALWAYS, and for a
+	 *         numeric collision participant, both as written and as an id, as
+	 *         Collision's isBetween() accepts both
+	 */
+	private List<Object> getKeys(EventTrigger trigger) {
+		List<Object> keys = new ArrayList<Object>();
+		if (trigger.getSource() == Source.ALWAYS || trigger.getKey() == null) {
+			return keys;
+		}
+		keys.add(trigger.getKey());
+		if (trigger.getSource() == Source.COLLISION) {
+			try {
+				String id = Integer.toString(Integer.parseInt((String) trigger.getKey()));
+				if (!keys.contains(id)) {
+					keys.add(id);
+				}
+			} catch (NumberFormatException e) {
+			}
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,85 @@
+package engine.events;
+
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+
+/**
+ * Declares what can make an Event happen, so that the EventIndex only asks an
+ * Event to act() on the steps where that happened. An Event whose trigger is
+ * ALWAYS is asked on every step, which is the default: only Events that can
+ * never happen without their source firing should declare one.
+ * 
+ * @author Elliott Bolzan
+ * @see EventIndex
+ */
+public class EventTrigger {
+	public static final EventTrigger ALWAYS = new EventTrigger(Source.ALWAYS, null);
+
+	/**
+	 * The kinds of sources an Event can be triggered by.
+	 */
+	public enum Source {
+		ALWAYS, KEY_PRESS, KEY_RELEASE, KEY_HELD, MOUSE_CLICK, COLLISION
+	}
+
+	private final Source source;
+	private final Object key;
+
+	private EventTrigger(Source source, Object key) {
+		this.source = source;
+		this.key = key;
+	}
+
+	/**
+	 * @param key
+	 * @return a trigger for presses of key
+	 */
+	public static EventTrigger keyPress(KeyCode key) {
+		return new EventTrigger(Source.KEY_PRESS, key);
+	}
+
+	/**
+	 * @param key
+	 * @return a trigger for releases of key
+	 */
+	public static EventTrigger keyRelease(KeyCode key) {
+		return new EventTrigger(Source.KEY_RELEASE, key);
+	}
+
+	/**
+	 * @param key
+	 * @return a trigger for steps during which key is held down
+	 */
+	public static EventTrigger keyHeld(KeyCode key) {
+		return new EventTrigger(Source.KEY_HELD, key);
+	}
+
+	/**
+	 * @param button
+	 * @return a trigger for clicks of button
+	 */
+	public static EventTrigger mouseClick(MouseButton button) {
+		return new EventTrigger(Source.MOUSE_CLICK, button);
+	}
+
+	/**
+	 * @param participant
+	 *            name or id of the first Entity of the Collision
+	 * @return a trigger for collisions whose first Entity is participant
+	 */
+	public static EventTrigger collision(String participant) {
+		return new EventTrigger(Source.COLLISION, participant);
+	}
+
+	public Source getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the KeyCode, MouseButton or participant of the trigger, or null
+	 *         for ALWAYS
+	 */
+	public Object getKey() {
+		return key;
+	}
+}
@@ -5,6 +5,7 @@ import engine.collisions.Collision;
 import engine.collisions.CollisionSide;
 import engine.entities.Entity;
 import engine.events.Event;
+import engine.events.EventTrigger;
 
 /**
  * Stores a Collision that is associated with a certain Entity. Whenever that
@@ -33,6 +34,29 @@ public class CollisionAllEvent extends Event {
 		this.collisionSide = collisionSide;
 	}
 
+	/**
+	 * Collisions are only checked on steps where the first Entity entered
+	 * collided with something.
+	 */
+	@Override
+	public EventTrigger getTrigger() {
+		return EventTrigger.collision(getFirstParticipant());
+	}
+
+	/**
+	 * Games saved before the first Entity could be chosen have no Entity 1
+	 * parameter: their collision events are about this Entity.
+	 */
+	private String getFirstParticipant() {
+		String first = getResource("ThisEntity");
+		for (Parameter param : getParams()) {
+			if (param.getName().equals(getResource("Entity1"))) {
+				first = (String) param.getObject();
+			}
+		}
+		return first.equals(getResource("ThisEntity")) ? getEntity().getId() + "" : first;
+	}
+
 	/**
 	 * Checks the list of Collisions for the current step of the game against
 	 * the Collision contained in this CollisionEvent. If any Collision in the
@@ -42,7 +66,7 @@ public class CollisionAllEvent extends Event {
 	@Override
 	public boolean act() {
 		for (Collision collision : getEntity().getGameInfo().getObservableBundle().getCollisionObservable().getCollisions()) {
-			String param1 = ((String) getParam(getResource("Entity1"))).equals(getResource("ThisEntity")) ? getEntity().getId() + "" : (String) getParam(getResource("Entity1"));
+			String param1 = getFirstParticipant();
 			if (collision.isBetween(param1, (String) getParam(getResource("Entity2")))
 					&& (this.collisionSide == CollisionSide.ALL || this.collisionSide.equals(collision.getCollisionSide()))
 					&& collision.getCollisionDepth() > (double) getParam(getResource("DetectionDepth"))) {
@@ -0,0 +1,31 @@
+package engine.events.regular_events;
+
+import engine.Parameter;
+import engine.events.Event;
+import engine.events.EventTrigger;
+import javafx.scene.input.KeyCode;
+
+/**
+ * Event that reacts, on every step, to a key being held down by the user.
+ * Unlike KeyPressEvent, it does not rely on the keyboard repeating presses,
+ * so several keys can be held at once.
+ * 
+ * @author Elliott Bolzan
+ */
+public class KeyHeldEvent extends Event {
+
+	public KeyHeldEvent() {
+		addParam(new Parameter(getResource("Key"), KeyCode.class, KeyCode.UNDEFINED));
+	}
+
+	@Override
+	public EventTrigger getTrigger() {
+		return EventTrigger.keyHeld((KeyCode) getParam(getResource("Key")));
+	}
+
+	@Override
+	public boolean act() {
+		return getGameInfo().getObservableBundle().getInputObservable()
+				.isKeyDown((KeyCode) getParam(getResource("Key")));
+	}
+}
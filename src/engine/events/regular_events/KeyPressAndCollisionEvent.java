@@ -6,6 +6,7 @@ import engine.GameInfo;
 import engine.Parameter;
 import engine.entities.Entity;
 import engine.events.Event;
+import engine.events.EventTrigger;
 import javafx.scene.input.KeyCode;
 
 /**
@@ -46,6 +47,14 @@ public class KeyPressAndCollisionEvent extends CollisionAllEvent {
 		keyPressEvent.setParams(params);
 	}
 	
+	/**
+	 * Key presses are rarer than collisions, so the event waits on the key.
+	 */
+	@Override
+	public EventTrigger getTrigger() {
+		return keyPressEvent.getTrigger();
+	}
+
 	@Override
 	public boolean act() {
 		return super.act() && keyPressEvent.act();
@@ -2,6 +2,7 @@ package engine.events.regular_events;
 
 import engine.Parameter;
 import engine.events.Event;
+import engine.events.EventTrigger;
 import javafx.scene.input.KeyCode;
 
 /**
@@ -15,10 +16,14 @@ public class KeyPressEvent extends Event {
 		addParam(new Parameter(getResource("Key"), KeyCode.class, KeyCode.UNDEFINED));
 	}
 
+	@Override
+	public EventTrigger getTrigger() {
+		return EventTrigger.keyPress((KeyCode) getParam(getResource("Key")));
+	}
+
 	@Override
 	public boolean act() {
-		return getGameInfo().getObservableBundle().getInputObservable().isKeyPressToProcess()
-				&& getParam(getResource("Key"))
-						.equals(getGameInfo().getObservableBundle().getInputObservable().getLastPressedKey());
+		return getGameInfo().getObservableBundle().getInputObservable()
+				.wasKeyPressed((KeyCode) getParam(getResource("Key")));
 	}
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package engine.events.regular_events;
 
 import engine.Parameter;
 import engine.events.Event;
+import engine.events.EventTrigger;
 import javafx.scene.input.KeyCode;
 
 /**
@@ -15,11 +16,15 @@ public class KeyReleaseEvent extends Event {
 		addParam(new Parameter(getResource("Key"), KeyCode.class, KeyCode.UNDEFINED));
 	}
 
+	@Override
+	public EventTrigger getTrigger() {
+		return EventTrigger.keyRelease((KeyCode) getParam(getResource("Key")));
+	}
+
 	@Override
 	public boolean act() {
-		return getGameInfo().getObservableBundle().getInputObservable().isKeyReleaseToProcess()
-				&& getParam(getResource("Key"))
-						.equals(getGameInfo().getObservableBundle().getInputObservable().getLastPressedKey());
+		return getGameInfo().getObservableBundle().getInputObservable()
+				.wasKeyReleased((KeyCode) getParam(getResource("Key")));
 	}
 
 }
@@ -2,6 +2,7 @@ package engine.events.regular_events;
 
 import engine.events.ClickHelper;
 import engine.events.Event;
+import engine.events.EventTrigger;
 import javafx.scene.input.MouseButton;
 
 /**
@@ -12,6 +13,11 @@ import javafx.scene.input.MouseButton;
  */
 public class RightClickEvent extends Event {
 
+	@Override
+	public EventTrigger getTrigger() {
+		return EventTrigger.mouseClick(MouseButton.SECONDARY);
+	}
+
 	@Override
 	public boolean act() {
 		ClickHelper helper = new ClickHelper();
@@ -2,6 +2,7 @@ package engine.events.regular_events;
 
 import engine.events.ClickHelper;
 import engine.events.Event;
+import engine.events.EventTrigger;
 import javafx.scene.input.MouseButton;
 
 /**
@@ -13,6 +14,11 @@ import javafx.scene.input.MouseButton;
  */
 public class RightClickOnEntityEvent extends Event {
 
+	@Override
+	public EventTrigger getTrigger() {
+		return EventTrigger.mouseClick(MouseButton.SECONDARY);
+	}
+
 	@Override
 	public boolean act() {
 		ClickHelper helper = new ClickHelper();
@@ -2,15 +2,20 @@ package engine.game;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import data.Game;
 import engine.entities.Entity;
 import engine.entities.entities.AchievementEntity;
+import engine.game.gameloop.ParallelUpdater;
 import engine.game.gameloop.Scorebar;
 import engine.game.gameloop.Screen;
 import engine.game.gameloop.StepStrategy;
+import engine.game.gameloop.UpdateTiers;
 import engine.game.selectiongroup.ListSG;
 import engine.game.selectiongroup.SelectionGroup;
 import engine.game.timer.TimerManager;
@@ -38,6 +43,10 @@ public class LevelManager {
 	private StepStrategy currentStepStrategy;
 	private boolean levelSelectionScreenMode;
 	private Scorebar scorebar;
+	private List<Runnable> stepListeners;
+	private Queue<Runnable> afterStep;
+	private volatile ParallelUpdater parallelUpdater;
+	private volatile UpdateTiers updateTiers;
 	
 	/**
 	 * Instantiates the LevelManager with the fields as arguments set, and all other
@@ -57,6 +66,9 @@ public class LevelManager {
 		this.currentStepStrategy = currentStepStrategy;
 		this.levelSelectionScreenMode = true;
 		this.scorebar = scorebar;
+		this.stepListeners = new CopyOnWriteArrayList<>();
+		this.afterStep = new ConcurrentLinkedQueue<>();
+		this.updateTiers = new UpdateTiers();
 	}
 	
 	/**
@@ -104,6 +116,86 @@ public class LevelManager {
 	public void setCurrentStepStrategy(StepStrategy currentStepStrategy) {
 		this.currentStepStrategy = currentStepStrategy;
 	}
+	
+	/**
+	 * Adds a listener run after every step of the current Screen, whichever
+	 * Screen that is.
+	 * @param listener
+	 */
+	public void addStepListener(Runnable listener) {
+		stepListeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener added with addStepListener()
+	 * @param listener
+	 */
+	public void removeStepListener(Runnable listener) {
+		stepListeners.remove(listener);
+	}
+	
+	/**
+	 * @return the listeners run after every step
+	 */
+	public List<Runnable> getStepListeners() {
+		return stepListeners;
+	}
+	
+	/**
+	 * @return the ParallelUpdater updating the entities of every level, or
+	 *         null if they are updated one after the other
+	 */
+	public ParallelUpdater getParallelUpdater() {
+		return parallelUpdater;
+	}
+	
+	/**
+	 * @param parallelUpdater
+	 *            updates the entities of every level, or null to update them one
+	 *            after the other
+	 */
+	public void setParallelUpdater(ParallelUpdater parallelUpdater) {
+		this.parallelUpdater = parallelUpdater;
+	}
+	
+	/**
+	 * @return the UpdateTiers deciding how often entities far from the camera
+	 *         are updated, or null if only entities on camera are
+	 */
+	public UpdateTiers getUpdateTiers() {
+		return updateTiers;
+	}
+	
+	/**
+	 * @param updateTiers
+	 *            decides how often entities far from the camera are updated, or
+	 *            null to only update entities on camera
+	 */
+	public void setUpdateTiers(UpdateTiers updateTiers) {
+		this.updateTiers = updateTiers;
+	}
+	
+	/**
+	 * Runs an action once the current step is over, on the thread that steps
+	 * the game. Used to change the level's entities without disturbing the
+	 * step iterating over them, and to pass user input from the JavaFX thread
+	 * to the game.
+	 * @param action
+	 */
+	public void runAfterStep(Runnable action) {
+		afterStep.add(action);
+	}
+	
+	/**
+	 * Runs the actions passed to runAfterStep(), in order. Assumed to be
+	 * called from Screen's step().
+	 */
+	public void runActionsAfterStep() {
+		Runnable action;
+		while ((action = afterStep.poll()) != null) {
+			action.run();
+		}
+	}
 
 	/**
 	 * External Engine API. Needed for authoring. Adds the level specified.
@@ -173,6 +265,7 @@ public class LevelManager {
 		unlockedLevelNumbers = game.getUnlockedLevels();
 		if (!firstTimeLoading) {
 			scorebar.setLives(game.getNumberOfLives());
+			scorebar.setScore(game.getScore());
 		}
 	}
 	
@@ -1,16 +1,38 @@
 package engine.game.eventobserver;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import engine.collisions.Collision;
 import engine.collisions.CollisionSide;
+import engine.collisions.MovingGrid;
+import engine.collisions.NavigationGrid;
+import engine.collisions.StaticGeometry;
+import engine.collisions.SweptAABB;
 import engine.entities.Entity;
+import engine.entities.entities.BlockEntity;
+import engine.entities.entities.ParticleEmitterEntity;
+import engine.entities.entities.TileLayerEntity;
 
 /**
  * Part of the Observable Design Pattern for detecting if collisions occur
  * between Entities. Collisions that are detected are stored as a Collision in a
- * list of Collisions.
+ * list of Collisions. Static blocks are baked into a StaticGeometry when they
+ * are attached, and moving entities are put in a MovingGrid every step:
+ * moving entities are tested against the moving entities and the blocks the
+ * grids find around them, and blocks are never tested against each other. Tile layers are not tested as a whole: moving entities collide
+ * with the tiles they touch. Particle emitters do not collide.
+ * 
+ * An entity whose last move was longer than its own size could have passed
+ * through something thin. It is swept along that move first: if it hit
+ * anything, it is put back where it first touched it, and the collision is
+ * reported with its time of impact.
+ * 
+ * The static blocks and tiles of each layer are also the obstacles of a
+ * NavigationGrid, which searches for the paths entities asked for once a step.
  * 
  * @author Kyle Finke
  * @author Matthew Barbano
@@ -18,6 +40,12 @@ import engine.entities.Entity;
  */
 public class CollisionObservable extends EventObservable {
 	private List<Collision> collisions = new ArrayList<>();
+	private StaticGeometry staticGeometry = new StaticGeometry();
+	private List<TileLayerEntity> tileLayers = new ArrayList<>();
+	private MovingGrid movingGrid = new MovingGrid();
+	private Map<Entity, Entity> swept = new IdentityHashMap<>();
+	private SweptAABB sweep = new SweptAABB();
+	private Map<Double, NavigationGrid> navigationGrids = new HashMap<>();
 
 	/**
 	 * 
@@ -27,6 +55,39 @@ public class CollisionObservable extends EventObservable {
 		return collisions;
 	}
 
+	/**
+	 * @return the static blocks of the current level
+	 */
+	public StaticGeometry getStaticGeometry() {
+		return staticGeometry;
+	}
+
+	/**
+	 * @param z
+	 *            the layer to find paths on
+	 * @return the grid that finds paths around the static blocks and tiles of
+	 *         layer z
+	 */
+	public NavigationGrid getNavigationGrid(double z) {
+		return navigationGrids.computeIfAbsent(z, layer -> new NavigationGrid(staticGeometry, tileLayers, layer));
+	}
+
+	@Override
+	public void attach(Entity toAttach) {
+		super.attach(toAttach);
+		staticGeometry.bake(toAttach);
+		if (toAttach instanceof TileLayerEntity) {
+			tileLayers.add((TileLayerEntity) toAttach);
+		}
+	}
+
+	@Override
+	public void detach(Entity toDetach) {
+		super.detach(toDetach);
+		staticGeometry.remove(toDetach);
+		tileLayers.remove(toDetach);
+	}
+
 	private CollisionSide collisionSide(Entity entityOne, Entity entityTwo) {
 		if (isHorizontalCollision(entityOne, entityTwo)) {
 			if (entityOne.getX() < entityTwo.getX()) {
@@ -76,18 +137,168 @@ public class CollisionObservable extends EventObservable {
 
 	/**
 	 * Checks all entities in the current level for collisions. If a Collision
-	 * is detected, it is added to a list of Collisions.
+	 * is detected, it is added to a list of Collisions. Collisions with a
+	 * static block are added in both orders, as between two moving entities.
 	 */
 	@Override
 	public void updateObservers() {
-		for (Entity first : getObservers()) {
-			for (Entity second : getObservers()) {
+		List<Entity> moving = new ArrayList<>();
+		for (Entity observer : getObservers()) {
+			if (!staticGeometry.contains(observer) && !(observer instanceof TileLayerEntity)
+					&& !(observer instanceof ParticleEmitterEntity)) {
+				moving.add(observer);
+			}
+		}
+		tileLayers.forEach(layer -> layer.resetCollisions());
+		navigationGrids.values().forEach(grid -> grid.step());
+		swept.clear();
+		movingGrid.clear();
+		moving.forEach(entity -> movingGrid.insert(entity));
+		for (Entity entity : moving) {
+			sweepLastMove(entity);
+		}
+		for (Entity first : moving) {
+			for (Entity second : movingGrid.query(first)) {
 				if (first != second && isCollision(first, second)) {
-					collisions.add(
-							new Collision(first, second, collisionSide(first, second), collisionDepth(first, second)));
+					addCollision(first, second);
 				}
 			}
+			for (Entity block : staticGeometry.query(first)) {
+				if (isCollision(first, block)) {
+					addCollision(first, block);
+					addCollision(block, first);
+				}
+			}
+			for (TileLayerEntity layer : tileLayers) {
+				if (isSameLayer(first, layer)) {
+					layer.collide(first, tile -> {
+						addCollision(first, tile);
+						addCollision(tile, first);
+					});
+				}
+			}
+		}
+	}
+
+	private void addCollision(Entity first, Entity second) {
+		if (!swept.isEmpty() && (isSame(swept.get(first), second) || isSame(swept.get(second), first))) {
+			return;
 		}
+		collisions.add(new Collision(first, second, collisionSide(first, second), collisionDepth(first, second)));
+	}
+
+	/**
+	 * Sweeps entity along its last move, if the move was longer than its
+	 * size, against what lies in the box the move covers. Puts entity back
+	 * where it touched the first thing in its way, pushed into it by as much
+	 * as the rest of the move would have taken it, but no more than the size
+	 * of either along that axis: this is the overlap a regular step would have
+	 * found, had the thing been thick enough. The collision is reported in
+	 * both orders with that depth, so that collision events fire as usual,
+	 * and an entity nothing stops carries on through on the next step, as
+	 * sweeps only report things the entity starts apart from.
+	 */
+	private void sweepLastMove(Entity entity) {
+		double dx = entity.getLastMoveX();
+		double dy = entity.getLastMoveY();
+		entity.clearLastMove();
+		if (!entity.getIsVisible() || (Math.abs(dx) <= entity.getWidth() && Math.abs(dy) <= entity.getHeight())) {
+			return;
+		}
+		double startX = entity.getX() - dx;
+		double startY = entity.getY() - dy;
+		double minX = Math.min(startX, entity.getX());
+		double minY = Math.min(startY, entity.getY());
+		double width = entity.getWidth() + Math.abs(dx);
+		double height = entity.getHeight() + Math.abs(dy);
+		Entity hit = null;
+		TileLayerEntity hitLayer = null;
+		int hitColumn = 0;
+		int hitRow = 0;
+		double time = Double.MAX_VALUE;
+		CollisionSide side = null;
+		List<Entity> candidates = new ArrayList<>(staticGeometry.query(minX, minY, width, height));
+		for (Entity other : movingGrid.query(minX, minY, width, height)) {
+			if (other != entity && !(other.getX() > minX + width || other.getX() + other.getWidth() < minX
+					|| other.getY() > minY + height || other.getY() + other.getHeight() < minY)) {
+				candidates.add(other);
+			}
+		}
+		for (Entity other : candidates) {
+			if (other.getZ() == entity.getZ() && other.getIsVisible()
+					&& sweep.test(startX, startY, entity.getWidth(), entity.getHeight(), dx, dy, other.getX(),
+							other.getY(), other.getWidth(), other.getHeight())
+					&& sweep.getTime() < time) {
+				hit = other;
+				time = sweep.getTime();
+				side = sweep.getSide();
+			}
+		}
+		for (TileLayerEntity layer : tileLayers) {
+			if (!isSameLayer(entity, layer)) {
+				continue;
+			}
+			int size = layer.getTileSize();
+			int maxColumn = Math.min(layer.getColumns() - 1, layer.getColumn(minX + width));
+			int maxRow = Math.min(layer.getRows() - 1, layer.getRow(minY + height));
+			for (int row = Math.max(0, layer.getRow(minY)); row <= maxRow; row++) {
+				for (int column = Math.max(0, layer.getColumn(minX)); column <= maxColumn; column++) {
+					if (layer.getTile(column, row) != TileLayerEntity.EMPTY
+							&& sweep.test(startX, startY, entity.getWidth(), entity.getHeight(), dx, dy,
+									layer.getX() + column * size, layer.getY() + row * size, size, size)
+							&& sweep.getTime() < time) {
+						hit = null;
+						hitLayer = layer;
+						hitColumn = column;
+						hitRow = row;
+						time = sweep.getTime();
+						side = sweep.getSide();
+					}
+				}
+			}
+		}
+		if (hit == null && hitLayer != null) {
+			hit = hitLayer.getTileBlock(hitColumn, hitRow);
+		}
+		if (hit == null) {
+			return;
+		}
+		boolean horizontal = side == CollisionSide.LEFT || side == CollisionSide.RIGHT;
+		double move = horizontal ? dx : dy;
+		double depth = Math.min(Math.abs(move) * (1 - time), horizontal
+				? Math.min(entity.getWidth(), hit.getWidth()) : Math.min(entity.getHeight(), hit.getHeight()));
+		entity.setX(startX + dx * time + (horizontal ? Math.signum(move) * depth : 0));
+		entity.setY(startY + dy * time + (horizontal ? 0 : Math.signum(move) * depth));
+		movingGrid.update(entity);
+		collisions.add(new Collision(entity, hit, side, depth, time));
+		collisions.add(new Collision(hit, entity, getOpposite(side), depth, time));
+		swept.put(entity, hit);
+	}
+
+	private CollisionSide getOpposite(CollisionSide side) {
+		switch (side) {
+		case RIGHT:
+			return CollisionSide.LEFT;
+		case LEFT:
+			return CollisionSide.RIGHT;
+		case TOP:
+			return CollisionSide.BOTTOM;
+		default:
+			return CollisionSide.TOP;
+		}
+	}
+
+	private boolean isSameLayer(Entity entity, TileLayerEntity layer) {
+		return layer.getIsVisible() && layer.getZ() == entity.getZ() && entity.getIsVisible();
+	}
+
+	/**
+	 * @return true if two entities are the same, or stand for the same cell of
+	 *         a tile layer
+	 */
+	private boolean isSame(Entity one, Entity two) {
+		return one != null && (one == two || (two instanceof BlockEntity && one.getId() == two.getId()
+				&& one.getName().equals(two.getName()) && one.getX() == two.getX() && one.getY() == two.getY()));
 	}
 
 	private boolean isCollision(Entity first, Entity second) {
@@ -1,5 +1,9 @@
 package engine.game.eventobserver;
 
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import engine.game.eventobserver.PlayerInput.Type;
 import engine.graphics.GraphicsEngine;
 import javafx.geometry.Point2D;
 import javafx.scene.Scene;
@@ -10,20 +14,41 @@ import javafx.scene.input.MouseButton;
  * Part of the Observable Design Pattern for detecting and responding to Events.
  * Handles both keyboard and mouse input.
  * 
+ * Input is received on the JavaFX thread, while the game is stepped on its own
+ * thread. The scene's handlers add each input to an InputRingBuffer, which
+ * processInput() drains once per step. Draining updates which keys are held
+ * down, and which keys were pressed and released, and which buttons were
+ * clicked, since the previous step; none of them is lost, however many arrive
+ * between two steps. These are kept in bitsets indexed by ordinal, so Events
+ * can query any key in constant time.
+ * 
  * @author Matthew Barbano
  *
  */
 public class InputObservable extends EventObservable {
+	private static final KeyCode[] KEYS = KeyCode.values();
+	private static final MouseButton[] BUTTONS = MouseButton.values();
+	private static final Type[] TYPES = Type.values();
+
 	private KeyCode lastPressedKey;
 	private MouseButton lastPressedMouseButton;
 	private Point2D lastPressedCoordinates;
+	private double lastPressedX;
+	private double lastPressedY;
 	private Scene gameScene;
 	private GraphicsEngine graphicsEngine;
 
+	private final InputRingBuffer buffer;
+	private final InputRingBuffer.Sink sink;
+	private final long[] keysDown;
+	private final long[] keysPressed;
+	private final long[] keysReleased;
+	private int buttonsClicked;
+
 	private boolean keyPressToProcess;
 	private boolean keyReleaseToProcess;
 	private boolean mouseClickToProcess;
-	private boolean firstTime = true;
+	private Consumer<PlayerInput> inputListener;
 	
 	/**
 	 * Instatiates a new InputObservable by initializing observers to an empty ArrayList,
@@ -43,6 +68,11 @@ public class InputObservable extends EventObservable {
 		mouseClickToProcess = false;
 		this.gameScene = gameScene;
 		this.graphicsEngine = graphicsEngine;
+		buffer = new InputRingBuffer(InputRingBuffer.DEFAULT_CAPACITY);
+		sink = this::process;
+		keysDown = new long[(KEYS.length + Long.SIZE - 1) / Long.SIZE];
+		keysPressed = new long[keysDown.length];
+		keysReleased = new long[keysDown.length];
 	}
 	
 	/**
@@ -60,12 +90,43 @@ public class InputObservable extends EventObservable {
 	}
 	
 	/**
-	 * @return mouseClickToProcess and not the first time clicked
+	 * @return mouseClickToProcess
 	 */
 	public boolean isMouseClickToProcess() {
-		boolean temp = firstTime;
-		firstTime = false;
-		return !temp && mouseClickToProcess;
+		return mouseClickToProcess;
+	}
+	
+	/**
+	 * @param key
+	 * @return true if key is held down
+	 */
+	public boolean isKeyDown(KeyCode key) {
+		return isSet(keysDown, key.ordinal());
+	}
+	
+	/**
+	 * @param key
+	 * @return true if key was pressed since the previous step, including the
+	 * repeated presses sent while a key is held down
+	 */
+	public boolean wasKeyPressed(KeyCode key) {
+		return isSet(keysPressed, key.ordinal());
+	}
+	
+	/**
+	 * @param key
+	 * @return true if key was released since the previous step
+	 */
+	public boolean wasKeyReleased(KeyCode key) {
+		return isSet(keysReleased, key.ordinal());
+	}
+	
+	/**
+	 * @param button
+	 * @return true if button was clicked since the previous step
+	 */
+	public boolean wasMouseButtonClicked(MouseButton button) {
+		return (buttonsClicked & (1 << button.ordinal())) != 0;
 	}
 	
 	/**
@@ -80,6 +141,9 @@ public class InputObservable extends EventObservable {
 	 * where the mouse was last clicked
 	 */
 	public Point2D getLastPressedCoordinates() {
+		if (lastPressedCoordinates == null && lastPressedMouseButton != null) {
+			lastPressedCoordinates = new Point2D(lastPressedX, lastPressedY);
+		}
 		return lastPressedCoordinates;
 	}
 	
@@ -91,33 +155,120 @@ public class InputObservable extends EventObservable {
 	}
 	
 	/**
-	 * Sets all the "toProcess" boolean variables to "state".
+	 * Sets all the "toProcess" boolean variables to "state". Setting them to false
+	 * also forgets the keys pressed and released, and the buttons clicked.
 	 * @param state
 	 */
 	public void setInputToProcess(boolean state) {
 		keyPressToProcess = state;
 		keyReleaseToProcess = state;
 		mouseClickToProcess = state;
+		if (!state) {
+			Arrays.fill(keysPressed, 0);
+			Arrays.fill(keysReleased, 0);
+			buttonsClicked = 0;
+		}
+	}
+	
+	/**
+	 * Forgets the input of the previous step, then processes every input received
+	 * since. Called once per step, before the step, on the thread that steps the game.
+	 */
+	public void processInput() {
+		setInputToProcess(false);
+		buffer.drain(sink);
+	}
+	
+	/**
+	 * @return the number of inputs dropped because more arrived between two steps
+	 * than the InputRingBuffer holds
+	 */
+	public long getDroppedInputs() {
+		return buffer.getDropped();
 	}
 	
 	/**
 	 * Uses scene's setOnKeyPressed(), setOnKeyReleased(), and setOnMouseClicked()
 	 * to initialize "lastPressed" and "toProcess" booleans to their appropriate values.
+	 * Does nothing if there is no scene, in which case input is only received through
+	 * apply().
 	 */
 	public void setupInputListeners() {
-		gameScene.setOnKeyPressed(event -> {
-			lastPressedKey = event.getCode();
+		if (gameScene == null) {
+			return;
+		}
+		gameScene.setOnKeyPressed(event -> receive(Type.KEY_PRESS, event.getCode(), null, 0, 0));
+		gameScene.setOnKeyReleased(event -> receive(Type.KEY_RELEASE, event.getCode(), null, 0, 0));
+		graphicsEngine.getView()
+				.setOnMouseClicked(e -> receive(Type.MOUSE_CLICK, null, e.getButton(), e.getX(), e.getY()));
+	}
+	
+	/**
+	 * Receives input as if it came from the scene, to be processed before the next step.
+	 * Used to apply input received from elsewhere, such as from another computer. Input
+	 * must only be received from one thread: the JavaFX thread if there is a scene, and
+	 * any one thread otherwise.
+	 * @param input
+	 */
+	public void apply(PlayerInput input) {
+		publish(input.getType(), input.getKey(), input.getButton(), input.getX(), input.getY());
+	}
+	
+	/**
+	 * Sets a listener notified of every input received from the scene.
+	 * @param inputListener, or null
+	 */
+	public void setInputListener(Consumer<PlayerInput> inputListener) {
+		this.inputListener = inputListener;
+	}
+	
+	private void receive(Type type, KeyCode key, MouseButton button, double x, double y) {
+		publish(type, key, button, x, y);
+		if (inputListener != null) {
+			inputListener.accept(new PlayerInput(type, key, button, x, y));
+		}
+	}
+	
+	private void publish(Type type, KeyCode key, MouseButton button, double x, double y) {
+		int code = type == Type.MOUSE_CLICK ? button.ordinal() : key.ordinal();
+		buffer.offer(type.ordinal(), code, x, y);
+	}
+	
+	private void process(int type, int code, double x, double y) {
+		switch (TYPES[type]) {
+		case KEY_PRESS:
+			set(keysDown, code, true);
+			set(keysPressed, code, true);
+			lastPressedKey = KEYS[code];
 			keyPressToProcess = true;
-		});
-		gameScene.setOnKeyReleased(event -> {
-			lastPressedKey = event.getCode();
+			break;
+		case KEY_RELEASE:
+			set(keysDown, code, false);
+			set(keysReleased, code, true);
+			lastPressedKey = KEYS[code];
 			keyReleaseToProcess = true;
-		});
-		graphicsEngine.getView().setOnMouseClicked(e -> {
-			lastPressedMouseButton = e.getButton();
-			lastPressedCoordinates = new Point2D(e.getX(), e.getY());
+			break;
+		case MOUSE_CLICK:
+			buttonsClicked |= 1 << code;
+			lastPressedMouseButton = BUTTONS[code];
+			lastPressedX = x;
+			lastPressedY = y;
+			lastPressedCoordinates = null;
 			mouseClickToProcess = true;
-		});
+			break;
+		}
+	}
+	
+	private static boolean isSet(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+	
+	private static void set(long[] bits, int index, boolean value) {
+		if (value) {
+			bits[index >>> 6] |= 1L << index;
+		} else {
+			bits[index >>> 6] &= ~(1L << index);
+		}
 	}
 	
 	/**
@@ -0,0 +1,97 @@
+package engine.game.eventobserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue of inputs, passed from the one thread that
+ * receives them (the JavaFX thread) to the one thread that steps the game.
+ * Inputs are stored as primitives in preallocated arrays, so neither side
+ * allocates anything per input. When the buffer is full, new inputs are
+ * dropped and counted.
+ * 
+ * @author Elliott Bolzan
+ * @see InputObservable
+ */
+class InputRingBuffer {
+	static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Receives the inputs drained from the buffer.
+	 */
+	interface Sink {
+		void accept(int type, int code, double x, double y);
+	}
+
+	private final int capacity;
+	private final int mask;
+	private final int[] types;
+	private final int[] codes;
+	private final double[] xs;
+	private final double[] ys;
+	private final AtomicLong head;
+	private final AtomicLong tail;
+	private volatile long dropped;
+
+	/**
+	 * @param capacity
+	 *            rounded up to a power of two
+	 */
+	InputRingBuffer(int capacity) {
+		this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.mask = this.capacity - 1;
+		this.types = new int[this.capacity];
+		this.codes = new int[this.capacity];
+		this.xs = new double[this.capacity];
+		this.ys = new double[this.capacity];
+		this.head = new AtomicLong();
+		this.tail = new AtomicLong();
+	}
+
+	/**
+	 * Adds an input. Only called from the producing thread.
+	 * 
+	 * @return false if the buffer was full, and the input dropped
+	 */
+	boolean offer(int type, int code, double x, double y) {
+		long position = tail.get();
+		if (position - head.get() >= capacity) {
+			dropped++;
+			return false;
+		}
+		int index = (int) position & mask;
+		types[index] = type;
+		codes[index] = code;
+		xs[index] = x;
+		ys[index] = y;
+		tail.lazySet(position + 1);
+		return true;
+	}
+
+	/**
+	 * Passes every input added so far to sink, in order. Only called from the
+	 * consuming thread.
+	 * 
+	 * @return the number of inputs drained
+	 */
+	int drain(Sink sink) {
+		long position = head.get();
+		long end = tail.get();
+		for (long i = position; i < end; i++) {
+			int index = (int) i & mask;
+			sink.accept(types[index], codes[index], xs[index], ys[index]);
+		}
+		head.lazySet(end);
+		return (int) (end - position);
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of inputs dropped because the buffer was full
+	 */
+	long getDropped() {
+		return dropped;
+	}
+}
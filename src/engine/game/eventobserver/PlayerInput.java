@@ -0,0 +1,82 @@
+package engine.game.eventobserver;
+
+import java.io.Serializable;
+
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+
+/**
+ * One key press, key release or mouse click, as received by the
+ * InputObservable. Inputs are plain values, so that they can be recorded, or
+ * sent to another computer and applied to the InputObservable there.
+ * 
+ * @author Elliott Bolzan
+ * @see InputObservable
+ */
+public class PlayerInput implements Serializable {
+	private static final long serialVersionUID = 2975346214427707813L;
+
+	public enum Type {
+		KEY_PRESS, KEY_RELEASE, MOUSE_CLICK
+	}
+
+	private final Type type;
+	private final KeyCode key;
+	private final MouseButton button;
+	private final double x;
+	private final double y;
+
+	public PlayerInput(Type type, KeyCode key, MouseButton button, double x, double y) {
+		this.type = type;
+		this.key = key;
+		this.button = button;
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * @param key
+	 * @return an input for a press of key
+	 */
+	public static PlayerInput keyPress(KeyCode key) {
+		return new PlayerInput(Type.KEY_PRESS, key, null, 0, 0);
+	}
+
+	/**
+	 * @param key
+	 * @return an input for a release of key
+	 */
+	public static PlayerInput keyRelease(KeyCode key) {
+		return new PlayerInput(Type.KEY_RELEASE, key, null, 0, 0);
+	}
+
+	/**
+	 * @param button
+	 * @param x
+	 * @param y
+	 * @return an input for a click of button, at (x, y) in the game view
+	 */
+	public static PlayerInput mouseClick(MouseButton button, double x, double y) {
+		return new PlayerInput(Type.MOUSE_CLICK, null, button, x, y);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public KeyCode getKey() {
+		return key;
+	}
+
+	public MouseButton getButton() {
+		return button;
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+}
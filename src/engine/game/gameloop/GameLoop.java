@@ -4,12 +4,14 @@ import data.Game;
 import engine.GameInfo;
 import engine.game.LevelManager;
 import engine.graphics.GraphicsEngine;
+import engine.graphics.HeadlessGraphicsEngine;
 import javafx.scene.Scene;
 import javafx.scene.layout.Pane;
 
 /**
  * Manages the highest level of time flow and Timeline logic in the game. The client class for the
- * game loop. Constructor called from the Game Player whenever a new game needs 
+ * game loop. The game is stepped at a fixed rate by a SimulationThread, independently of how often
+ * the GraphicsEngine draws it. Constructor called from the Game Player whenever a new game needs 
  * to be setup, and startTimeline() when ready for the Game Player to start the game animation.
  * See method descriptions for assumptions; dependencies include ObservableBundle, Scorebar
  * TimelineManipulator, LevelManager, and GraphicsEngine. Example of use:
@@ -29,6 +31,7 @@ public class GameLoop {
 	private TimelineManipulator timelineManipulator;
 	private LevelManager levelManager;
 	private GraphicsEngine graphicsEngine;
+	private SimulationThread simulation;
 	
 	/**
 	 * Sets up fields and objects at the beginning of every game. Note that this is called
@@ -60,20 +63,51 @@ public class GameLoop {
 		timelineManipulator.setInfo(info);
 		graphicsEngine.getScorebar().setLevelManager(levelManager);
 		scorebar.setupLives(levelManager, firstTimeLoading);
+		simulation = new SimulationThread("GameLoop", this::step, Screen.FRAME_TIME_MILLISECONDS);
+	}
+
+	/**
+	 * Sets up a game that runs without a scene or display, such as on a game
+	 * server. The game starts on its first level rather than on the level
+	 * selection screen, since nobody can click on it; input is applied through
+	 * the InputObservable, and steps are taken by the SimulationThread once
+	 * startTimeline() is called.
+	 * 
+	 * @param game
+	 * @param firstTimeLoading
+	 */
+	public GameLoop(Game game, boolean firstTimeLoading) {
+		this(null, game, new HeadlessGraphicsEngine(game), firstTimeLoading);
 	}
 
 	private void setupFirstStrategy() {
+		if (graphicsEngine.isHeadless()) {
+			levelManager.setLevelSelectionScreenMode(false);
+		}
 		StepStrategy firstStrategy = levelManager.getLevelSelectionScreenMode() ? new LevelSelectionStepStrategy(true)
 				: new LevelStepStrategy();
 		levelManager.setCurrentStepStrategy(firstStrategy);
 	}
 	
+	private void step() {
+		observableBundle.getInputObservable().processInput();
+		Screen screen = levelManager.getCurrentScreen();
+		if (screen.isRunning()) {
+			screen.step();
+		} else {
+			// While paused, actions deferred by the player, such as saves, still run between steps.
+			levelManager.runActionsAfterStep();
+		}
+	}
+	
 	/**
 	 * Called by the Game Player when initialization is complete and animation is to be played,
 	 * or when the game should be unpaused.
 	 */
 	public void startTimeline() {
 		levelManager.getCurrentScreen().start();
+		simulation.start();
+		graphicsEngine.startRendering(simulation);
 	}
 	
 	/**
@@ -83,6 +117,41 @@ public class GameLoop {
 		levelManager.getCurrentScreen().pause();
 	}
 	
+	/**
+	 * Called by the Game Player when the game is left for good. Stops the SimulationThread
+	 * and the rendering of the game.
+	 */
+	public void stopTimeline() {
+		levelManager.getCurrentScreen().stop();
+		simulation.stop();
+		graphicsEngine.stopRendering();
+		if (levelManager.getParallelUpdater() != null) {
+			levelManager.getParallelUpdater().close();
+			levelManager.setParallelUpdater(null);
+		}
+	}
+	
+	/**
+	 * Updates each level's entities on several threads, using a ParallelUpdater, or one
+	 * after the other, as by default. Takes effect on the next step.
+	 * 
+	 * @param parallelism number of threads, or 1 to update entities one after the other
+	 */
+	public void setUpdateParallelism(int parallelism) {
+		ParallelUpdater previous = levelManager.getParallelUpdater();
+		levelManager.setParallelUpdater(parallelism > 1 ? new ParallelUpdater(parallelism) : null);
+		if (previous != null) {
+			levelManager.runAfterStep(previous::close);
+		}
+	}
+	
+	/**
+	 * @return the SimulationThread stepping the game, to configure how it catches up
+	 */
+	public SimulationThread getSimulation() {
+		return simulation;
+	}
+	
 	/**
 	 * @return game view from graphics engine
 	 */
@@ -50,13 +50,13 @@ public class LevelSelectionStepStrategy implements StepStrategy {
 	 * @param levelNumber
 	 */
 	public void moveToLevelScreen(int levelNumber) {
-		levelManager.getCurrentScreen().getTimeline().stop();
+		levelManager.getCurrentScreen().stop();
 		boolean hasSelectedLevel = levelManager.setLevelNumber(levelNumber);
 		if (hasSelectedLevel) {
 			StepStrategy nextStepStrategy = new LevelStepStrategy();
 			levelManager.setCurrentStepStrategy(nextStepStrategy);
 			Screen nextScreen = new Screen(levelManager, graphicsEngine, info, false);
-			nextScreen.getTimeline().play();
+			nextScreen.start();
 		}
 	}
 }
@@ -47,6 +47,9 @@ public class LevelStepStrategy implements StepStrategy
 		this.info = info;
 		this.screenFinished = false;
 		levelManager.resetCurrentLevel();
+		if (levelManager.getUpdateTiers() != null) {
+			levelManager.getUpdateTiers().reset();
+		}
 		info.getScorebar().resetTimerManager();
 		setupGameView();
 		addInfoToEntities();
@@ -85,17 +88,45 @@ public class LevelStepStrategy implements StepStrategy
 	public void step()
 	{
 		InsideCameraRegionEvent event = new InsideCameraRegionEvent();
+		UpdateTiers tiers = levelManager.getUpdateTiers();
+		if (tiers != null) {
+			tiers.classify(levelManager.getCurrentLevel().getCamera(), levelManager.getCurrentLevel().getEntities());
+		}
 		List<Entity> observersTemp = info.getObservableBundle().getCollisionObservable().getObservers();
 		info.getObservableBundle().getCollisionObservable()
 				.setObservers(info.getObservableBundle().getCollisionObservable().getObservers().stream().filter(s -> {
+					if (s.isStatic()) {
+						return false;
+					}
+					if (tiers != null) {
+						return tiers.isAwake(s);
+					}
 					event.setEntity(s);
 					return event.act();
 				}).collect(Collectors.toList()));
 		info.getObservableBundle().updateObservers();
-		levelManager.getCurrentLevel().getEntities().stream().filter(s -> {
-			event.setEntity(s);
-			return event.act();
-		}).forEach(e -> e.update());
+		info.getObservableBundle().getEventIndex().dispatch(info.getObservableBundle().getInputObservable(),
+				info.getObservableBundle().getCollisionObservable().getCollisions());
+		ParallelUpdater updater = levelManager.getParallelUpdater();
+		if (tiers != null) {
+			updateTiers(tiers, updater);
+		} else if (updater == null) {
+			levelManager.getCurrentLevel().getEntities().stream().filter(s -> {
+				if (UpdateTiers.isInert(s)) {
+					return false;
+				}
+				event.setEntity(s);
+				return event.act();
+			}).forEach(e -> e.update());
+		} else {
+			updater.update(levelManager.getCurrentLevel().getEntities().stream().filter(s -> {
+				if (UpdateTiers.isInert(s)) {
+					return false;
+				}
+				event.setEntity(s);
+				return event.act();
+			}).collect(Collectors.toList()));
+		}
 		info.setEntitiesNeverUpdatedFalse();
 		info.getObservableBundle().getCollisionObservable().getCollisions().clear();
 		info.getObservableBundle().getInputObservable().setInputToProcess(false);
@@ -103,11 +134,27 @@ public class LevelStepStrategy implements StepStrategy
 		if (screenFinished) {
 			levelManager.setCurrentStepStrategy(nextStepStrategy);
 			Screen nextScreen = new Screen(levelManager, graphicsEngine, info, false);
-			nextScreen.getTimeline().play();
+			nextScreen.start();
 		}
 		info.getObservableBundle().getCollisionObservable().setObservers(observersTemp);
 	}
 
+	/**
+	 * Updates the entities due this step, each by its own time step.
+	 */
+	private void updateTiers(UpdateTiers tiers, ParallelUpdater updater)
+	{
+		List<Entity> due = tiers.getDue();
+		double[] timeSteps = tiers.getTimeSteps();
+		if (updater != null) {
+			updater.update(due, timeSteps);
+			return;
+		}
+		for (int i = 0; i < due.size(); i++) {
+			due.get(i).update(timeSteps[i]);
+		}
+	}
+
 	/**
 	 * Assumed to be called from Actions that change the screen displayed.
 	 * 
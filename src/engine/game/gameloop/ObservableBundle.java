@@ -2,6 +2,7 @@ package engine.game.gameloop;
 
 import engine.GameInfo;
 import engine.entities.Entity;
+import engine.events.EventIndex;
 import engine.game.eventobserver.CollisionObservable;
 import engine.game.eventobserver.InputObservable;
 import engine.game.eventobserver.TimerObservable;
@@ -45,6 +46,7 @@ public class ObservableBundle {
 	private InputObservable inputObservable;
 	private CollisionObservable collisionObservable;
 	private TimerObservable timerObservable;
+	private EventIndex eventIndex;
 
 	/**
 	 * Instantiates an ObservableBundle by setting its three Observable fields
@@ -63,6 +65,7 @@ public class ObservableBundle {
 		inputObservable = new InputObservable(gameScene, graphicsEngine);
 		collisionObservable = new CollisionObservable();
 		timerObservable = new TimerObservable();
+		eventIndex = new EventIndex();
 	}
 	
 	/**
@@ -106,6 +109,15 @@ public class ObservableBundle {
 		this.timerObservable = timerObservable;
 	}
 
+	/**
+	 * Called by Entities to skip the Events whose trigger did not fire.
+	 * 
+	 * @return eventIndex
+	 */
+	public EventIndex getEventIndex() {
+		return eventIndex;
+	}
+
 	/**
 	 * Attaches entity to all the EventObservables contained as fields.
 	 * 
@@ -116,6 +128,7 @@ public class ObservableBundle {
 		inputObservable.attach(entity);
 		collisionObservable.attach(entity);
 		timerObservable.attach(entity);
+		eventIndex.add(entity);
 	}
 
 	/**
@@ -131,6 +144,7 @@ public class ObservableBundle {
 		inputObservable.detach(entity);
 		collisionObservable.detach(entity);
 		timerObservable.detach(entity);
+		eventIndex.remove(entity);
 	}
 
 	/**
@@ -144,6 +158,8 @@ public class ObservableBundle {
 	 */
 	public void levelObservableSetup(GameInfo gameInfo) {
 		inputObservable.setupInputListeners();
+		eventIndex.clear();
+		collisionObservable.getStaticGeometry().clear();
 		timerObservable.attachCurrentLevelTimerManager(gameInfo.getScorebar().getTimerManager());
 	}
 
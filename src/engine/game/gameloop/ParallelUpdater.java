@@ -0,0 +1,188 @@
+package engine.game.gameloop;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import engine.entities.Entity;
+
+/**
+ * Updates a level's entities in phases, spreading the work of each phase over
+ * several cores:
+ * 
+ * <ol>
+ * <li>every entity computes where it moves to, into a buffer, in parallel;</li>
+ * <li>once all are done, the moves are committed, in order;</li>
+ * <li>every entity asks its events whether they are happening, in parallel,
+ * while only the state of its own events changes;</li>
+ * <li>once all are done, the events are counted and their actions run, one
+ * entity at a time and in order. Actions can change anything (scores, other
+ * entities, the level), so they are never run in parallel.</li>
+ * </ol>
+ * 
+ * While they are asked, events read the game and only write the state of
+ * their own entity's events: a DelayEvent's start time, and the times
+ * triggered of the event it waits for; an EntityIsMovingEvent's previous
+ * position and first time flag; and the parser a BooleanEvent creates the
+ * first time it is asked. Each entity is evaluated by a single thread, so the
+ * result does not depend on the number of threads: an updater with a
+ * parallelism of 1 gives the same game as one with 16. It differs from the classic sequential
+ * update, where an entity moves, is evaluated and acts before the next entity
+ * moves, in that events see every entity after it moved, and actions are run
+ * after all events were evaluated. It is therefore off unless a GameLoop turns
+ * it on, for games whose entities do not rely on that ordering.
+ * 
+ * Example of use:
+ * 
+ * <pre>
+ * ParallelUpdater updater = new ParallelUpdater(Runtime.getRuntime().availableProcessors());
+ * updater.update(entities);
+ * updater.close();
+ * </pre>
+ * 
+ * @author Elliott Bolzan
+ * @see GameLoop
+ */
+public class ParallelUpdater {
+	public static final int DEFAULT_GRAIN = 64;
+	private static final int MOVE_FIELDS = 4;
+	private final ForkJoinPool pool;
+	private final int parallelism;
+	private int grain;
+	private double[] next;
+	private boolean[] moved;
+	private boolean[] results;
+	private int[] eventOffsets;
+
+	/**
+	 * @param parallelism
+	 *            number of threads to spread each phase over
+	 */
+	public ParallelUpdater(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		this.pool = new ForkJoinPool(this.parallelism);
+		this.grain = DEFAULT_GRAIN;
+		this.next = new double[0];
+		this.moved = new boolean[0];
+		this.results = new boolean[0];
+		this.eventOffsets = new int[1];
+	}
+
+	/**
+	 * @param grain
+	 *            number of entities below which a phase is not split further
+	 */
+	public void setGrain(int grain) {
+		this.grain = Math.max(1, grain);
+	}
+
+	/**
+	 * @return the number of threads each phase is spread over
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Updates entities, as calling update() on each of them would, in the
+	 * phases described above. Assumed to be called from the thread stepping
+	 * the game.
+	 * 
+	 * @param entities
+	 *            entities to update this step
+	 */
+	public void update(List<Entity> entities) {
+		update(entities, null);
+	}
+
+	/**
+	 * Same as update(entities), moving each entity by its own time step.
+	 * 
+	 * @param entities
+	 *            entities to update this step
+	 * @param timeSteps
+	 *            time to move each entity by, or null for Entity.TIME_STEP
+	 */
+	public void update(List<Entity> entities, double[] timeSteps) {
+		Entity[] all = entities.toArray(new Entity[entities.size()]);
+		prepare(all);
+		run(new Phase(all, timeSteps, 0, all.length, true));
+		for (int i = 0; i < all.length; i++) {
+			if (moved[i]) {
+				all[i].commitMove(next, i * MOVE_FIELDS);
+			}
+		}
+		run(new Phase(all, timeSteps, 0, all.length, false));
+		for (int i = 0; i < all.length; i++) {
+			all[i].triggerEvents(results, eventOffsets[i]);
+		}
+	}
+
+	/**
+	 * Stops the updater's threads.
+	 */
+	public void close() {
+		pool.shutdown();
+	}
+
+	private void prepare(Entity[] all) {
+		if (next.length < all.length * MOVE_FIELDS) {
+			next = new double[all.length * MOVE_FIELDS * 2];
+			moved = new boolean[all.length * 2];
+			eventOffsets = new int[all.length * 2 + 1];
+		}
+		for (int i = 0; i < all.length; i++) {
+			eventOffsets[i + 1] = eventOffsets[i] + all[i].getEvents().size();
+		}
+		if (results.length < eventOffsets[all.length]) {
+			results = new boolean[eventOffsets[all.length] * 2];
+		}
+	}
+
+	private void run(Phase phase) {
+		if (parallelism == 1 || phase.to - phase.from <= grain) {
+			phase.compute();
+		} else {
+			pool.invoke(phase);
+		}
+	}
+
+	/**
+	 * Moves or evaluates a range of entities, splitting it in two until it
+	 * holds fewer than grain entities. Each entity only writes to its own
+	 * slots of the buffers.
+	 */
+	private class Phase extends RecursiveAction {
+		private static final long serialVersionUID = 4811390154125631547L;
+		private final Entity[] all;
+		private final double[] timeSteps;
+		private final int from;
+		private final int to;
+		private final boolean move;
+
+		private Phase(Entity[] all, double[] timeSteps, int from, int to, boolean move) {
+			this.all = all;
+			this.timeSteps = timeSteps;
+			this.from = from;
+			this.to = to;
+			this.move = move;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain && parallelism > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Phase(all, timeSteps, from, middle, move), new Phase(all, timeSteps, middle, to, move));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				if (move) {
+					double timeStep = timeSteps == null ? Entity.TIME_STEP : timeSteps[i];
+					moved[i] = all[i].predictMove(next, i * MOVE_FIELDS, timeStep);
+				} else {
+					all[i].evaluateEvents(results, eventOffsets[i]);
+				}
+			}
+		}
+	}
+}
@@ -3,50 +3,53 @@ package engine.game.gameloop;
 import engine.GameInfo;
 import engine.game.LevelManager;
 import engine.graphics.GraphicsEngine;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.util.Duration;
 
 /**
- * Screen class deals more with transistions between Screens and Timeline.
- * Specific step algorithm in StepStrategy subclasses in the Strategy Design
- * Pattern (composition).
+ * Screen class deals more with transistions between Screens. Specific step
+ * algorithm in StepStrategy subclasses in the Strategy Design Pattern
+ * (composition). Screens do not keep time themselves: the GameLoop's
+ * SimulationThread calls step() on the current Screen every
+ * FRAME_TIME_MILLISECONDS of game time, while that Screen is running.
  * 
  * @author Matthew Barbano
  */
 public class Screen {
 	public static final int FRAME_TIME_MILLISECONDS = 10;
-	private Timeline timeline;
 	private LevelManager levelManager;
+	private volatile boolean running;
 
 	public Screen(LevelManager levelManager, GraphicsEngine graphicsEngine, GameInfo info,
 			boolean firstPassLevelSelection) {
 		this.levelManager = levelManager;
 		levelManager.setCurrentScreen(this);
-		setupTimeline();
 		levelManager.getCurrentStepStrategy().setup(levelManager, graphicsEngine, info);
 	}
 
-	private void setupTimeline() {
-		KeyFrame frame = new KeyFrame(Duration.millis(FRAME_TIME_MILLISECONDS), e -> step());
-		timeline = new Timeline();
-		timeline.setCycleCount(Timeline.INDEFINITE);
-		timeline.getKeyFrames().add(frame);
-	}
-
 	public void start() {
-		timeline.play();
+		running = true;
 	}
 
 	public void pause() {
-		timeline.pause();
+		running = false;
 	}
 
-	private void step() {
-		levelManager.getCurrentStepStrategy().step();
+	public void stop() {
+		running = false;
 	}
 
-	public Timeline getTimeline() {
-		return timeline;
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Steps the current StepStrategy once, runs the actions deferred until
+	 * after the step, then notifies the LevelManager's step listeners.
+	 */
+	public void step() {
+		levelManager.getCurrentStepStrategy().step();
+		levelManager.runActionsAfterStep();
+		for (Runnable listener : levelManager.getStepListeners()) {
+			listener.run();
+		}
 	}
-}
\ No newline at end of file
+}
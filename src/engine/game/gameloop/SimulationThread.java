@@ -0,0 +1,170 @@
+package engine.game.gameloop;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps a game at a fixed rate on its own thread, so that game time does not
+ * depend on how fast the screen is drawn. Every step advances the game by the
+ * same amount of time (Entity.TIME_STEP assumes Screen.FRAME_TIME_MILLISECONDS),
+ * however late it is taken.
+ * 
+ * The thread accumulates the time that has passed, and takes one step for
+ * every step length accumulated. If it falls behind, for instance while the
+ * computer is busy, it catches up by taking several steps in a row, but never
+ * more than maxCatchUpSteps at once; and it never counts more than
+ * maxFrameMillis between two iterations, such as after the process was
+ * suspended. The time it cannot catch up on is dropped, and the game slows
+ * down, rather than spending ever longer catching up (the "spiral of death").
+ * 
+ * Example of use:
+ * 
+ * <pre>
+ * SimulationThread simulation = new SimulationThread("Game", () -> screen.step(), Screen.FRAME_TIME_MILLISECONDS);
+ * simulation.setMaxCatchUpSteps(10);
+ * simulation.start();
+ * </pre>
+ * 
+ * @author Elliott Bolzan
+ * @see GameLoop
+ */
+public class SimulationThread {
+	public static final int DEFAULT_MAX_CATCH_UP_STEPS = 5;
+	public static final long DEFAULT_MAX_FRAME_MILLISECONDS = 250;
+	private final String name;
+	private final Runnable step;
+	private final long stepNanos;
+	private volatile int maxCatchUpSteps;
+	private volatile long maxFrameNanos;
+	private volatile boolean running;
+	private volatile long stepCount;
+	private volatile long droppedSteps;
+	private volatile long lastStepNanos;
+	private Thread thread;
+
+	/**
+	 * @param name
+	 *            name of the thread
+	 * @param step
+	 *            takes one step of the game
+	 * @param stepMillis
+	 *            game time that each step advances the game by
+	 */
+	public SimulationThread(String name, Runnable step, long stepMillis) {
+		this.name = name;
+		this.step = step;
+		this.stepNanos = TimeUnit.MILLISECONDS.toNanos(stepMillis);
+		this.maxCatchUpSteps = DEFAULT_MAX_CATCH_UP_STEPS;
+		this.maxFrameNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_FRAME_MILLISECONDS);
+	}
+
+	/**
+	 * Starts stepping, unless already started.
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops stepping, and waits for the current step to finish, unless called
+	 * from a step.
+	 */
+	public synchronized void stop() {
+		if (thread == null) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(thread);
+		if (Thread.currentThread() != thread) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		thread = null;
+	}
+
+	/**
+	 * @param maxCatchUpSteps
+	 *            largest number of steps taken in a row to catch up
+	 */
+	public void setMaxCatchUpSteps(int maxCatchUpSteps) {
+		this.maxCatchUpSteps = Math.max(1, maxCatchUpSteps);
+	}
+
+	/**
+	 * @param maxFrameMillis
+	 *            most time counted between two iterations of the thread
+	 */
+	public void setMaxFrameMillis(long maxFrameMillis) {
+		this.maxFrameNanos = TimeUnit.MILLISECONDS.toNanos(maxFrameMillis);
+	}
+
+	/**
+	 * @return the number of steps taken
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * @return the number of steps that were dropped rather than caught up on
+	 */
+	public long getDroppedSteps() {
+		return droppedSteps;
+	}
+
+	/**
+	 * @return the System.nanoTime() at which the last step finished
+	 */
+	public long getLastStepNanos() {
+		return lastStepNanos;
+	}
+
+	/**
+	 * @return the game time that each step advances the game by, in
+	 *         nanoseconds
+	 */
+	public long getStepNanos() {
+		return stepNanos;
+	}
+
+	private void run() {
+		long previous = System.nanoTime();
+		long accumulator = 0;
+		while (running) {
+			long now = System.nanoTime();
+			long elapsed = now - previous;
+			previous = now;
+			if (elapsed > maxFrameNanos) {
+				droppedSteps += (elapsed - maxFrameNanos) / stepNanos;
+				elapsed = maxFrameNanos;
+			}
+			accumulator += elapsed;
+			int taken = 0;
+			while (accumulator >= stepNanos && taken < maxCatchUpSteps && running) {
+				try {
+					step.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+				accumulator -= stepNanos;
+				taken++;
+				stepCount++;
+				lastStepNanos = System.nanoTime();
+			}
+			if (accumulator >= stepNanos) {
+				droppedSteps += accumulator / stepNanos;
+				accumulator %= stepNanos;
+			}
+			LockSupport.parkNanos(stepNanos - accumulator);
+		}
+	}
+}
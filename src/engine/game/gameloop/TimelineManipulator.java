@@ -99,7 +99,7 @@ public class TimelineManipulator {
 	 * @param nextStepStrategy
 	 */
 	private void moveToNextScreen(StepStrategy nextStepStrategy) {
-		levelManager.getCurrentScreen().getTimeline().stop();
+		levelManager.getCurrentScreen().stop();
 		((LevelStepStrategy) levelManager.getCurrentStepStrategy()).flagScreenFinished(nextStepStrategy);
 	}
 }
@@ -133,7 +133,7 @@ public abstract class TransitionStepStrategy implements StepStrategy {
 	 * Helper method to stop the Timeline.
 	 */
 	private void stopCurrentTimeline() {
-		levelManager.getCurrentScreen().getTimeline().stop();
+		levelManager.getCurrentScreen().stop();
 	}
 
 	/**
@@ -145,7 +145,7 @@ public abstract class TransitionStepStrategy implements StepStrategy {
 	private void nextScreenAndStrategy(StepStrategy nextStepStrategy) {
 		levelManager.setCurrentStepStrategy(nextStepStrategy);
 		Screen nextScreen = new Screen(levelManager, graphicsEngine, info, false);
-		nextScreen.getTimeline().play();
+		nextScreen.start();
 	}
 
 }
\ No newline at end of file
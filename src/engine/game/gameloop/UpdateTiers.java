@@ -0,0 +1,268 @@
+package engine.game.gameloop;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.entities.Entity;
+import engine.entities.entities.CameraEntity;
+import engine.entities.entities.TileLayerEntity;
+
+/**
+ * Decides how often each of a level's entities is updated, depending on its
+ * distance to the camera:
+ * 
+ * <ul>
+ * <li>FULL: entities inside the camera are updated on every step;</li>
+ * <li>REDUCED: entities within margin pixels of the camera are updated every
+ * interval steps, by a time step interval times longer, so that they keep
+ * moving at the same speed while costing a fraction of the work. Their
+ * updates are staggered over the interval;</li>
+ * <li>SLEEPING: entities further away are not updated at all, and time does
+ * not pass for them, as when the game only updated entities on camera. They
+ * wake as soon as the camera comes within margin pixels of them.</li>
+ * </ul>
+ * 
+ * Entities that are FULL or REDUCED are awake: they take part in collision
+ * detection on every step, so that an entity updated every few steps still
+ * collides with what is around it. The number of entities in each tier is
+ * kept for diagnostics. Static blocks and tile layers without events are
+ * never due, since updating them would do nothing.
+ * 
+ * Example of use:
+ * 
+ * <pre>
+ * tiers.classify(camera, entities);
+ * List&lt;Entity&gt; due = tiers.getDue();
+ * for (int i = 0; i &lt; due.size(); i++) {
+ * 	due.get(i).update(tiers.getTimeSteps()[i]);
+ * }
+ * </pre>
+ * 
+ * @author Elliott Bolzan
+ * @see LevelStepStrategy
+ */
+public class UpdateTiers {
+	public static final double DEFAULT_MARGIN = 200;
+	public static final int DEFAULT_INTERVAL = 4;
+
+	/**
+	 * How often an entity is updated.
+	 */
+	public enum Tier {
+		FULL, REDUCED, SLEEPING
+	}
+
+	private volatile double margin;
+	private volatile int interval;
+	private Map<Entity, State> states;
+	private List<Entity> due;
+	private double[] timeSteps;
+	private int tick;
+	private volatile Counts counts;
+
+	public UpdateTiers() {
+		this.margin = DEFAULT_MARGIN;
+		this.interval = DEFAULT_INTERVAL;
+		this.states = new IdentityHashMap<Entity, State>();
+		this.due = new ArrayList<Entity>();
+		this.timeSteps = new double[0];
+		this.counts = new Counts(0, 0, 0, 0);
+	}
+
+	/**
+	 * @param margin
+	 *            width, in pixels, of the ring around the camera where entities
+	 *            are updated at a reduced rate
+	 */
+	public void setMargin(double margin) {
+		this.margin = Math.max(0, margin);
+	}
+
+	public double getMargin() {
+		return margin;
+	}
+
+	/**
+	 * @param interval
+	 *            number of steps between two updates of a REDUCED entity
+	 */
+	public void setInterval(int interval) {
+		this.interval = Math.max(1, interval);
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Forgets every entity, such as when a level starts.
+	 */
+	public void reset() {
+		states.clear();
+		due.clear();
+		tick = 0;
+	}
+
+	/**
+	 * Starts a new step: puts each entity in its tier, and lists those due to
+	 * be updated during this step, with their time steps. Entities no longer
+	 * in the level are forgotten.
+	 * 
+	 * @param camera
+	 * @param entities
+	 *            the level's entities, in order
+	 */
+	public void classify(CameraEntity camera, Collection<Entity> entities) {
+		tick++;
+		due.clear();
+		if (timeSteps.length < entities.size()) {
+			timeSteps = new double[entities.size() * 2];
+		}
+		int interval = this.interval;
+		int full = 0;
+		int reduced = 0;
+		int sleeping = 0;
+		int index = 0;
+		for (Entity entity : entities) {
+			Tier tier = getTier(camera, entity);
+			State state = states.get(entity);
+			if (state == null) {
+				state = new State();
+				states.put(entity, state);
+			}
+			if (tier == Tier.SLEEPING) {
+				state.lastUpdate = tick;
+				sleeping++;
+			} else {
+				if (state.tier == Tier.SLEEPING) {
+					state.phase = index % interval;
+				}
+				int elapsed = tick - state.lastUpdate;
+				if (isInert(entity)) {
+					state.lastUpdate = tick;
+				} else if (tier == Tier.FULL || elapsed >= interval || (tick + state.phase) % interval == 0) {
+					timeSteps[due.size()] = Math.min(elapsed, interval) * Entity.TIME_STEP;
+					due.add(entity);
+					state.lastUpdate = tick;
+				}
+				if (tier == Tier.FULL) {
+					full++;
+				} else {
+					reduced++;
+				}
+			}
+			state.tier = tier;
+			state.seen = tick;
+			index++;
+		}
+		if (states.size() > entities.size()) {
+			states.values().removeIf(state -> state.seen != tick);
+		}
+		counts = new Counts(full, reduced, due.size() - full, sleeping);
+	}
+
+	/**
+	 * @param entity
+	 * @return true if entity was FULL or REDUCED during this step
+	 */
+	public boolean isAwake(Entity entity) {
+		State state = states.get(entity);
+		return state != null && state.tier != Tier.SLEEPING;
+	}
+
+	/**
+	 * @return the entities to update during this step, in order
+	 */
+	public List<Entity> getDue() {
+		return due;
+	}
+
+	/**
+	 * @return the time step of each entity returned by getDue()
+	 */
+	public double[] getTimeSteps() {
+		return timeSteps;
+	}
+
+	/**
+	 * @return the number of entities in each tier during the last step
+	 */
+	public Counts getCounts() {
+		return counts;
+	}
+
+	/**
+	 * @return true if updating entity would do nothing: it is a static block
+	 *         or a tile layer, without events
+	 */
+	static boolean isInert(Entity entity) {
+		return (entity.isStatic() || entity instanceof TileLayerEntity) && entity.getEvents().isEmpty();
+	}
+
+	private Tier getTier(CameraEntity camera, Entity entity) {
+		if (isWithin(camera, entity, 0)) {
+			return Tier.FULL;
+		}
+		return isWithin(camera, entity, margin) ? Tier.REDUCED : Tier.SLEEPING;
+	}
+
+	private boolean isWithin(CameraEntity camera, Entity entity, double margin) {
+		return !(entity.getX() > camera.getX() + camera.getWidth() + margin
+				|| entity.getX() + entity.getWidth() < camera.getX() - margin
+				|| entity.getY() > camera.getY() + camera.getHeight() + margin
+				|| entity.getY() + entity.getHeight() < camera.getY() - margin);
+	}
+
+	private static class State {
+		private Tier tier = Tier.SLEEPING;
+		private int lastUpdate;
+		private int phase;
+		private int seen;
+	}
+
+	/**
+	 * The number of entities in each tier during a step.
+	 */
+	public static class Counts {
+		private final int full;
+		private final int reduced;
+		private final int reducedUpdated;
+		private final int sleeping;
+
+		private Counts(int full, int reduced, int reducedUpdated, int sleeping) {
+			this.full = full;
+			this.reduced = reduced;
+			this.reducedUpdated = reducedUpdated;
+			this.sleeping = sleeping;
+		}
+
+		public int getFull() {
+			return full;
+		}
+
+		public int getReduced() {
+			return reduced;
+		}
+
+		/**
+		 * @return the number of REDUCED entities that were updated during the
+		 *         step
+		 */
+		public int getReducedUpdated() {
+			return reducedUpdated;
+		}
+
+		public int getSleeping() {
+			return sleeping;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("full %d, reduced %d (%d updated), sleeping %d", full, reduced, reducedUpdated,
+					sleeping);
+		}
+	}
+}
@@ -0,0 +1,443 @@
+package engine.game.multiplayer;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import engine.GameInfo;
+import engine.entities.Entity;
+import engine.entities.entities.CameraEntity;
+import engine.events.Event;
+import engine.events.regular_events.KeyHeldEvent;
+import engine.events.regular_events.KeyPressAndCollisionEvent;
+import engine.events.regular_events.KeyPressEvent;
+import engine.events.regular_events.KeyReleaseEvent;
+import engine.events.regular_events.LeftClickEvent;
+import engine.events.regular_events.LeftClickOnEntityEvent;
+import engine.events.regular_events.RightClickEvent;
+import engine.events.regular_events.RightClickOnEntityEvent;
+import engine.game.Level;
+import engine.game.LevelManager;
+import engine.game.eventobserver.InputObservable;
+import engine.game.eventobserver.PlayerInput;
+import engine.game.gameloop.GameLoop;
+import engine.game.multiplayer.WorldSnapshot.Acknowledgement;
+import networking.io.BinarySerializer;
+import networking.io.BinaryUnserializer;
+import networking.net.ObservableClient;
+
+/**
+ * Connects a Game Player's GameLoop to a GameServer running the same game.
+ * The local game keeps running, but the server decides where entities are.
+ * 
+ * Every input the player gives is applied locally right away, and sent to the
+ * server. Entities that react to input (those with key or click Events) are
+ * predicted: they move locally without waiting for the server. Each snapshot
+ * from the server says which of the player's inputs it has applied, so the
+ * client compares the server's position for those entities with the position
+ * it predicted at the same point, and smoothly corrects the difference. The
+ * local game cannot be rewound and replayed, so the correction is applied on
+ * top of the prediction rather than by simulating the later inputs again.
+ * 
+ * The other entities are shown INTERPOLATION_TICKS steps behind the latest
+ * snapshot, interpolated between the two snapshots around that step, so that
+ * they move smoothly even though snapshots arrive unevenly. The camera is left
+ * to the local game.
+ * 
+ * The server identifies entities by id. Each id is bound to a local entity of
+ * the same name that is not bound yet, the closest to where the server has it,
+ * which is how an entity the local game spawned ahead of the server is
+ * matched; when there is none, the entity is created, as EntitySpawnAction
+ * would. An entity the server removes is removed locally. An entity the local
+ * game removed, but the server still has, is added back after RESYNC_TICKS
+ * steps. Local entities the server does not know of are left to the local
+ * game.
+ * 
+ * Snapshots are received on the network thread, and applied on the thread
+ * that steps the game, after each step.
+ * 
+ * @author Elliott Bolzan
+ * @see GameServer,SnapshotBuffer
+ */
+public class GameClient {
+	public static final int INTERPOLATION_TICKS = 6;
+	public static final int HISTORY = 256;
+	public static final int RESYNC_TICKS = 30;
+	public static final double CLOCK_ADJUSTMENT = 0.05;
+	public static final double CORRECTION_RATE = 0.2;
+	public static final double SNAP_DISTANCE = 100;
+	private static final double TOLERANCE = 1 / WorldSnapshot.UNITS_PER_PIXEL;
+	private final GameLoop gameLoop;
+	private final ObservableClient<WorldSnapshot> client;
+	private final long player;
+	private final Queue<WorldSnapshot> received;
+	private final SnapshotBuffer buffer;
+	private final Map<Integer, Entity> bound;
+	private final Map<Entity, Integer> boundIds;
+	private final Set<Integer> unknown;
+	private final Map<Integer, Integer> missing;
+	private final Map<Integer, Prediction> predictions;
+	private final int[] sentAt;
+	private final double[] sample;
+	private final Runnable stepListener;
+	private int sequence;
+	private int localTick;
+	private int level;
+	private double renderTick;
+
+	/**
+	 * Connects to a GameServer, and starts applying its snapshots to the game
+	 * after each step.
+	 * 
+	 * @param gameLoop
+	 *            GameLoop of the same game as the server's
+	 * @param host
+	 *            address of the server
+	 * @param port
+	 *            port of the server
+	 * @throws IOException
+	 *             if the server cannot be reached
+	 */
+	public GameClient(GameLoop gameLoop, String host, int port) throws IOException {
+		this.gameLoop = gameLoop;
+		this.player = ThreadLocalRandom.current().nextLong();
+		this.received = new ConcurrentLinkedQueue<>();
+		this.buffer = new SnapshotBuffer();
+		this.bound = new HashMap<>();
+		this.boundIds = new IdentityHashMap<>();
+		this.unknown = new HashSet<>();
+		this.missing = new HashMap<>();
+		this.predictions = new HashMap<>();
+		this.sentAt = new int[HISTORY];
+		this.sample = new double[WorldSnapshot.FIELDS];
+		this.renderTick = Double.NaN;
+		this.client = new ObservableClient<>(host, port, new BinarySerializer<WorldSnapshot>(GameServer.CODECS),
+				new BinaryUnserializer<WorldSnapshot>(GameServer.CODECS), GameServer.TIMEOUT);
+		client.addListener(received::add);
+		gameLoop.getObservableBundle().getInputObservable().setInputListener(this::send);
+		stepListener = this::step;
+		gameLoop.getLevelManager().addStepListener(stepListener);
+		Executors.newSingleThreadExecutor().submit(client);
+	}
+
+	/**
+	 * Disconnects from the server. The local game keeps running on its own.
+	 */
+	public void close() {
+		gameLoop.getLevelManager().removeStepListener(stepListener);
+		InputObservable input = gameLoop.getObservableBundle().getInputObservable();
+		input.setInputListener(null);
+		client.close();
+	}
+
+	/**
+	 * @return the identifier the server knows this player by
+	 */
+	public long getPlayer() {
+		return player;
+	}
+
+	private void send(PlayerInput input) {
+		sequence++;
+		sentAt[sequence % HISTORY] = localTick;
+		client.addToOutbox(new InputCommand(player, sequence, input));
+	}
+
+	private void step() {
+		LevelManager levelManager = gameLoop.getLevelManager();
+		Collection<Entity> entities = levelManager.getCurrentLevel().getEntities();
+		if (level != levelManager.getLevelNumber()) {
+			level = levelManager.getLevelNumber();
+			predictions.clear();
+			bound.clear();
+			boundIds.clear();
+			unknown.clear();
+			missing.clear();
+			buffer.clear();
+			renderTick = Double.NaN;
+		}
+		WorldSnapshot snapshot;
+		while ((snapshot = received.poll()) != null) {
+			if (snapshot.getLevel() == level) {
+				buffer.add(snapshot);
+				bind(snapshot, levelManager.getCurrentLevel());
+				reconcile(snapshot);
+			}
+		}
+		if (!buffer.isEmpty()) {
+			advanceRenderTick();
+			Set<Entity> present = Collections.newSetFromMap(new IdentityHashMap<>());
+			present.addAll(entities);
+			for (Map.Entry<Integer, Entity> entry : bound.entrySet()) {
+				int id = entry.getKey();
+				Entity entity = entry.getValue();
+				if (!present.contains(entity)) {
+					restore(id, entity, levelManager.getCurrentLevel());
+					continue;
+				}
+				if (!missing.isEmpty()) {
+					missing.remove(id);
+				}
+				if (entity instanceof CameraEntity) {
+					continue;
+				}
+				Prediction prediction = getPrediction(id, entity);
+				if (prediction == null || !prediction.reconciled) {
+					if (buffer.sample(renderTick, id, sample)) {
+						show(entity, sample);
+					}
+				} else {
+					prediction.correct(entity);
+				}
+				if (prediction != null) {
+					prediction.record(entity, localTick);
+				}
+			}
+		}
+		localTick++;
+	}
+
+	/**
+	 * Removes the entities whose ids are no longer in the snapshot, and binds
+	 * the ids that are new to local entities.
+	 */
+	private void bind(WorldSnapshot snapshot, Level current) {
+		Iterator<Map.Entry<Integer, Entity>> iterator = bound.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Integer, Entity> entry = iterator.next();
+			if (snapshot.indexOf(entry.getKey()) < 0) {
+				remove(entry.getValue(), current);
+				boundIds.remove(entry.getValue());
+				predictions.remove(entry.getKey());
+				missing.remove(entry.getKey());
+				iterator.remove();
+			}
+		}
+		unknown.removeIf(id -> snapshot.indexOf(id) < 0);
+		for (int i = 0; i < snapshot.getCount(); i++) {
+			int id = snapshot.getId(i);
+			if (bound.containsKey(id) || unknown.contains(id)) {
+				continue;
+			}
+			Entity entity = find(snapshot, i, current);
+			if (entity == null) {
+				unknown.add(id);
+			} else {
+				bound.put(id, entity);
+				boundIds.put(entity, id);
+			}
+		}
+	}
+
+	/**
+	 * @return the unbound local entity with the name of a snapshot's entity,
+	 *         closest to where the snapshot has it, or a new entity created
+	 *         from the game's defaults or from an entity of the same name, or
+	 *         null if there is no entity of that name
+	 */
+	private Entity find(WorldSnapshot snapshot, int index, Level current) {
+		String name = snapshot.getName(index);
+		double x = snapshot.get(index, WorldSnapshot.X);
+		double y = snapshot.get(index, WorldSnapshot.Y);
+		Entity closest = null;
+		Entity template = null;
+		double distance = Double.MAX_VALUE;
+		for (Entity entity : current.getEntities()) {
+			if (!name.equals(entity.getName())) {
+				continue;
+			}
+			template = entity;
+			double entityDistance = Math.hypot(entity.getX() - x, entity.getY() - y);
+			if (!boundIds.containsKey(entity) && entityDistance < distance) {
+				closest = entity;
+				distance = entityDistance;
+			}
+		}
+		if (closest != null) {
+			return closest;
+		}
+		for (Entity entity : gameLoop.getLevelManager().getGame().getDefaults()) {
+			if (name.equals(entity.getName())) {
+				template = entity;
+				break;
+			}
+		}
+		if (template == null) {
+			return null;
+		}
+		Entity created = template.clone();
+		created.setGameInfo(current.getCamera().getGameInfo());
+		created.setId(created.generateId());
+		show(created, new double[] { x, y, snapshot.get(index, WorldSnapshot.WIDTH),
+				snapshot.get(index, WorldSnapshot.HEIGHT), snapshot.isVisible(index) ? 1 : 0 });
+		add(created, current);
+		return created;
+	}
+
+	/**
+	 * Adds a bound entity the local game removed back to the level, once it
+	 * has been missing for RESYNC_TICKS steps.
+	 */
+	private void restore(int id, Entity entity, Level current) {
+		int steps = missing.merge(id, 1, Integer::sum);
+		if (steps > RESYNC_TICKS) {
+			missing.remove(id);
+			add(entity, current);
+		}
+	}
+
+	private void add(Entity entity, Level current) {
+		current.addEntity(entity);
+		GameInfo info = entity.getGameInfo();
+		info.getObservableBundle().attachEntityToAll(entity);
+		info.getGraphicsEngine().updateView();
+	}
+
+	private void remove(Entity entity, Level current) {
+		if (!current.getEntities().contains(entity)) {
+			return;
+		}
+		GameInfo info = entity.getGameInfo();
+		entity.setIsVisible(false);
+		info.getObservableBundle().detachEntityFromAll(entity);
+		current.removeEntity(entity);
+		info.getGraphicsEngine().updateView();
+	}
+
+	/**
+	 * Compares the position of each predicted entity in the snapshot with the
+	 * position predicted at the same point, that is, as many steps after the
+	 * player's last acknowledged input as the server took.
+	 */
+	private void reconcile(WorldSnapshot snapshot) {
+		Acknowledgement acknowledgement = snapshot.getAcknowledgement(player);
+		if (acknowledgement == null || sequence - acknowledgement.getSequence() >= HISTORY) {
+			return;
+		}
+		int match = sentAt[acknowledgement.getSequence() % HISTORY] + snapshot.getTick()
+				- acknowledgement.getTick();
+		if (match < 0 || match >= localTick || localTick - match >= HISTORY) {
+			return;
+		}
+		for (Map.Entry<Integer, Entity> entry : bound.entrySet()) {
+			Prediction prediction = getPrediction(entry.getKey(), entry.getValue());
+			int index = snapshot.indexOf(entry.getKey());
+			if (prediction != null && index >= 0) {
+				prediction.reconcile(match, localTick, snapshot.get(index, WorldSnapshot.X),
+						snapshot.get(index, WorldSnapshot.Y));
+			}
+		}
+	}
+
+	private void advanceRenderTick() {
+		double target = buffer.getLatest().getTick() - INTERPOLATION_TICKS;
+		if (Double.isNaN(renderTick) || Math.abs(target - renderTick) > RESYNC_TICKS) {
+			renderTick = target;
+		} else {
+			renderTick += 1 + (target - renderTick) * CLOCK_ADJUSTMENT;
+		}
+	}
+
+	private void show(Entity entity, double[] sample) {
+		if (entity.getX() != sample[WorldSnapshot.X]) {
+			entity.setX(sample[WorldSnapshot.X]);
+		}
+		if (entity.getY() != sample[WorldSnapshot.Y]) {
+			entity.setY(sample[WorldSnapshot.Y]);
+		}
+		if (entity.getWidth() != sample[WorldSnapshot.WIDTH]) {
+			entity.setWidth(sample[WorldSnapshot.WIDTH]);
+		}
+		if (entity.getHeight() != sample[WorldSnapshot.HEIGHT]) {
+			entity.setHeight(sample[WorldSnapshot.HEIGHT]);
+		}
+		boolean visible = sample[WorldSnapshot.VISIBLE] != 0;
+		if (entity.getIsVisible() != visible) {
+			entity.setIsVisible(visible);
+		}
+	}
+
+	private Prediction getPrediction(int id, Entity entity) {
+		if (!predictions.containsKey(id)) {
+			predictions.put(id, isPredicted(entity) ? new Prediction() : null);
+		}
+		return predictions.get(id);
+	}
+
+	private boolean isPredicted(Entity entity) {
+		for (Event event : entity.getEvents()) {
+			if (event instanceof KeyPressEvent || event instanceof KeyReleaseEvent || event instanceof KeyHeldEvent
+					|| event instanceof KeyPressAndCollisionEvent || event instanceof LeftClickEvent
+					|| event instanceof RightClickEvent || event instanceof LeftClickOnEntityEvent
+					|| event instanceof RightClickOnEntityEvent) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The positions a predicted entity had over the last HISTORY steps, and
+	 * the correction it still has to make.
+	 */
+	private static class Prediction {
+		private final double[] history = new double[HISTORY * 2];
+		private double correctionX;
+		private double correctionY;
+		private boolean reconciled;
+
+		/**
+		 * Adds the difference between the server's position and the one
+		 * predicted at the same step to the correction, and to every position
+		 * predicted since, so that it is not counted again.
+		 */
+		private void reconcile(int match, int now, double x, double y) {
+			double errorX = x - history[(match % HISTORY) * 2];
+			double errorY = y - history[(match % HISTORY) * 2 + 1];
+			reconciled = true;
+			if (Math.abs(errorX) < TOLERANCE && Math.abs(errorY) < TOLERANCE) {
+				return;
+			}
+			correctionX += errorX;
+			correctionY += errorY;
+			for (int tick = match; tick < now; tick++) {
+				history[(tick % HISTORY) * 2] += errorX;
+				history[(tick % HISTORY) * 2 + 1] += errorY;
+			}
+		}
+
+		private void correct(Entity entity) {
+			double distance = Math.hypot(correctionX, correctionY);
+			double rate = distance > SNAP_DISTANCE || distance < TOLERANCE ? 1 : CORRECTION_RATE;
+			double moveX = correctionX * rate;
+			double moveY = correctionY * rate;
+			if (moveX != 0) {
+				entity.setX(entity.getX() + moveX);
+				correctionX -= moveX;
+			}
+			if (moveY != 0) {
+				entity.setY(entity.getY() + moveY);
+				correctionY -= moveY;
+			}
+		}
+
+		/**
+		 * Records where the entity is headed, including the correction it has
+		 * yet to make.
+		 */
+		private void record(Entity entity, int tick) {
+			history[(tick % HISTORY) * 2] = entity.getX() + correctionX;
+			history[(tick % HISTORY) * 2 + 1] = entity.getY() + correctionY;
+		}
+	}
+}
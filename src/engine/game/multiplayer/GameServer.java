@@ -0,0 +1,215 @@
+package engine.game.multiplayer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import data.Game;
+import engine.entities.Entity;
+import engine.game.LevelManager;
+import engine.game.gameloop.GameLoop;
+import engine.game.multiplayer.WorldSnapshot.Acknowledgement;
+import networking.io.BinarySerializer;
+import networking.io.BinaryUnserializer;
+import networking.io.CodecRegistry;
+import networking.net.Modifier;
+import networking.net.NioObservableServer;
+import networking.net.requests.AcknowledgementRequest.Outcome;
+import networking.net.requests.ModifierRequest;
+
+/**
+ * Runs a game without a display, and shares it with the GameClients that
+ * connect to it. The server is the authority on the game: clients only send
+ * it their players' input, as InputCommands, and it sends back where every
+ * entity is.
+ * 
+ * The game is stepped every Screen.FRAME_TIME_MILLISECONDS by the GameLoop's
+ * SimulationThread, as in the Game Player. Before each step, the next input
+ * received is applied to the game's InputObservable, so players
+ * share the game's input as if they shared a keyboard; one input is applied
+ * per step, since the InputObservable only holds the last one. After each
+ * step, a WorldDelta holding the entities that changed, spawned or were removed
+ * is committed and sent to every client. Each entity is given an id the first
+ * time it is captured, which is how clients tell entities apart. Deltas are bounded by MAX_DELTA_BYTES, which bounds the
+ * bandwidth each client needs. A client that connects, or falls too far
+ * behind, is sent the full WorldSnapshot instead, as is every client when the
+ * level changes.
+ * 
+ * Example of use:
+ * 
+ * <pre>
+ * GameServer server = new GameServer(game, GameServer.DEFAULT_PORT);
+ * Executors.newSingleThreadExecutor().submit(server);
+ * server.start();
+ * </pre>
+ * 
+ * @author Elliott Bolzan
+ * @see GameClient,WorldDelta
+ */
+public class GameServer extends NioObservableServer<WorldSnapshot> {
+	public static final int DEFAULT_PORT = 10011;
+	public static final int MAX_DELTA_BYTES = 1024;
+	public static final int MAX_QUEUED_INPUTS = 256;
+	public static final Duration TIMEOUT = Duration.ofSeconds(5);
+	static final CodecRegistry CODECS = MultiplayerCodecs.createRegistry();
+	private final GameLoop gameLoop;
+	private final BlockingQueue<InputCommand> inputs;
+	private final Map<Long, Acknowledgement> acknowledgements;
+	private final Map<Entity, Integer> ids;
+	private final Map<Integer, Integer> staleness;
+	private int nextId;
+	private volatile int tick;
+
+	/**
+	 * Loads a game to be run by the server.
+	 * 
+	 * @param game
+	 * @param port
+	 *            port to listen on for GameClients
+	 * @throws IOException
+	 *             if the port cannot be listened on
+	 */
+	public GameServer(Game game, int port) throws IOException {
+		this(new GameLoop(game, true), port);
+	}
+
+	/**
+	 * @param gameLoop
+	 *            a headless GameLoop
+	 * @param port
+	 *            port to listen on for GameClients
+	 * @throws IOException
+	 *             if the port cannot be listened on
+	 */
+	public GameServer(GameLoop gameLoop, int port) throws IOException {
+		super(WorldSnapshot.empty(gameLoop.getLevelManager().getLevelNumber()), port,
+				new BinarySerializer<WorldSnapshot>(CODECS), new BinaryUnserializer<WorldSnapshot>(CODECS), TIMEOUT,
+				null);
+		this.gameLoop = gameLoop;
+		this.inputs = new ArrayBlockingQueue<>(MAX_QUEUED_INPUTS);
+		this.acknowledgements = new LinkedHashMap<>();
+		this.ids = new IdentityHashMap<>();
+		this.staleness = new HashMap<>();
+		gameLoop.getLevelManager().addStepListener(this::afterStep);
+	}
+
+	/**
+	 * Starts stepping the game. The server itself must also be run, so that
+	 * clients can connect.
+	 */
+	public void start() {
+		gameLoop.startTimeline();
+	}
+
+	/**
+	 * @return the number of steps taken so far
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return the GameLoop run by the server
+	 */
+	public GameLoop getGameLoop() {
+		return gameLoop;
+	}
+
+	/**
+	 * Sends the step's result to clients, then applies the next input for the
+	 * following step, whose snapshot acknowledges it.
+	 */
+	private void afterStep() {
+		tick++;
+		broadcast();
+		InputCommand command = inputs.poll();
+		if (command != null) {
+			gameLoop.getObservableBundle().getInputObservable().apply(command.getInput());
+			acknowledgements.put(command.getPlayer(), new Acknowledgement(command.getSequence(), tick + 1));
+		}
+	}
+
+	private void broadcast() {
+		WorldSnapshot current = capture();
+		WorldSnapshot sent = getState();
+		if (sent.getLevel() != current.getLevel()) {
+			staleness.clear();
+			sendAndApply(current);
+			return;
+		}
+		sendAndApply(WorldDelta.between(sent, current, staleness, MAX_DELTA_BYTES));
+	}
+
+	/**
+	 * Copies the entities of the current level, in increasing order of id.
+	 * Entities captured for the first time are given the next id; entities no
+	 * longer in the level are forgotten, and their ids are never used again.
+	 */
+	private WorldSnapshot capture() {
+		LevelManager levelManager = gameLoop.getLevelManager();
+		Collection<Entity> entities = levelManager.getCurrentLevel().getEntities();
+		Entity[] ordered = entities.toArray(new Entity[entities.size()]);
+		Map<Entity, Integer> captured = new IdentityHashMap<>();
+		for (Entity entity : ordered) {
+			Integer id = ids.get(entity);
+			captured.put(entity, id == null ? nextId++ : id);
+		}
+		ids.clear();
+		ids.putAll(captured);
+		Arrays.sort(ordered, Comparator.comparingInt(ids::get));
+		int[] entityIds = new int[ordered.length];
+		String[] names = new String[ordered.length];
+		int[] values = new int[ordered.length * WorldSnapshot.FIELDS];
+		int offset = 0;
+		for (int i = 0; i < ordered.length; i++) {
+			Entity entity = ordered[i];
+			entityIds[i] = ids.get(entity);
+			names[i] = entity.getName() == null ? "" : entity.getName();
+			values[offset + WorldSnapshot.X] = WorldSnapshot.quantize(entity.getX());
+			values[offset + WorldSnapshot.Y] = WorldSnapshot.quantize(entity.getY());
+			values[offset + WorldSnapshot.WIDTH] = WorldSnapshot.quantize(entity.getWidth());
+			values[offset + WorldSnapshot.HEIGHT] = WorldSnapshot.quantize(entity.getHeight());
+			values[offset + WorldSnapshot.VISIBLE] = entity.getIsVisible() ? 1 : 0;
+			offset += WorldSnapshot.FIELDS;
+		}
+		return new WorldSnapshot(tick, levelManager.getLevelNumber(), entityIds, names, values, acknowledgements);
+	}
+
+	/**
+	 * Queues the input sent by a client, to be applied before one of the next
+	 * steps. Clients can only send inputs: their other modifiers fail. Inputs
+	 * are rejected, to be sent again, while the queue is full.
+	 */
+	@Override
+	protected Outcome commit(ModifierRequest<?> request) {
+		Modifier<?> modifier = request.get();
+		if (!(modifier instanceof InputCommand)) {
+			return Outcome.FAILED;
+		}
+		return isValid(request) && inputs.offer((InputCommand) modifier) ? Outcome.COMMITTED : Outcome.REJECTED;
+	}
+
+	/**
+	 * Ignores states sent by clients, since only the server steps the game.
+	 */
+	@Override
+	protected void handle(WorldSnapshot newState) {
+	}
+
+	/**
+	 * Stops stepping the game, then closes the server.
+	 */
+	@Override
+	public void close() {
+		gameLoop.stopTimeline();
+		super.close();
+	}
+}
@@ -0,0 +1,50 @@
+package engine.game.multiplayer;
+
+import engine.game.eventobserver.PlayerInput;
+import networking.net.Modifier;
+
+/**
+ * An input sent by a GameClient to its GameServer. The server applies it to
+ * its game, rather than to the shared state, so the input leaves the state
+ * unchanged; the snapshots that follow acknowledge it by its sequence number.
+ * 
+ * @author Elliott Bolzan
+ * @see GameServer,GameClient
+ */
+public class InputCommand implements Modifier<WorldSnapshot> {
+	private static final long serialVersionUID = -7791460437612917004L;
+	private final long player;
+	private final int sequence;
+	private final PlayerInput input;
+
+	/**
+	 * @param player
+	 *            identifier of the player who sent the input
+	 * @param sequence
+	 *            number of inputs the player had sent before this one, plus
+	 *            one
+	 * @param input
+	 */
+	public InputCommand(long player, int sequence, PlayerInput input) {
+		this.player = player;
+		this.sequence = sequence;
+		this.input = input;
+	}
+
+	@Override
+	public WorldSnapshot doModify(WorldSnapshot state) {
+		return state;
+	}
+
+	public long getPlayer() {
+		return player;
+	}
+
+	public int getSequence() {
+		return sequence;
+	}
+
+	public PlayerInput getInput() {
+		return input;
+	}
+}
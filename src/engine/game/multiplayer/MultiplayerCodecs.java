@@ -0,0 +1,274 @@
+package engine.game.multiplayer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import engine.game.eventobserver.PlayerInput;
+import engine.game.multiplayer.WorldSnapshot.Acknowledgement;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import networking.io.CodecRegistry;
+import networking.io.ObjectCodec;
+
+/**
+ * This class holds the binary codecs for what a GameServer and its
+ * GameClients send each other.
+ * 
+ * A delta is sent to every client on every step, so its numbers are written
+ * as variable-length integers: an entity that moved a few pixels costs a few
+ * bytes. Differences, which can be negative, are zig-zag encoded first, so
+ * that small negative numbers stay small. Entity ids, which are sent in
+ * increasing order, are written as the gaps between them.
+ * 
+ * @author Elliott Bolzan
+ * @see WorldSnapshot,WorldDelta,InputCommand
+ */
+public class MultiplayerCodecs {
+
+	private static final int SNAPSHOT = CodecRegistry.FIRST_USER_TAG;
+	private static final int DELTA = SNAPSHOT + 1;
+	private static final int INPUT = SNAPSHOT + 2;
+
+	private MultiplayerCodecs() {
+	}
+
+	/**
+	 * @return a registry holding a codec for everything sent between a
+	 *         GameServer and its GameClients.
+	 */
+	public static CodecRegistry createRegistry() {
+		CodecRegistry registry = new CodecRegistry();
+		registry.register(SNAPSHOT, WorldSnapshot.class, new ObjectCodec<WorldSnapshot>() {
+			@Override
+			public void write(WorldSnapshot obj, DataOutput out, CodecRegistry registry) throws IOException {
+				out.writeInt(obj.getTick());
+				writeVarInt(out, obj.getLevel());
+				writeAcknowledgements(out, obj.getTick(), obj.getAcknowledgements());
+				writeVarInt(out, obj.getCount());
+				writeIds(out, obj.getIds());
+				for (String name : obj.getNames()) {
+					out.writeUTF(name);
+				}
+				for (int value : obj.getValues()) {
+					writeVarInt(out, zigZag(value));
+				}
+			}
+
+			@Override
+			public WorldSnapshot read(DataInput in, CodecRegistry registry) throws IOException {
+				int tick = in.readInt();
+				int level = readVarInt(in);
+				Map<Long, Acknowledgement> acknowledgements = readAcknowledgements(in, tick);
+				int[] ids = readIds(in, readLength(in));
+				String[] names = new String[ids.length];
+				for (int i = 0; i < names.length; i++) {
+					names[i] = in.readUTF();
+				}
+				int[] values = new int[ids.length * WorldSnapshot.FIELDS];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = unZigZag(readVarInt(in));
+				}
+				return new WorldSnapshot(tick, level, ids, names, values, acknowledgements);
+			}
+		});
+		registry.register(DELTA, WorldDelta.class, new ObjectCodec<WorldDelta>() {
+			@Override
+			public void write(WorldDelta obj, DataOutput out, CodecRegistry registry) throws IOException {
+				out.writeInt(obj.getTick());
+				writeVarInt(out, obj.getLevel());
+				writeAcknowledgements(out, obj.getTick(), obj.getAcknowledgements());
+				writeVarInt(out, obj.getDespawned().length);
+				writeIds(out, obj.getDespawned());
+				writeVarInt(out, obj.getSpawned().length);
+				writeIds(out, obj.getSpawned());
+				for (String name : obj.getSpawnedNames()) {
+					out.writeUTF(name);
+				}
+				for (int value : obj.getSpawnedValues()) {
+					writeVarInt(out, zigZag(value));
+				}
+				int[] entities = obj.getEntities();
+				byte[] masks = obj.getMasks();
+				int[] differences = obj.getDifferences();
+				writeVarInt(out, entities.length);
+				writeIds(out, entities);
+				int difference = 0;
+				for (int i = 0; i < entities.length; i++) {
+					out.writeByte(masks[i]);
+					for (int field = 0; field < WorldSnapshot.FIELDS; field++) {
+						if ((masks[i] & (1 << field)) != 0) {
+							writeVarInt(out, zigZag(differences[difference++]));
+						}
+					}
+				}
+			}
+
+			@Override
+			public WorldDelta read(DataInput in, CodecRegistry registry) throws IOException {
+				int tick = in.readInt();
+				int level = readVarInt(in);
+				Map<Long, Acknowledgement> acknowledgements = readAcknowledgements(in, tick);
+				int[] despawned = readIds(in, readLength(in));
+				int[] spawned = readIds(in, readLength(in));
+				String[] spawnedNames = new String[spawned.length];
+				for (int i = 0; i < spawnedNames.length; i++) {
+					spawnedNames[i] = in.readUTF();
+				}
+				int[] spawnedValues = new int[spawned.length * WorldSnapshot.FIELDS];
+				for (int i = 0; i < spawnedValues.length; i++) {
+					spawnedValues[i] = unZigZag(readVarInt(in));
+				}
+				int[] entities = readIds(in, readLength(in));
+				byte[] masks = new byte[entities.length];
+				int[] differences = new int[entities.length * WorldSnapshot.FIELDS];
+				int difference = 0;
+				for (int i = 0; i < entities.length; i++) {
+					masks[i] = in.readByte();
+					for (int field = 0; field < WorldSnapshot.FIELDS; field++) {
+						if ((masks[i] & (1 << field)) != 0) {
+							differences[difference++] = unZigZag(readVarInt(in));
+						}
+					}
+				}
+				return new WorldDelta(tick, level, acknowledgements, despawned, spawned, spawnedNames,
+						spawnedValues, entities, masks, Arrays.copyOf(differences, difference));
+			}
+		});
+		registry.register(INPUT, InputCommand.class, new ObjectCodec<InputCommand>() {
+			@Override
+			public void write(InputCommand obj, DataOutput out, CodecRegistry registry) throws IOException {
+				PlayerInput input = obj.getInput();
+				out.writeLong(obj.getPlayer());
+				writeVarInt(out, obj.getSequence());
+				out.writeByte(input.getType().ordinal());
+				if (input.getType() == PlayerInput.Type.MOUSE_CLICK) {
+					out.writeByte(input.getButton().ordinal());
+					out.writeFloat((float) input.getX());
+					out.writeFloat((float) input.getY());
+				} else {
+					writeVarInt(out, input.getKey().ordinal());
+				}
+			}
+
+			@Override
+			public InputCommand read(DataInput in, CodecRegistry registry) throws IOException {
+				long player = in.readLong();
+				int sequence = readVarInt(in);
+				PlayerInput.Type type = readEnum(PlayerInput.Type.values(), in.readUnsignedByte());
+				PlayerInput input;
+				if (type == PlayerInput.Type.MOUSE_CLICK) {
+					MouseButton button = readEnum(MouseButton.values(), in.readUnsignedByte());
+					input = PlayerInput.mouseClick(button, in.readFloat(), in.readFloat());
+				} else {
+					KeyCode key = readEnum(KeyCode.values(), readVarInt(in));
+					input = new PlayerInput(type, key, null, 0, 0);
+				}
+				return new InputCommand(player, sequence, input);
+			}
+		});
+		return registry;
+	}
+
+	private static void writeAcknowledgements(DataOutput out, int tick, Map<Long, Acknowledgement> acknowledgements)
+			throws IOException {
+		writeVarInt(out, acknowledgements.size());
+		for (Map.Entry<Long, Acknowledgement> entry : acknowledgements.entrySet()) {
+			out.writeLong(entry.getKey());
+			writeVarInt(out, entry.getValue().getSequence());
+			writeVarInt(out, tick - entry.getValue().getTick());
+		}
+	}
+
+	private static Map<Long, Acknowledgement> readAcknowledgements(DataInput in, int tick) throws IOException {
+		int size = readLength(in);
+		Map<Long, Acknowledgement> acknowledgements = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			long player = in.readLong();
+			int sequence = readVarInt(in);
+			acknowledgements.put(player, new Acknowledgement(sequence, tick - readVarInt(in)));
+		}
+		return acknowledgements;
+	}
+
+	/**
+	 * Writes ids in increasing order as the gaps between them, which are
+	 * small.
+	 */
+	private static void writeIds(DataOutput out, int[] ids) throws IOException {
+		int previous = -1;
+		for (int id : ids) {
+			writeVarInt(out, id - previous - 1);
+			previous = id;
+		}
+	}
+
+	private static int[] readIds(DataInput in, int length) throws IOException {
+		int[] ids = new int[length];
+		int previous = -1;
+		for (int i = 0; i < length; i++) {
+			int gap = readVarInt(in);
+			if (gap < 0 || previous + 1 + gap <= previous) {
+				throw new IOException("Invalid id gap: " + gap);
+			}
+			ids[i] = previous + 1 + gap;
+			previous = ids[i];
+		}
+		return ids;
+	}
+
+		private static <E> E readEnum(E[] values, int ordinal) throws IOException {
+		if (ordinal < 0 || ordinal >= values.length) {
+			throw new IOException("Unknown constant: " + ordinal);
+		}
+		return values[ordinal];
+	}
+
+	private static int readLength(DataInput in) throws IOException {
+		int length = readVarInt(in);
+		if (length < 0 || length > 1 << 24) {
+			throw new IOException("Invalid length: " + length);
+		}
+		return length;
+	}
+
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length integer");
+	}
+
+	static int varIntSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,118 @@
+package engine.game.multiplayer;
+
+/**
+ * Keeps the last few WorldSnapshots received from a GameServer, so that
+ * entities can be shown between two of them. Showing entities slightly in the
+ * past, rather than as they were in the latest snapshot, lets a client move
+ * them smoothly even though snapshots arrive at uneven intervals.
+ * 
+ * @author Elliott Bolzan
+ * @see GameClient
+ */
+public class SnapshotBuffer {
+	public static final int DEFAULT_CAPACITY = 64;
+	private final WorldSnapshot[] snapshots;
+	private int first;
+	private int size;
+
+	public SnapshotBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            number of snapshots kept
+	 */
+	public SnapshotBuffer(int capacity) {
+		snapshots = new WorldSnapshot[capacity];
+	}
+
+	/**
+	 * Adds a snapshot, unless it is older than the latest one. A snapshot of
+	 * another level replaces every snapshot held.
+	 * 
+	 * @param snapshot
+	 */
+	public void add(WorldSnapshot snapshot) {
+		if (size > 0) {
+			WorldSnapshot latest = get(size - 1);
+			if (latest.getLevel() != snapshot.getLevel()) {
+				clear();
+			} else if (snapshot.getTick() <= latest.getTick()) {
+				return;
+			}
+		}
+		if (size == snapshots.length) {
+			first = (first + 1) % snapshots.length;
+			size--;
+		}
+		snapshots[(first + size) % snapshots.length] = snapshot;
+		size++;
+	}
+
+	public void clear() {
+		first = 0;
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the latest snapshot, or null if there is none
+	 */
+	public WorldSnapshot getLatest() {
+		return size == 0 ? null : get(size - 1);
+	}
+
+	/**
+	 * Interpolates an entity's position and size between the two snapshots
+	 * around the tick. Before the oldest snapshot, or after the latest, the
+	 * entity is shown as it was in that snapshot; so is an entity that is only
+	 * in one of the two, having just spawned or been removed.
+	 * 
+	 * @param tick
+	 *            tick to be shown, which may fall between two snapshots
+	 * @param id
+	 *            id of the entity
+	 * @param sample
+	 *            array of WorldSnapshot.FIELDS values, filled in pixels, with
+	 *            VISIBLE set to 1 or 0
+	 * @return false if the entity is in neither snapshot
+	 */
+	public boolean sample(double tick, int id, double[] sample) {
+		if (size == 0) {
+			return false;
+		}
+		int after = 0;
+		while (after < size && get(after).getTick() <= tick) {
+			after++;
+		}
+		WorldSnapshot from = get(Math.max(after - 1, 0));
+		WorldSnapshot to = get(Math.min(after, size - 1));
+		int fromIndex = from.indexOf(id);
+		int toIndex = to.indexOf(id);
+		if (fromIndex < 0 && toIndex < 0) {
+			return false;
+		} else if (fromIndex < 0) {
+			from = to;
+			fromIndex = toIndex;
+		} else if (toIndex < 0) {
+			to = from;
+			toIndex = fromIndex;
+		}
+		double fraction = from == to ? 0
+				: Math.max(0, Math.min(1, (tick - from.getTick()) / (double) (to.getTick() - from.getTick())));
+		for (int field = 0; field < WorldSnapshot.VISIBLE; field++) {
+			double start = from.get(fromIndex, field);
+			sample[field] = start + (to.get(toIndex, field) - start) * fraction;
+		}
+		sample[WorldSnapshot.VISIBLE] = from.isVisible(fromIndex) ? 1 : 0;
+		return true;
+	}
+
+	private WorldSnapshot get(int index) {
+		return snapshots[(first + index) % snapshots.length];
+	}
+}
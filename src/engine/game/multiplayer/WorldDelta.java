@@ -0,0 +1,321 @@
+package engine.game.multiplayer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.game.multiplayer.WorldSnapshot.Acknowledgement;
+import networking.net.Modifier;
+
+/**
+ * The changes between two WorldSnapshots, sent by a GameServer after each of
+ * its steps. Entities removed since the previous snapshot are despawned, and
+ * entities added are spawned, with their names and values; for the others,
+ * only the fields that changed are sent, as differences from the previous
+ * snapshot. Entities are identified by id, as in WorldSnapshot. Since the
+ * server never reuses an id, spawned entities always have greater ids than
+ * those already held.
+ *
+ * A delta has a byte budget, which bounds the bandwidth that each client
+ * receives however many entities move. Spawns and despawns are always sent.
+ * When more entities move than fit in the rest of the budget, those that
+ * drifted the furthest from what clients hold, for the longest, are sent
+ * first; the others stay behind, and are sent in a later delta. Since each
+ * delta is relative to what clients actually hold, an entity left out is
+ * never lost, only late.
+ *
+ * @author Elliott Bolzan
+ * @see WorldSnapshot,GameServer
+ */
+public class WorldDelta implements Modifier<WorldSnapshot> {
+	private static final long serialVersionUID = 5361914853062138469L;
+	private static final int INVISIBLE_PRIORITY = 1 << 16;
+	private final int tick;
+	private final int level;
+	private final Map<Long, Acknowledgement> acknowledgements;
+	private final int[] despawned;
+	private final int[] spawned;
+	private final String[] spawnedNames;
+	private final int[] spawnedValues;
+	private final int[] entities;
+	private final byte[] masks;
+	private final int[] differences;
+
+	/**
+	 * @param tick
+	 *            tick of the resulting snapshot
+	 * @param level
+	 *            level both snapshots belong to
+	 * @param acknowledgements
+	 *            last input applied for each player
+	 * @param despawned
+	 *            ids of the entities removed, in increasing order
+	 * @param spawned
+	 *            ids of the entities added, in increasing order
+	 * @param spawnedNames
+	 *            name of each entity added
+	 * @param spawnedValues
+	 *            WorldSnapshot.FIELDS values for each entity added
+	 * @param entities
+	 *            ids of the changed entities, in increasing order
+	 * @param masks
+	 *            for each changed entity, a bit for each field that changed
+	 * @param differences
+	 *            for each changed field, in order, the difference with the
+	 *            previous snapshot
+	 */
+	public WorldDelta(int tick, int level, Map<Long, Acknowledgement> acknowledgements, int[] despawned,
+			int[] spawned, String[] spawnedNames, int[] spawnedValues, int[] entities, byte[] masks,
+			int[] differences) {
+		this.tick = tick;
+		this.level = level;
+		this.acknowledgements = Collections.unmodifiableMap(new LinkedHashMap<>(acknowledgements));
+		this.despawned = despawned;
+		this.spawned = spawned;
+		this.spawnedNames = spawnedNames;
+		this.spawnedValues = spawnedValues;
+		this.entities = entities;
+		this.masks = masks;
+		this.differences = differences;
+	}
+
+	/**
+	 * Computes the delta from one snapshot to another, leaving out the changes
+	 * that do not fit in the budget.
+	 *
+	 * @param from
+	 *            snapshot held by the clients
+	 * @param to
+	 *            snapshot to be sent
+	 * @param staleness
+	 *            for each entity id, the number of deltas it was left out of
+	 *            since it last changed, which is updated
+	 * @param maxBytes
+	 *            budget of the delta, once encoded
+	 * @return the delta
+	 */
+	public static WorldDelta between(WorldSnapshot from, WorldSnapshot to, Map<Integer, Integer> staleness,
+			int maxBytes) {
+		int[] previous = from.getValues();
+		int[] next = to.getValues();
+		int[] despawned = new int[from.getCount()];
+		int despawnedCount = 0;
+		int[] spawned = new int[to.getCount()];
+		int spawnedCount = 0;
+		int[] matches = new int[to.getCount()];
+		int j = 0;
+		for (int i = 0; i < to.getCount(); i++) {
+			while (j < from.getCount() && from.getId(j) < to.getId(i)) {
+				despawned[despawnedCount++] = from.getId(j++);
+			}
+			if (j < from.getCount() && from.getId(j) == to.getId(i)) {
+				matches[i] = j++;
+			} else {
+				matches[i] = -1;
+				spawned[spawnedCount++] = i;
+			}
+		}
+		while (j < from.getCount()) {
+			despawned[despawnedCount++] = from.getId(j++);
+		}
+		for (int i = 0; i < despawnedCount; i++) {
+			staleness.remove(despawned[i]);
+		}
+
+		List<long[]> changed = new ArrayList<>();
+		for (int entity = 0; entity < to.getCount(); entity++) {
+			if (matches[entity] < 0) {
+				continue;
+			}
+			long priority = 0;
+			for (int field = 0; field < WorldSnapshot.FIELDS; field++) {
+				int difference = next[entity * WorldSnapshot.FIELDS + field]
+						- previous[matches[entity] * WorldSnapshot.FIELDS + field];
+				priority += field == WorldSnapshot.VISIBLE ? Math.abs(difference) * INVISIBLE_PRIORITY
+						: Math.abs(difference);
+			}
+			if (priority == 0) {
+				staleness.remove(to.getId(entity));
+			} else {
+				changed.add(new long[] { entity, priority * (staleness.getOrDefault(to.getId(entity), 0) + 1) });
+			}
+		}
+		changed.sort(Comparator.comparingLong((long[] change) -> change[1]).reversed());
+
+		int bytes = headerSize(to.getAcknowledgements()) + 4 * despawnedCount;
+		int[] spawnedIds = new int[spawnedCount];
+		String[] spawnedNames = new String[spawnedCount];
+		int[] spawnedValues = new int[spawnedCount * WorldSnapshot.FIELDS];
+		for (int i = 0; i < spawnedCount; i++) {
+			int entity = spawned[i];
+			spawnedIds[i] = to.getId(entity);
+			spawnedNames[i] = to.getName(entity);
+			System.arraycopy(next, entity * WorldSnapshot.FIELDS, spawnedValues, i * WorldSnapshot.FIELDS,
+					WorldSnapshot.FIELDS);
+			bytes += 4 + spawnedNames[i].length() + 4 * WorldSnapshot.FIELDS;
+		}
+		boolean[] sent = new boolean[to.getCount()];
+		int sentCount = 0;
+		for (long[] change : changed) {
+			int entity = (int) change[0];
+			int id = to.getId(entity);
+			int size = MultiplayerCodecs.varIntSize(id) + 1;
+			for (int field = 0; field < WorldSnapshot.FIELDS; field++) {
+				int difference = next[entity * WorldSnapshot.FIELDS + field]
+						- previous[matches[entity] * WorldSnapshot.FIELDS + field];
+				if (difference != 0) {
+					size += MultiplayerCodecs.varIntSize(MultiplayerCodecs.zigZag(difference));
+				}
+			}
+			if (bytes + size <= maxBytes) {
+				bytes += size;
+				sent[entity] = true;
+				sentCount++;
+				staleness.remove(id);
+			} else {
+				staleness.merge(id, 1, Integer::sum);
+			}
+		}
+
+		int[] entities = new int[sentCount];
+		byte[] masks = new byte[sentCount];
+		int[] differences = new int[sentCount * WorldSnapshot.FIELDS];
+		int position = 0;
+		int differenceCount = 0;
+		for (int entity = 0; entity < sent.length; entity++) {
+			if (!sent[entity]) {
+				continue;
+			}
+			entities[position] = to.getId(entity);
+			for (int field = 0; field < WorldSnapshot.FIELDS; field++) {
+				int difference = next[entity * WorldSnapshot.FIELDS + field]
+						- previous[matches[entity] * WorldSnapshot.FIELDS + field];
+				if (difference != 0) {
+					masks[position] |= 1 << field;
+					differences[differenceCount++] = difference;
+				}
+			}
+			position++;
+		}
+		return new WorldDelta(to.getTick(), to.getLevel(), to.getAcknowledgements(),
+				Arrays.copyOf(despawned, despawnedCount), spawnedIds, spawnedNames, spawnedValues, entities, masks,
+				Arrays.copyOf(differences, differenceCount));
+	}
+
+	private static int headerSize(Map<Long, Acknowledgement> acknowledgements) {
+		return 5 * Integer.BYTES + acknowledgements.size() * (Long.BYTES + 2 * Integer.BYTES);
+	}
+
+	@Override
+	public WorldSnapshot doModify(WorldSnapshot state) throws Exception {
+		if (state == null || state.getLevel() != level) {
+			throw new IllegalStateException("Delta for level " + level + " cannot be applied");
+		}
+		int count = state.getCount() - despawned.length + spawned.length;
+		int[] ids = new int[count];
+		String[] names = new String[count];
+		int[] values = new int[count * WorldSnapshot.FIELDS];
+		int position = 0;
+		int despawn = 0;
+		int change = 0;
+		int difference = 0;
+		for (int i = 0; i < state.getCount(); i++) {
+			int id = state.getId(i);
+			if (despawn < despawned.length && despawned[despawn] == id) {
+				despawn++;
+				continue;
+			}
+			ids[position] = id;
+			names[position] = state.getName(i);
+			System.arraycopy(state.getValues(), i * WorldSnapshot.FIELDS, values, position * WorldSnapshot.FIELDS,
+					WorldSnapshot.FIELDS);
+			if (change < entities.length && entities[change] == id) {
+				for (int field = 0; field < WorldSnapshot.FIELDS; field++) {
+					if ((masks[change] & (1 << field)) != 0) {
+						values[position * WorldSnapshot.FIELDS + field] += differences[difference++];
+					}
+				}
+				change++;
+			}
+			position++;
+		}
+		if (despawn != despawned.length || change != entities.length
+				|| (spawned.length > 0 && position > 0 && spawned[0] <= ids[position - 1])) {
+			throw new IllegalStateException("Delta for tick " + tick + " does not match the snapshot held");
+		}
+		for (int i = 0; i < spawned.length; i++) {
+			ids[position] = spawned[i];
+			names[position] = spawnedNames[i];
+			System.arraycopy(spawnedValues, i * WorldSnapshot.FIELDS, values, position * WorldSnapshot.FIELDS,
+					WorldSnapshot.FIELDS);
+			position++;
+		}
+		return new WorldSnapshot(tick, level, ids, names, values, acknowledgements);
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public Map<Long, Acknowledgement> getAcknowledgements() {
+		return acknowledgements;
+	}
+
+	/**
+	 * @return the ids of the entities removed, in increasing order
+	 */
+	public int[] getDespawned() {
+		return despawned;
+	}
+
+	/**
+	 * @return the ids of the entities added, in increasing order
+	 */
+	public int[] getSpawned() {
+		return spawned;
+	}
+
+	/**
+	 * @return the name of each entity added
+	 */
+	public String[] getSpawnedNames() {
+		return spawnedNames;
+	}
+
+	/**
+	 * @return WorldSnapshot.FIELDS quantized values for each entity added
+	 */
+	public int[] getSpawnedValues() {
+		return spawnedValues;
+	}
+
+	/**
+	 * @return the ids of the changed entities, in increasing order
+	 */
+	public int[] getEntities() {
+		return entities;
+	}
+
+	/**
+	 * @return for each changed entity, a bit for each field that changed
+	 */
+	public byte[] getMasks() {
+		return masks;
+	}
+
+	/**
+	 * @return for each changed field, the difference with the previous
+	 *         snapshot
+	 */
+	public int[] getDifferences() {
+		return differences;
+	}
+}
@@ -0,0 +1,200 @@
+package engine.game.multiplayer;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The state of every entity in the current level, as sent by a GameServer
+ * after one of its steps. Entities are identified by an id the server gives
+ * each entity when it first sees it, and never reuses: the server and the
+ * clients spawn and remove entities on their own, so the position of an
+ * entity in the level's list of entities differs between them. Entries are
+ * held in increasing order of id, along with the name of each entity, which
+ * lets a client find or create the entity an id stands for.
+ * 
+ * Values are quantized to UNITS_PER_PIXEL, so that they are compact and can be
+ * compared exactly. The snapshot also holds, for every player, the last input
+ * the server applied, so that clients can reconcile their predictions.
+ * Snapshots are never modified: a WorldDelta produces a new one.
+ * 
+ * @author Elliott Bolzan
+ * @see WorldDelta,GameServer,GameClient
+ */
+public class WorldSnapshot implements Serializable {
+	private static final long serialVersionUID = -1484283946186542157L;
+	public static final int X = 0;
+	public static final int Y = 1;
+	public static final int WIDTH = 2;
+	public static final int HEIGHT = 3;
+	public static final int VISIBLE = 4;
+	public static final int FIELDS = 5;
+	public static final double UNITS_PER_PIXEL = 16;
+	private final int tick;
+	private final int level;
+	private final int[] ids;
+	private final String[] names;
+	private final int[] values;
+	private final Map<Long, Acknowledgement> acknowledgements;
+
+	/**
+	 * @param tick
+	 *            number of steps the server had taken
+	 * @param level
+	 *            number of the current level
+	 * @param ids
+	 *            id of each entity, in increasing order, which are not copied
+	 * @param names
+	 *            name of each entity, which are not copied
+	 * @param values
+	 *            FIELDS quantized values per entity, which are not copied
+	 * @param acknowledgements
+	 *            last input applied for each player
+	 */
+	public WorldSnapshot(int tick, int level, int[] ids, String[] names, int[] values,
+			Map<Long, Acknowledgement> acknowledgements) {
+		this.tick = tick;
+		this.level = level;
+		this.ids = ids;
+		this.names = names;
+		this.values = values;
+		this.acknowledgements = Collections.unmodifiableMap(new LinkedHashMap<>(acknowledgements));
+	}
+
+	/**
+	 * @param level
+	 * @return a snapshot of a level without entities, before any step.
+	 */
+	public static WorldSnapshot empty(int level) {
+		return new WorldSnapshot(0, level, new int[0], new String[0], new int[0], Collections.emptyMap());
+	}
+
+	/**
+	 * @param value
+	 *            position or size, in pixels
+	 * @return the value in quantized units
+	 */
+	public static int quantize(double value) {
+		return (int) Math.round(value * UNITS_PER_PIXEL);
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return the number of entities in the snapshot
+	 */
+	public int getCount() {
+		return ids.length;
+	}
+
+	/**
+	 * @param entity
+	 *            index of the entity in the snapshot
+	 * @return the id of the entity
+	 */
+	public int getId(int entity) {
+		return ids[entity];
+	}
+
+	/**
+	 * @param entity
+	 *            index of the entity in the snapshot
+	 * @return the name of the entity
+	 */
+	public String getName(int entity) {
+		return names[entity];
+	}
+
+	/**
+	 * @param id
+	 * @return the index of the entity with the id, or a negative number if it
+	 *         is not in the snapshot
+	 */
+	public int indexOf(int id) {
+		return Arrays.binarySearch(ids, id);
+	}
+
+	/**
+	 * @param entity
+	 *            index of the entity in the snapshot
+	 * @param field
+	 * @return the quantized value of one of the entity's fields
+	 */
+	public int getValue(int entity, int field) {
+		return values[entity * FIELDS + field];
+	}
+
+	/**
+	 * @param entity
+	 * @param field
+	 * @return the value of one of the entity's fields, in pixels
+	 */
+	public double get(int entity, int field) {
+		return getValue(entity, field) / UNITS_PER_PIXEL;
+	}
+
+	public boolean isVisible(int entity) {
+		return getValue(entity, VISIBLE) != 0;
+	}
+
+	/**
+	 * @param player
+	 * @return the last input of the player applied by the server, or null
+	 */
+	public Acknowledgement getAcknowledgement(long player) {
+		return acknowledgements.get(player);
+	}
+
+	public Map<Long, Acknowledgement> getAcknowledgements() {
+		return acknowledgements;
+	}
+
+	int[] getIds() {
+		return ids;
+	}
+
+	String[] getNames() {
+		return names;
+	}
+
+	int[] getValues() {
+		return values;
+	}
+
+	/**
+	 * The last input of a player applied by the server.
+	 */
+	public static class Acknowledgement implements Serializable {
+		private static final long serialVersionUID = 6470155223611373706L;
+		private final int sequence;
+		private final int tick;
+
+		/**
+		 * @param sequence
+		 *            sequence number of the input
+		 * @param tick
+		 *            tick of the first snapshot taken after the input was
+		 *            applied
+		 */
+		public Acknowledgement(int sequence, int tick) {
+			this.sequence = sequence;
+			this.tick = tick;
+		}
+
+		public int getSequence() {
+			return sequence;
+		}
+
+		public int getTick() {
+			return tick;
+		}
+	}
+}
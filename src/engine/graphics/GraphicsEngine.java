@@ -1,19 +1,29 @@
 package engine.graphics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicReference;
 
 import authoring.components.ComponentMaker;
+import data.AssetPipeline;
 import data.Game;
 import engine.entities.Entity;
 import engine.entities.entities.AchievementEntity;
 import engine.entities.entities.CameraEntity;
+import engine.entities.entities.ParticleEmitterEntity;
+import engine.entities.entities.TileLayerEntity;
 import engine.game.Level;
 import engine.game.LevelManager;
 import engine.game.gameloop.LevelSelectionStepStrategy;
 import engine.game.gameloop.Scorebar;
+import engine.game.gameloop.SimulationThread;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -41,20 +51,30 @@ import polyglot.Polyglot;
  * @author Jay Doherty (modified by Jesse Yue)
  * 
  *         This class handles the graphics display for the GamePlayer. The
- *         GameEngine can set the Entities to display, creates ImageViews for
- *         all of them, and then binds their coordinates so that changes to the
- *         Entities in the game engine automatically cause their image to move
- *         on screen. This class also holds the Scorebar (which has
- *         time/lives/score) and the Camera.
+ *         GameEngine can set the Entities to display, and creates ImageViews
+ *         for all of them. The game is stepped on a SimulationThread, which
+ *         publishes a copy of the Entities' state after every step; an
+ *         AnimationTimer draws the latest copy on the JavaFX thread,
+ *         interpolating between the last two steps so that movement stays
+ *         smooth whatever the screen's refresh rate. This class also holds the
+ *         Scorebar (which has time/lives/score) and the Camera.
  */
 public class GraphicsEngine {
 	private Polyglot polyglot;
 	private ResourceBundle resources;
 
 	private Collection<Entity> entities;
-	private Collection<ImageView> nodes;
+	private Map<Entity, EntityNode> nodes;
+	private EntityNode[] drawn;
 	private CameraEntity camera;
 
+	private AtomicReference<RenderFrame> frame;
+	private volatile boolean viewDirty;
+	private long version;
+	private long drawnVersion;
+	private long stepNanos;
+	private AnimationTimer renderer;
+
 	private AbstractPlayer player;
 	private Scorebar scorebar;
 	private Overlay overlay;
@@ -65,7 +85,10 @@ public class GraphicsEngine {
 			ResourceBundle resources) {
 		this.camera = new CameraEntity();
 		this.entities = new ArrayList<Entity>();
-		this.nodes = new ArrayList<ImageView>();
+		this.nodes = new IdentityHashMap<Entity, EntityNode>();
+		this.drawn = new EntityNode[0];
+		this.frame = new AtomicReference<RenderFrame>();
+		this.drawnVersion = -1;
 		this.scorebar = new Scorebar(game);
 
 		this.overlay = overlay;
@@ -77,17 +100,77 @@ public class GraphicsEngine {
 
 	}
 
+	/**
+	 * Creates a GraphicsEngine without a display, for subclasses that run the
+	 * game without showing it.
+	 * 
+	 * @param game
+	 */
+	protected GraphicsEngine(Game game) {
+		this.camera = new CameraEntity();
+		this.entities = new ArrayList<Entity>();
+		this.nodes = new IdentityHashMap<Entity, EntityNode>();
+		this.drawn = new EntityNode[0];
+		this.frame = new AtomicReference<RenderFrame>();
+		this.drawnVersion = -1;
+		this.scorebar = new Scorebar(game);
+	}
+
+	/**
+	 * @return true if this GraphicsEngine displays nothing, in which case the
+	 *         game can start on its first level, since nobody can select one.
+	 */
+	public boolean isHeadless() {
+		return false;
+	}
+
 	public void setupLevel(Level level) {
 		this.setCamera(level.getCamera());
 		this.setEntitiesCollection(level.getEntities());
 
-		displayArea.maxHeightProperty().bind(level.getCamera().heightProperty());
-		displayArea.maxWidthProperty().bind(level.getCamera().widthProperty());
-		player.setSize(level.getCamera().getWidth(), level.getCamera().getHeight());
+		double width = level.getCamera().getWidth();
+		double height = level.getCamera().getHeight();
+		Image backgroundImage = AssetPipeline.getImage(level.getBackground().getImagePath());
+		runOnFX(() -> {
+			displayArea.setMaxHeight(height);
+			displayArea.setMaxWidth(width);
+			player.setSize(width, height);
+			displayArea.setBackground(new Background(new BackgroundImage(backgroundImage, BackgroundRepeat.REPEAT,
+					BackgroundRepeat.REPEAT, BackgroundPosition.CENTER, BackgroundSize.DEFAULT)));
+		});
+	}
+
+	/**
+	 * Starts drawing the frames published by updateFrame(), at the screen's
+	 * refresh rate.
+	 * 
+	 * @param simulation
+	 *            the SimulationThread stepping the game
+	 */
+	public void startRendering(SimulationThread simulation) {
+		this.stepNanos = simulation.getStepNanos();
+		runOnFX(() -> {
+			if (renderer == null) {
+				renderer = new AnimationTimer() {
+					@Override
+					public void handle(long now) {
+						render();
+					}
+				};
+			}
+			renderer.start();
+		});
+	}
 
-		Image backgroundImage = (new NodeFactory()).getNodeFromEntity(level.getBackground()).getImage();
-		displayArea.setBackground(new Background(new BackgroundImage(backgroundImage, BackgroundRepeat.REPEAT,
-				BackgroundRepeat.REPEAT, BackgroundPosition.CENTER, BackgroundSize.DEFAULT)));
+	/**
+	 * Stops drawing frames.
+	 */
+	public void stopRendering() {
+		runOnFX(() -> {
+			if (renderer != null) {
+				renderer.stop();
+			}
+		});
 	}
 
 	/**
@@ -97,8 +180,8 @@ public class GraphicsEngine {
 	 * @param message
 	 */
 	public void showRuntimeError(String message) {
-		(new ComponentMaker(polyglot, resources)).makeAlert(AlertType.ERROR, "ErrorTitle", "ErrorHeader", message)
-				.show();
+		runOnFX(() -> (new ComponentMaker(polyglot, resources))
+				.makeAlert(AlertType.ERROR, "ErrorTitle", "ErrorHeader", message).show());
 	}
 
 	/**
@@ -129,7 +212,7 @@ public class GraphicsEngine {
 	 * 
 	 * @param newCamera
 	 */
-	private void setCamera(CameraEntity newCamera) {
+	protected void setCamera(CameraEntity newCamera) {
 		this.camera = newCamera;
 	}
 
@@ -140,7 +223,7 @@ public class GraphicsEngine {
 	 * @param entities
 	 *            current entities to draw on screen
 	 */
-	private void setEntitiesCollection(Collection<Entity> entities) {
+	protected void setEntitiesCollection(Collection<Entity> entities) {
 		this.entities = entities;
 		this.updateView();
 	}
@@ -151,6 +234,11 @@ public class GraphicsEngine {
 	 * @param resourceFileTextName
 	 */
 	public void fillScreenWithText(String resourceFileTextName) {
+		frame.set(null);
+		runOnFX(() -> showText(resourceFileTextName));
+	}
+
+	private void showText(String resourceFileTextName) {
 		this.clearView();
 		Label label = new Label();
 		label.textProperty().bind(polyglot.get(resourceFileTextName, Case.TITLE));
@@ -161,6 +249,11 @@ public class GraphicsEngine {
 	}
 
 	public void showImage(String imageName) {
+		frame.set(null);
+		runOnFX(() -> showImageOnFX(imageName));
+	}
+
+	private void showImageOnFX(String imageName) {
 		this.clearView();
 		Image image = new Image(resources.getString(imageName));
 		ImageView imageView = new ImageView(image);
@@ -170,92 +263,169 @@ public class GraphicsEngine {
 	}
 
 	public void displayLevelSelectionScreen(LevelManager levelManager, LevelSelectionStepStrategy strategy) {
-		this.clearView();
-		new LevelSelectionGraphics(displayArea, levelManager, polyglot, strategy).draw();
+		frame.set(null);
+		runOnFX(() -> {
+			this.clearView();
+			new LevelSelectionGraphics(displayArea, levelManager, polyglot, strategy).draw();
+		});
 	}
 
 	/**
 	 * Show Highscore and ability to share to Facebook
 	 */
 	public void endGame() {
-		player.endGame(scorebar);
+		runOnFX(() -> player.endGame(scorebar));
 	}
 
 	/**
-	 * Call this every frame to animate the camera.
+	 * Call this at the end of every step to publish the state of the entities,
+	 * camera and scorebar to be drawn.
 	 */
 	public void updateFrame() {
-		this.updateCamera();
-		this.updateScorebar();
+		RenderFrame previous = frame.get();
+		if (viewDirty || previous == null || previous.getCount() != countDrawn()) {
+			viewDirty = false;
+			version++;
+		}
+		frame.set(new RenderFrame(entities, camera, scorebar, version, previous));
 	}
 
 	/**
-	 * Call this conservatively, it seems to require a lot of memory.
+	 * Call this when entities are added, removed or reordered: the ImageViews
+	 * are created again when the next frame is drawn.
 	 */
 	public void updateView() {
-		this.clearView();
-		this.drawAllEntities();
-		this.sortViewByZIndex();
+		viewDirty = true;
 	}
 
-	private void updateCamera() {
-		for (ImageView node : nodes) {
-			node.setTranslateX(-camera.getX());
-			node.setTranslateY(-camera.getY());
+	private int countDrawn() {
+		return (int) entities.stream().filter(s -> !(s instanceof AchievementEntity)).count();
+	}
+
+	/**
+	 * Draws the latest frame, interpolating from the frame before it by the
+	 * fraction of a step that has passed since it was published.
+	 */
+	private void render() {
+		RenderFrame current = frame.get();
+		if (current == null) {
+			return;
 		}
+		if (current.getVersion() != drawnVersion) {
+			this.drawAllEntities(current);
+			drawnVersion = current.getVersion();
+		}
+		RenderFrame previous = current.getPrevious();
+		double alpha = 1;
+		if (previous != null && stepNanos > 0) {
+			alpha = Math.min(1, Math.max(0, (System.nanoTime() - current.getNanos()) / (double) stepNanos));
+		} else {
+			previous = current;
+		}
+		double cameraX = previous.getCameraX() + (current.getCameraX() - previous.getCameraX()) * alpha;
+		double cameraY = previous.getCameraY() + (current.getCameraY() - previous.getCameraY()) * alpha;
+		for (int i = 0; i < drawn.length; i++) {
+			double x = current.interpolate(previous, i, RenderFrame.X, alpha);
+			double y = current.interpolate(previous, i, RenderFrame.Y, alpha);
+			if (drawn[i].tileLayer != null) {
+				drawn[i].tileLayer.setVisible(current.isVisible(i));
+				drawn[i].tileLayer.draw(x - cameraX, y - cameraY, displayArea.getWidth(), displayArea.getHeight());
+				continue;
+			}
+			if (drawn[i].particles != null) {
+				drawn[i].particles.setVisible(current.isVisible(i));
+				drawn[i].particles.draw(cameraX, cameraY, displayArea.getWidth(), displayArea.getHeight());
+				continue;
+			}
+			ImageView node = (ImageView) drawn[i].node;
+			node.setX(x);
+			node.setY(y);
+			node.setFitWidth(current.get(i, RenderFrame.WIDTH));
+			node.setFitHeight(current.get(i, RenderFrame.HEIGHT));
+			node.setRotate(current.get(i, RenderFrame.ROTATE));
+			node.setVisible(current.isVisible(i));
+			node.setTranslateX(-cameraX);
+			node.setTranslateY(-cameraY);
+			String imagePath = current.getImagePath(i);
+			if (imagePath != null && !imagePath.equals(node.getUserData())) {
+				node.setImage(AssetPipeline.getImage(imagePath));
+				node.setUserData(imagePath);
+			}
+		}
+		this.updateScorebar(current);
 	}
 
-	private void updateScorebar() {
-		overlay.setScore(scorebar.getScore());
-		overlay.setLives(Integer.toString(scorebar.getLives()));
-		overlay.setLevel(Integer.toString(scorebar.getLevel()));
-		overlay.setTime(scorebar.getTime());
+	private void updateScorebar(RenderFrame current) {
+		overlay.setScore(current.getScore());
+		overlay.setLives(current.getLives());
+		overlay.setLevel(current.getLevel());
+		overlay.setTime(current.getTime());
 	}
 
 	public void blankScorebar(boolean firstPass) {
-		if (firstPass) {
-			overlay.setScore(Overlay.BLANK_SCOREBAR_DISPLAY);
-			overlay.setLives(Overlay.BLANK_SCOREBAR_DISPLAY);
-		}
-		overlay.setLevel(Overlay.BLANK_SCOREBAR_DISPLAY);
-		overlay.setTime(Overlay.BLANK_SCOREBAR_DISPLAY);
+		runOnFX(() -> {
+			if (firstPass) {
+				overlay.setScore(Overlay.BLANK_SCOREBAR_DISPLAY);
+				overlay.setLives(Overlay.BLANK_SCOREBAR_DISPLAY);
+			}
+			overlay.setLevel(Overlay.BLANK_SCOREBAR_DISPLAY);
+			overlay.setTime(Overlay.BLANK_SCOREBAR_DISPLAY);
+		});
 	}
 
 	private void clearView() {
 		this.nodes.clear();
+		this.drawn = new EntityNode[0];
+		this.drawnVersion = -1;
 		displayArea.getChildren().clear();
 	}
 
 	/**
-	 * Uses NodeFactory to fetch a JavaFX ImageView for each entity and binds
-	 * their x and y coordinates.
+	 * Creates an ImageView for each entity of a frame, a TileLayerView for each
+	 * tile layer, or a ParticleView for each particle emitter, reusing those
+	 * created for entities already drawn, and places them in order of z
+	 * index.
 	 */
-	private void drawAllEntities() {
-		NodeFactory factory = new NodeFactory();
-		entities.stream().filter(s -> !(s instanceof AchievementEntity)).forEach(entity -> {
-			ImageView node = (ImageView) factory.getNodeFromEntity(entity);
-			this.makeBindings(node, entity);
-			this.nodes.add(node);
-			displayArea.getChildren().add(node);
-		});
-	}
-
-	private void makeBindings(ImageView node, Entity entity) {
-		node.xProperty().bind(entity.xProperty());
-		node.yProperty().bind(entity.yProperty());
-		node.rotateProperty().bind(entity.rotateProperty());
-		node.translateZProperty().bind(entity.zProperty());
-		node.visibleProperty().bind(entity.isVisibleProperty());
-		entity.imagePathProperty().addListener((observer, oldPath, newPath) -> {
-			node.setImage(new Image(newPath));
-		});
+	private void drawAllEntities(RenderFrame current) {
+		Map<Entity, EntityNode> kept = new IdentityHashMap<Entity, EntityNode>();
+		EntityNode[] views = new EntityNode[current.getCount()];
+		Integer[] order = new Integer[views.length];
+		for (int i = 0; i < views.length; i++) {
+			Entity entity = current.getEntity(i);
+			EntityNode view = nodes.get(entity);
+			if (view == null && entity instanceof TileLayerEntity) {
+				view = new EntityNode(new TileLayerView((TileLayerEntity) entity));
+			} else if (view == null && entity instanceof ParticleEmitterEntity) {
+				view = new EntityNode(new ParticleView((ParticleEmitterEntity) entity));
+			} else if (view == null) {
+				view = new EntityNode(new ImageView(AssetPipeline.getImage(current.getImagePath(i))));
+				view.node.setUserData(current.getImagePath(i));
+			}
+			view.node.setTranslateZ(current.get(i, RenderFrame.Z));
+			kept.put(entity, view);
+			views[i] = view;
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingDouble(i -> current.get(i, RenderFrame.Z)));
+		ArrayList<Node> sorted = new ArrayList<Node>(views.length);
+		for (Integer i : order) {
+			sorted.add(views[i].node);
+		}
+		this.nodes = kept;
+		this.drawn = views;
+		displayArea.getChildren().setAll(sorted);
 	}
 
-	private void sortViewByZIndex() {
-		List<Node> sortedNodes = displayArea.getChildren().sorted((a, b) -> {
-			return Double.compare(a.getTranslateZ(), b.getTranslateZ());
-		});
-		displayArea.getChildren().setAll(sortedNodes);
+	/**
+	 * Runs an action on the JavaFX thread: right away if called from it, and
+	 * later otherwise, such as when called from the SimulationThread.
+	 */
+	private void runOnFX(Runnable action) {
+		if (Platform.isFxApplicationThread()) {
+			action.run();
+		} else {
+			Platform.runLater(action);
+		}
 	}
 
 	private void setupView() {
@@ -264,7 +434,6 @@ public class GraphicsEngine {
 		HBox.setHgrow(displayArea, Priority.ALWAYS);
 		VBox.setVgrow(displayArea, Priority.ALWAYS);
 		this.clipAtEdges(displayArea);
-		this.updateView();
 
 	}
 
@@ -280,4 +449,31 @@ public class GraphicsEngine {
 		pane.setClip(clipBoundaries);
 	}
 
+	/**
+	 * The node drawing an entity, and the TileLayerView or ParticleView it is
+	 * if the entity is a tile layer or a particle emitter.
+	 */
+	private static class EntityNode {
+		private final Node node;
+		private final TileLayerView tileLayer;
+		private final ParticleView particles;
+
+		private EntityNode(Node node) {
+			this(node, null, null);
+		}
+
+		private EntityNode(TileLayerView tileLayer) {
+			this(tileLayer, tileLayer, null);
+		}
+
+		private EntityNode(ParticleView particles) {
+			this(particles, null, particles);
+		}
+
+		private EntityNode(Node node, TileLayerView tileLayer, ParticleView particles) {
+			this.node = node;
+			this.tileLayer = tileLayer;
+			this.particles = particles;
+		}
+	}
 }
@@ -0,0 +1,87 @@
+package engine.graphics;
+
+import data.Game;
+import engine.game.Level;
+import engine.game.LevelManager;
+import engine.game.gameloop.LevelSelectionStepStrategy;
+import engine.game.gameloop.SimulationThread;
+import javafx.geometry.Point2D;
+import javafx.scene.layout.Pane;
+
+/**
+ * A GraphicsEngine that displays nothing, so that a game can run where there
+ * is no screen, such as on a game server. It keeps track of the current
+ * level's camera and entities, which Events and Actions rely on, and ignores
+ * every request to draw.
+ * 
+ * @author Elliott Bolzan
+ * @see GraphicsEngine
+ */
+public class HeadlessGraphicsEngine extends GraphicsEngine {
+
+	public HeadlessGraphicsEngine(Game game) {
+		super(game);
+	}
+
+	@Override
+	public boolean isHeadless() {
+		return true;
+	}
+
+	@Override
+	public void setupLevel(Level level) {
+		this.setCamera(level.getCamera());
+		this.setEntitiesCollection(level.getEntities());
+	}
+
+	@Override
+	public void startRendering(SimulationThread simulation) {
+	}
+
+	@Override
+	public void stopRendering() {
+	}
+
+	@Override
+	public void showRuntimeError(String message) {
+		System.err.println(message);
+	}
+
+	@Override
+	public Pane getView() {
+		return null;
+	}
+
+	@Override
+	public void fillScreenWithText(String resourceFileTextName) {
+	}
+
+	@Override
+	public void showImage(String imageName) {
+	}
+
+	@Override
+	public void displayLevelSelectionScreen(LevelManager levelManager, LevelSelectionStepStrategy strategy) {
+	}
+
+	@Override
+	public void endGame() {
+	}
+
+	@Override
+	public void updateFrame() {
+	}
+
+	@Override
+	public void updateView() {
+	}
+
+	@Override
+	public void blankScorebar(boolean firstPass) {
+	}
+
+	@Override
+	public Point2D getBackgroundPosition() {
+		return Point2D.ZERO;
+	}
+}
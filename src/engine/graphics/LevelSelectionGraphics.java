@@ -72,7 +72,7 @@ public class LevelSelectionGraphics {
 					EventHandler<Event> handler;
 					if (levelManager.getUnlockedLevelNumbers().contains(levelNumber)) {
 						final int copyOfLevelNumber = levelNumber;
-						handler = e -> strategy.moveToLevelScreen(copyOfLevelNumber);
+						handler = e -> levelManager.runAfterStep(() -> strategy.moveToLevelScreen(copyOfLevelNumber));
 						text = (StringBinding) polyglot.get(LEVEL_TEXT_NAME, Case.TITLE).concat(" " + levelNumber);
 					} else {
 						handler = e -> {
@@ -1,7 +1,7 @@
 package engine.graphics;
 
+import data.AssetPipeline;
 import engine.entities.Entity;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 
 /**
@@ -22,6 +22,6 @@ public class NodeFactory implements NodeFactoryInterface {
 	}
 	
 	private ImageView getImageFromPath(String imagePath) {
-		return new ImageView(new Image(imagePath));
+		return new ImageView(AssetPipeline.getImage(imagePath));
 	}
 }
@@ -0,0 +1,122 @@
+package engine.graphics;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import engine.entities.entities.ParticleEmitterEntity;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * @author Elliott Bolzan
+ *
+ *         Draws the particles of a ParticleEmitterEntity. Particles are
+ *         written as squares of pixels to an array the size of the display,
+ *         which is copied to a single image once a frame, rather than each
+ *         particle being a node of its own.
+ */
+public class ParticleView extends ImageView {
+	private ParticleEmitterEntity emitter;
+	private WritableImage image;
+	private int[] pixels;
+	private String colorsDrawn;
+	private int[] colors;
+
+	/**
+	 * @param emitter
+	 *            the emitter whose particles are drawn
+	 */
+	public ParticleView(ParticleEmitterEntity emitter) {
+		this.emitter = emitter;
+		this.pixels = new int[0];
+	}
+
+	/**
+	 * Draws the particles in view.
+	 * 
+	 * @param cameraX
+	 *            left edge of the view, in the level
+	 * @param cameraY
+	 *            top edge of the view, in the level
+	 * @param width
+	 *            width of the view
+	 * @param height
+	 *            height of the view
+	 */
+	public void draw(double cameraX, double cameraY, double width, double height) {
+		int columns = (int) Math.ceil(width);
+		int rows = (int) Math.ceil(height);
+		if (columns <= 0 || rows <= 0) {
+			return;
+		}
+		if (image == null || image.getWidth() != columns || image.getHeight() != rows) {
+			image = new WritableImage(columns, rows);
+			pixels = new int[columns * rows];
+			setImage(image);
+		}
+		loadColors();
+		Arrays.fill(pixels, 0);
+		ParticleEmitterEntity.Frame frame = emitter.getFrame();
+		if (frame != null) {
+			float[] positions = frame.getPositions();
+			int size = Math.max(1, emitter.getParticleSize());
+			int start = 0;
+			for (int color = 0; color < colors.length; color++) {
+				int end = frame.getColorEnd(color);
+				for (int i = start; i < end; i++) {
+					int left = (int) (positions[i * 2] - cameraX) - size / 2;
+					int top = (int) (positions[i * 2 + 1] - cameraY) - size / 2;
+					fill(left, top, size, columns, rows, colors[color]);
+				}
+				start = end;
+			}
+		}
+		image.getPixelWriter().setPixels(0, 0, columns, rows, PixelFormat.getIntArgbInstance(),
+				IntBuffer.wrap(pixels), columns);
+	}
+
+	private void fill(int left, int top, int size, int columns, int rows, int color) {
+		int minX = Math.max(0, left);
+		int maxX = Math.min(columns, left + size);
+		int maxY = Math.min(rows, top + size);
+		for (int y = Math.max(0, top); y < maxY; y++) {
+			int offset = y * columns;
+			for (int x = minX; x < maxX; x++) {
+				pixels[offset + x] = color;
+			}
+		}
+	}
+
+	/**
+	 * Reads the colors of the emitter again when they change.
+	 */
+	private void loadColors() {
+		List<String> names = emitter.getParticleColors();
+		String joined = String.join(",", names);
+		if (joined.equals(colorsDrawn)) {
+			return;
+		}
+		colorsDrawn = joined;
+		colors = new int[Math.max(1, names.size())];
+		Arrays.fill(colors, 0xFFFFFFFF);
+		for (int i = 0; i < names.size(); i++) {
+			try {
+				Color color = Color.web(names.get(i));
+				colors[i] = channel(color.getOpacity()) << 24 | channel(color.getRed()) << 16
+						| channel(color.getGreen()) << 8 | channel(color.getBlue());
+			} catch (IllegalArgumentException e) {
+				// Colors that cannot be read are drawn in white.
+			}
+		}
+	}
+
+	/**
+	 * @return a color component between 0 and 1, as a byte of an ARGB color
+	 */
+	private static int channel(double value) {
+		return Math.toIntExact(Math.round(value * 255));
+	}
+}
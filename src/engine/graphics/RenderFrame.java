@@ -0,0 +1,163 @@
+package engine.graphics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import engine.entities.Entity;
+import engine.entities.entities.AchievementEntity;
+import engine.entities.entities.CameraEntity;
+import engine.game.gameloop.Scorebar;
+
+/**
+ * @author Elliott Bolzan
+ * 
+ *         The state of a level that the GraphicsEngine draws, copied out of
+ *         the Entities at the end of a step. Steps are taken on the
+ *         SimulationThread and frames are drawn on the JavaFX thread: copying
+ *         the values lets the JavaFX thread draw without reading Entities
+ *         while they change. Frames are never modified once published, except
+ *         to forget the frame before the previous one.
+ */
+class RenderFrame {
+	static final int X = 0;
+	static final int Y = 1;
+	static final int WIDTH = 2;
+	static final int HEIGHT = 3;
+	static final int ROTATE = 4;
+	static final int Z = 5;
+	static final int VISIBLE = 6;
+	static final int FIELDS = 7;
+
+	private final Entity[] entities;
+	private final double[] values;
+	private final String[] imagePaths;
+	private final double cameraX;
+	private final double cameraY;
+	private final String score;
+	private final String lives;
+	private final String level;
+	private final String time;
+	private final long version;
+	private final long nanos;
+	private volatile RenderFrame previous;
+
+	/**
+	 * @param all
+	 *            the level's entities
+	 * @param camera
+	 *            the level's camera
+	 * @param scorebar
+	 *            the game's scorebar
+	 * @param version
+	 *            changes whenever the entities drawn change
+	 * @param previous
+	 *            the frame published before this one, or null
+	 */
+	RenderFrame(Collection<Entity> all, CameraEntity camera, Scorebar scorebar, long version,
+			RenderFrame previous) {
+		List<Entity> drawn = new ArrayList<Entity>(all.size());
+		for (Entity entity : all) {
+			if (!(entity instanceof AchievementEntity)) {
+				drawn.add(entity);
+			}
+		}
+		this.entities = drawn.toArray(new Entity[drawn.size()]);
+		this.values = new double[entities.length * FIELDS];
+		this.imagePaths = new String[entities.length];
+		for (int i = 0; i < entities.length; i++) {
+			Entity entity = entities[i];
+			int offset = i * FIELDS;
+			values[offset + X] = entity.getX();
+			values[offset + Y] = entity.getY();
+			values[offset + WIDTH] = entity.getWidth();
+			values[offset + HEIGHT] = entity.getHeight();
+			values[offset + ROTATE] = entity.getRotate();
+			values[offset + Z] = entity.getZ();
+			values[offset + VISIBLE] = entity.getIsVisible() ? 1 : 0;
+			imagePaths[i] = entity.getImagePath();
+		}
+		this.cameraX = camera.getX();
+		this.cameraY = camera.getY();
+		this.score = scorebar.getScore();
+		this.lives = Integer.toString(scorebar.getLives());
+		this.level = Integer.toString(scorebar.getLevel());
+		this.time = scorebar.getTime();
+		this.version = version;
+		this.nanos = System.nanoTime();
+		if (previous != null) {
+			previous.previous = null;
+		}
+		this.previous = previous;
+	}
+
+	int getCount() {
+		return entities.length;
+	}
+
+	Entity getEntity(int index) {
+		return entities[index];
+	}
+
+	double get(int index, int field) {
+		return values[index * FIELDS + field];
+	}
+
+	/**
+	 * @return the value of a field, a fraction alpha of the way from an
+	 *         earlier frame with the same version to this one
+	 */
+	double interpolate(RenderFrame from, int index, int field, double alpha) {
+		double start = from.get(index, field);
+		return start + (get(index, field) - start) * alpha;
+	}
+
+	boolean isVisible(int index) {
+		return get(index, VISIBLE) != 0;
+	}
+
+	String getImagePath(int index) {
+		return imagePaths[index];
+	}
+
+	double getCameraX() {
+		return cameraX;
+	}
+
+	double getCameraY() {
+		return cameraY;
+	}
+
+	String getScore() {
+		return score;
+	}
+
+	String getLives() {
+		return lives;
+	}
+
+	String getLevel() {
+		return level;
+	}
+
+	String getTime() {
+		return time;
+	}
+
+	long getVersion() {
+		return version;
+	}
+
+	long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * @return the frame published before this one, if it draws the same
+	 *         entities, or null
+	 */
+	RenderFrame getPrevious() {
+		RenderFrame frame = previous;
+		return frame != null && frame.version == version ? frame : null;
+	}
+}
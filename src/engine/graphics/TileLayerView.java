@@ -0,0 +1,101 @@
+package engine.graphics;
+
+import java.util.List;
+
+import data.AssetPipeline;
+import engine.entities.entities.TileLayerEntity;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * @author Elliott Bolzan
+ *
+ *         Draws a TileLayerEntity on a single Canvas, in one pass over the
+ *         cells in view. While a game runs, the Canvas covers the display,
+ *         and is only drawn again when the layer moves relative to it.
+ */
+public class TileLayerView extends Canvas {
+	private TileLayerEntity layer;
+	private Image[] images;
+	private double drawnX;
+	private double drawnY;
+
+	/**
+	 * @param layer
+	 *            the layer to draw
+	 */
+	public TileLayerView(TileLayerEntity layer) {
+		this.layer = layer;
+		this.drawnX = Double.NaN;
+		loadImages();
+	}
+
+	/**
+	 * Draws the cells of the layer that are in view.
+	 *
+	 * @param x
+	 *            where the left edge of the layer is drawn
+	 * @param y
+	 *            where the top edge of the layer is drawn
+	 * @param width
+	 *            width of the view
+	 * @param height
+	 *            height of the view
+	 */
+	public void draw(double x, double y, double width, double height) {
+		if (x == drawnX && y == drawnY && width == getWidth() && height == getHeight()) {
+			return;
+		}
+		drawnX = x;
+		drawnY = y;
+		setWidth(width);
+		setHeight(height);
+		GraphicsContext context = getGraphicsContext2D();
+		context.clearRect(0, 0, width, height);
+		int size = layer.getTileSize();
+		int minColumn = Math.max(0, (int) Math.floor(-x / size));
+		int minRow = Math.max(0, (int) Math.floor(-y / size));
+		int maxColumn = Math.min(layer.getColumns() - 1, (int) Math.floor((width - x) / size));
+		int maxRow = Math.min(layer.getRows() - 1, (int) Math.floor((height - y) / size));
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				short tile = layer.getTile(column, row);
+				if (tile != TileLayerEntity.EMPTY && tile < images.length) {
+					context.drawImage(images[tile], x + column * size, y + row * size, size, size);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws the layer again, such as after tiles were painted.
+	 */
+	public void refresh() {
+		loadImages();
+		drawnX = Double.NaN;
+	}
+
+	/**
+	 * @param layer
+	 * @return an image of the whole layer, used by the authoring environment
+	 */
+	public static WritableImage snapshot(TileLayerEntity layer) {
+		TileLayerView view = new TileLayerView(layer);
+		view.draw(0, 0, layer.getColumns() * layer.getTileSize(), layer.getRows() * layer.getTileSize());
+		SnapshotParameters parameters = new SnapshotParameters();
+		parameters.setFill(Color.TRANSPARENT);
+		return view.snapshot(parameters, null);
+	}
+
+	private void loadImages() {
+		List<String> paths = layer.getTileImages();
+		images = new Image[paths.size() + 1];
+		for (int i = 0; i < paths.size(); i++) {
+			images[i + 1] = AssetPipeline.getImage(paths.get(i));
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package networking.io;
+
+import java.io.Serializable;
+
+/**
+ * This serializer encodes objects into compact byte arrays, using the codecs
+ * of a CodecRegistry.
+ * <p>
+ * Hosts created with a BinarySerializer also use its registry to encode the
+ * contents of their requests.
+ *
+ * @param <T>
+ *            The type of object to be serialized.
+ * @author Elliott Bolzan
+ * @see CodecRegistry,BinaryUnserializer
+ */
+public class BinarySerializer<T> implements Serializer<T> {
+	private final CodecRegistry registry;
+
+	/**
+	 * @param registry
+	 *            Registry holding the codecs used to encode objects
+	 */
+	public BinarySerializer(CodecRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public Serializable doSerialize(T obj) throws Exception {
+		return registry.encode(obj);
+	}
+
+	/**
+	 * @return Returns the registry used by this serializer
+	 */
+	public CodecRegistry getRegistry() {
+		return registry;
+	}
+}
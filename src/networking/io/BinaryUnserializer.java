@@ -0,0 +1,37 @@
+package networking.io;
+
+import java.io.Serializable;
+
+/**
+ * This unserializer decodes byte arrays produced by a BinarySerializer that
+ * shares its CodecRegistry.
+ *
+ * @param <T>
+ *            The type of object to be unserialized.
+ * @author Elliott Bolzan
+ * @see CodecRegistry,BinarySerializer
+ */
+public class BinaryUnserializer<T> implements Unserializer<T> {
+	private final CodecRegistry registry;
+
+	/**
+	 * @param registry
+	 *            Registry holding the codecs used to decode objects
+	 */
+	public BinaryUnserializer(CodecRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T doUnserialize(Serializable obj) throws Exception {
+		return (T) registry.decode((byte[]) obj);
+	}
+
+	/**
+	 * @return Returns the registry used by this unserializer
+	 */
+	public CodecRegistry getRegistry() {
+		return registry;
+	}
+}
@@ -0,0 +1,270 @@
+package networking.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class maps types to compact, hand-written binary codecs.
+ * <p>
+ * Every object is written as a short type tag, followed by whatever its codec
+ * writes. Strings, integers, byte arrays and lists are supported out of the
+ * box. Objects of any other type are written with Java serialization, through
+ * an ObjectOutputStream that is created for that object alone: unlike a
+ * long-lived stream, it does not keep a reference to every object it has ever
+ * written.
+ * <p>
+ * Codecs are looked up by exact class, and should be registered before the
+ * registry is shared between connections.
+ *
+ * @author Elliott Bolzan
+ * @see ObjectCodec,BinarySerializer,BinaryUnserializer
+ */
+public class CodecRegistry {
+	/**
+	 * Tags below this value are reserved for the built-in codecs.
+	 */
+	public static final int FIRST_USER_TAG = 16;
+	private static final short NULL = 0;
+	private static final short JAVA = 1;
+	private static final short STRING = 2;
+	private static final short INTEGER = 3;
+	private static final short BYTES = 4;
+	private static final short LIST = 5;
+	private static final int MAX_LENGTH = 1 << 26;
+	private final Map<Class<?>, Short> tags;
+	private final Map<Short, ObjectCodec<?>> codecs;
+
+	/**
+	 * Creates a registry holding only the built-in codecs.
+	 */
+	public CodecRegistry() {
+		tags = new ConcurrentHashMap<>();
+		codecs = new ConcurrentHashMap<>();
+		addCodec(STRING, String.class, new ObjectCodec<String>() {
+			@Override
+			public void write(String obj, DataOutput out, CodecRegistry registry) throws IOException {
+				writeString(out, obj);
+			}
+
+			@Override
+			public String read(DataInput in, CodecRegistry registry) throws IOException {
+				return readString(in);
+			}
+		});
+		addCodec(INTEGER, Integer.class, new ObjectCodec<Integer>() {
+			@Override
+			public void write(Integer obj, DataOutput out, CodecRegistry registry) throws IOException {
+				out.writeInt(obj);
+			}
+
+			@Override
+			public Integer read(DataInput in, CodecRegistry registry) throws IOException {
+				return in.readInt();
+			}
+		});
+		addCodec(BYTES, byte[].class, new ObjectCodec<byte[]>() {
+			@Override
+			public void write(byte[] obj, DataOutput out, CodecRegistry registry) throws IOException {
+				writeBytes(out, obj);
+			}
+
+			@Override
+			public byte[] read(DataInput in, CodecRegistry registry) throws IOException {
+				return readBytes(in);
+			}
+		});
+		addCodec(LIST, ArrayList.class, new ObjectCodec<ArrayList<Object>>() {
+			@Override
+			public void write(ArrayList<Object> obj, DataOutput out, CodecRegistry registry) throws IOException {
+				out.writeInt(obj.size());
+				for (Object element : obj) {
+					registry.writeObject(element, out);
+				}
+			}
+
+			@Override
+			public ArrayList<Object> read(DataInput in, CodecRegistry registry) throws IOException {
+				int size = readLength(in);
+				ArrayList<Object> list = new ArrayList<Object>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(registry.readObject(in));
+				}
+				return list;
+			}
+		});
+	}
+
+	/**
+	 * Registers a codec for a type.
+	 *
+	 * @param tag
+	 *            Tag written before every object of this type; must be at
+	 *            least FIRST_USER_TAG and unique within this registry
+	 * @param type
+	 *            Exact class of the objects that the codec writes
+	 * @param codec
+	 *            Codec for the type
+	 * @return Returns this registry
+	 */
+	public <T> CodecRegistry register(int tag, Class<T> type, ObjectCodec<T> codec) {
+		if (tag < FIRST_USER_TAG || tag > Short.MAX_VALUE || codecs.containsKey((short) tag)) {
+			throw new IllegalArgumentException("Invalid or duplicate codec tag: " + tag);
+		}
+		addCodec((short) tag, type, codec);
+		return this;
+	}
+
+	private void addCodec(short tag, Class<?> type, ObjectCodec<?> codec) {
+		tags.put(type, tag);
+		codecs.put(tag, codec);
+	}
+
+	/**
+	 * Writes an object, preceded by its type tag.
+	 *
+	 * @param obj
+	 *            Object to be written, or null
+	 * @param out
+	 *            Stream to write to
+	 * @throws IOException
+	 *             Thrown if the object cannot be written
+	 */
+	@SuppressWarnings("unchecked")
+	public void writeObject(Object obj, DataOutput out) throws IOException {
+		if (obj == null) {
+			out.writeShort(NULL);
+			return;
+		}
+		Short tag = tags.get(obj.getClass());
+		if (tag == null) {
+			out.writeShort(JAVA);
+			writeBytes(out, javaSerialize(obj));
+			return;
+		}
+		out.writeShort(tag);
+		((ObjectCodec<Object>) codecs.get(tag)).write(obj, out, this);
+	}
+
+	/**
+	 * Reads an object written by writeObject.
+	 *
+	 * @param in
+	 *            Stream to read from
+	 * @return Returns the object, or null
+	 * @throws IOException
+	 *             Thrown if the object cannot be read
+	 */
+	public Object readObject(DataInput in) throws IOException {
+		short tag = in.readShort();
+		if (tag == NULL) {
+			return null;
+		} else if (tag == JAVA) {
+			return javaUnserialize(readBytes(in));
+		}
+		ObjectCodec<?> codec = codecs.get(tag);
+		if (codec == null) {
+			throw new StreamCorruptedException("Unknown type tag: " + tag);
+		}
+		return codec.read(in, this);
+	}
+
+	/**
+	 * @param obj
+	 *            Object to be encoded
+	 * @return Returns the object, encoded by writeObject
+	 * @throws IOException
+	 *             Thrown if the object cannot be written
+	 */
+	public byte[] encode(Object obj) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		writeObject(obj, new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param bytes
+	 *            Bytes produced by encode
+	 * @return Returns the decoded object
+	 * @throws IOException
+	 *             Thrown if the object cannot be read
+	 */
+	public Object decode(byte[] bytes) throws IOException {
+		return readObject(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	/**
+	 * Writes a string of any length as UTF-8. Unlike DataOutput.writeUTF, it is
+	 * not limited to 64 KB, and accepts null.
+	 */
+	public static void writeString(DataOutput out, String string) throws IOException {
+		writeBytes(out, string == null ? null : string.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads a string written by writeString.
+	 */
+	public static String readString(DataInput in) throws IOException {
+		byte[] bytes = readBytes(in);
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+		if (bytes == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length == -1) {
+			return null;
+		}
+		byte[] bytes = new byte[checkLength(length)];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private static int readLength(DataInput in) throws IOException {
+		return checkLength(in.readInt());
+	}
+
+	private static int checkLength(int length) throws IOException {
+		if (length < 0 || length > MAX_LENGTH) {
+			throw new StreamCorruptedException("Invalid length: " + length);
+		}
+		return length;
+	}
+
+	private static byte[] javaSerialize(Object obj) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(obj);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object javaUnserialize(byte[] bytes) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new InvalidClassException(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package networking.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This interface writes objects of one type to a binary stream, and reads them
+ * back.
+ * <p>
+ * Codecs are registered with a CodecRegistry under a type tag. The registry is
+ * passed to every call, so that a codec can write and read nested objects
+ * (for instance, the elements of a list) through the registry.
+ *
+ * @param <T>
+ *            The type of object that this codec writes and reads.
+ * @author Elliott Bolzan
+ * @see CodecRegistry
+ */
+public interface ObjectCodec<T> {
+
+	/**
+	 * @param obj
+	 *            Object to be written
+	 * @param out
+	 *            Stream to write the object to
+	 * @param registry
+	 *            Registry used to write nested objects
+	 * @throws IOException
+	 *             Thrown if the object cannot be written
+	 */
+	void write(T obj, DataOutput out, CodecRegistry registry) throws IOException;
+
+	/**
+	 * @param in
+	 *            Stream to read the object from
+	 * @param registry
+	 *            Registry used to read nested objects
+	 * @return Returns the object that was read
+	 * @throws IOException
+	 *             Thrown if the object cannot be read
+	 */
+	T read(DataInput in, CodecRegistry registry) throws IOException;
+}
@@ -0,0 +1,340 @@
+package networking.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * This class keeps assets, such as images and songs, in a local directory,
+ * under the SHA-256 hash of their contents.
+ * <p>
+ * Since an asset's name is its hash, an asset is stored once however many
+ * entities, levels or projects refer to it, and two hosts that hold the same
+ * hash hold the same bytes. Hosts exchange hashes, and transfer only the assets
+ * the other host is missing.
+ * <p>
+ * An asset being received is written to a partial file next to the cache, and
+ * moved into place once all of its bytes have arrived and match its hash. The
+ * partial file outlives the connection, so an interrupted transfer resumes
+ * where it stopped.
+ * <p>
+ * The default store lives in the user's home directory, and is shared by every
+ * session run by that user.
+ *
+ * @author Elliott Bolzan
+ * @see AssetTransfer,networking.net.requests.AssetRequest
+ */
+public class AssetStore {
+	public static final String ALGORITHM = "SHA-256";
+	public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".voogasalad", "assets");
+	private static final String PARTIAL = ".part";
+	private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+	private static AssetStore defaultStore;
+	private final Path directory;
+	private final Map<Path, Hashed> hashed;
+
+	/**
+	 * @param directory
+	 *            Directory holding the assets, created when the first asset is
+	 *            written
+	 */
+	public AssetStore(Path directory) {
+		this.directory = directory;
+		this.hashed = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return Returns the store kept in DEFAULT_DIRECTORY
+	 */
+	public static synchronized AssetStore getDefault() {
+		if (defaultStore == null) {
+			defaultStore = new AssetStore(DEFAULT_DIRECTORY);
+		}
+		return defaultStore;
+	}
+
+	/**
+	 * @param hash
+	 *            String received from a remote host
+	 * @return Returns true if the string is a well-formed hash, which can
+	 *         safely be used as a file name
+	 */
+	public static boolean isHash(String hash) {
+		return hash != null && HASH.matcher(hash).matches();
+	}
+
+	/**
+	 * Adds an asset to the store, unless it is already there. Local files are
+	 * only hashed again once they change.
+	 *
+	 * @param location
+	 *            URL of the asset, as stored in an entity, or path to a local
+	 *            file
+	 * @return Returns the hash of the asset
+	 * @throws IOException
+	 *             Thrown if the asset cannot be read or stored
+	 */
+	public String put(String location) throws IOException {
+		Path file = toFile(location);
+		if (file == null) {
+			try (InputStream in = new URI(location).toURL().openStream()) {
+				return put(in);
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				throw new IOException(e);
+			}
+		}
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		long size = Files.size(file);
+		Hashed known = hashed.get(file);
+		if (known != null && known.modified == modified && known.size == size && contains(known.hash)) {
+			return known.hash;
+		}
+		String hash;
+		try (InputStream in = Files.newInputStream(file)) {
+			hash = put(in);
+		}
+		hashed.put(file, new Hashed(hash, modified, size));
+		return hash;
+	}
+
+	/**
+	 * Adds an asset to the store, unless it is already there.
+	 *
+	 * @param in
+	 *            Stream holding the asset, which is read to the end but not
+	 *            closed
+	 * @return Returns the hash of the asset
+	 * @throws IOException
+	 *             Thrown if the asset cannot be read or stored
+	 */
+	public String put(InputStream in) throws IOException {
+		Files.createDirectories(directory);
+		Path temporary = Files.createTempFile(directory, "asset", ".tmp");
+		try {
+			MessageDigest digest = newDigest();
+			try (OutputStream out = Files.newOutputStream(temporary)) {
+				copy(new DigestInputStream(in, digest), out);
+			}
+			String hash = toHex(digest.digest());
+			if (!contains(hash)) {
+				Files.move(temporary, getPath(hash), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return hash;
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * @param hash
+	 *            Hash of an asset
+	 * @return Returns true if the whole asset is in the store
+	 */
+	public boolean contains(String hash) {
+		return isHash(hash) && Files.isRegularFile(getPath(hash));
+	}
+
+	/**
+	 * @param hash
+	 *            Hash of an asset
+	 * @return Returns the path the asset is stored at, whether or not it has
+	 *         arrived yet
+	 */
+	public Path getPath(String hash) {
+		if (!isHash(hash)) {
+			throw new IllegalArgumentException("Invalid asset hash: " + hash);
+		}
+		return directory.resolve(hash);
+	}
+
+	/**
+	 * @param hash
+	 *            Hash of an asset
+	 * @return Returns the URL the asset is stored at, in the form that entities
+	 *         store their image paths in
+	 */
+	public String getURL(String hash) {
+		return getPath(hash).toUri().toString();
+	}
+
+	/**
+	 * @param hash
+	 *            Hash of an asset
+	 * @return Returns the length of the asset, or -1 if it is not in the
+	 *         store
+	 */
+	public long getLength(String hash) {
+		try {
+			return contains(hash) ? Files.size(getPath(hash)) : -1;
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @param hash
+	 *            Hash of an asset
+	 * @return Returns the number of bytes of the asset received so far
+	 */
+	public long getPartialLength(String hash) {
+		try {
+			Path partial = getPartialPath(hash);
+			return Files.isRegularFile(partial) ? Files.size(partial) : 0;
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Appends bytes to an asset being received. Bytes that do not start where
+	 * the partial asset ends are ignored. Once all of the asset's bytes have
+	 * arrived, the asset is checked against its hash, and moved into the store.
+	 *
+	 * @param hash
+	 *            Hash of the asset
+	 * @param offset
+	 *            Offset of the first byte in the asset
+	 * @param length
+	 *            Length of the whole asset
+	 * @param data
+	 *            Bytes to be appended
+	 * @return Returns the number of bytes of the asset now held
+	 * @throws IOException
+	 *             Thrown if the bytes cannot be written, or if the asset does
+	 *             not match its hash, in which case its bytes are dropped
+	 */
+	public synchronized long append(String hash, long offset, long length, byte[] data) throws IOException {
+		if (contains(hash)) {
+			return getLength(hash);
+		}
+		Path partial = getPartialPath(hash);
+		long held = getPartialLength(hash);
+		if (offset != held) {
+			return held;
+		}
+		if (held + data.length > length) {
+			Files.deleteIfExists(partial);
+			throw new IOException("Asset longer than announced: " + hash);
+		}
+		Files.createDirectories(directory);
+		try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND)) {
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		held += data.length;
+		if (held == length) {
+			String actual;
+			try (InputStream in = Files.newInputStream(partial)) {
+				MessageDigest digest = newDigest();
+				copy(new DigestInputStream(in, digest), null);
+				actual = toHex(digest.digest());
+			}
+			if (!actual.equals(hash)) {
+				Files.deleteIfExists(partial);
+				throw new IOException("Asset does not match its hash: " + hash);
+			}
+			Files.move(partial, getPath(hash), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return held;
+	}
+
+	/**
+	 * @param hash
+	 *            Hash of an asset in the store
+	 * @param offset
+	 *            Offset of the first byte to be read
+	 * @param length
+	 *            Maximum number of bytes to be read
+	 * @return Returns the bytes read
+	 * @throws IOException
+	 *             Thrown if the asset cannot be read
+	 */
+	public byte[] read(String hash, long offset, int length) throws IOException {
+		try (FileChannel channel = FileChannel.open(getPath(hash), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, channel.size() - offset)));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, offset + buffer.position()) < 0) {
+					break;
+				}
+			}
+			return buffer.array();
+		}
+	}
+
+	private Path getPartialPath(String hash) {
+		return directory.resolve(getPath(hash).getFileName() + PARTIAL);
+	}
+
+	private static Path toFile(String location) {
+		try {
+			URI uri = new URI(location);
+			if ("file".equals(uri.getScheme())) {
+				return Paths.get(uri.isOpaque() ? new File(uri.getSchemeSpecificPart()).toURI() : uri);
+			} else if (uri.getScheme() != null && uri.getScheme().length() > 1) {
+				return null;
+			}
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			if (location.startsWith("file:")) {
+				return Paths.get(location.substring("file:".length()));
+			}
+		}
+		return Paths.get(location);
+	}
+
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[1 << 13];
+		int read;
+		while ((read = in.read(buffer)) >= 0) {
+			if (out != null) {
+				out.write(buffer, 0, read);
+			}
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	private static class Hashed {
+		private final String hash;
+		private final long modified;
+		private final long size;
+
+		private Hashed(String hash, long modified, long size) {
+			this.hash = hash;
+			this.modified = modified;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package networking.net;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import networking.net.requests.AssetChunkRequest;
+import networking.net.requests.AssetOfferRequest;
+import networking.net.requests.AssetRequest;
+import networking.net.requests.AssetWantRequest;
+import networking.net.requests.Request;
+
+/**
+ * This class moves assets between the AssetStores of two hosts, on behalf of
+ * an ObservableClient or a NioObservableServer.
+ * <p>
+ * Transfers are pulled by the receiver: it asks for an asset from the number
+ * of bytes it already holds, and the sender answers with one window of chunks.
+ * Once the window has arrived, the receiver asks for the next one. This keeps
+ * the bytes queued on a connection bounded, and lets a transfer resume from
+ * its partial file after a disconnection. Only a few assets are received at
+ * once; the others wait their turn.
+ * <p>
+ * A client offers the assets it is about to refer to, and the server asks for
+ * those it does not have. A client that needs an asset asks the server for
+ * it; if the server is still receiving the asset, the request waits until the
+ * asset is complete. A transfer that makes no progress for TIMEOUT_SECONDS is
+ * abandoned, so that a later offer or request can start it again.
+ *
+ * @author Elliott Bolzan
+ * @see AssetStore,networking.net.requests.AssetRequest
+ */
+class AssetTransfer {
+	static final int CHUNK_LENGTH = RequestCodec.CHUNK_SIZE - 256;
+	static final int WINDOW = 64 * CHUNK_LENGTH;
+	static final int MAX_ACTIVE = 4;
+	static final long TIMEOUT_SECONDS = 15;
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "AssetTransfer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final AssetStore store;
+	private final Map<String, Download> downloads;
+	private final Map<String, List<Waiter>> waiting;
+	private final ScheduledFuture<?> expiry;
+
+	/**
+	 * @param store
+	 *            Store that assets are read from and written to
+	 */
+	AssetTransfer(AssetStore store) {
+		this.store = store;
+		this.downloads = new LinkedHashMap<>();
+		this.waiting = new HashMap<>();
+		this.expiry = TIMER.scheduleWithFixedDelay(this::expire, 1, 1, TimeUnit.SECONDS);
+	}
+
+	AssetStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Tells the remote host which assets are about to be referred to, so that
+	 * it can ask for those it does not have.
+	 *
+	 * @param hashes
+	 *            Hashes of the assets, which should be in the store
+	 * @param sender
+	 *            Sends a request to the remote host
+	 */
+	void offer(Collection<String> hashes, Consumer<? super Request> sender) {
+		List<String> held = hashes.stream().filter(store::contains).distinct().collect(Collectors.toList());
+		if (!held.isEmpty()) {
+			sender.accept(new AssetOfferRequest(held));
+		}
+	}
+
+	/**
+	 * Asks the remote host for the assets missing from the store.
+	 *
+	 * @param hashes
+	 *            Hashes of the assets needed
+	 * @param sender
+	 *            Sends a request to the remote host
+	 * @return Returns a future that completes once every asset is in the
+	 *         store, or completes exceptionally if one of them could not be
+	 *         received
+	 */
+	synchronized CompletableFuture<Void> fetch(Collection<String> hashes, Consumer<? super Request> sender) {
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (String hash : hashes) {
+			if (AssetStore.isHash(hash) && !store.contains(hash)) {
+				futures.add(download(hash, sender).future);
+			}
+		}
+		startQueued();
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+	/**
+	 * Handles an asset request received from the remote host.
+	 *
+	 * @param request
+	 *            Request received
+	 * @param reply
+	 *            Sends a request back to the remote host
+	 */
+	synchronized void handle(AssetRequest request, Consumer<? super Request> reply) {
+		if (request instanceof AssetOfferRequest) {
+			for (String hash : ((AssetOfferRequest) request).getHashes()) {
+				if (AssetStore.isHash(hash) && !store.contains(hash)) {
+					download(hash, reply);
+				}
+			}
+			startQueued();
+		} else if (request instanceof AssetWantRequest) {
+			AssetWantRequest want = (AssetWantRequest) request;
+			if (store.contains(want.getHash())) {
+				serve(want.getHash(), want.getOffset(), reply);
+			} else if (AssetStore.isHash(want.getHash())) {
+				waiting.computeIfAbsent(want.getHash(), hash -> new ArrayList<>())
+						.add(new Waiter(want.getOffset(), reply));
+			}
+		} else if (request instanceof AssetChunkRequest) {
+			receive((AssetChunkRequest) request, reply);
+		}
+	}
+
+	/**
+	 * Abandons every transfer in progress. Partial assets are kept, so that
+	 * their transfers can be resumed later.
+	 */
+	synchronized void close() {
+		expiry.cancel(false);
+		downloads.values().forEach(download -> download.future.completeExceptionally(new IOException("Closed")));
+		downloads.clear();
+		waiting.clear();
+	}
+
+	private Download download(String hash, Consumer<? super Request> sender) {
+		Download download = downloads.get(hash);
+		if (download == null) {
+			download = new Download();
+			downloads.put(hash, download);
+		}
+		if (!download.active) {
+			download.sender = sender;
+		}
+		return download;
+	}
+
+	private void startQueued() {
+		long active = downloads.values().stream().filter(download -> download.active).count();
+		for (Map.Entry<String, Download> entry : downloads.entrySet()) {
+			if (active >= MAX_ACTIVE) {
+				return;
+			}
+			if (!entry.getValue().active) {
+				entry.getValue().active = true;
+				want(entry.getKey(), entry.getValue());
+				active++;
+			}
+		}
+	}
+
+	private void want(String hash, Download download) {
+		download.offset = store.getPartialLength(hash);
+		download.held = download.offset;
+		download.progress = System.nanoTime();
+		download.sender.accept(new AssetWantRequest(hash, download.offset));
+	}
+
+	private void serve(String hash, long offset, Consumer<? super Request> reply) {
+		long length = store.getLength(hash);
+		if (offset < 0 || offset > length) {
+			return;
+		}
+		long end = Math.min(offset + WINDOW, length);
+		long position = offset;
+		try {
+			byte[] data;
+			do {
+				data = store.read(hash, position, (int) Math.min(CHUNK_LENGTH, end - position));
+				reply.accept(new AssetChunkRequest(hash, position, length, data));
+				position += data.length;
+			} while (position < end && data.length > 0);
+		} catch (IOException e) {
+		}
+	}
+
+	private void receive(AssetChunkRequest chunk, Consumer<? super Request> reply) {
+		String hash = chunk.getHash();
+		Download download = downloads.get(hash);
+		if (download == null || !download.active) {
+			return;
+		}
+		long held;
+		try {
+			held = store.append(hash, chunk.getOffset(), chunk.getLength(), chunk.getData());
+		} catch (IOException e) {
+			finish(hash, e);
+			return;
+		}
+		if (held == chunk.getLength()) {
+			finish(hash, null);
+			return;
+		}
+		if (held > download.held) {
+			download.held = held;
+			download.progress = System.nanoTime();
+		}
+		boolean windowDone = held >= Math.min(download.offset + WINDOW, chunk.getLength());
+		boolean missedBytes = chunk.getOffset() > held && held != download.offset;
+		if (windowDone || missedBytes) {
+			download.sender = reply;
+			want(hash, download);
+		}
+	}
+
+	private void finish(String hash, IOException failure) {
+		Download download = downloads.remove(hash);
+		if (failure == null) {
+			download.future.complete(null);
+			List<Waiter> waiters = waiting.remove(hash);
+			if (waiters != null) {
+				waiters.forEach(waiter -> serve(hash, waiter.offset, waiter.reply));
+			}
+		} else {
+			download.future.completeExceptionally(failure);
+		}
+		startQueued();
+	}
+
+	private synchronized void expire() {
+		long deadline = System.nanoTime() - TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+		boolean expired = false;
+		for (Iterator<Download> iterator = downloads.values().iterator(); iterator.hasNext();) {
+			Download download = iterator.next();
+			if (download.active && download.progress < deadline) {
+				iterator.remove();
+				download.future.completeExceptionally(new IOException("Asset transfer timed out"));
+				expired = true;
+			}
+		}
+		if (expired) {
+			startQueued();
+		}
+	}
+
+	private static class Download {
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+		private Consumer<? super Request> sender;
+		private boolean active;
+		private long offset;
+		private long held;
+		private long progress;
+	}
+
+	private static class Waiter {
+		private final long offset;
+		private final Consumer<? super Request> reply;
+
+		private Waiter(long offset, Consumer<? super Request> reply) {
+			this.offset = offset;
+			this.reply = reply;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package networking.net;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class keeps the most recent modifiers committed by a server, keyed by
+ * the commit index they were committed at.
+ * <p>
+ * A client that falls behind, or reconnects, can then be sent only the
+ * modifiers it missed. Once the modifiers it needs have been evicted, or if
+ * the state was replaced as a whole since, the client needs the full state
+ * instead.
+ *
+ * @param <T>
+ *            The type of variable used to represent networked shared state.
+ * @author Elliott Bolzan
+ * @see ObservableServer,NioObservableServer
+ */
+public class CommitLog<T> {
+	public static final int DEFAULT_CAPACITY = 4096;
+	private final List<Modifier<T>> entries;
+	private int latest;
+	private int size;
+
+	/**
+	 * @param capacity
+	 *            Number of modifiers to keep
+	 */
+	public CommitLog(int capacity) {
+		this.entries = new ArrayList<>(Collections.nCopies(capacity, null));
+	}
+
+	/**
+	 * Records a committed modifier. If the commit index does not follow the
+	 * previous one, the earlier modifiers are forgotten.
+	 *
+	 * @param commitIndex
+	 *            Commit index the modifier was committed at
+	 * @param modifier
+	 *            The modifier
+	 */
+	public synchronized void append(int commitIndex, Modifier<T> modifier) {
+		if (commitIndex != latest + 1) {
+			reset(commitIndex - 1);
+		}
+		entries.set(slot(commitIndex), modifier);
+		latest = commitIndex;
+		size = Math.min(size + 1, entries.size());
+	}
+
+	/**
+	 * Forgets every modifier, for instance because the state was replaced as
+	 * a whole at this commit index.
+	 *
+	 * @param commitIndex
+	 *            The latest commit index
+	 */
+	public synchronized void reset(int commitIndex) {
+		Collections.fill(entries, null);
+		latest = commitIndex;
+		size = 0;
+	}
+
+	/**
+	 * @param commitIndex
+	 *            Commit index a client has reached
+	 * @return Returns true if this log holds every modifier committed after
+	 *         this commit index
+	 */
+	public synchronized boolean covers(int commitIndex) {
+		return commitIndex <= latest && commitIndex >= latest - size;
+	}
+
+	/**
+	 * @param expectedCommitIndex
+	 *            Commit index a client expected its modifier to be committed
+	 *            at
+	 * @return Returns true if the modifier can be committed now: either
+	 *         nothing was committed since the client tagged it, or this log
+	 *         holds everything committed since, which the client will be sent
+	 *         before the modifier
+	 */
+	public synchronized boolean canRebase(int expectedCommitIndex) {
+		return expectedCommitIndex > latest || covers(expectedCommitIndex - 1);
+	}
+
+	/**
+	 * @param commitIndex
+	 *            Commit index a client has reached
+	 * @return Returns the modifiers committed after this commit index, in
+	 *         order, or null if some of them are no longer in the log
+	 */
+	public synchronized List<Modifier<T>> since(int commitIndex) {
+		if (!covers(commitIndex)) {
+			return null;
+		}
+		List<Modifier<T>> modifiers = new ArrayList<>(latest - commitIndex);
+		for (int index = commitIndex + 1; index <= latest; index++) {
+			modifiers.add(entries.get(slot(index)));
+		}
+		return modifiers;
+	}
+
+	private int slot(int commitIndex) {
+		return Math.floorMod(commitIndex, entries.size());
+	}
+}
@@ -0,0 +1,33 @@
+package networking.net;
+
+import networking.net.requests.Request;
+
+/**
+ * This interface represents a connection to a single remote host, over which
+ * requests can be sent.
+ *
+ * @author Elliott Bolzan
+ * @see SocketConnection,NioObservableServer
+ */
+public interface Connection {
+
+	/**
+	 * Sends a request to the remote host
+	 *
+	 * @param request
+	 *            Request to be sent
+	 * @return Returns true if the request was sent (or queued to be sent)
+	 *         successfully
+	 */
+	boolean send(Request request);
+
+	/**
+	 * @return Returns true if this connection is currently active
+	 */
+	boolean isActive();
+
+	/**
+	 * Closes the connection
+	 */
+	void shutDown();
+}
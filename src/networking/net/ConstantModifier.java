@@ -0,0 +1,38 @@
+package networking.net;
+
+/**
+ * This modifier replaces the state with a fixed value.
+ * <p>
+ * Unlike an equivalent lambda expression, its value is visible to the
+ * RequestCodec, which can therefore encode it with the value's own codec
+ * instead of Java serialization.
+ *
+ * @param <T>
+ *            The type of variable used to represent networked shared state.
+ * @author Elliott Bolzan
+ * @see Modifier,RequestCodec
+ */
+public class ConstantModifier<T> implements Modifier<T> {
+	private static final long serialVersionUID = -3051986718250474826L;
+	private final T value;
+
+	/**
+	 * @param value
+	 *            The new state
+	 */
+	public ConstantModifier(T value) {
+		this.value = value;
+	}
+
+	@Override
+	public T doModify(T state) {
+		return value;
+	}
+
+	/**
+	 * @return Returns the new state
+	 */
+	public T getValue() {
+		return value;
+	}
+}
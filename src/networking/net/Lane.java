@@ -0,0 +1,51 @@
+package networking.net;
+
+/**
+ * This enum lists the logical channels that share a connection, from the
+ * highest priority to the lowest.
+ * <p>
+ * Whenever a connection can write, it writes the next chunk of the highest
+ * priority lane that has one. Frames larger than RequestCodec.CHUNK_SIZE are
+ * split into chunks, so that a large payload does not hold back the frames
+ * queued after it on other lanes.
+ * <p>
+ * Modifiers sent on an ordered lane must be applied in commit order, so a
+ * client holds those that arrive early until the ones before them have been
+ * applied. Modifiers sent on the chat lane must not depend on the state they
+ * are applied to: a client applies them as soon as they arrive.
+ *
+ * @author Elliott Bolzan
+ * @see LaneScheduler,RequestCodec
+ */
+public enum Lane {
+	/**
+	 * Heartbeats, errors, acknowledgements, and requests for assets
+	 */
+	CONTROL(false),
+	/**
+	 * Modifiers that edit the shared state
+	 */
+	EDIT(true),
+	/**
+	 * Modifiers that do not depend on the shared state, such as chat messages
+	 */
+	CHAT(false),
+	/**
+	 * Large payloads, such as full states and the chunks of assets
+	 */
+	BULK(true);
+
+	private final boolean ordered;
+
+	private Lane(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	/**
+	 * @return Returns true if the modifiers sent on this lane must be applied
+	 *         in commit order
+	 */
+	public boolean isOrdered() {
+		return ordered;
+	}
+}
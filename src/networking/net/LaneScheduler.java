@@ -0,0 +1,258 @@
+package networking.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * This class queues the frames waiting to be written to one connection, on
+ * their lanes, and hands out their chunks by priority.
+ * <p>
+ * The next chunk always comes from the highest priority lane that has one, so
+ * a heartbeat or an edit queued behind a large payload is written after the
+ * payload's current chunk, rather than after the whole payload. Chunks of a
+ * single frame are always handed out in order, one frame per lane at a time.
+ * <p>
+ * A host that applies requests in the order they arrive, such as a server,
+ * needs frames on ordered lanes to arrive in the order they were queued. In
+ * that case, a frame on an ordered lane is held until the frames queued before
+ * it on other ordered lanes have been handed out.
+ * <p>
+ * Since frames can overtake each other, a heartbeat must not report a commit
+ * index that has not been written yet: getWrittenCommitIndex gives the latest
+ * commit index that it can report.
+ * <p>
+ * For each lane, the scheduler measures how long frames waited between being
+ * queued and having their last chunk handed out.
+ *
+ * @author Elliott Bolzan
+ * @see Lane,RequestCodec,SocketConnection,NioObservableServer
+ */
+public class LaneScheduler {
+	private static final Lane[] LANES = Lane.values();
+	private final String name;
+	private final boolean keepOrder;
+	private final List<Deque<Pending>> lanes;
+	private final long[] frames;
+	private final long[] bytes;
+	private final long[] totalWaitNanos;
+	private final long[] maxWaitNanos;
+	private long pendingBytes;
+	private long sequence;
+
+	/**
+	 * @param name
+	 *            Name reported in this scheduler's metrics
+	 * @param keepOrder
+	 *            True if frames on ordered lanes must be handed out in the
+	 *            order they were queued
+	 */
+	public LaneScheduler(String name, boolean keepOrder) {
+		this.name = name;
+		this.keepOrder = keepOrder;
+		this.lanes = new ArrayList<>(LANES.length);
+		for (int i = 0; i < LANES.length; i++) {
+			lanes.add(new ArrayDeque<>());
+		}
+		this.frames = new long[LANES.length];
+		this.bytes = new long[LANES.length];
+		this.totalWaitNanos = new long[LANES.length];
+		this.maxWaitNanos = new long[LANES.length];
+	}
+
+	/**
+	 * Queues a frame on its lane.
+	 *
+	 * @param frame
+	 *            Frame to be written
+	 */
+	public synchronized void offer(RequestCodec.Frame frame) {
+		lanes.get(frame.getLane().ordinal()).add(new Pending(sequence++, frame));
+		pendingBytes += frame.getLength();
+	}
+
+	/**
+	 * @return Returns the next chunk to be written, or null if no chunk can be
+	 *         written yet
+	 */
+	public synchronized ByteBuffer poll() {
+		for (Lane lane : LANES) {
+			Deque<Pending> queue = lanes.get(lane.ordinal());
+			Pending head = queue.peek();
+			if (head == null || (keepOrder && lane.isOrdered() && waitsForEarlierFrame(head, lane))) {
+				continue;
+			}
+			ByteBuffer chunk = head.chunks.poll();
+			pendingBytes -= chunk.remaining();
+			if (head.chunks.isEmpty()) {
+				queue.poll();
+				long wait = System.nanoTime() - head.enqueued;
+				int index = lane.ordinal();
+				frames[index]++;
+				bytes[index] += head.length;
+				totalWaitNanos[index] += wait;
+				maxWaitNanos[index] = Math.max(maxWaitNanos[index], wait);
+			}
+			return chunk;
+		}
+		return null;
+	}
+
+	private boolean waitsForEarlierFrame(Pending head, Lane lane) {
+		for (Lane other : LANES) {
+			if (other != lane && other.isOrdered()) {
+				Pending otherHead = lanes.get(other.ordinal()).peek();
+				if (otherHead != null && otherHead.sequence < head.sequence) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param latest
+	 *            Commit index of the latest modifier or state sent
+	 * @return Returns the highest commit index at or below latest whose
+	 *         modifier, and every modifier before it, has been handed out
+	 */
+	public synchronized int getWrittenCommitIndex(int latest) {
+		int written = latest;
+		for (Deque<Pending> queue : lanes) {
+			for (Pending pending : queue) {
+				written = Math.min(written, pending.commitIndex - 1);
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * @return Returns true if no frame is waiting to be written
+	 */
+	public synchronized boolean isEmpty() {
+		return lanes.stream().allMatch(Deque::isEmpty);
+	}
+
+	/**
+	 * @return Returns the number of bytes waiting to be handed out
+	 */
+	public synchronized long getPendingBytes() {
+		return pendingBytes;
+	}
+
+	/**
+	 * Drops every frame waiting to be written.
+	 */
+	public synchronized void clear() {
+		lanes.forEach(Deque::clear);
+		pendingBytes = 0;
+	}
+
+	/**
+	 * @return Returns a snapshot of the queue depth and latency of every lane,
+	 *         from the highest priority to the lowest
+	 */
+	public synchronized List<Metrics> getMetrics() {
+		List<Metrics> metrics = new ArrayList<>(LANES.length);
+		for (Lane lane : LANES) {
+			int index = lane.ordinal();
+			double waitMillis = frames[index] == 0 ? 0 : totalWaitNanos[index] / 1e6 / frames[index];
+			metrics.add(new Metrics(name, lane, lanes.get(index).size(), frames[index], bytes[index], waitMillis,
+					maxWaitNanos[index] / 1e6));
+		}
+		return metrics;
+	}
+
+	private static class Pending {
+		private final long sequence;
+		private final long enqueued;
+		private final int commitIndex;
+		private final int length;
+		private final Deque<ByteBuffer> chunks;
+
+		private Pending(long sequence, RequestCodec.Frame frame) {
+			this.sequence = sequence;
+			this.commitIndex = frame.getCommitIndex();
+			this.enqueued = System.nanoTime();
+			this.length = frame.getLength();
+			this.chunks = new ArrayDeque<>(frame.getChunks());
+		}
+	}
+
+	/**
+	 * A snapshot of a lane's queue depth and latency.
+	 *
+	 * @author Elliott Bolzan
+	 */
+	public static class Metrics {
+		private final String name;
+		private final Lane lane;
+		private final int depth;
+		private final long frames;
+		private final long bytes;
+		private final double averageWaitMillis;
+		private final double maxWaitMillis;
+
+		private Metrics(String name, Lane lane, int depth, long frames, long bytes, double averageWaitMillis,
+				double maxWaitMillis) {
+			this.name = name;
+			this.lane = lane;
+			this.depth = depth;
+			this.frames = frames;
+			this.bytes = bytes;
+			this.averageWaitMillis = averageWaitMillis;
+			this.maxWaitMillis = maxWaitMillis;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Lane getLane() {
+			return lane;
+		}
+
+		/**
+		 * @return Returns the number of frames waiting to be written
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * @return Returns the number of frames written
+		 */
+		public long getFrames() {
+			return frames;
+		}
+
+		/**
+		 * @return Returns the number of bytes written, chunk headers included
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return Returns the average time frames waited to be written
+		 */
+		public double getAverageWaitMillis() {
+			return averageWaitMillis;
+		}
+
+		/**
+		 * @return Returns the longest time a frame waited to be written
+		 */
+		public double getMaxWaitMillis() {
+			return maxWaitMillis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s: depth %d, frames %d, bytes %d, wait %.3f ms (max %.3f ms)", name, lane,
+					depth, frames, bytes, averageWaitMillis, maxWaitMillis);
+		}
+	}
+}
@@ -0,0 +1,664 @@
+package networking.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import authoring.networking.ConnectionObserver;
+import networking.io.Serializer;
+import networking.io.Unserializer;
+import networking.net.requests.AcknowledgementRequest;
+import networking.net.requests.AssetRequest;
+import networking.net.requests.HeartbeatRequest;
+import networking.net.requests.ModifierRequest;
+import networking.net.requests.Request;
+
+/**
+ * This class provides a server that allows many simultaneous client
+ * connections, without dedicating threads to any of them.
+ * <p>
+ * Every connection is multiplexed on a single selector thread, which accepts
+ * clients, reads their frames, and writes whatever the connections' outbound
+ * buffers hold once their sockets can take more. Requests are handled in the
+ * order they are received, one at a time, on a single dispatcher thread, so
+ * handlers and validators behave exactly as they do with an ObservableServer.
+ * Each connection queues its requests in a bounded RequestPipeline; while a
+ * connection's pipeline is full, the server stops reading from it.
+ * <p>
+ * Modifiers sent by clients are acknowledged to their sender once they have
+ * been committed, or rejected. A modifier overtaken by other clients'
+ * modifiers is applied after them, unless they have left the CommitLog, in
+ * which case it is rejected as stale. Committed modifiers are kept in a bounded
+ * CommitLog: a client that falls behind is sent only the modifiers it missed,
+ * and the full state only once those have been evicted.
+ * <p>
+ * Sending never blocks: a request is encoded once, and queued on every
+ * connection's LaneScheduler, which writes it by its lane's priority. Large
+ * frames are written in chunks, between the frames of higher priority lanes.
+ * Sockets get a small send buffer, so that frames wait in the scheduler rather
+ * than in the operating system, where they could no longer be overtaken.
+ * Clients put ordered modifiers back in commit order, so they are not held
+ * behind the frames queued before them on other lanes. A connection whose peer
+ * lets more than MAX_PENDING_BYTES pile up is closed.
+ * <p>
+ * Assets are kept out of the committed stream: clients offer the server the
+ * assets they refer to, and fetch those they are missing, window by window,
+ * from the server's AssetStore.
+ *
+ * @param <T>
+ *            The type of variable used to represent networked shared state.
+ * @author Elliott Bolzan
+ * @see ObservableServer,ObservableHost,RequestCodec
+ */
+public class NioObservableServer<T> extends ObservableHost<T> {
+	public static final int MAX_PENDING_BYTES = 1 << 23;
+	private static final int READ_BUFFER_SIZE = 1 << 13;
+	private static final int SEND_BUFFER_SIZE = 1 << 16;
+	private static final long MIN_SELECT_MILLIS = 50;
+	private final long heartBeatIntervalMillis;
+	private final Collection<NioConnection> connections;
+	private final Queue<NioConnection> resumed;
+	private final ServerSocketChannel serverChannel;
+	private final Selector selector;
+	private final ScheduledExecutorService heartBeats;
+	private final ExecutorService dispatcher;
+	private final ConnectionObserver connectionObserver;
+	private final CommitLog<T> commitLog;
+	private AssetTransfer assets;
+
+	/**
+	 * Constructs a server without serialization
+	 *
+	 * @param initialState
+	 *            The initial networked shared state.
+	 * @param port
+	 *            Port to listen on for new client connections
+	 * @throws IOException
+	 *             Thrown if the server channel could not be opened
+	 */
+	@SuppressWarnings("unchecked")
+	public NioObservableServer(T initialState, int port) throws IOException {
+		// The raw NONE serializers pass the state through as it is: only the
+		// types are unchecked, and the state must be Serializable.
+		this(initialState, port, Serializer.NONE, Unserializer.NONE);
+	}
+
+	/**
+	 * Constructs a server
+	 *
+	 * @param initialState
+	 *            The initial networked shared state.
+	 * @param port
+	 *            Port to listen on for new client connections
+	 * @param serializer
+	 *            Converts the state to a Serializable form, so that it can be
+	 *            sent to the client
+	 * @param unserializer
+	 *            Converts the Serializable form of the state back into its
+	 *            original form of type T
+	 * @throws IOException
+	 *             Thrown if the server channel could not be opened
+	 */
+	public NioObservableServer(T initialState, int port, Serializer<? super T> serializer,
+			Unserializer<? extends T> unserializer) throws IOException {
+		this(initialState, port, serializer, unserializer, NEVER_TIMEOUT, null);
+	}
+
+	/**
+	 * Constructs a server
+	 *
+	 * @param initialState
+	 *            The initial networked shared state.
+	 * @param port
+	 *            Port to listen on for new client connections
+	 * @param serializer
+	 *            Converts the state to a Serializable form, so that it can be
+	 *            sent to the client
+	 * @param unserializer
+	 *            Converts the Serializable form of the state back into its
+	 *            original form of type T
+	 * @param timeout
+	 *            Connections that stay silent for longer than this are closed
+	 * @param connectionObserver
+	 *            Notified of every new connection, or null
+	 * @throws IOException
+	 *             Thrown if the server channel could not be opened
+	 */
+	public NioObservableServer(T initialState, int port, Serializer<? super T> serializer,
+			Unserializer<? extends T> unserializer, Duration timeout, ConnectionObserver connectionObserver)
+			throws IOException {
+		super(serializer, unserializer, timeout);
+		setState(initialState);
+		this.connectionObserver = connectionObserver;
+		this.commitLog = new CommitLog<>(CommitLog.DEFAULT_CAPACITY);
+		setRequestValidator(ModifierRequest.class, request -> commitLog.canRebase(request.getCommitIndex()));
+		this.connections = ConcurrentHashMap.newKeySet();
+		this.resumed = new ConcurrentLinkedQueue<>();
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		this.heartBeats = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "HeartBeats"));
+		this.dispatcher = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "Dispatcher"));
+		heartBeatIntervalMillis = getTimeout().toMillis() / 2;
+	}
+
+	private static Thread daemon(Runnable runnable, String name) {
+		Thread thread = new Thread(runnable, "NioObservableServer " + name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Runs the selector loop, until the server is closed.
+	 */
+	@Override
+	public void run() {
+		if (heartBeatIntervalMillis > 0) {
+			heartBeats.scheduleAtFixedRate(this::sendHeartBeat, 0, heartBeatIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+		long selectMillis = getTimeout().isZero() ? 0 : Math.max(MIN_SELECT_MILLIS, getTimeout().toMillis() / 4);
+		try {
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+			while (serverChannel.isOpen()) {
+				selector.select(selectMillis);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					} else if (key.isAcceptable()) {
+						accept();
+					} else {
+						NioObservableServer<?>.NioConnection connection = (NioObservableServer<?>.NioConnection) key
+								.attachment();
+						if (key.isReadable()) {
+							connection.read();
+						}
+						if (key.isValid() && key.isWritable()) {
+							connection.flush();
+						}
+					}
+				}
+				NioConnection connection;
+				while ((connection = resumed.poll()) != null) {
+					connection.resume();
+				}
+				closeIdleConnections();
+			}
+		} catch (ClosedSelectorException e) {
+		} catch (IOException e) {
+			throw new RemoteConnectionException(e);
+		} finally {
+			close();
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_SIZE);
+		NioConnection connection = new NioConnection(channel);
+		connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+		connections.add(connection);
+		System.out.println("\nClient connected:\t" + connection);
+		dispatcher.execute(() -> {
+			if (connectionObserver != null) {
+				connectionObserver.newConnection(connection);
+			}
+			send(connection, getHeartBeatRequest());
+		});
+	}
+
+	private void closeIdleConnections() {
+		if (getTimeout().isZero()) {
+			return;
+		}
+		long deadline = System.nanoTime() - getTimeout().toNanos();
+		connections.stream().filter(connection -> !connection.readPaused && connection.lastActivity < deadline)
+				.forEach(NioConnection::shutDown);
+	}
+
+	private synchronized void sendHeartBeat() {
+		connections.forEach(connection -> send(connection, getHeartBeatRequest()));
+	}
+
+	private void handleRequest(NioConnection connection, Request request) {
+		if (request instanceof HeartbeatRequest) {
+			return;
+		} else if (request instanceof ModifierRequest) {
+			send(connection, new AcknowledgementRequest(request.getCommitIndex(), commit((ModifierRequest<?>) request)));
+		} else if (request instanceof AssetRequest) {
+			getAssets().handle((AssetRequest) request, connection::send);
+		} else if (!handleRequest(request)) {
+			resync(connection, request.getCommitIndex());
+		}
+	}
+
+	/**
+	 * Sends a client the modifiers it is missing, or the full state if they
+	 * are no longer in the commit log.
+	 */
+	private synchronized void resync(NioConnection connection, int commitIndex) {
+		List<Modifier<T>> missing = commitLog.since(commitIndex);
+		if (missing == null) {
+			send(connection, getRequest(getState()));
+			return;
+		}
+		for (Modifier<T> modifier : missing) {
+			connection.send(getRequest(modifier).setCommitIndex(++commitIndex));
+		}
+	}
+
+	private synchronized void send(NioConnection connection, Request request) {
+		connection.send(request.setCommitIndex(getCommitIndex()));
+	}
+
+	/**
+	 * Sets the server's local state, then sends the new state to all clients to
+	 * be applied.
+	 *
+	 * @param newState
+	 *            New state to be applied to the local state and send to all
+	 *            clients.
+	 * @return Returns true if the requests were sent successfully
+	 */
+	public final synchronized boolean sendAndApply(T newState) {
+		setState(newState);
+		incrementCommitIndex();
+		commitLog.reset(getCommitIndex());
+		return send(newState);
+	}
+
+	/**
+	 * Applies a modifier to the server's local state, then sends the modifier
+	 * to all clients to be applied.
+	 *
+	 * @param modifier
+	 *            Request to be applied to the networked state on all clients.
+	 * @return Returns true if the requests were sent successfully
+	 */
+	public final synchronized boolean sendAndApply(Modifier<T> modifier) {
+		setState(modifier.modify(getState()));
+		incrementCommitIndex();
+		commitLog.append(getCommitIndex(), modifier);
+		return send(modifier);
+	}
+
+	/**
+	 * Validates and commits a modifier sent by a client. A modifier tagged
+	 * with a commit index that was since taken by other modifiers is rebased:
+	 * it is applied after them, as long as they are still in the commit log.
+	 *
+	 * @param request
+	 *            Request holding the modifier
+	 * @return Returns COMMITTED if the modifier was committed, REJECTED if it
+	 *         was written against a state older than the commit log, and
+	 *         FAILED if it threw when applied to the current state
+	 */
+	@SuppressWarnings("unchecked")
+	protected synchronized AcknowledgementRequest.Outcome commit(ModifierRequest<?> request) {
+		if (!isValid(request)) {
+			return AcknowledgementRequest.Outcome.REJECTED;
+		}
+		try {
+			sendAndApply(((ModifierRequest<T>) request).get());
+			return AcknowledgementRequest.Outcome.COMMITTED;
+		} catch (Modifier.ModifierException e) {
+			return AcknowledgementRequest.Outcome.FAILED;
+		}
+	}
+
+	/**
+	 * @param commitIndex
+	 *            Commit index a client has reached
+	 * @return Returns true if a client at this commit index can catch up from
+	 *         the commit log, without being sent the full state
+	 */
+	public boolean canResumeFrom(int commitIndex) {
+		return commitLog.covers(commitIndex);
+	}
+
+	@Override
+	protected void handle(T newState) {
+		sendAndApply(newState);
+	}
+
+	@Override
+	protected void handle(Modifier<T> stateModifier) {
+		sendAndApply(stateModifier);
+	}
+
+	@Override
+	protected void handleError(Request request) {
+	}
+
+	/**
+	 * Encodes the request once, and queues it on every connection.
+	 */
+	@Override
+	protected boolean send(Request request) {
+		RequestCodec.Frame frame;
+		try {
+			frame = getRequestCodec().encodeFrames(request.setCommitIndex(getCommitIndex()));
+		} catch (IOException e) {
+			return false;
+		}
+		connections.removeIf(connection -> !connection.enqueue(frame));
+		return isActive();
+	}
+
+	@Override
+	public boolean isActive() {
+		return serverChannel.isOpen() && !connections.isEmpty();
+	}
+
+	/**
+	 * @return Returns the number of clients currently connected
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * @return Returns the queue depth and latency of the requests received on
+	 *         every connection
+	 */
+	public List<RequestPipeline.Metrics> getMetrics() {
+		return connections.stream().map(connection -> connection.pipeline.getMetrics())
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return Returns the queue depth and latency of each lane of every
+	 *         connection
+	 */
+	public List<LaneScheduler.Metrics> getLaneMetrics() {
+		return connections.stream().flatMap(connection -> connection.output.getMetrics().stream())
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Sets the store that clients' assets are kept in, and served from. The
+	 * default AssetStore is used otherwise.
+	 *
+	 * @param store
+	 *            Store holding the assets shared by clients
+	 */
+	public synchronized void setAssetStore(AssetStore store) {
+		if (assets != null) {
+			assets.close();
+		}
+		assets = new AssetTransfer(store);
+	}
+
+	private synchronized AssetTransfer getAssets() {
+		if (assets == null) {
+			assets = new AssetTransfer(AssetStore.getDefault());
+		}
+		return assets;
+	}
+
+	/**
+	 * Closes the server and all of its connections.
+	 */
+	public void close() {
+		try {
+			serverChannel.close();
+		} catch (IOException e) {
+		}
+		connections.forEach(NioConnection::shutDown);
+		heartBeats.shutdown();
+		dispatcher.shutdown();
+		try {
+			selector.close();
+		} catch (IOException e) {
+		}
+		if (assets != null) {
+			assets.close();
+		}
+	}
+
+	/**
+	 * This class holds the state of a single client connection: its channel,
+	 * the frame it is currently reading, and the frames waiting to be written.
+	 *
+	 * @author Elliott Bolzan
+	 */
+	private class NioConnection implements Connection {
+		private final SocketChannel channel;
+		private final LaneScheduler output;
+		private final RequestPipeline pipeline;
+		private final RequestCodec.Assembler assembler;
+		private ByteBuffer input;
+		private ByteBuffer writing;
+		private SelectionKey key;
+		private boolean writeInterest;
+		private boolean readPaused;
+		private Request held;
+		private volatile long lastActivity;
+
+		private NioConnection(SocketChannel channel) {
+			this.channel = channel;
+			this.output = new LaneScheduler(toString(), false);
+			this.assembler = getRequestCodec().newAssembler();
+			this.input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			this.lastActivity = System.nanoTime();
+			this.pipeline = new RequestPipeline(toString(), request -> handleRequest(this, request), dispatcher,
+					RequestPipeline.DEFAULT_CAPACITY);
+			pipeline.setResumeListener(() -> {
+				resumed.add(this);
+				selector.wakeup();
+			});
+			pipeline.setErrorListener(this::fail);
+		}
+
+		/**
+		 * Reads whatever is available, and queues every complete frame. Only
+		 * called by the selector thread.
+		 */
+		private void read() {
+			if (held != null) {
+				return;
+			}
+			try {
+				if (channel.read(input) < 0) {
+					shutDown();
+					return;
+				}
+				lastActivity = System.nanoTime();
+				parse();
+			} catch (IOException | RuntimeException e) {
+				shutDown();
+			}
+		}
+
+		/**
+		 * Queues the request that was refused by the full pipeline, and the
+		 * frames already read, then resumes reading. Only called by the
+		 * selector thread.
+		 */
+		private void resume() {
+			if (held != null && pipeline.offer(held)) {
+				held = null;
+				setReadPaused(false);
+				try {
+					parse();
+				} catch (IOException | RuntimeException e) {
+					shutDown();
+				}
+			}
+		}
+
+		private void parse() throws IOException {
+			input.flip();
+			int needed = READ_BUFFER_SIZE;
+			while (held == null && input.remaining() >= Integer.BYTES) {
+				int length = input.getInt(input.position());
+				if (length <= 0 || length > RequestCodec.MAX_FRAME_LENGTH) {
+					shutDown();
+					return;
+				}
+				if (input.remaining() < Integer.BYTES + length) {
+					needed = Integer.BYTES + length;
+					break;
+				}
+				input.getInt();
+				byte[] body = new byte[length];
+				input.get(body);
+				Request request = assembler.decode(body);
+				if (request != null && !pipeline.offer(request)) {
+					held = request;
+					setReadPaused(true);
+				}
+			}
+			input.compact();
+			if (needed > input.capacity()) {
+				input.flip();
+				input = ByteBuffer.allocate(needed).put(input);
+			} else if (input.position() == 0 && input.capacity() > READ_BUFFER_SIZE) {
+				input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			}
+		}
+
+		/**
+		 * Queues a request. A heartbeat is sent with the latest commit index
+		 * whose modifiers have all been written, so that it does not overtake
+		 * them.
+		 */
+		@Override
+		public boolean send(Request request) {
+			try {
+				if (request instanceof HeartbeatRequest) {
+					request.setCommitIndex(output.getWrittenCommitIndex(request.getCommitIndex()));
+				}
+				return enqueue(getRequestCodec().encodeFrames(request));
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Queues a frame, and writes as much as the socket accepts right away.
+		 *
+		 * @return Returns false if the connection is closed, or if its peer
+		 *         has fallen too far behind
+		 */
+		private boolean enqueue(RequestCodec.Frame frame) {
+			synchronized (output) {
+				if (!isActive()) {
+					return false;
+				}
+				if (output.getPendingBytes() + frame.getLength() > MAX_PENDING_BYTES) {
+					shutDown();
+					return false;
+				}
+				output.offer(frame);
+				if (writing == null) {
+					flush();
+				}
+				return isActive();
+			}
+		}
+
+		/**
+		 * Writes queued chunks, highest priority first, until the socket stops
+		 * accepting bytes.
+		 */
+		private void flush() {
+			synchronized (output) {
+				try {
+					while (writing != null || (writing = output.poll()) != null) {
+						channel.write(writing);
+						if (writing.hasRemaining()) {
+							setWriteInterest(true);
+							return;
+						}
+						writing = null;
+					}
+					setWriteInterest(false);
+				} catch (IOException | CancelledKeyException e) {
+					shutDown();
+				}
+			}
+		}
+
+		private synchronized void setWriteInterest(boolean interested) {
+			if (writeInterest != interested) {
+				writeInterest = interested;
+				updateInterest();
+			}
+		}
+
+		private synchronized void setReadPaused(boolean paused) {
+			if (readPaused != paused) {
+				readPaused = paused;
+				updateInterest();
+			}
+		}
+
+		private void updateInterest() {
+			key.interestOps((readPaused ? 0 : SelectionKey.OP_READ) | (writeInterest ? SelectionKey.OP_WRITE : 0));
+			selector.wakeup();
+		}
+
+		@Override
+		public boolean isActive() {
+			return channel.isOpen();
+		}
+
+		/**
+		 * Closes the connection after a request failed to be handled, since
+		 * the client's view of the state can no longer be trusted.
+		 */
+		private void fail(RuntimeException e) {
+			System.err.println("Failed to handle a request on " + this + ": " + e);
+			shutDown();
+		}
+
+		@Override
+		public void shutDown() {
+			connections.remove(this);
+			if (channel.isOpen()) {
+				System.out.println("Connection closed: " + channel);
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+			}
+			synchronized (output) {
+				output.clear();
+				writing = null;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Connection on " + channel;
+		}
+	}
+}
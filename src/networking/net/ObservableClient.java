@@ -3,11 +3,23 @@ package networking.net;
 import java.io.IOException;
 import java.net.Socket;
 import java.time.Duration;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import networking.io.Serializer;
 import networking.io.Unserializer;
+import networking.net.requests.AcknowledgementRequest;
+import networking.net.requests.AssetRequest;
 import networking.net.requests.HeartbeatRequest;
 import networking.net.requests.ModifierRequest;
 import networking.net.requests.Request;
@@ -17,14 +29,43 @@ import networking.net.requests.Request;
  * <p>
  * The client can request changes to the state, but cannot modify the state directly unless instructed to do so by the server.
  * <p>
+ * Modifiers added to the outbox are sent right away, on a sender thread, without waiting for the server: up to
+ * MAX_IN_FLIGHT of them can be awaiting acknowledgement at once. Each is tagged with the commit index it is expected
+ * to be committed at. The server acknowledges every modifier. A modifier that the server rejected, because it was
+ * written against a state the server no longer has or because the server was busy, is sent again ahead of the
+ * modifiers still in the outbox, once the client has caught up with the server's commit index at the time, and at
+ * most MAX_ATTEMPTS times. A modifier that failed on the server, or that was rejected MAX_ATTEMPTS times, is dropped
+ * and handed to the drop listener, which logs it by default.
+ * <p>
+ * The server sends each lane by priority, so modifiers can arrive out of commit order. Those that arrive early are
+ * held, up to MAX_HELD of them, until the modifiers before them have been applied; those sent on an unordered lane are
+ * applied as soon as they arrive.
+ * <p>
+ * Assets, such as images, are not sent with the modifiers that refer to them. The client offers the server the assets
+ * it refers to, and fetches those it is missing into its AssetStore; transfers resume where they stopped.
  *
  * @param <T> The type of variable used to represent network shared state.
  * @author Created by th174 on 4/1/2017.
  * @see Request,Modifier,ObservableServer,ObservableServer.ServerDelegate,ObservableClient,ObservableHost
  */
 public class ObservableClient<T> extends ObservableHost<T> {
+	public static final int MAX_IN_FLIGHT = 32;
+	public static final int MAX_ATTEMPTS = 3;
+	public static final int MAX_HELD = CommitLog.DEFAULT_CAPACITY;
+	private static final long RESYNC_RETRY_NANOS = 1000000000L;
 	private final SocketConnection connection;
-	private final BlockingQueue<Request> outbox;
+	private final Deque<Outgoing> outbox;
+	private final Deque<Outgoing> inFlight;
+	private final ExecutorService sender;
+	private final TreeMap<Integer, Request> held;
+	private final Set<Integer> appliedEarly;
+	private int nextExpectedCommitIndex;
+	private long rejected;
+	private long dropped;
+	private Consumer<? super Modifier<T>> dropListener;
+	private int resyncRequestedAt;
+	private long resyncRequestedNanos;
+	private AssetTransfer assets;
 
 	/**
 	 * Creates a client connected to a server located at host:port, and starts listening for requests sent from the server
@@ -72,11 +113,19 @@ public class ObservableClient<T> extends ObservableHost<T> {
 	public ObservableClient(String host, int port, Serializer<? super T> serializer, Unserializer<? extends T> unserializer, Duration timeout) throws IOException {
 		super(serializer, unserializer, timeout);
 		setCommitIndex(Integer.MIN_VALUE);
-		this.connection = new SocketConnection(new Socket(host, port), getTimeout());
-		outbox = new LinkedBlockingQueue<>();
+		this.connection = new SocketConnection(new Socket(host, port), getTimeout(), getRequestCodec());
+		outbox = new ArrayDeque<>();
+		inFlight = new ArrayDeque<>();
+		held = new TreeMap<>();
+		appliedEarly = new HashSet<>();
+		sender = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ObservableClient Sender");
+			thread.setDaemon(true);
+			return thread;
+		});
 		setRequestValidator(ModifierRequest.class, request -> request.getCommitIndex() == this.getCommitIndex() + 1);
 		setRequestHandler(HeartbeatRequest.class, request -> handleHeartBeat());
-		setRequestValidator(HeartbeatRequest.class, request -> request.getCommitIndex() == this.getCommitIndex());
+		setRequestValidator(HeartbeatRequest.class, request -> request.getCommitIndex() <= this.getCommitIndex());
 	}
 
 	@Override
@@ -86,15 +135,121 @@ public class ObservableClient<T> extends ObservableHost<T> {
 
 	@Override
 	protected boolean handleRequest(Request request) {
-		if (super.handleRequest(request)) {
-			try {
-				send(outbox.take().setCommitIndex(getCommitIndex()));
-			} catch (InterruptedException e) {
-			}
+		if (request instanceof AcknowledgementRequest) {
+			handleAcknowledgement((AcknowledgementRequest) request);
+		} else if (request instanceof AssetRequest) {
+			getAssets().handle((AssetRequest) request, this::send);
+		} else if (isEarly(request)) {
+			hold(request);
+		} else if (super.handleRequest(request)) {
+			applyHeld();
+			flushOutbox();
 		}
 		return true;
 	}
 
+	private boolean isEarly(Request request) {
+		return request instanceof ModifierRequest && getCommitIndex() != Integer.MIN_VALUE
+				&& request.getCommitIndex() > getCommitIndex() + 1;
+	}
+
+	/**
+	 * Holds a modifier that arrived before the modifiers committed ahead of it. A modifier sent on an unordered lane is
+	 * applied right away; the others wait for their turn. If too many are held, the server is asked to resync.
+	 */
+	@SuppressWarnings("unchecked")
+	private void hold(Request request) {
+		if (held.size() >= MAX_HELD) {
+			handleError(request);
+			return;
+		}
+		if (held.putIfAbsent(request.getCommitIndex(), request) == null && request.getLane() != null
+				&& !request.getLane().isOrdered()) {
+			appliedEarly.add(request.getCommitIndex());
+			handle(((ModifierRequest<T>) request).get());
+		}
+	}
+
+	/**
+	 * Applies the held modifiers that are next in commit order, skipping those that were applied on arrival.
+	 */
+	private void applyHeld() {
+		held.headMap(getCommitIndex(), true).clear();
+		Request next;
+		while ((next = held.remove(getCommitIndex() + 1)) != null) {
+			if (appliedEarly.remove(next.getCommitIndex())) {
+				setCommitIndex(next.getCommitIndex());
+			} else if (!super.handleRequest(next)) {
+				break;
+			}
+		}
+		appliedEarly.removeIf(commitIndex -> commitIndex <= getCommitIndex());
+	}
+
+	/**
+	 * Frees the slot of the modifier in flight that was acknowledged, and sends it again if the server rejected it.
+	 * Modifiers on different lanes can reach the server out of order, so acknowledgements are matched by commit index.
+	 * A modifier that failed on the server would fail again, and is dropped right away.
+	 */
+	private synchronized void handleAcknowledgement(AcknowledgementRequest acknowledgement) {
+		Iterator<Outgoing> iterator = inFlight.iterator();
+		while (iterator.hasNext()) {
+			Outgoing outgoing = iterator.next();
+			if (outgoing.request.getCommitIndex() == acknowledgement.getExpectedCommitIndex()) {
+				iterator.remove();
+				if (!acknowledgement.isAccepted()) {
+					rejected++;
+					if (acknowledgement.getOutcome() == AcknowledgementRequest.Outcome.REJECTED
+							&& outgoing.attempts < MAX_ATTEMPTS) {
+						outgoing.notBefore = acknowledgement.getCommitIndex();
+						outbox.addFirst(outgoing);
+					} else {
+						drop(outgoing.request, acknowledgement.getOutcome());
+					}
+				}
+				flushOutbox();
+				return;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void drop(Request request, AcknowledgementRequest.Outcome outcome) {
+		dropped++;
+		Modifier<T> modifier = ((ModifierRequest<T>) request).get();
+		if (dropListener != null) {
+			dropListener.accept(modifier);
+		} else if (outcome == AcknowledgementRequest.Outcome.FAILED) {
+			System.err.println("ObservableClient: dropped " + modifier + ", which failed on the server");
+		} else {
+			System.err.println("ObservableClient: dropped " + modifier + " after " + MAX_ATTEMPTS + " rejections");
+		}
+	}
+
+	/**
+	 * Sends as many queued requests as the in-flight window allows. Nothing is sent before the client has received the
+	 * server's state, and a rejected modifier is not sent again before the client has caught up with the server.
+	 */
+	private synchronized void flushOutbox() {
+		if (getCommitIndex() == Integer.MIN_VALUE) {
+			return;
+		}
+		nextExpectedCommitIndex = Math.max(nextExpectedCommitIndex, getCommitIndex() + inFlight.size() + 1);
+		while (!outbox.isEmpty() && (inFlight.size() < MAX_IN_FLIGHT || !outbox.peek().isModifier())
+				&& outbox.peek().notBefore <= getCommitIndex()) {
+			Outgoing outgoing = outbox.poll();
+			if (outgoing.isModifier()) {
+				outgoing.attempts++;
+				outgoing.request.setCommitIndex(nextExpectedCommitIndex++);
+				inFlight.add(outgoing);
+			} else {
+				outgoing.request.setCommitIndex(getCommitIndex());
+			}
+			Request request = outgoing.request;
+			sender.execute(() -> connection.send(request));
+		}
+	}
+
 	/**
 	 * Responds the heartbeat requests sent by the server by sending back another heartbeat request
 	 */
@@ -103,10 +258,44 @@ public class ObservableClient<T> extends ObservableHost<T> {
 	}
 
 	/**
-	 * Notifies the server that the client is in an error state
+	 * Notifies the server that the client is in an error state. The error carries the client's commit index, so that
+	 * the server can send only the modifiers the client missed.
+	 * <p>
+	 * Modifiers that were already applied are ignored, and the server is asked to resync at most once per commit index
+	 * and timeout.
 	 */
-	protected void handleError(Request request) {
-		send(getErrorRequest());
+	protected synchronized void handleError(Request request) {
+		if (request instanceof ModifierRequest && request.getCommitIndex() <= getCommitIndex()) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (resyncRequestedAt != getCommitIndex() || resyncRequestedNanos == 0
+				|| now - resyncRequestedNanos > Math.max(getTimeout().toNanos(), RESYNC_RETRY_NANOS)) {
+			resyncRequestedAt = getCommitIndex();
+			resyncRequestedNanos = now;
+			send(getErrorRequest());
+		}
+	}
+
+	/**
+	 * Starts this client from a state it already holds, such as the state it had before losing its connection. The
+	 * server will then only send the modifiers committed after this commit index, as long as it still has them.
+	 * <p>
+	 * Must be called before the client is run.
+	 *
+	 * @param state       The state at this commit index
+	 * @param commitIndex The commit index the client had reached
+	 */
+	public synchronized void resumeFrom(T state, int commitIndex) {
+		setState(state);
+		setCommitIndex(commitIndex);
+	}
+
+	/**
+	 * @return Returns the commit index of the client's current state, to be passed to resumeFrom after reconnecting
+	 */
+	public int getLastCommitIndex() {
+		return getCommitIndex();
 	}
 
 	@Override
@@ -125,12 +314,14 @@ public class ObservableClient<T> extends ObservableHost<T> {
 	}
 
 	/**
-	 * Queues up a request containing a modifier to be sent to the server
+	 * Queues up a request containing a modifier to be sent to the server, and sends it right away if the in-flight
+	 * window has room
 	 *
 	 * @param modifier Modifier to be sent to the server
 	 */
-	public void addToOutbox(Modifier<T> modifier) {
-		outbox.add(getRequest(modifier));
+	public synchronized void addToOutbox(Modifier<T> modifier) {
+		outbox.add(new Outgoing(getRequest(modifier)));
+		flushOutbox();
 	}
 
 	/**
@@ -138,12 +329,127 @@ public class ObservableClient<T> extends ObservableHost<T> {
 	 *
 	 * @param state Modifier to be sent to the server
 	 */
-	public void addToOutbox(T state) {
-		outbox.add(getRequest(state));
+	public synchronized void addToOutbox(T state) {
+		outbox.add(new Outgoing(getRequest(state)));
+		flushOutbox();
+	}
+
+	/**
+	 * @return Returns the number of modifiers sent to the server and not acknowledged yet
+	 */
+	public synchronized int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * @return Returns the number of times the server rejected a modifier sent by this client
+	 */
+	public synchronized long getRejectedCount() {
+		return rejected;
+	}
+
+	/**
+	 * @return Returns the number of modifiers dropped after failing on the server or being rejected MAX_ATTEMPTS times
+	 */
+	public synchronized long getDroppedCount() {
+		return dropped;
+	}
+
+	/**
+	 * Sets the listener told about each modifier dropped after failing on the server or being rejected MAX_ATTEMPTS
+	 * times, instead of logging it. The listener is called on the thread receiving requests from the server, and must
+	 * not block.
+	 *
+	 * @param listener Listener receiving the dropped modifiers, or null to log them
+	 */
+	public synchronized void setDropListener(Consumer<? super Modifier<T>> listener) {
+		dropListener = listener;
+	}
+
+	/**
+	 * @return Returns the queue depth and latency of the requests received from the server
+	 */
+	public RequestPipeline.Metrics getMetrics() {
+		return connection.getMetrics();
 	}
-	
+
+	/**
+	 * @return Returns the queue depth and latency of each lane of requests sent to the server
+	 */
+	public List<LaneScheduler.Metrics> getLaneMetrics() {
+		return connection.getLaneMetrics();
+	}
+
+	/**
+	 * Sets the store that assets are offered from and fetched into. The default AssetStore is used otherwise.
+	 *
+	 * @param store Store holding this client's assets
+	 */
+	public synchronized void setAssetStore(AssetStore store) {
+		if (assets != null) {
+			assets.close();
+		}
+		assets = new AssetTransfer(store);
+	}
+
+	/**
+	 * @return Returns the store that assets are offered from and fetched into
+	 */
+	public AssetStore getAssetStore() {
+		return getAssets().getStore();
+	}
+
+	/**
+	 * Lets the server know which assets this client is about to refer to, so that it can ask for those it is missing.
+	 * Should be called before sending the modifiers that refer to them.
+	 *
+	 * @param hashes Hashes of assets held in the asset store
+	 */
+	public void offerAssets(Collection<String> hashes) {
+		getAssets().offer(hashes, this::send);
+	}
+
+	/**
+	 * Fetches the assets missing from the asset store from the server, resuming any partial transfer.
+	 *
+	 * @param hashes Hashes of the assets needed
+	 * @return Returns a future that completes once every asset is in the asset store, or completes exceptionally if
+	 * one of them could not be received
+	 */
+	public CompletableFuture<Void> fetchAssets(Collection<String> hashes) {
+		return getAssets().fetch(hashes, this::send);
+	}
+
+	private synchronized AssetTransfer getAssets() {
+		if (assets == null) {
+			assets = new AssetTransfer(AssetStore.getDefault());
+		}
+		return assets;
+	}
+
 	public void close() {
 		connection.shutDown();
+		sender.shutdownNow();
+		if (assets != null) {
+			assets.close();
+		}
+	}
+
+	/**
+	 * A request waiting in the outbox, or in flight
+	 */
+	private static class Outgoing {
+		private final Request request;
+		private int attempts;
+		private int notBefore = Integer.MIN_VALUE;
+
+		private Outgoing(Request request) {
+			this.request = request;
+		}
+
+		private boolean isModifier() {
+			return request instanceof ModifierRequest;
+		}
 	}
 }
 
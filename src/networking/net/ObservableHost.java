@@ -3,6 +3,7 @@ package networking.net;
 import java.time.Duration;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import networking.io.*;
@@ -29,6 +30,7 @@ public abstract class ObservableHost<T> implements Runnable {
 	public static final String LOCALHOST = "127.0.0.1";
 	private final Serializer<? super T> serializer;
 	private final Unserializer<? extends T> unserializer;
+	private final RequestCodec requestCodec;
 	private final Collection<Consumer<? super T>> stateUpdateListeners;
 	private final Duration timeout;
 	private final Map<Class<? extends Request>, Consumer<? super Request>> requestHandlers;
@@ -50,6 +52,8 @@ public abstract class ObservableHost<T> implements Runnable {
 			Duration timeout) {
 		this.serializer = serializer;
 		this.unserializer = unserializer;
+		this.requestCodec = new RequestCodec(serializer instanceof BinarySerializer
+				? ((BinarySerializer<?>) serializer).getRegistry() : new CodecRegistry());
 		this.stateUpdateListeners = new ArrayList<>();
 		this.commitIndex = 0;
 		this.timeout = timeout;
@@ -114,7 +118,7 @@ public abstract class ObservableHost<T> implements Runnable {
 	 * @return Returns true if the incoming request was valid
 	 */
 	protected boolean handleRequest(Request request) {
-		if (requestValidators.getOrDefault(request.getClass(), r -> true).test(request)) {
+		if (isValid(request)) {
 			Consumer<? super Request> handler = requestHandlers.get(request.getClass());
 			if (Objects.nonNull(handler)) {
 				setCommitIndex(request.getCommitIndex());
@@ -126,6 +130,16 @@ public abstract class ObservableHost<T> implements Runnable {
 		return false;
 	}
 
+	/**
+	 * @param request
+	 *            Incoming request received from remote host
+	 * @return Returns true if no request validator exists for the type of
+	 *         request, or if the validator accepts it
+	 */
+	protected final boolean isValid(Request request) {
+		return requestValidators.getOrDefault(request.getClass(), r -> true).test(request);
+	}
+
 	/**
 	 * Invoked when the remote host sends a request indicating that it is in an
 	 * error state
@@ -154,6 +168,18 @@ public abstract class ObservableHost<T> implements Runnable {
 		requestValidators.put(requestType, requestValidator);
 	}
 
+	/**
+	 * Sets the function that picks the lane of the requests sent by this
+	 * host. Heartbeats, errors and acknowledgements are always sent on the
+	 * control lane, and requests default to the edit lane.
+	 *
+	 * @param laneSelector
+	 *            Function that returns the lane to send a request on
+	 */
+	public final void setLaneSelector(Function<? super Request, Lane> laneSelector) {
+		requestCodec.setLaneSelector(laneSelector);
+	}
+
 	/**
 	 * Adds a request handler for a type of incoming request
 	 *
@@ -318,6 +344,15 @@ public abstract class ObservableHost<T> implements Runnable {
 		return unserializer;
 	}
 
+	/**
+	 * @return Returns the codec used to send and receive requests. If this host
+	 *         was created with a BinarySerializer, the codec shares its
+	 *         registry.
+	 */
+	protected final RequestCodec getRequestCodec() {
+		return requestCodec;
+	}
+
 	/**
 	 * Wraps exceptions thrown from in socket I/O
 	 */
@@ -6,6 +6,7 @@ import java.net.Socket;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -13,7 +14,9 @@ import java.util.concurrent.TimeUnit;
 import authoring.networking.ConnectionObserver;
 import networking.io.Serializer;
 import networking.io.Unserializer;
+import networking.net.requests.AcknowledgementRequest;
 import networking.net.requests.HeartbeatRequest;
+import networking.net.requests.ModifierRequest;
 import networking.net.requests.Request;
 
 /**
@@ -21,6 +24,13 @@ import networking.net.requests.Request;
  * connections.
  * <p>
  * The server creates a child thread listening to each client.
+ * <p>
+ * Modifiers sent by clients are acknowledged to their sender once they have
+ * been committed, or rejected. A modifier overtaken by other clients'
+ * modifiers is applied after them, unless they have left the CommitLog, in
+ * which case it is rejected as stale. Committed modifiers are kept in a bounded
+ * CommitLog, so that a client that falls behind is sent only the modifiers it
+ * missed.
  *
  * @param <T>
  *            The type of variable used to represent networked shared state.
@@ -35,6 +45,7 @@ public class ObservableServer<T> extends ObservableHost<T>
 	private final ServerSocket serverSocket;
 	private final ScheduledExecutorService executor;
 	private ConnectionObserver connectionObserver;
+	private final CommitLog<T> commitLog;
 
 	/**
 	 * Constructs an instance of VoogaServer without serialization
@@ -101,6 +112,8 @@ public class ObservableServer<T> extends ObservableHost<T>
 		super(serializer, unserializer, timeout);
 		setState(initialState);
 		this.connectionObserver = connectionObserver;
+		this.commitLog = new CommitLog<>(CommitLog.DEFAULT_CAPACITY);
+		setRequestValidator(ModifierRequest.class, request -> commitLog.canRebase(request.getCommitIndex()));
 		this.connections = new HashSet<>();
 		this.serverSocket = new ServerSocket(port);
 		this.executor = Executors.newScheduledThreadPool(DEFAULT_THREAD_POOL_SIZE);
@@ -149,6 +162,7 @@ public class ObservableServer<T> extends ObservableHost<T>
 	{
 		setState(newState);
 		incrementCommitIndex();
+		commitLog.reset(getCommitIndex());
 		return send(newState);
 	}
 
@@ -164,9 +178,46 @@ public class ObservableServer<T> extends ObservableHost<T>
 	{
 		setState(modifier.modify(getState()));
 		setCommitIndex(getCommitIndex() + 1);
+		commitLog.append(getCommitIndex(), modifier);
 		return send(modifier);
 	}
 
+	/**
+	 * Validates and commits a modifier sent by a client. A modifier tagged
+	 * with a commit index that was since taken by other modifiers is rebased:
+	 * it is applied after them, as long as they are still in the commit log.
+	 *
+	 * @param request
+	 *            Request holding the modifier
+	 * @return Returns COMMITTED if the modifier was committed, REJECTED if it
+	 *         was written against a state older than the commit log, and
+	 *         FAILED if it threw when applied to the current state
+	 */
+	@SuppressWarnings("unchecked")
+	protected synchronized AcknowledgementRequest.Outcome commit(ModifierRequest<?> request)
+	{
+		if (!isValid(request)) {
+			return AcknowledgementRequest.Outcome.REJECTED;
+		}
+		try {
+			sendAndApply(((ModifierRequest<T>) request).get());
+			return AcknowledgementRequest.Outcome.COMMITTED;
+		} catch (Modifier.ModifierException e) {
+			return AcknowledgementRequest.Outcome.FAILED;
+		}
+	}
+
+	/**
+	 * @param commitIndex
+	 *            Commit index a client has reached
+	 * @return Returns true if a client at this commit index can catch up from
+	 *         the commit log, without being sent the full state
+	 */
+	public boolean canResumeFrom(int commitIndex)
+	{
+		return commitLog.covers(commitIndex);
+	}
+
 	@Override
 	protected void handle(T newState)
 	{
@@ -229,7 +280,7 @@ public class ObservableServer<T> extends ObservableHost<T>
 		 */
 		public ServerDelegate(Socket socket, ConnectionObserver observer) throws IOException
 		{
-			connection = new SocketConnection(socket, ObservableServer.this.getTimeout());
+			connection = new SocketConnection(socket, ObservableServer.this.getTimeout(), getRequestCodec(), false);
 			if (observer != null)
 				observer.newConnection(connection);
 			System.out.println("\nClient connected:\t" + connection);
@@ -246,12 +297,32 @@ public class ObservableServer<T> extends ObservableHost<T>
 		{
 			if (request instanceof HeartbeatRequest) {
 				return true;
+			} else if (request instanceof ModifierRequest) {
+				send(new AcknowledgementRequest(request.getCommitIndex(), commit((ModifierRequest<?>) request)));
 			} else if (!ObservableServer.this.handleRequest(request)) {
-				send(getRequest(getState()));
+				resync(request.getCommitIndex());
 			}
 			return true;
 		}
 
+		/**
+		 * Sends the client the modifiers it is missing, or the full state if
+		 * they are no longer in the commit log.
+		 */
+		private void resync(int commitIndex)
+		{
+			synchronized (ObservableServer.this) {
+				List<Modifier<T>> missing = commitLog.since(commitIndex);
+				if (missing == null) {
+					send(getRequest(getState()));
+					return;
+				}
+				for (Modifier<T> modifier : missing) {
+					connection.send(getRequest(modifier).setCommitIndex(++commitIndex));
+				}
+			}
+		}
+
 		protected boolean send(Request request)
 		{
 			return connection.send(request.setCommitIndex(ObservableServer.this.getCommitIndex()));
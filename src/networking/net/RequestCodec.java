@@ -0,0 +1,457 @@
+package networking.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import networking.io.CodecRegistry;
+import networking.net.requests.AcknowledgementRequest;
+import networking.net.requests.AssetChunkRequest;
+import networking.net.requests.AssetOfferRequest;
+import networking.net.requests.AssetWantRequest;
+import networking.net.requests.ErrorRequest;
+import networking.net.requests.HeartbeatRequest;
+import networking.net.requests.ModifierRequest;
+import networking.net.requests.Request;
+import networking.net.requests.SerializableObjectRequest;
+
+/**
+ * This class writes requests to a stream as length-prefixed frames, and reads
+ * them back.
+ * <p>
+ * A frame is laid out as follows: the length of the rest of the frame (int),
+ * the type of request (byte), the commit index (int), and the contents of the
+ * request, written with a CodecRegistry. Heartbeats carry no contents, errors
+ * carry only their error code, and acknowledgements carry the commit index
+ * they acknowledge and its outcome. Constant modifiers are written as their
+ * value, so that the registry can encode it compactly. Asset requests are
+ * written field by field, and asset chunks carry their bytes as they are.
+ * <p>
+ * Requests of any other type, and modifiers that are not constant (lambda
+ * expressions, for instance), fall back to Java serialization, one frame at a
+ * time.
+ * <p>
+ * The type byte also carries the lane the request is sent on. Control
+ * requests always use the control lane, and asset chunks the bulk lane; other
+ * requests use the lane picked by the lane selector. Frames longer than CHUNK_SIZE are sent as a sequence of
+ * chunk frames on the bulk lane, which an Assembler puts back together.
+ *
+ * @author Elliott Bolzan
+ * @see SocketConnection,CodecRegistry,ConstantModifier
+ */
+public class RequestCodec {
+	public static final int MAX_FRAME_LENGTH = 1 << 26;
+	public static final int CHUNK_SIZE = 1 << 14;
+	private static final byte HEARTBEAT = 0;
+	private static final byte ERROR = 1;
+	private static final byte OBJECT = 2;
+	private static final byte MODIFIER = 3;
+	private static final byte CONSTANT_MODIFIER = 4;
+	private static final byte ACKNOWLEDGEMENT = 5;
+	private static final byte OTHER = 6;
+	private static final byte CHUNK = 7;
+	private static final byte ASSET_OFFER = 8;
+	private static final byte ASSET_WANT = 9;
+	private static final byte ASSET_CHUNK = 10;
+	private static final int TYPE_MASK = 0x0F;
+	private static final int LANE_SHIFT = 4;
+	private static final Lane[] LANES = Lane.values();
+	private static final AcknowledgementRequest.Outcome[] OUTCOMES = AcknowledgementRequest.Outcome.values();
+	private final CodecRegistry registry;
+	private volatile Function<? super Request, Lane> laneSelector;
+
+	/**
+	 * @param registry
+	 *            Registry used to encode the contents of requests
+	 */
+	public RequestCodec(CodecRegistry registry) {
+		this.registry = registry;
+		this.laneSelector = request -> Lane.EDIT;
+	}
+
+	/**
+	 * @param laneSelector
+	 *            Function that picks the lane of requests that are not control
+	 *            requests, and were not given a lane explicitly
+	 */
+	public void setLaneSelector(Function<? super Request, Lane> laneSelector) {
+		this.laneSelector = laneSelector;
+	}
+
+	/**
+	 * @param request
+	 *            Request to be sent
+	 * @return Returns the lane the request should be sent on
+	 */
+	public Lane laneOf(Request request) {
+		if (request.getLane() != null) {
+			return request.getLane();
+		}
+		Class<?> type = request.getClass();
+		if (type == HeartbeatRequest.class || type == ErrorRequest.class || type == AcknowledgementRequest.class
+				|| type == AssetOfferRequest.class || type == AssetWantRequest.class) {
+			return Lane.CONTROL;
+		} else if (type == AssetChunkRequest.class) {
+			return Lane.BULK;
+		}
+		Lane lane = laneSelector.apply(request);
+		return lane == null ? Lane.EDIT : lane;
+	}
+
+	/**
+	 * Writes a request as a single frame. The stream is not flushed.
+	 *
+	 * @param request
+	 *            Request to be written
+	 * @param out
+	 *            Stream to write the frame to
+	 * @throws IOException
+	 *             Thrown if the request cannot be written
+	 */
+	public void write(Request request, DataOutput out) throws IOException {
+		byte[] body = encode(request);
+		out.writeInt(body.length);
+		out.write(body);
+	}
+
+	private static int committedIndex(Request request) {
+		Class<?> type = request.getClass();
+		return type == ModifierRequest.class || type == SerializableObjectRequest.class ? request.getCommitIndex()
+				: Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @param request
+	 *            Request to be encoded
+	 * @return Returns the request's frame, split into chunks if it is longer
+	 *         than CHUNK_SIZE, ready to be queued on a LaneScheduler
+	 * @throws IOException
+	 *             Thrown if the request cannot be written
+	 */
+	public Frame encodeFrames(Request request) throws IOException {
+		Lane lane = laneOf(request);
+		byte[] body = encode(request, lane);
+		if (body.length <= CHUNK_SIZE) {
+			ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + body.length);
+			frame.putInt(body.length).put(body).flip();
+			return new Frame(lane, committedIndex(request), Collections.singletonList(frame));
+		}
+		Lane chunkLane = lane == Lane.CONTROL ? lane : Lane.BULK;
+		List<ByteBuffer> chunks = new ArrayList<>(body.length / CHUNK_SIZE + 1);
+		for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, body.length - offset);
+			ByteBuffer chunk = ByteBuffer.allocate(Integer.BYTES + 2 + length);
+			chunk.putInt(2 + length).put(typeByte(CHUNK, chunkLane));
+			chunk.put((byte) (offset + length == body.length ? 1 : 0)).put(body, offset, length).flip();
+			chunks.add(chunk);
+		}
+		return new Frame(chunkLane, committedIndex(request), chunks);
+	}
+
+	/**
+	 * Reads a single frame, blocking until it has fully arrived.
+	 *
+	 * @param in
+	 *            Stream to read the frame from
+	 * @return Returns the request held by the frame
+	 * @throws IOException
+	 *             Thrown if the stream is closed or the frame is invalid
+	 */
+	public Request read(DataInput in) throws IOException {
+		return decode(readBody(in));
+	}
+
+	private byte[] readBody(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length <= 0 || length > MAX_FRAME_LENGTH) {
+			throw new StreamCorruptedException("Invalid frame length: " + length);
+		}
+		byte[] body = new byte[length];
+		in.readFully(body);
+		return body;
+	}
+
+	/**
+	 * @param request
+	 *            Request to be encoded
+	 * @return Returns the body of the request's frame, without its length
+	 * @throws IOException
+	 *             Thrown if the request cannot be written
+	 */
+	public byte[] encode(Request request) throws IOException {
+		return encode(request, laneOf(request));
+	}
+
+	private byte[] encode(Request request, Lane lane) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		Class<?> type = request.getClass();
+		if (type == HeartbeatRequest.class) {
+			writeHeader(out, HEARTBEAT, lane, request);
+		} else if (type == ErrorRequest.class) {
+			writeHeader(out, ERROR, lane, request);
+			out.writeInt(((ErrorRequest) request).get());
+		} else if (type == AcknowledgementRequest.class) {
+			writeHeader(out, ACKNOWLEDGEMENT, lane, request);
+			out.writeInt(((AcknowledgementRequest) request).getExpectedCommitIndex());
+			out.writeByte(((AcknowledgementRequest) request).getOutcome().ordinal());
+		} else if (type == AssetOfferRequest.class) {
+			writeHeader(out, ASSET_OFFER, lane, request);
+			List<String> hashes = ((AssetOfferRequest) request).getHashes();
+			out.writeInt(hashes.size());
+			for (String hash : hashes) {
+				out.writeUTF(hash);
+			}
+		} else if (type == AssetWantRequest.class) {
+			writeHeader(out, ASSET_WANT, lane, request);
+			out.writeUTF(((AssetWantRequest) request).getHash());
+			out.writeLong(((AssetWantRequest) request).getOffset());
+		} else if (type == AssetChunkRequest.class) {
+			AssetChunkRequest chunk = (AssetChunkRequest) request;
+			writeHeader(out, ASSET_CHUNK, lane, request);
+			out.writeUTF(chunk.getHash());
+			out.writeLong(chunk.getOffset());
+			out.writeLong(chunk.getLength());
+			out.writeInt(chunk.getData().length);
+			out.write(chunk.getData());
+		} else if (type == SerializableObjectRequest.class) {
+			writeHeader(out, OBJECT, lane, request);
+			registry.writeObject(((SerializableObjectRequest<?>) request).get(), out);
+		} else if (type == ModifierRequest.class) {
+			Modifier<?> modifier = ((ModifierRequest<?>) request).get();
+			if (modifier instanceof ConstantModifier) {
+				writeHeader(out, CONSTANT_MODIFIER, lane, request);
+				registry.writeObject(((ConstantModifier<?>) modifier).getValue(), out);
+			} else {
+				writeHeader(out, MODIFIER, lane, request);
+				registry.writeObject(modifier, out);
+			}
+		} else {
+			writeHeader(out, OTHER, lane, request);
+			registry.writeObject(request, out);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param body
+	 *            Body of a frame, as returned by encode
+	 * @return Returns the decoded request, along with the lane it was sent on
+	 * @throws IOException
+	 *             Thrown if the frame is invalid, or is a chunk
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Request decode(byte[] body) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+		byte header = in.readByte();
+		int type = header & TYPE_MASK;
+		Lane lane = laneOf(header);
+		int commitIndex = in.readInt();
+		Request request;
+		switch (type) {
+		case HEARTBEAT:
+			request = new HeartbeatRequest();
+			break;
+		case ERROR:
+			request = new ErrorRequest(in.readInt());
+			break;
+		case ACKNOWLEDGEMENT:
+			request = new AcknowledgementRequest(in.readInt(), OUTCOMES[in.readByte()]);
+			break;
+		case ASSET_OFFER:
+			request = new AssetOfferRequest(readHashes(in));
+			break;
+		case ASSET_WANT:
+			request = new AssetWantRequest(in.readUTF(), in.readLong());
+			break;
+		case ASSET_CHUNK:
+			request = readAssetChunk(in);
+			break;
+		case OBJECT:
+			request = new SerializableObjectRequest<>((Serializable) registry.readObject(in));
+			break;
+		case MODIFIER:
+			request = new ModifierRequest<>((Modifier) registry.readObject(in));
+			break;
+		case CONSTANT_MODIFIER:
+			request = new ModifierRequest<>(new ConstantModifier<>(registry.readObject(in)));
+			break;
+		case OTHER:
+			request = (Request) registry.readObject(in);
+			break;
+		default:
+			throw new StreamCorruptedException("Unknown request type: " + type);
+		}
+		return request.setCommitIndex(commitIndex).setLane(lane);
+	}
+
+	private static List<String> readHashes(DataInput in) throws IOException {
+		int size = in.readInt();
+		if (size < 0 || size > MAX_FRAME_LENGTH) {
+			throw new StreamCorruptedException("Invalid asset count: " + size);
+		}
+		List<String> hashes = new ArrayList<>(Math.min(size, CHUNK_SIZE));
+		for (int i = 0; i < size; i++) {
+			hashes.add(in.readUTF());
+		}
+		return hashes;
+	}
+
+	private static AssetChunkRequest readAssetChunk(DataInput in) throws IOException {
+		String hash = in.readUTF();
+		long offset = in.readLong();
+		long length = in.readLong();
+		int size = in.readInt();
+		if (size < 0 || size > MAX_FRAME_LENGTH) {
+			throw new StreamCorruptedException("Invalid asset chunk length: " + size);
+		}
+		byte[] data = new byte[size];
+		in.readFully(data);
+		return new AssetChunkRequest(hash, offset, length, data);
+	}
+
+	/**
+	 * @return Returns an assembler, which decodes the frames received on a
+	 *         single connection
+	 */
+	public Assembler newAssembler() {
+		return new Assembler();
+	}
+
+	private void writeHeader(DataOutput out, byte type, Lane lane, Request request) throws IOException {
+		out.writeByte(typeByte(type, lane));
+		out.writeInt(request.getCommitIndex());
+	}
+
+	private static byte typeByte(byte type, Lane lane) {
+		return (byte) (type | lane.ordinal() << LANE_SHIFT);
+	}
+
+	private static Lane laneOf(byte header) throws StreamCorruptedException {
+		int lane = (header & 0xFF) >>> LANE_SHIFT;
+		if (lane >= LANES.length) {
+			throw new StreamCorruptedException("Unknown lane: " + lane);
+		}
+		return LANES[lane];
+	}
+
+	/**
+	 * This class holds a request's encoded frame, and the lane to send it on.
+	 *
+	 * @author Elliott Bolzan
+	 */
+	public static class Frame {
+		private final Lane lane;
+		private final int commitIndex;
+		private final List<ByteBuffer> chunks;
+		private final int length;
+
+		private Frame(Lane lane, int commitIndex, List<ByteBuffer> chunks) {
+			this.lane = lane;
+			this.commitIndex = commitIndex;
+			this.chunks = chunks;
+			this.length = chunks.stream().mapToInt(ByteBuffer::remaining).sum();
+		}
+
+		public Lane getLane() {
+			return lane;
+		}
+
+		/**
+		 * @return Returns the commit index of the modifier or state held by
+		 *         the frame, or Integer.MAX_VALUE if it holds neither
+		 */
+		public int getCommitIndex() {
+			return commitIndex;
+		}
+
+		/**
+		 * @return Returns the number of bytes in the frame, chunk headers
+		 *         included
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * @return Returns new buffers over the frame's chunks, so that the same
+		 *         frame can be queued on many connections
+		 */
+		public List<ByteBuffer> getChunks() {
+			List<ByteBuffer> copies = new ArrayList<>(chunks.size());
+			chunks.forEach(chunk -> copies.add(chunk.duplicate()));
+			return copies;
+		}
+	}
+
+	/**
+	 * This class decodes the frames received on a single connection, and puts
+	 * chunked frames back together. Chunks of a frame are sent one after the
+	 * other on a single lane, so each lane has at most one frame in progress.
+	 *
+	 * @author Elliott Bolzan
+	 */
+	public class Assembler {
+		private final ByteArrayOutputStream[] partial = new ByteArrayOutputStream[LANES.length];
+
+		private Assembler() {
+		}
+
+		/**
+		 * @param body
+		 *            Body of a frame, without its length
+		 * @return Returns the decoded request, or null if the frame was a
+		 *         chunk that did not complete a request
+		 * @throws IOException
+		 *             Thrown if the frame is invalid
+		 */
+		public Request decode(byte[] body) throws IOException {
+			if ((body[0] & TYPE_MASK) != CHUNK) {
+				return RequestCodec.this.decode(body);
+			}
+			int lane = laneOf(body[0]).ordinal();
+			if (partial[lane] == null) {
+				partial[lane] = new ByteArrayOutputStream(CHUNK_SIZE * 4);
+			}
+			if (body.length < 2 || partial[lane].size() + body.length - 2 > MAX_FRAME_LENGTH) {
+				throw new StreamCorruptedException("Invalid chunk");
+			}
+			partial[lane].write(body, 2, body.length - 2);
+			if (body[1] == 0) {
+				return null;
+			}
+			byte[] whole = partial[lane].toByteArray();
+			partial[lane] = null;
+			return RequestCodec.this.decode(whole);
+		}
+
+		/**
+		 * Reads frames until one completes a request, blocking until it has
+		 * fully arrived.
+		 *
+		 * @param in
+		 *            Stream to read the frames from
+		 * @return Returns the request held by the frames
+		 * @throws IOException
+		 *             Thrown if the stream is closed or a frame is invalid
+		 */
+		public Request read(DataInput in) throws IOException {
+			Request request;
+			do {
+				request = decode(readBody(in));
+			} while (request == null);
+			return request;
+		}
+	}
+}
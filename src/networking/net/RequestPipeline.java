@@ -0,0 +1,310 @@
+package networking.net;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import networking.net.requests.HeartbeatRequest;
+import networking.net.requests.Request;
+
+/**
+ * This class queues the requests received on one connection, and hands them to
+ * a handler one at a time, in the order they were received.
+ * <p>
+ * The queue is bounded. Once it is full, further requests are refused (or, with
+ * put, block the reader) until the handler has caught up with half of the
+ * queue, which pushes back on the remote host instead of buffering without
+ * limit. Heartbeats are never refused: only the newest heartbeat is kept, and
+ * older queued heartbeats are dropped.
+ * <p>
+ * Requests are drained on an executor, by at most one task at a time; many
+ * pipelines can therefore share a few threads. A handler that throws is
+ * reported to the error listener, and the requests after it are still handled.
+ *
+ * @author Elliott Bolzan
+ * @see SocketConnection,NioObservableServer
+ */
+public class RequestPipeline {
+	public static final int DEFAULT_CAPACITY = 1024;
+	private static final int BATCH_SIZE = 64;
+	private final String name;
+	private final Consumer<Request> handler;
+	private final Executor executor;
+	private final int capacity;
+	private final Deque<Entry> queue;
+	private Entry queuedHeartBeat;
+	private boolean draining;
+	private boolean blocked;
+	private Runnable resumeListener;
+	private Consumer<RuntimeException> errorListener;
+	private long received;
+	private long handled;
+	private long droppedHeartBeats;
+	private int maxDepth;
+	private long totalWaitNanos;
+	private long maxWaitNanos;
+	private long totalHandleNanos;
+
+	/**
+	 * @param name
+	 *            Name reported in this pipeline's metrics
+	 * @param handler
+	 *            Consumer that handles requests, one at a time
+	 * @param executor
+	 *            Executor that runs the handler
+	 * @param capacity
+	 *            Maximum number of requests waiting to be handled
+	 */
+	public RequestPipeline(String name, Consumer<Request> handler, Executor executor, int capacity) {
+		this.name = name;
+		this.handler = handler;
+		this.executor = executor;
+		this.capacity = capacity;
+		this.queue = new ArrayDeque<>();
+	}
+
+	/**
+	 * @param resumeListener
+	 *            Invoked once a full pipeline has room again, so that reading
+	 *            can resume
+	 */
+	public synchronized void setResumeListener(Runnable resumeListener) {
+		this.resumeListener = resumeListener;
+	}
+
+	/**
+	 * @param errorListener
+	 *            Invoked with whatever the handler throws, on the thread
+	 *            running the handler. Failures are printed otherwise.
+	 */
+	public synchronized void setErrorListener(Consumer<RuntimeException> errorListener) {
+		this.errorListener = errorListener;
+	}
+
+	/**
+	 * Queues a request, without blocking.
+	 *
+	 * @param request
+	 *            Request to be handled
+	 * @return Returns false if the pipeline is full; the resume listener will
+	 *         be invoked once it has room again
+	 */
+	public synchronized boolean offer(Request request) {
+		boolean heartBeat = request instanceof HeartbeatRequest;
+		if (heartBeat && queuedHeartBeat != null) {
+			queue.remove(queuedHeartBeat);
+			droppedHeartBeats++;
+		} else if (!heartBeat && queue.size() >= capacity) {
+			blocked = true;
+			return false;
+		}
+		Entry entry = new Entry(request);
+		queue.add(entry);
+		if (heartBeat) {
+			queuedHeartBeat = entry;
+		}
+		received++;
+		maxDepth = Math.max(maxDepth, queue.size());
+		if (!draining) {
+			draining = true;
+			schedule();
+		}
+		return true;
+	}
+
+	/**
+	 * Queues a request, waiting for room if the pipeline is full.
+	 *
+	 * @param request
+	 *            Request to be handled
+	 * @throws InterruptedException
+	 *             Thrown if interrupted while waiting for room
+	 */
+	public synchronized void put(Request request) throws InterruptedException {
+		while (!offer(request)) {
+			wait();
+		}
+	}
+
+	private void schedule() {
+		try {
+			executor.execute(this::drain);
+		} catch (RejectedExecutionException e) {
+			draining = false;
+			queue.clear();
+			queuedHeartBeat = null;
+		}
+	}
+
+	private void drain() {
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			Entry entry;
+			Runnable resume = null;
+			synchronized (this) {
+				entry = queue.poll();
+				if (entry == null) {
+					draining = false;
+					return;
+				}
+				if (entry == queuedHeartBeat) {
+					queuedHeartBeat = null;
+				}
+				if (blocked && queue.size() <= capacity / 2) {
+					blocked = false;
+					resume = resumeListener;
+					notifyAll();
+				}
+			}
+			if (resume != null) {
+				resume.run();
+			}
+			long start = System.nanoTime();
+			try {
+				handler.accept(entry.request);
+			} catch (RuntimeException e) {
+				fail(e);
+			}
+			long end = System.nanoTime();
+			synchronized (this) {
+				handled++;
+				totalWaitNanos += start - entry.enqueued;
+				maxWaitNanos = Math.max(maxWaitNanos, start - entry.enqueued);
+				totalHandleNanos += end - start;
+			}
+		}
+		synchronized (this) {
+			schedule();
+		}
+	}
+
+	private void fail(RuntimeException e) {
+		Consumer<RuntimeException> listener;
+		synchronized (this) {
+			listener = errorListener;
+		}
+		if (listener != null) {
+			listener.accept(e);
+		} else {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return Returns the number of requests waiting to be handled
+	 */
+	public synchronized int getDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * @return Returns a snapshot of this pipeline's queue depth and latency
+	 */
+	public synchronized Metrics getMetrics() {
+		double waitMillis = handled == 0 ? 0 : totalWaitNanos / 1e6 / handled;
+		double handleMillis = handled == 0 ? 0 : totalHandleNanos / 1e6 / handled;
+		return new Metrics(name, queue.size(), maxDepth, received, handled, droppedHeartBeats, waitMillis,
+				maxWaitNanos / 1e6, handleMillis);
+	}
+
+	private static class Entry {
+		private final Request request;
+		private final long enqueued;
+
+		private Entry(Request request) {
+			this.request = request;
+			this.enqueued = System.nanoTime();
+		}
+	}
+
+	/**
+	 * A snapshot of a pipeline's queue depth and latency.
+	 *
+	 * @author Elliott Bolzan
+	 */
+	public static class Metrics {
+		private final String name;
+		private final int depth;
+		private final int maxDepth;
+		private final long received;
+		private final long handled;
+		private final long droppedHeartBeats;
+		private final double averageWaitMillis;
+		private final double maxWaitMillis;
+		private final double averageHandleMillis;
+
+		private Metrics(String name, int depth, int maxDepth, long received, long handled, long droppedHeartBeats,
+				double averageWaitMillis, double maxWaitMillis, double averageHandleMillis) {
+			this.name = name;
+			this.depth = depth;
+			this.maxDepth = maxDepth;
+			this.received = received;
+			this.handled = handled;
+			this.droppedHeartBeats = droppedHeartBeats;
+			this.averageWaitMillis = averageWaitMillis;
+			this.maxWaitMillis = maxWaitMillis;
+			this.averageHandleMillis = averageHandleMillis;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return Returns the number of requests waiting to be handled
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * @return Returns the largest number of requests that were ever
+		 *         waiting at once
+		 */
+		public int getMaxDepth() {
+			return maxDepth;
+		}
+
+		public long getReceived() {
+			return received;
+		}
+
+		public long getHandled() {
+			return handled;
+		}
+
+		public long getDroppedHeartBeats() {
+			return droppedHeartBeats;
+		}
+
+		/**
+		 * @return Returns the average time requests spent queued
+		 */
+		public double getAverageWaitMillis() {
+			return averageWaitMillis;
+		}
+
+		/**
+		 * @return Returns the longest time a request spent queued
+		 */
+		public double getMaxWaitMillis() {
+			return maxWaitMillis;
+		}
+
+		/**
+		 * @return Returns the average time spent handling a request
+		 */
+		public double getAverageHandleMillis() {
+			return averageHandleMillis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"%s: depth %d (max %d), received %d, handled %d, dropped heartbeats %d, wait %.3f ms (max %.3f ms), handle %.3f ms",
+					name, depth, maxDepth, received, handled, droppedHeartBeats, averageWaitMillis, maxWaitMillis,
+					averageHandleMillis);
+		}
+	}
+}
@@ -1,91 +1,211 @@
 package networking.net;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
+import networking.io.CodecRegistry;
+import networking.net.requests.HeartbeatRequest;
 import networking.net.requests.Request;
 
 /**
  * This class provides a interface to for hosts to communicate by sending and receiving requests over a socket.
  * <p>
  * It can listen to a socket's input stream and send requests to a socket's output stream.
+ * <p>
+ * Requests are sent as length-prefixed frames, written by a RequestCodec.
+ * Received requests are handled one at a time, in order, through a bounded
+ * RequestPipeline: while it is full, the socket is not read. A request whose
+ * handler throws closes the connection, and listen throws.
+ * <p>
+ * Frames to be sent are queued on a LaneScheduler, and written chunk by chunk,
+ * by priority, by the connection's own writer thread: sending only queues the
+ * frame, so it never waits for the socket, and handlers can reply while the
+ * remote host is not reading. The socket's send buffer is kept small, so that
+ * frames wait in the scheduler, where they can still be overtaken, rather than
+ * in the operating system.
  *
  * @author Created by th174 on 4/5/2017.
  * @see Request,Modifier,ObservableServer,ObservableServer.ServerDelegate,ObservableClient,ObservableHost
  */
-public class SocketConnection {
+public class SocketConnection implements Connection {
+	private static final int BUFFER_SIZE = 1 << 13;
+	private static final int SEND_BUFFER_SIZE = 1 << 16;
 	private final Socket socket;
-	private final ObjectOutputStream outputStream;
+	private final DataOutputStream outputStream;
+	private final RequestCodec codec;
+	private final LaneScheduler scheduler;
 	private final ExecutorService executor;
+	private final Thread writer;
+	private volatile RequestPipeline pipeline;
+	private volatile RuntimeException failure;
 
 	/**
-	 * Creates a socket connection from a socket
+	 * Creates a socket connection from a socket, which encodes requests with the built-in codecs only
 	 *
 	 * @param socket  Socket that this connection is attached to
 	 * @param timeout Duration to wait for activity on the socket before it times out
 	 * @throws ObservableHost.RemoteConnectionException Thrown when an error occurs in opening the socket for listening
 	 */
 	public SocketConnection(Socket socket, Duration timeout) throws ObservableHost.RemoteConnectionException {
+		this(socket, timeout, new RequestCodec(new CodecRegistry()));
+	}
+
+	/**
+	 * Creates a socket connection from a socket, which writes frames on ordered lanes in the order they were sent
+	 *
+	 * @param socket  Socket that this connection is attached to
+	 * @param timeout Duration to wait for activity on the socket before it times out
+	 * @param codec   Codec used to write and read requests
+	 * @throws ObservableHost.RemoteConnectionException Thrown when an error occurs in opening the socket for listening
+	 */
+	public SocketConnection(Socket socket, Duration timeout, RequestCodec codec) throws ObservableHost.RemoteConnectionException {
+		this(socket, timeout, codec, true);
+	}
+
+	/**
+	 * Creates a socket connection from a socket
+	 *
+	 * @param socket    Socket that this connection is attached to
+	 * @param timeout   Duration to wait for activity on the socket before it times out
+	 * @param codec     Codec used to write and read requests
+	 * @param keepOrder True if frames on ordered lanes must be written in the order they were sent, because the remote
+	 *                  host applies requests in the order they arrive
+	 * @throws ObservableHost.RemoteConnectionException Thrown when an error occurs in opening the socket for listening
+	 */
+	public SocketConnection(Socket socket, Duration timeout, RequestCodec codec, boolean keepOrder) throws ObservableHost.RemoteConnectionException {
 		try {
 			this.socket = socket;
 			this.socket.setSoTimeout((int) timeout.toMillis());
-			this.outputStream = new ObjectOutputStream(socket.getOutputStream());
-			this.outputStream.flush();
+			this.socket.setTcpNoDelay(true);
+			this.socket.setSendBufferSize(SEND_BUFFER_SIZE);
+			this.outputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+			this.codec = codec;
+			this.scheduler = new LaneScheduler(toString(), keepOrder);
 			this.executor = Executors.newCachedThreadPool();
+			this.writer = new Thread(this::write, toString() + " Writer");
+			writer.setDaemon(true);
+			writer.start();
 		} catch (Exception e) {
 			throw new ObservableHost.RemoteConnectionException(e);
 		}
 	}
 
 	/**
-	 * Continuously listens for requests sent over the socket, and handles them with a request handler
+	 * Continuously listens for requests sent over the socket, and handles them with a request handler, in the order they
+	 * were received
 	 *
 	 * @param requestHandler Consumer that handles requests through the socket
-	 * @throws ObservableHost.RemoteConnectionException Thrown when an invalid request from the remote host is received.
+	 * @throws ObservableHost.RemoteConnectionException Thrown when an invalid request from the remote host is received,
+	 *                                                  or when the request handler throws.
 	 */
 	public void listen(Consumer<Request> requestHandler) throws ObservableHost.RemoteConnectionException {
-		try (ObjectInputStream inputStream = new ObjectInputStream(socket.getInputStream())) {
+		pipeline = new RequestPipeline(toString(), requestHandler, executor, RequestPipeline.DEFAULT_CAPACITY);
+		pipeline.setErrorListener(this::fail);
+		RequestCodec.Assembler assembler = codec.newAssembler();
+		try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE))) {
 			while (isActive()) {
-				Request request = (Request) inputStream.readObject();
-				executor.execute(() -> requestHandler.accept(request));
+				pipeline.put(assembler.read(inputStream));
 			}
-		} catch (IOException e) {
+		} catch (IOException | InterruptedException e) {
 		} catch (Exception e) {
 			throw new ObservableHost.RemoteConnectionException(e);
 		} finally {
 			shutDown();
 		}
+		if (failure != null) {
+			throw new ObservableHost.RemoteConnectionException(failure);
+		}
+	}
+
+	/**
+	 * Closes the connection after the request handler threw, which stops listen.
+	 */
+	private void fail(RuntimeException e) {
+		failure = e;
+		shutDown();
 	}
 
 	/**
-	 * Sends a request through the socket
+	 * Queues a request to be sent through the socket by the writer thread, according to its lane's priority.
+	 * <p>
+	 * A heartbeat is sent with the latest commit index whose modifiers have all been written, so that it does not
+	 * overtake them.
 	 *
 	 * @param request Request to be sent through the socket
-	 * @return Returns true if the request was sent successfully
+	 * @return Returns true if the request was sent (or queued to be sent) successfully
 	 */
-	public synchronized boolean send(Request request) {
+	@Override
+	public boolean send(Request request) {
 		try {
-			outputStream.writeObject(request);
-			return isActive();
+			if (request instanceof HeartbeatRequest) {
+				request = new HeartbeatRequest().setCommitIndex(scheduler.getWrittenCommitIndex(request.getCommitIndex()));
+			}
+			RequestCodec.Frame frame = codec.encodeFrames(request);
+			synchronized (this) {
+				if (!isActive()) {
+					return false;
+				}
+				scheduler.offer(frame);
+				notifyAll();
+			}
+			return true;
 		} catch (IOException e) {
 			return false;
 		}
 	}
 
+	/**
+	 * Writes queued chunks, highest priority first, flushing whenever none are left, until the connection closes. Runs
+	 * on the writer thread.
+	 */
+	private void write() {
+		try {
+			while (isActive()) {
+				ByteBuffer chunk = scheduler.poll();
+				if (chunk == null) {
+					outputStream.flush();
+					synchronized (this) {
+						while (scheduler.isEmpty() && isActive()) {
+							wait();
+						}
+					}
+					continue;
+				}
+				outputStream.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+			}
+		} catch (IOException | InterruptedException e) {
+		} finally {
+			shutDown();
+		}
+	}
+
 	/**
 	 * Closes the connection
 	 */
+	@Override
 	public void shutDown() {
 		try {
-			socket.close();
+			boolean wasOpen;
+			synchronized (this) {
+				wasOpen = !socket.isClosed();
+				socket.close();
+				scheduler.clear();
+				notifyAll();
+			}
 			executor.shutdown();
-			System.out.println("Connection closed: " + socket);
+			if (wasOpen) {
+				System.out.println("Connection closed: " + socket);
+			}
 		} catch (IOException e) {
 			throw new ObservableHost.RemoteConnectionException(e);
 		}
@@ -94,10 +214,27 @@ public class SocketConnection {
 	/**
 	 * @return Returns true if this connection is currently active
 	 */
+	@Override
 	public boolean isActive() {
 		return socket.isConnected() && !socket.isClosed() && !socket.isInputShutdown() && !socket.isOutputShutdown() && socket.isBound();
 	}
 
+	/**
+	 * @return Returns the queue depth and latency of the requests received on this connection, or null if it is not
+	 * listening yet
+	 */
+	public RequestPipeline.Metrics getMetrics() {
+		RequestPipeline current = pipeline;
+		return current == null ? null : current.getMetrics();
+	}
+
+	/**
+	 * @return Returns the queue depth and latency of each lane of requests sent on this connection
+	 */
+	public List<LaneScheduler.Metrics> getLaneMetrics() {
+		return scheduler.getMetrics();
+	}
+
 	@Override
 	public String toString() {
 		return "Connection on " + socket;
@@ -0,0 +1,74 @@
+package networking.net.requests;
+
+/**
+ * This class is sent by the server to the client that sent a modifier, once the modifier has been committed or
+ * rejected.
+ * <p>
+ * It carries the commit index that the client expected its modifier to be committed at, so that the client can match
+ * it against the modifiers it still has in flight, and the outcome, so that the client only sends again the
+ * modifiers that may be committed later.
+ *
+ * @author Elliott Bolzan
+ * @see Request,ModifierRequest,ObservableClient
+ */
+public class AcknowledgementRequest extends Request {
+	private static final long serialVersionUID = 6248530517244197163L;
+	private final int expectedCommitIndex;
+	private final Outcome outcome;
+
+	/**
+	 * What the server did with a modifier
+	 */
+	public enum Outcome {
+		/**
+		 * The modifier was committed
+		 */
+		COMMITTED,
+		/**
+		 * The modifier was not applied, but may be later: it was written against a state older than the server's
+		 * commit log, or the server could not take it yet. It can be sent again once the client has caught up.
+		 */
+		REJECTED,
+		/**
+		 * The modifier threw when applied to the server's state. Sending it again would fail the same way.
+		 */
+		FAILED
+	}
+
+	/**
+	 * Creates a new acknowledgement
+	 *
+	 * @param expectedCommitIndex The commit index that the modifier was tagged with
+	 * @param outcome             What the server did with the modifier
+	 */
+	public AcknowledgementRequest(int expectedCommitIndex, Outcome outcome) {
+		this.expectedCommitIndex = expectedCommitIndex;
+		this.outcome = outcome;
+	}
+
+	/**
+	 * @return Returns the commit index that the modifier was tagged with
+	 */
+	public int getExpectedCommitIndex() {
+		return expectedCommitIndex;
+	}
+
+	/**
+	 * @return Returns what the server did with the modifier
+	 */
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return Returns true if the modifier was committed, false if it was rejected
+	 */
+	public boolean isAccepted() {
+		return outcome == Outcome.COMMITTED;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + String.format("\n\tExpected:\t%d\n\tOutcome:\t%s", expectedCommitIndex, outcome);
+	}
+}
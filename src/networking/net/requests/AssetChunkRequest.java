@@ -0,0 +1,66 @@
+package networking.net.requests;
+
+/**
+ * This class carries a range of an asset's bytes, in answer to an AssetWantRequest.
+ * <p>
+ * Each chunk fits in a single frame, so chunks of an asset are interleaved with the frames of higher priority lanes.
+ *
+ * @author Elliott Bolzan
+ * @see AssetRequest,AssetWantRequest
+ */
+public class AssetChunkRequest extends AssetRequest {
+	private static final long serialVersionUID = 159133147250756608L;
+	private final String hash;
+	private final long offset;
+	private final long length;
+	private final byte[] data;
+
+	/**
+	 * Creates a new chunk
+	 *
+	 * @param hash   Content hash of the asset
+	 * @param offset Offset of the chunk's first byte in the asset
+	 * @param length Length of the whole asset
+	 * @param data   Bytes of the chunk
+	 */
+	public AssetChunkRequest(String hash, long offset, long length, byte[] data) {
+		this.hash = hash;
+		this.offset = offset;
+		this.length = length;
+		this.data = data;
+	}
+
+	/**
+	 * @return Returns the content hash of the asset
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * @return Returns the offset of the chunk's first byte in the asset
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return Returns the length of the whole asset
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * @return Returns the bytes of the chunk
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + String.format("\n\tAsset:\t%s\n\tOffset:\t%d\n\tBytes:\t%d of %d", hash, offset,
+				data.length, length);
+	}
+}
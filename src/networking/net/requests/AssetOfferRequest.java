@@ -0,0 +1,39 @@
+package networking.net.requests;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class is sent by a client to let the server know which assets it is about to refer to.
+ * <p>
+ * The server answers with an AssetWantRequest for every asset it does not have yet.
+ *
+ * @author Elliott Bolzan
+ * @see AssetRequest,AssetWantRequest
+ */
+public class AssetOfferRequest extends AssetRequest {
+	private static final long serialVersionUID = 4883526615168370171L;
+	private final List<String> hashes;
+
+	/**
+	 * Creates a new offer
+	 *
+	 * @param hashes Content hashes of the assets offered
+	 */
+	public AssetOfferRequest(Collection<String> hashes) {
+		this.hashes = new ArrayList<>(hashes);
+	}
+
+	/**
+	 * @return Returns the content hashes of the assets offered
+	 */
+	public List<String> getHashes() {
+		return hashes;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + String.format("\n\tAssets:\t%d", hashes.size());
+	}
+}
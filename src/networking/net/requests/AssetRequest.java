@@ -0,0 +1,14 @@
+package networking.net.requests;
+
+/**
+ * This class is the base of the requests that move assets, such as images, between hosts.
+ * <p>
+ * Asset requests are answered directly by the host that receives them, and never committed: they do not change the
+ * shared state, and do not change the receiver's commit index.
+ *
+ * @author Elliott Bolzan
+ * @see AssetOfferRequest,AssetWantRequest,AssetChunkRequest,networking.net.AssetStore
+ */
+public abstract class AssetRequest extends Request {
+	private static final long serialVersionUID = 4561703888878635109L;
+}
@@ -0,0 +1,47 @@
+package networking.net.requests;
+
+/**
+ * This class asks the remote host for the bytes of an asset, starting at an offset.
+ * <p>
+ * The offset is the number of bytes of the asset that the sender already holds, so that an interrupted transfer
+ * resumes where it stopped. The remote host answers with at most one window of AssetChunkRequests; the sender asks
+ * for the next window once it has received this one.
+ *
+ * @author Elliott Bolzan
+ * @see AssetRequest,AssetChunkRequest
+ */
+public class AssetWantRequest extends AssetRequest {
+	private static final long serialVersionUID = 4247035437945421492L;
+	private final String hash;
+	private final long offset;
+
+	/**
+	 * Creates a new request for an asset
+	 *
+	 * @param hash   Content hash of the asset
+	 * @param offset Number of bytes of the asset already held
+	 */
+	public AssetWantRequest(String hash, long offset) {
+		this.hash = hash;
+		this.offset = offset;
+	}
+
+	/**
+	 * @return Returns the content hash of the asset
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * @return Returns the offset of the first byte wanted
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + String.format("\n\tAsset:\t%s\n\tOffset:\t%d", hash, offset);
+	}
+}
@@ -2,6 +2,8 @@ package networking.net.requests;
 
 import java.io.Serializable;
 
+import networking.net.Lane;
+
 /**
  * This class provides contains communications between the client and the server.
  * Each request has a commit message, which the host uses to determine whether or not the request is valid.
@@ -11,6 +13,7 @@ import java.io.Serializable;
  */
 public abstract class Request implements Serializable {
 	private int commitIndex;
+	private transient Lane lane;
 
 	/**
 	 * Creates a new request.
@@ -36,6 +39,24 @@ public abstract class Request implements Serializable {
 		return this;
 	}
 
+	/**
+	 * @return Returns the lane this request was received on, or the lane it should be sent on, or null if it was not
+	 * set
+	 */
+	public Lane getLane() {
+		return lane;
+	}
+
+	/**
+	 * Sets the lane to send this request on, regardless of the host's lane selector.
+	 *
+	 * @param lane lane to send this request on
+	 */
+	public Request setLane(Lane lane) {
+		this.lane = lane;
+		return this;
+	}
+
 	@Override
 	public String toString() {
 		return String.format("Request:\n\tType:\t%s\n\tCommit:\t%d", getClass().getSimpleName(), commitIndex);
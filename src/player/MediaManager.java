@@ -1,11 +1,15 @@
 package player;
 
-import java.io.File;
+
+import java.util.function.Consumer;
 
 import data.Game;
+import data.AssetPipeline;
+import data.BackgroundSaver;
+import data.BackgroundSaver.SaveTask;
 import data.GameData;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
-import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 
 /**
@@ -22,13 +26,14 @@ public class MediaManager {
 	private MediaPlayer songPlayer;
 	private ObservableList<String> saveStates;
 	private int count = 0;
+	private Game baseGame;
+	private BackgroundSaver saver = new BackgroundSaver(Platform::runLater);
 
 	public MediaManager(Game game, String gamePath) {
 		this.gameFolderPath = gamePath;
 		this.saveStates = game.getSaves();
 		if (!game.getSongPath().equals("")) {
-			String uriString = new File(game.getSongPath()).toURI().toString();
-			songPlayer = new MediaPlayer(new Media(uriString));
+			songPlayer = new MediaPlayer(AssetPipeline.getSong(game.getSongPath()));
 		}
 	}
 
@@ -61,13 +66,43 @@ public class MediaManager {
 		}
 	}
 
-	public void saveGame(Game game) {
-		count++;
-		StringBuilder saveName = new StringBuilder(game.getName());
-		createSaveName(saveName);
-		GameData saver = new GameData();
-		saver.saveGameState(game, gameFolderPath, saveName.toString());
-		saveStates.add(saveName.toString());
+	/**
+	 * Saves the game in the background. The game must be a snapshot that the
+	 * game loop will not modify; the save appears in the list of saves once
+	 * it has been written.
+	 * 
+	 * @param game
+	 *            a snapshot of the game being played.
+	 * @param showError
+	 *            displays a message to the user if the save fails.
+	 */
+	public void saveGame(Game game, Consumer<String> showError) {
+		saver.save(gameFolderPath, new SaveTask() {
+			private String saveName;
+
+			@Override
+			public void write() throws Exception {
+				GameData data = new GameData();
+				if (baseGame == null) {
+					baseGame = data.loadBaseGame(gameFolderPath);
+				}
+				count++;
+				StringBuilder name = new StringBuilder(game.getName());
+				createSaveName(name);
+				saveName = name.toString();
+				data.saveGameState(game, baseGame, gameFolderPath, saveName);
+			}
+
+			@Override
+			public void succeeded() {
+				saveStates.add(saveName);
+			}
+
+			@Override
+			public void failed(Exception exception) {
+				showError.accept(exception.getMessage() == null ? exception.toString() : exception.getMessage());
+			}
+		});
 	}
 
 	private void createSaveName(StringBuilder saveName) {
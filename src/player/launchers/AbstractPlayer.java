@@ -2,10 +2,12 @@ package player.launchers;
 
 import java.util.ResourceBundle;
 
+import data.AssetPipeline;
 import data.Game;
 import engine.game.gameloop.GameLoop;
 import engine.game.gameloop.Scorebar;
 import engine.graphics.GraphicsEngine;
+import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
 import javafx.scene.Scene;
 import javafx.scene.layout.StackPane;
@@ -96,8 +98,25 @@ public abstract class AbstractPlayer extends PlayerView {
 		stage.maxHeightProperty().bind(height);
 	}
 
+	/**
+	 * Runs an action on the JavaFX thread once the game's images and song
+	 * have been decoded, so that the Timeline does not start with a stall.
+	 * The action is dropped if the player has been exited in the meantime.
+	 * 
+	 * @param action
+	 *            what to do once the game is ready (usually, starting the
+	 *            Timeline).
+	 */
+	protected void whenAssetsReady(Runnable action) {
+		AssetPipeline.ready(game).thenRun(() -> Platform.runLater(() -> {
+			if (stage.getScene() == gameScene) {
+				action.run();
+			}
+		}));
+	}
+
 	protected void exit() {
-		gameLoop.pauseTimeline();
+		gameLoop.stopTimeline();
 		this.returnToLoadScreen();
 	}
 
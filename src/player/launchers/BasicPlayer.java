@@ -21,7 +21,7 @@ public class BasicPlayer extends AbstractPlayer {
 	public BasicPlayer(Stage primaryStage, Game game, Polyglot polyglot, ResourceBundle IOResources,
 			boolean firstTimeLoading) {
 		super(primaryStage, game, polyglot, IOResources, firstTimeLoading);
-		this.getRunningGameLoop().startTimeline();
+		this.whenAssetsReady(() -> this.getRunningGameLoop().startTimeline());
 	}
 
 }
\ No newline at end of file
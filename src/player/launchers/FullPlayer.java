@@ -1,9 +1,11 @@
 package player.launchers;
 
+import java.util.HashSet;
 import java.util.ResourceBundle;
 
 import authoring.components.ComponentMaker;
 import data.Game;
+import engine.game.gameloop.GameLoop;
 import engine.game.gameloop.Scorebar;
 import javafx.scene.control.Button;
 import javafx.scene.control.ToolBar;
@@ -41,9 +43,11 @@ public class FullPlayer extends AbstractPlayer {
 		super(primaryStage, game, polyglot, IOResources, firstTimeLoading);
 		this.mediaManager = mediaManager;
 		this.buildControlBar();
-		this.playSong();
 
-		this.togglePlayPause(true);
+		this.whenAssetsReady(() -> {
+			this.playSong();
+			this.togglePlayPause(true);
+		});
 	}
 
 	private void buildControlBar() {
@@ -89,7 +93,7 @@ public class FullPlayer extends AbstractPlayer {
 	}
 
 	private void restart() {
-		this.getRunningGameLoop().pauseTimeline();
+		this.getRunningGameLoop().stopTimeline();
 		this.buildGameView(true);
 		this.buildControlBar();
 		this.togglePlayPause(true);
@@ -102,13 +106,22 @@ public class FullPlayer extends AbstractPlayer {
 		mediaManager.playSong();
 	}
 
+	/**
+	 * Saves the game. The snapshot is taken on the game's SimulationThread,
+	 * after a step, so that no entity changes while it is copied.
+	 */
 	private void save() {
-		Game savedGame = this.getGame().clone();
-		savedGame.setLevels(this.getRunningGameLoop().getLevelManager().getLevels().getListRepresentation());
-		savedGame.setLevels(savedGame.cloneLevels());
-		savedGame.setNumberOfLives(this.getRunningGameLoop().getScorebar().getLives());
-		savedGame.setUnlockedLevels(this.getRunningGameLoop().getLevelManager().getUnlockedLevelNumbers());
-		mediaManager.saveGame(savedGame);
+		GameLoop gameLoop = this.getRunningGameLoop();
+		gameLoop.getLevelManager().runAfterStep(() -> {
+			Game savedGame = this.getGame().clone();
+			savedGame.setLevels(gameLoop.getLevelManager().getLevels().getListRepresentation());
+			savedGame.setLevels(savedGame.cloneLevels());
+			savedGame.setNumberOfLives(gameLoop.getScorebar().getLives());
+			savedGame.setUnlockedLevels(new HashSet<Integer>(gameLoop.getLevelManager().getUnlockedLevelNumbers()));
+			savedGame.setScore(Integer.parseInt(gameLoop.getScorebar().getScore()));
+			savedGame.setCurrentTime(gameLoop.getScorebar().getTimeValue() / 1000.0);
+			mediaManager.saveGame(savedGame, gameLoop.getGraphicsEngine()::showRuntimeError);
+		});
 	}
 
 	protected void exit() {
@@ -0,0 +1,46 @@
+package player.launchers;
+
+import java.io.IOException;
+import java.util.ResourceBundle;
+
+import data.Game;
+import engine.game.multiplayer.GameClient;
+import javafx.stage.Stage;
+import polyglot.Polyglot;
+
+/**
+ * This class plays a game together with other players, through a GameServer
+ * running the same game. The game is displayed and controlled as with a
+ * BasicPlayer, but where entities are is decided by the server.
+ * 
+ * @author Elliott Bolzan
+ *
+ */
+public class NetworkedPlayer extends AbstractPlayer {
+	private GameClient client;
+
+	public NetworkedPlayer(Stage primaryStage, Game game, Polyglot polyglot, ResourceBundle IOResources, String host,
+			int port) {
+		super(primaryStage, game, polyglot, IOResources, true);
+		this.whenAssetsReady(() -> {
+			this.connect(host, port);
+			this.getRunningGameLoop().startTimeline();
+		});
+	}
+
+	@Override
+	protected void exit() {
+		if (client != null) {
+			client.close();
+		}
+		super.exit();
+	}
+
+	private void connect(String host, int port) {
+		try {
+			client = new GameClient(this.getRunningGameLoop(), host, port);
+		} catch (IOException e) {
+			this.getRunningGameLoop().getGraphicsEngine().showRuntimeError(e.getMessage());
+		}
+	}
+}
@@ -157,10 +157,10 @@ public class StartMenu extends BorderPane {
 		}
 	}
 
-	private Game createGame(String path) {
+	private Game createGame(String path, boolean playing) {
 		try {
 			GameData gameData = new GameData();
-			return gameData.loadGame(path);
+			return gameData.loadGame(path, playing);
 		} catch (Exception e) {
 			// Thread this.
 			Alert alert = maker.makeAlert(AlertType.ERROR, "ErrorTitle", "ErrorHeader", polyglot.get("NotAGame").get());
@@ -176,7 +176,7 @@ public class StartMenu extends BorderPane {
 	private void editGame() {
 		String path = chooseGame();
 		if (!path.equals("")) {
-			Game game = createGame(path);
+			Game game = createGame(path, false);
 			if (game != null) {
 				new AuthoringEnvironment(game, polyglot, IOResources);
 			}
@@ -186,7 +186,7 @@ public class StartMenu extends BorderPane {
 	private void playGame() {
 		String path = chooseGame();
 		if (!path.equals("")) {
-			Game game = createGame(path);
+			Game game = createGame(path, true);
 			if (game != null) {
 				new MainMenu(game, new MediaManager(game, path), polyglot, IOResources);
 			}
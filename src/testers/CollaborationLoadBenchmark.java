@@ -0,0 +1,365 @@
+package testers;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import authoring.command.AddInfo;
+import authoring.command.DeleteInfo;
+import authoring.command.MoveInfo;
+import authoring.command.ResizeInfo;
+import authoring.command.SingleEntityCommandInfo;
+import authoring.networking.Packet;
+import authoring.networking.PacketCodecs;
+import authoring.panel.chat.Message;
+import networking.io.BinarySerializer;
+import networking.io.BinaryUnserializer;
+import networking.io.CodecRegistry;
+import networking.net.ConstantModifier;
+import networking.net.NioObservableServer;
+import networking.net.ObservableClient;
+import networking.net.ObservableServer;
+
+/**
+ * Starts a server on localhost, connects simulated collaborators to it, and
+ * has each of them send a mix of authoring packets at a fixed rate, the way
+ * users editing a level together would.
+ *
+ * Every packet is tagged with a sequence number, so that each collaborator
+ * can measure how long the packet took to come back to it from the server.
+ * The benchmark reports the throughput of committed packets, the p50, p99 and
+ * p999 end-to-end latency over every delivery, each collaborator's latency and
+ * commit lag (how many commits it is behind the server, sampled every
+ * SAMPLE_MILLIS), and the threads, heap and garbage collection of the process.
+ * The server and the collaborators run in the same process, so threads and
+ * heap are those of both.
+ *
+ * Packets are generated from a fixed seed, and sent on a fixed schedule, so
+ * that two runs with the same arguments can be compared.
+ *
+ * Usage: CollaborationLoadBenchmark [clients] [seconds] [packets per client
+ * per second] [nio|threaded] [mix] [warmup seconds] [port]
+ *
+ * The mix gives the weight of each kind of packet, as in the default:
+ * move=45,resize=20,add=15,delete=10,message=10
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class CollaborationLoadBenchmark {
+
+	private static final String DEFAULT_MIX = "move=45,resize=20,add=15,delete=10,message=10";
+	private static final long SAMPLE_MILLIS = 100;
+	private static final long DRAIN_MILLIS = 10000;
+	private static final long SEED = 0;
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int rate = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		String serverType = args.length > 3 ? args[3] : "nio";
+		Map<String, Integer> mix = parseMix(args.length > 4 ? args[4] : DEFAULT_MIX);
+		int warmup = args.length > 5 ? Integer.parseInt(args[5]) : 2;
+		int port = args.length > 6 ? Integer.parseInt(args[6]) : 14339;
+
+		CodecRegistry registry = PacketCodecs.createRegistry();
+		LoadServer server = serverType.equals("threaded") ? new ThreadedServer(port, registry)
+				: new NioServer(port, registry);
+		ExecutorService threads = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+		threads.submit(server);
+		Thread.sleep(200);
+
+		int capacity = clients * rate * (seconds + warmup + 1) + 1;
+		AtomicLongArray sentAt = new AtomicLongArray(capacity);
+		List<Collaborator> collaborators = new ArrayList<Collaborator>();
+		for (int i = 0; i < clients; i++) {
+			Collaborator collaborator = new Collaborator(i, port, registry, sentAt, capacity);
+			collaborators.add(collaborator);
+			threads.submit(collaborator.client);
+		}
+
+		System.out.printf("%d clients, %d packets/s each, %d s (+%d s warmup), %s server, mix %s%n", clients, rate,
+				seconds, warmup, serverType, mix);
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+		threadBean.resetPeakThreadCount();
+
+		Random random = new Random(SEED);
+		long interval = 1000000000L / ((long) clients * rate);
+		long start = System.nanoTime();
+		long measureFrom = start + warmup * 1000000000L;
+		long end = measureFrom + seconds * 1000000000L;
+		long nextSend = start;
+		long nextSample = start;
+		int sequence = 0;
+		int committedAtStart = -1;
+		long gcCountAtStart = 0;
+		long gcMillisAtStart = 0;
+		long peakHeap = 0;
+		while (System.nanoTime() < end && sequence < capacity) {
+			long now = System.nanoTime();
+			if (committedAtStart < 0 && now >= measureFrom) {
+				committedAtStart = server.getCommits();
+				collaborators.forEach(Collaborator::startMeasuring);
+				gcCountAtStart = gcCount();
+				gcMillisAtStart = gcMillis();
+			}
+			if (now >= nextSample) {
+				int commits = server.getCommits();
+				for (Collaborator collaborator : collaborators) {
+					collaborator.sampleLag(commits, now >= measureFrom);
+				}
+				peakHeap = Math.max(peakHeap, memoryBean.getHeapMemoryUsage().getUsed());
+				nextSample += SAMPLE_MILLIS * 1000000L;
+			}
+			if (now >= nextSend) {
+				Collaborator collaborator = collaborators.get(sequence % clients);
+				collaborator.send(makePacket(random, mix, sequence, collaborator.id), sequence, now);
+				sequence++;
+				nextSend += interval;
+			} else {
+				Thread.sleep(0, (int) Math.min(999999, Math.min(nextSend, nextSample) - now));
+			}
+		}
+		int committedAtEnd = server.getCommits();
+		long gcCount = gcCount() - gcCountAtStart;
+		long gcMillis = gcMillis() - gcMillisAtStart;
+
+		long drainDeadline = System.nanoTime() + DRAIN_MILLIS * 1000000L;
+		while (System.nanoTime() < drainDeadline && !drained(collaborators, server.getCommits(), sequence)) {
+			Thread.sleep(10);
+		}
+
+		List<long[]> perClient = new ArrayList<long[]>();
+		long total = 0;
+		for (Collaborator collaborator : collaborators) {
+			long[] latencies = collaborator.getLatencies();
+			perClient.add(latencies);
+			total += latencies.length;
+		}
+		long[] all = new long[(int) total];
+		int position = 0;
+		for (long[] latencies : perClient) {
+			System.arraycopy(latencies, 0, all, position, latencies.length);
+			position += latencies.length;
+		}
+		Arrays.sort(all);
+
+		int committed = committedAtEnd - committedAtStart;
+		System.out.printf("sent %d packets, committed %d in the measured window (%.0f commits/s)%n", sequence,
+				committed, committed / (double) seconds);
+		System.out.printf("deliveries %d (%.0f/s): p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n", all.length,
+				all.length / (double) seconds, percentile(all, 0.5), percentile(all, 0.99), percentile(all, 0.999),
+				percentile(all, 1));
+		System.out.printf("%-8s %8s %10s %10s %10s %10s %10s %10s%n", "client", "sent", "commit", "p50 ms",
+				"p99 ms", "avg lag", "max lag", "rejected");
+		for (int i = 0; i < clients; i++) {
+			Collaborator collaborator = collaborators.get(i);
+			long[] latencies = perClient.get(i);
+			Arrays.sort(latencies);
+			System.out.printf("%-8d %8d %10d %10.2f %10.2f %10.1f %10d %10d%n", i, collaborator.sent,
+					collaborator.client.getLastCommitIndex(), percentile(latencies, 0.5),
+					percentile(latencies, 0.99), collaborator.getAverageLag(), collaborator.maxLag,
+					collaborator.client.getRejectedCount());
+		}
+		System.out.printf("threads: %d live, %d peak; heap: %.1f MB peak used; gc: %d collections, %d ms%n",
+				threadBean.getThreadCount(), threadBean.getPeakThreadCount(), peakHeap / 1e6, gcCount, gcMillis);
+		if (!drained(collaborators, server.getCommits(), sequence)) {
+			System.out.printf("not drained after %d ms: server at commit %d%n", DRAIN_MILLIS, server.getCommits());
+		}
+
+		collaborators.forEach(collaborator -> collaborator.client.close());
+		server.close();
+		System.exit(0);
+	}
+
+	private static Map<String, Integer> parseMix(String mix) {
+		Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.split("=");
+			weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+		}
+		return weights;
+	}
+
+	/**
+	 * Makes a packet whose entity id, or message, carries its sequence number.
+	 */
+	private static Packet makePacket(Random random, Map<String, Integer> mix, long sequence, int client) {
+		String name = "Entity" + random.nextInt(20);
+		double x = random.nextDouble() * 1000;
+		double y = random.nextDouble() * 1000;
+		String kind = pick(random, mix);
+		switch (kind) {
+		case "resize":
+			return new ResizeInfo(name, sequence, 25, 25, 26, 26, x, y, x, y);
+		case "add":
+			return new AddInfo(name, x, y, 0, sequence);
+		case "delete":
+			return new DeleteInfo(name, x, y, 0, sequence);
+		case "message":
+			return new Message("user" + client, sequence + " Moving the platforms on level 2.");
+		default:
+			return new MoveInfo(name, sequence, x, y, x + 1, y + 1);
+		}
+	}
+
+	private static String pick(Random random, Map<String, Integer> mix) {
+		int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+		int choice = random.nextInt(total);
+		for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+			choice -= entry.getValue();
+			if (choice < 0) {
+				return entry.getKey();
+			}
+		}
+		return "move";
+	}
+
+	private static long sequenceOf(Packet packet) {
+		if (packet instanceof SingleEntityCommandInfo) {
+			return ((SingleEntityCommandInfo) packet).getEntityId();
+		} else if (packet instanceof Message) {
+			String message = ((Message) packet).getMessage();
+			return Long.parseLong(message.substring(0, message.indexOf(' ')));
+		}
+		return -1;
+	}
+
+	private static boolean drained(List<Collaborator> collaborators, int commits, int sent) {
+		return commits >= sent
+				&& collaborators.stream().allMatch(collaborator -> collaborator.client.getLastCommitIndex() >= commits);
+	}
+
+	private static double percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+
+	private static long gcCount() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+	}
+
+	private static long gcMillis() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+	}
+
+	/**
+	 * A simulated collaborator: a client, the latencies of the packets it
+	 * received, and its commit lag.
+	 */
+	private static class Collaborator {
+		private final int id;
+		private final ObservableClient<Packet> client;
+		private final AtomicLongArray sentAt;
+		private final int capacity;
+		private long[] latencies;
+		private int count;
+		private volatile boolean measuring;
+		private int sent;
+		private long lagTotal;
+		private long lagSamples;
+		private int maxLag;
+
+		private Collaborator(int id, int port, CodecRegistry registry, AtomicLongArray sentAt, int capacity)
+				throws Exception {
+			this.id = id;
+			this.sentAt = sentAt;
+			this.capacity = capacity;
+			this.latencies = new long[1024];
+			this.client = new ObservableClient<Packet>("127.0.0.1", port, new BinarySerializer<Packet>(registry),
+					new BinaryUnserializer<Packet>(registry), Duration.ofSeconds(5));
+			client.resumeFrom(null, 0);
+			client.addListener(this::received);
+		}
+
+		private void send(Packet packet, int sequence, long now) {
+			sentAt.set(sequence, now);
+			sent++;
+			client.addToOutbox(new ConstantModifier<Packet>(packet));
+		}
+
+		private synchronized void received(Packet packet) {
+			long now = System.nanoTime();
+			long sequence = sequenceOf(packet);
+			if (!measuring || sequence < 0 || sequence >= capacity || sentAt.get((int) sequence) == 0) {
+				return;
+			}
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = now - sentAt.get((int) sequence);
+		}
+
+		private void startMeasuring() {
+			measuring = true;
+		}
+
+		private void sampleLag(int commits, boolean record) {
+			if (record) {
+				int lag = Math.max(0, commits - client.getLastCommitIndex());
+				lagTotal += lag;
+				lagSamples++;
+				maxLag = Math.max(maxLag, lag);
+			}
+		}
+
+		private double getAverageLag() {
+			return lagSamples == 0 ? 0 : lagTotal / (double) lagSamples;
+		}
+
+		private synchronized long[] getLatencies() {
+			return Arrays.copyOf(latencies, count);
+		}
+	}
+
+	private interface LoadServer extends Runnable {
+		int getCommits();
+
+		void close();
+	}
+
+	private static class NioServer extends NioObservableServer<Packet> implements LoadServer {
+		private NioServer(int port, CodecRegistry registry) throws Exception {
+			super(null, port, new BinarySerializer<Packet>(registry), new BinaryUnserializer<Packet>(registry),
+					Duration.ofSeconds(5), null);
+		}
+
+		@Override
+		public int getCommits() {
+			return getCommitIndex();
+		}
+	}
+
+	private static class ThreadedServer extends ObservableServer<Packet> implements LoadServer {
+		private ThreadedServer(int port, CodecRegistry registry) throws Exception {
+			super(null, port, new BinarySerializer<Packet>(registry), new BinaryUnserializer<Packet>(registry),
+					Duration.ofSeconds(5), null);
+		}
+
+		@Override
+		public int getCommits() {
+			return getCommitIndex();
+		}
+	}
+}
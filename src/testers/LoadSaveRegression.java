@@ -0,0 +1,472 @@
+package testers;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import data.AssetPipeline;
+import data.Game;
+import data.GameData;
+import engine.Parameter;
+import engine.entities.Entity;
+import engine.events.Event;
+import engine.game.Level;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.stage.Stage;
+
+/**
+ * Load and save regression suite for the games bundled in data/. For every
+ * archive, it measures:
+ * <ul>
+ * <li>load: GameData.loadGame, as the player loads games,</li>
+ * <li>save: GameData.saveGame, as the authoring environment saves games,
+ * followed by a reload that must produce the same Game,</li>
+ * <li>saveState: GameData.saveGameState on a modified copy of the game,
+ * followed by GameData.loadGameState, which must produce the modified
+ * Game.</li>
+ * </ul>
+ * For each operation, it records wall time, bytes read and written (from
+ * /proc/self/io, when available), peak heap and bytes allocated by all
+ * threads. Wall time, bytes read and written and bytes allocated are averaged
+ * over the iterations; peak heap is the largest seen in any iteration. Results
+ * are written as JSON, and compared against a baseline with tolerances. The
+ * program exits with status 1 if a round trip changes the Game, if a
+ * measurement regresses past its tolerance, or if there is no baseline to
+ * compare against.
+ *
+ * Archives are copied to a scratch folder first, so data/ is never modified.
+ * Archives that cannot be loaded at all are skipped, and left out of the
+ * results; a game of the baseline that has no results fails the comparison.
+ *
+ * Usage: LoadSaveRegression [--games data] [--baseline
+ * src/testers/load_save_baseline.json] [--output load_save_results.json]
+ * [--iterations 3] [--update-baseline]
+ *
+ * Run it again with --update-baseline after an intended change, and commit
+ * the new baseline.
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class LoadSaveRegression extends Application {
+
+	private static final double TIME_TOLERANCE = 0.5;
+	private static final double TIME_SLACK_MS = 25;
+	private static final double BYTES_TOLERANCE = 0.05;
+	private static final long BYTES_SLACK = 4 << 10;
+	private static final double MEMORY_TOLERANCE = 0.3;
+	private static final long MEMORY_SLACK_BYTES = 4 << 20;
+	private static final String SAVE_NAME = "_save_regression.xml";
+
+	private static String[] arguments;
+
+	/**
+	 * The measurements taken for one operation on one game.
+	 */
+	static class Measurement {
+		String game;
+		String operation;
+		double wallMs;
+		long bytesRead;
+		long bytesWritten;
+		long peakHeapBytes;
+		long allocatedBytes;
+	}
+
+	/**
+	 * The JSON document written by the suite.
+	 */
+	static class Report {
+		String javaVersion = System.getProperty("java.version");
+		int iterations;
+		List<Measurement> results = new ArrayList<Measurement>();
+	}
+
+	private interface Operation {
+		void run() throws Exception;
+	}
+
+	public static void main(String[] args) {
+		arguments = args;
+		launch(args);
+	}
+
+	@Override
+	public void start(Stage stage) {
+		Thread suite = new Thread(() -> {
+			int status;
+			try {
+				status = run(arguments) ? 0 : 1;
+			} catch (Throwable e) {
+				e.printStackTrace();
+				status = 2;
+			}
+			Platform.exit();
+			System.exit(status);
+		}, "LoadSaveRegression");
+		suite.start();
+	}
+
+	private static boolean run(String[] args) throws Exception {
+		Map<String, String> options = parse(args);
+		File gamesFolder = new File(options.getOrDefault("--games", "data"));
+		File baselineFile = new File(options.getOrDefault("--baseline", "src/testers/load_save_baseline.json"));
+		File outputFile = new File(options.getOrDefault("--output", "load_save_results.json"));
+		int iterations = Integer.parseInt(options.getOrDefault("--iterations", "3"));
+
+		File[] games = gamesFolder.listFiles((dir, name) -> name.endsWith(".vs"));
+		if (games == null || games.length == 0) {
+			System.out.println("No games found in " + gamesFolder.getAbsolutePath());
+			return false;
+		}
+		Arrays.sort(games);
+		Path scratch = Files.createTempDirectory("LoadSaveRegression");
+		Report report = new Report();
+		report.iterations = iterations;
+		List<String> failures = new ArrayList<String>();
+		for (File game : games) {
+			try {
+				measureGame(game, scratch, iterations, report, failures);
+			} catch (Exception e) {
+				failures.add(game.getName() + ": " + e);
+			}
+		}
+		deleteDir(scratch.toFile());
+
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		try (Writer writer = new FileWriter(outputFile)) {
+			gson.toJson(report, writer);
+		}
+		System.out.println("Results written to " + outputFile.getAbsolutePath());
+
+		if (options.containsKey("--update-baseline")) {
+			Files.copy(outputFile.toPath(), baselineFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			System.out.println("Baseline updated: " + baselineFile.getAbsolutePath());
+		} else if (baselineFile.exists()) {
+			try (Reader reader = new FileReader(baselineFile)) {
+				compare(gson.fromJson(reader, Report.class), report, failures);
+			}
+		} else {
+			failures.add("no baseline at " + baselineFile.getAbsolutePath()
+					+ "; run with --update-baseline to record one");
+		}
+
+		failures.forEach(failure -> System.out.println("FAIL " + failure));
+		System.out.println(failures.isEmpty() ? "PASS" : failures.size() + " failure(s)");
+		return failures.isEmpty();
+	}
+
+	private static void measureGame(File original, Path scratch, int iterations, Report report,
+			List<String> failures) throws Exception {
+		String name = original.getName();
+		File archive = scratch.resolve(name).toFile();
+		File saveFolder = scratch.resolve("saved").toFile();
+		Files.copy(original.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		GameData data = new GameData();
+
+		Game[] loaded = new Game[1];
+		try {
+			report.results.add(measure(name, "load", iterations, () -> {
+				loaded[0] = data.loadGame(archive.getPath(), true);
+				awaitAssets();
+			}));
+		} catch (Exception e) {
+			System.out.println("Skipping " + name + ", which cannot be loaded: " + e);
+			return;
+		}
+		Game game = loaded[0];
+
+		Game authored = data.loadGame(archive.getPath());
+		awaitAssets();
+		report.results.add(measure(name, "save", iterations, () -> data.saveGame(authored, saveFolder.getPath())));
+		Game reloaded = data.loadGame(new File(saveFolder, authored.getName() + ".vs").getPath());
+		awaitAssets();
+		checkEqual(name + " save", authored, reloaded, failures);
+
+		data.loadGame(archive.getPath());
+		Game base = data.loadBaseGame(archive.getPath());
+		awaitAssets();
+		Game modified = modify(game);
+		String saveName = game.getName() + SAVE_NAME;
+		report.results.add(measure(name, "saveState", iterations,
+				() -> data.saveGameState(modified, base, archive.getPath(), saveName)));
+		Game restored = data.loadGameState(archive.getPath(), saveName);
+		awaitAssets();
+		checkEqual(name + " saveState", modified, restored, failures);
+	}
+
+	/**
+	 * Waits for the images and songs that loading a game started decoding in
+	 * the background, as the player does before starting a game. Their reads
+	 * would otherwise be counted by the next measurement.
+	 */
+	private static void awaitAssets() throws InterruptedException {
+		while (AssetPipeline.getProgress() < 1) {
+			Thread.sleep(1);
+		}
+	}
+
+	/**
+	 * Changes a copy of the game the way playing it would: Entities move,
+	 * some are removed, some are spawned, and the score, timer, lives and
+	 * unlocked levels change.
+	 */
+	private static Game modify(Game game) {
+		Game modified = game.clone();
+		for (Level level : modified.getLevels()) {
+			List<Entity> entities = new ArrayList<Entity>(level.getEntities());
+			if (entities.isEmpty()) {
+				continue;
+			}
+			Entity first = entities.get(0);
+			first.setX(first.getX() + 17);
+			first.setY(first.getY() - 3);
+			if (entities.size() > 1) {
+				level.removeEntity(entities.get(entities.size() - 1));
+			}
+			level.addEntity(first.clone());
+		}
+		modified.setScore(1234);
+		modified.setCurrentTime(42.5);
+		modified.setNumberOfLives(modified.getNumberOfLives() + 1);
+		modified.getUnlockedLevels().add(modified.getLevels().size());
+		return modified;
+	}
+
+	private static Measurement measure(String game, String operation, int iterations, Operation work)
+			throws Exception {
+		Measurement measurement = new Measurement();
+		measurement.game = game;
+		measurement.operation = operation;
+		work.run();
+		long bytesRead = 0;
+		long bytesWritten = 0;
+		boolean io = true;
+		for (int i = 0; i < iterations; i++) {
+			System.gc();
+			resetPeakHeap();
+			long[] ioBefore = readIO();
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			work.run();
+			double wallMs = (System.nanoTime() - start) / 1e6;
+			long allocated = allocatedBytes() - allocatedBefore;
+			long[] ioAfter = readIO();
+			measurement.wallMs += wallMs / iterations;
+			measurement.allocatedBytes += allocated / iterations;
+			measurement.peakHeapBytes = Math.max(measurement.peakHeapBytes, peakHeap());
+			if (ioBefore == null || ioAfter == null) {
+				io = false;
+			} else {
+				bytesRead += ioAfter[0] - ioBefore[0];
+				bytesWritten += ioAfter[1] - ioBefore[1];
+			}
+		}
+		measurement.bytesRead = io ? bytesRead / iterations : -1;
+		measurement.bytesWritten = io ? bytesWritten / iterations : -1;
+		System.out.printf("%-25s %-10s %9.2f ms %10d B read %10d B written %8d KB peak %10d B allocated%n", game,
+				operation, measurement.wallMs, measurement.bytesRead, measurement.bytesWritten,
+				measurement.peakHeapBytes / 1024, measurement.allocatedBytes);
+		return measurement;
+	}
+
+	private static void compare(Report baseline, Report current, List<String> failures) {
+		Map<String, Measurement> expected = new TreeMap<String, Measurement>();
+		baseline.results.forEach(measurement -> expected.put(key(measurement), measurement));
+		for (Measurement actual : current.results) {
+			Measurement reference = expected.get(key(actual));
+			if (reference == null) {
+				System.out.println("No baseline for " + key(actual));
+				continue;
+			}
+			check(failures, actual, "wall time (ms)", reference.wallMs, actual.wallMs,
+					reference.wallMs * (1 + TIME_TOLERANCE) + TIME_SLACK_MS);
+			if (reference.bytesRead >= 0 && actual.bytesRead >= 0) {
+				check(failures, actual, "bytes read", reference.bytesRead, actual.bytesRead,
+						reference.bytesRead * (1 + BYTES_TOLERANCE) + BYTES_SLACK);
+				check(failures, actual, "bytes written", reference.bytesWritten, actual.bytesWritten,
+						reference.bytesWritten * (1 + BYTES_TOLERANCE) + BYTES_SLACK);
+			}
+			check(failures, actual, "peak heap", reference.peakHeapBytes, actual.peakHeapBytes,
+					reference.peakHeapBytes * (1 + MEMORY_TOLERANCE) + MEMORY_SLACK_BYTES);
+			check(failures, actual, "allocated bytes", reference.allocatedBytes, actual.allocatedBytes,
+					reference.allocatedBytes * (1 + MEMORY_TOLERANCE) + MEMORY_SLACK_BYTES);
+		}
+		current.results.forEach(measurement -> expected.remove(key(measurement)));
+		expected.keySet().forEach(key -> failures.add(key + ": in the baseline, but not measured"));
+	}
+
+	private static void check(List<String> failures, Measurement measurement, String metric, double baseline,
+			double actual, double limit) {
+		if (actual > limit) {
+			failures.add(String.format("%s: %s regressed from %.0f to %.0f (limit %.0f)", key(measurement), metric,
+					baseline, actual, limit));
+		}
+	}
+
+	private static String key(Measurement measurement) {
+		return measurement.game + " " + measurement.operation;
+	}
+
+	private static void checkEqual(String label, Game expected, Game actual, List<String> failures) {
+		List<String> expectedLines = describe(expected);
+		List<String> actualLines = describe(actual);
+		if (expectedLines.equals(actualLines)) {
+			return;
+		}
+		int line = 0;
+		while (line < Math.min(expectedLines.size(), actualLines.size())
+				&& expectedLines.get(line).equals(actualLines.get(line))) {
+			line++;
+		}
+		failures.add(String.format("%s: round trip changed the game at line %d: expected [%s], found [%s]", label,
+				line, line < expectedLines.size() ? expectedLines.get(line) : "nothing",
+				line < actualLines.size() ? actualLines.get(line) : "nothing"));
+	}
+
+	/**
+	 * Describes a Game as a list of lines, one per setting and Entity, so
+	 * that two Games can be compared and their first difference reported.
+	 */
+	private static List<String> describe(Game game) {
+		List<String> lines = new ArrayList<String>();
+		lines.add("name " + game.getName());
+		lines.add("info " + game.getInfo());
+		lines.add("song " + new File(game.getSongPath()).getName());
+		lines.add("time " + game.getCurrentTime() + " countdown " + game.getClockGoingDown());
+		lines.add("lives " + game.getNumberOfLives() + " score " + game.getScore());
+		lines.add("unlocked " + new TreeSet<Integer>(game.getUnlockedLevels()));
+		game.getDefaults().forEach(entity -> lines.add("default " + describe(entity)));
+		for (int i = 0; i < game.getLevels().size(); i++) {
+			Level level = game.getLevels().get(i);
+			lines.add("level " + i + " camera " + describe(level.getCamera()));
+			lines.add("level " + i + " background " + describe(level.getBackground()));
+			for (Entity entity : level.getEntities()) {
+				lines.add("level " + i + " " + describe(entity));
+			}
+		}
+		return lines;
+	}
+
+	private static String describe(Entity entity) {
+		if (entity == null) {
+			return "null";
+		}
+		StringBuilder builder = new StringBuilder(entity.getClass().getSimpleName());
+		builder.append(" id=").append(entity.getId()).append(" name=").append(entity.getName());
+		builder.append(" x=").append(entity.getX()).append(" y=").append(entity.getY());
+		builder.append(" w=").append(entity.getWidth()).append(" h=").append(entity.getHeight());
+		builder.append(" z=").append(entity.getZ()).append(" rotate=").append(entity.getRotate());
+		builder.append(" visible=").append(entity.getIsVisible());
+		String imagePath = entity.getImagePath() == null ? "" : entity.getImagePath();
+		builder.append(" image=").append(imagePath.substring(imagePath.lastIndexOf(File.separatorChar) + 1));
+		for (Parameter param : entity.getParams()) {
+			builder.append(" ").append(param.getName()).append("=").append(param.getObject());
+		}
+		for (Event event : entity.getEvents()) {
+			builder.append(" event=").append(event.getClass().getSimpleName());
+		}
+		return builder.toString();
+	}
+
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * @return the bytes allocated so far by every live thread, including the
+	 *         pools used by the loader and packager.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return 0;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		long total = 0;
+		for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			total += Math.max(0, allocated);
+		}
+		return total;
+	}
+
+	/**
+	 * @return the bytes read and written by this process, or null if the
+	 *         platform does not report them.
+	 */
+	private static long[] readIO() {
+		Path io = Paths.get("/proc/self/io");
+		if (!Files.isReadable(io)) {
+			return null;
+		}
+		try {
+			long[] counters = new long[2];
+			for (String line : Files.readAllLines(io)) {
+				if (line.startsWith("rchar:")) {
+					counters[0] = Long.parseLong(line.substring(6).trim());
+				} else if (line.startsWith("wchar:")) {
+					counters[1] = Long.parseLong(line.substring(6).trim());
+				}
+			}
+			return counters;
+		} catch (IOException | NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new TreeMap<String, String>();
+		for (int i = 0; i < args.length; i++) {
+			if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+				options.put(args[i], args[++i]);
+			} else {
+				options.put(args[i], "");
+			}
+		}
+		return options;
+	}
+
+	private static void deleteDir(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				deleteDir(file);
+			}
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,142 @@
+package testers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import data.Packager;
+import data.Unpackager;
+
+/**
+ * Times packing and unpacking of the bundled games, and compares the
+ * Packager against a sequential ZipOutputStream with a 4 KB copy loop (the
+ * way games used to be packed). Also checks that every file survives a
+ * round trip.
+ *
+ * Usage: PackagerBenchmark [gamesFolder] [iterations]
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class PackagerBenchmark {
+
+	private static final int WARMUP = 3;
+
+	public static void main(String[] args) throws Exception {
+		File gamesFolder = new File(args.length > 0 ? args[0] : "data");
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		File[] games = gamesFolder.listFiles((dir, name) -> name.endsWith(".vs"));
+		if (games == null || games.length == 0) {
+			System.out.println("No games found in " + gamesFolder.getAbsolutePath());
+			return;
+		}
+		Arrays.sort(games);
+		File work = Files.createTempDirectory("PackagerBenchmark").toFile();
+		System.out.printf("%-20s %10s %10s %10s %10s %10s %10s%n", "game", "bytes", "unpack ms", "legacy ms",
+				"pack ms", "legacy B", "packed B");
+		long totalLegacy = 0;
+		long totalPack = 0;
+		for (File game : games) {
+			File folder = new File(work, game.getName().replace(".vs", ""));
+			double unpack = time(iterations, () -> new Unpackager().unzip(game.getPath(), folder.getPath()));
+			List<File> sources = Arrays.asList(folder.listFiles());
+			File legacyOutput = new File(work, "legacy.vs");
+			File packedOutput = new File(work, "packed.vs");
+			double legacy = time(iterations, () -> legacyPack(legacyOutput, sources));
+			double pack = time(iterations, () -> new Packager().packZip(packedOutput, sources));
+			checkRoundTrip(game, packedOutput);
+			totalLegacy += legacyOutput.length();
+			totalPack += packedOutput.length();
+			System.out.printf("%-20s %10d %10.2f %10.2f %10.2f %10d %10d%n", game.getName(), game.length(), unpack,
+					legacy, pack, legacyOutput.length(), packedOutput.length());
+		}
+		System.out.printf("Total size: legacy %d bytes, packed %d bytes%n", totalLegacy, totalPack);
+		deleteDir(work);
+	}
+
+	private interface Job {
+		void run() throws Exception;
+	}
+
+	private static double time(int iterations, Job job) throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			job.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			job.run();
+		}
+		return (System.nanoTime() - start) / 1e6 / iterations;
+	}
+
+	private static void checkRoundTrip(File original, File packed) throws IOException {
+		try (ZipFile expected = new ZipFile(original); ZipFile actual = new ZipFile(packed)) {
+			List<String> missing = new ArrayList<String>();
+			expected.stream().filter(entry -> !entry.isDirectory()).forEach(entry -> {
+				ZipEntry copy = actual.getEntry(entry.getName());
+				try {
+					if (copy == null || !Arrays.equals(read(expected, entry), read(actual, copy))) {
+						missing.add(entry.getName());
+					}
+				} catch (IOException e) {
+					missing.add(entry.getName());
+				}
+			});
+			if (!missing.isEmpty()) {
+				throw new IllegalStateException(original.getName() + ": round trip changed " + missing);
+			}
+		}
+	}
+
+	private static byte[] read(ZipFile file, ZipEntry entry) throws IOException {
+		return file.getInputStream(entry).readAllBytes();
+	}
+
+	private static void legacyPack(File output, List<File> sources) throws IOException {
+		FileOutputStream fileOut = new FileOutputStream(output);
+		try (ZipOutputStream zipOut = new ZipOutputStream(fileOut)) {
+			for (File source : sources) {
+				legacyAdd(zipOut, "", source);
+			}
+			zipOut.finish();
+			fileOut.getFD().sync();
+		}
+	}
+
+	private static void legacyAdd(ZipOutputStream zipOut, String path, File file) throws IOException {
+		String name = path.isEmpty() ? file.getName() : path + "/" + file.getName();
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				legacyAdd(zipOut, name, child);
+			}
+			return;
+		}
+		zipOut.putNextEntry(new ZipEntry(name));
+		try (FileInputStream input = new FileInputStream(file)) {
+			byte[] buffer = new byte[4092];
+			int count;
+			while ((count = input.read(buffer)) != -1) {
+				zipOut.write(buffer, 0, count);
+			}
+		}
+		zipOut.closeEntry();
+	}
+
+	private static void deleteDir(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				deleteDir(file);
+			}
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,45 @@
+package testers;
+
+import java.util.concurrent.Executors;
+
+import data.Game;
+import data.GameData;
+import engine.game.gameloop.UpdateTiers;
+import engine.game.multiplayer.GameServer;
+
+/**
+ * Runs a game on a GameServer, without a display, so that NetworkedPlayers can
+ * join it. Once a second, prints how many steps the server took (which should
+ * stay close to 100), how many clients are connected, and how many entities
+ * are in each UpdateTiers tier.
+ * 
+ * Usage: TestHeadlessServer [game archive] [save name] [port]
+ * 
+ * @author Elliott Bolzan
+ *
+ */
+public class TestHeadlessServer {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: TestHeadlessServer [game archive] [save name] [port]");
+			return;
+		}
+		String saveName = args.length > 1 ? args[1] : "settings.xml";
+		int port = args.length > 2 ? Integer.parseInt(args[2]) : GameServer.DEFAULT_PORT;
+		Game game = new GameData().loadGameState(args[0], saveName);
+		GameServer server = new GameServer(game, port);
+		Executors.newSingleThreadExecutor().submit(server);
+		server.start();
+		int lastTick = 0;
+		while (true) {
+			Thread.sleep(1000);
+			int tick = server.getTick();
+			UpdateTiers tiers = server.getGameLoop().getLevelManager().getUpdateTiers();
+			System.out.printf("steps/s %4d   level %2d   clients %2d   %s%n", tick - lastTick,
+					server.getGameLoop().getLevelManager().getLevelNumber(), server.getConnectionCount(),
+					tiers == null ? "" : tiers.getCounts());
+			lastTick = tick;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package testers;
+
+import data.Game;
+import data.GameData;
+import engine.entities.Entity;
+import engine.game.gameloop.GameLoop;
+import engine.game.gameloop.ParallelUpdater;
+import engine.game.gameloop.Screen;
+
+/**
+ * Steps a game without a display as fast as possible, once with a
+ * ParallelUpdater of one thread and once with the given number of threads,
+ * then prints how long each run took and a checksum of where every entity
+ * ended up. Exits with status 1 if the checksums differ, which they should
+ * not unless the game uses randomness or DelayEvents, which depend on the
+ * time of day.
+ * 
+ * Usage: TestParallelUpdate [game archive] [save name] [steps] [threads]
+ * 
+ * @author Elliott Bolzan
+ *
+ */
+public class TestParallelUpdate {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: TestParallelUpdate [game archive] [save name] [steps] [threads]");
+			return;
+		}
+		String saveName = args.length > 1 ? args[1] : "settings.xml";
+		int steps = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long sequential = run(args[0], saveName, steps, 1);
+		long parallel = run(args[0], saveName, steps, threads);
+		if (sequential != parallel) {
+			System.out.println("Checksums differ: " + threads + " threads did not give the same game as one");
+			System.exit(1);
+		}
+		System.out.println("Checksums match");
+	}
+
+	/**
+	 * @return the checksum of where every entity ended up.
+	 */
+	private static long run(String archive, String saveName, int steps, int threads) throws Exception {
+		Game game = new GameData().loadGameState(archive, saveName);
+		GameLoop loop = new GameLoop(game, true);
+		loop.setUpdateParallelism(threads);
+		if (threads == 1) {
+			loop.getLevelManager().setParallelUpdater(new ParallelUpdater(1));
+		}
+		loop.getLevelManager().getCurrentScreen().start();
+		long start = System.nanoTime();
+		for (int i = 0; i < steps; i++) {
+			loop.getObservableBundle().getInputObservable().processInput();
+			Screen screen = loop.getLevelManager().getCurrentScreen();
+			if (screen.isRunning()) {
+				screen.step();
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		long checksum = 0;
+		for (Entity entity : loop.getLevelManager().getCurrentLevel().getEntities()) {
+			checksum = checksum * 31 + Double.doubleToLongBits(entity.getX());
+			checksum = checksum * 31 + Double.doubleToLongBits(entity.getY());
+		}
+		System.out.printf("threads %2d   %6.1f ms   %.3f ms/step   checksum %016x%n", threads, elapsed / 1e6,
+				elapsed / 1e6 / steps, checksum);
+		loop.stopTimeline();
+		return checksum;
+	}
+}
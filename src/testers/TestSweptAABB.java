@@ -0,0 +1,57 @@
+package testers;
+
+import engine.collisions.CollisionSide;
+import engine.collisions.SweptAABB;
+
+/**
+ * Sweeps boxes against still boxes in known situations, and prints whether
+ * each hit, its side and its time of impact are those expected. Exits with a
+ * non-zero status if any is not.
+ *
+ * Usage: TestSweptAABB
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class TestSweptAABB {
+	private static final double TOLERANCE = 1e-9;
+	private static int failures;
+
+	public static void main(String[] args) {
+		// A 10 x 10 box moving 50 to the right, into a wall 2 wide at x = 30.
+		check("wall", 0, 0, 10, 10, 50, 0, 30, -20, 2, 50, true, CollisionSide.RIGHT, 0.4);
+		check("wall from the right", 50, 0, 10, 10, -50, 0, 28, -20, 2, 50, true, CollisionSide.LEFT, 0.4);
+		// A 10 x 10 box falling 80, onto a floor 1 high at y = 40.
+		check("floor", 0, 0, 10, 10, 0, 80, -50, 40, 100, 1, true, CollisionSide.BOTTOM, 0.375);
+		check("ceiling", 0, 100, 10, 10, 0, -80, -50, 40, 100, 10, true, CollisionSide.TOP, 0.625);
+		// Moving diagonally: the box reaches the block's x range first, then hits its bottom.
+		check("diagonal", 0, 100, 10, 10, 40, -40, 20, 60, 40, 18, true, CollisionSide.TOP, 0.55);
+		check("miss", 0, 0, 10, 10, 50, 0, 30, 20, 2, 50, false, null, 0);
+		check("too short", 0, 0, 10, 10, 15, 0, 30, -20, 2, 50, false, null, 0);
+		check("moving away", 0, 0, 10, 10, -50, 0, 30, -20, 2, 50, false, null, 0);
+		// Boxes touching at the start of the move hit at once if moving into each other.
+		check("start touching, moving in", 0, 0, 10, 10, 20, 0, 10, 0, 10, 10, true, CollisionSide.RIGHT, 0);
+		check("start touching, moving away", 0, 0, 10, 10, -20, 0, 10, 0, 10, 10, false, null, 0);
+		check("start touching, sliding along", 0, 0, 10, 10, 0, 20, 10, 0, 10, 100, false, null, 0);
+		// Boxes overlapping at the start of the move are left to the regular check.
+		check("start overlapping", 0, 0, 10, 10, 50, 0, 5, 0, 10, 10, false, null, 0);
+		System.out.println(failures == 0 ? "All passed." : failures + " failed.");
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+
+	private static void check(String name, double x, double y, double width, double height, double dx, double dy,
+			double otherX, double otherY, double otherWidth, double otherHeight, boolean hit, CollisionSide side,
+			double time) {
+		SweptAABB sweep = new SweptAABB();
+		boolean result = sweep.test(x, y, width, height, dx, dy, otherX, otherY, otherWidth, otherHeight);
+		boolean passed = result == hit
+				&& (!hit || (sweep.getSide() == side && Math.abs(sweep.getTime() - time) < TOLERANCE));
+		if (!passed) {
+			failures++;
+		}
+		System.out.printf("%-4s %-30s hit %-5s side %-6s time %s%n", passed ? "ok" : "FAIL", name, result,
+				result ? sweep.getSide() : "-", result ? Double.toString(sweep.getTime()) : "-");
+	}
+}
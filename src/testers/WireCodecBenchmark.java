@@ -0,0 +1,205 @@
+package testers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import authoring.command.AddInfo;
+import authoring.command.DeleteInfo;
+import authoring.command.MoveInfo;
+import authoring.command.MultiEntityInfo;
+import authoring.command.ResizeInfo;
+import authoring.networking.Packet;
+import authoring.networking.PacketCodecs;
+import authoring.panel.chat.Message;
+import networking.net.ConstantModifier;
+import networking.net.RequestCodec;
+import networking.net.requests.HeartbeatRequest;
+import networking.net.requests.ModifierRequest;
+import networking.net.requests.Request;
+
+/**
+ * Compares the bytes per request and the encode and decode throughput of the
+ * RequestCodec against Java serialization, for a mix of authoring requests
+ * (mostly moves and resizes, as sent while dragging entities around).
+ *
+ * Java serialization is measured twice: on a single long-lived stream, the
+ * way the SocketConnection used to send requests (which keeps every request
+ * reachable from the stream's handle table), and with a reset after each
+ * request (which does not leak, but repeats every class descriptor).
+ *
+ * Usage: WireCodecBenchmark [requests] [iterations]
+ *
+ * @author Elliott Bolzan
+ *
+ */
+public class WireCodecBenchmark {
+
+	private static final int WARMUP = 3;
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		List<Request> legacy = new ArrayList<Request>();
+		List<Request> framed = new ArrayList<Request>();
+		Random random = new Random(0);
+		for (int i = 0; i < count; i++) {
+			if (i % 20 == 0) {
+				legacy.add(new HeartbeatRequest().setCommitIndex(i));
+				framed.add(new HeartbeatRequest().setCommitIndex(i));
+				continue;
+			}
+			Packet packet = makePacket(random);
+			legacy.add(new ModifierRequest<Packet>(state -> packet).setCommitIndex(i));
+			framed.add(new ModifierRequest<Packet>(new ConstantModifier<Packet>(packet)).setCommitIndex(i));
+		}
+		RequestCodec codec = new RequestCodec(PacketCodecs.createRegistry());
+
+		byte[][] output = new byte[1][];
+		double streamEncode = time(iterations, () -> output[0] = javaEncode(legacy, false));
+		byte[] stream = output[0];
+		double streamDecode = time(iterations, () -> javaDecode(stream, count));
+		double resetEncode = time(iterations, () -> output[0] = javaEncode(legacy, true));
+		byte[] reset = output[0];
+		double resetDecode = time(iterations, () -> javaDecode(reset, count));
+		double codecEncode = time(iterations, () -> output[0] = codecEncode(codec, framed));
+		byte[] frames = output[0];
+		double codecDecode = time(iterations, () -> codecDecode(codec, frames, count));
+		checkRoundTrip(codec, framed);
+
+		System.out.printf("%d requests, %d iterations%n", count, iterations);
+		System.out.printf("%-24s %12s %14s %14s%n", "format", "bytes/req", "encode req/s", "decode req/s");
+		print("Java, one stream", stream.length, count, streamEncode, streamDecode);
+		print("Java, reset per request", reset.length, count, resetEncode, resetDecode);
+		print("RequestCodec frames", frames.length, count, codecEncode, codecDecode);
+	}
+
+	private static Packet makePacket(Random random) {
+		String name = "Entity" + random.nextInt(20);
+		long id = random.nextLong();
+		double x = random.nextDouble() * 1000;
+		double y = random.nextDouble() * 1000;
+		int kind = random.nextInt(100);
+		if (kind < 45) {
+			return new MoveInfo(name, id, x, y, x + 1, y + 1);
+		} else if (kind < 65) {
+			return new ResizeInfo(name, id, 25, 25, 26, 26, x, y, x, y);
+		} else if (kind < 80) {
+			return new AddInfo(name, x, y, 0, id);
+		} else if (kind < 90) {
+			return new DeleteInfo(name, x, y, 0, id);
+		} else if (kind < 97) {
+			return new Message("user" + random.nextInt(4), "Moving the platforms on level 2.");
+		}
+		List<AddInfo> adds = new ArrayList<AddInfo>();
+		for (int i = 0; i < 5; i++) {
+			adds.add(new AddInfo(name, x + i * 25, y, 0, random.nextLong()));
+		}
+		return new MultiEntityInfo<AddInfo>(adds);
+	}
+
+	private static byte[] javaEncode(List<Request> requests, boolean reset) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			for (Request request : requests) {
+				out.writeObject(request);
+				if (reset) {
+					out.reset();
+				}
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void javaDecode(byte[] bytes, int count) throws Exception {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			for (int i = 0; i < count; i++) {
+				in.readObject();
+			}
+		}
+	}
+
+	private static byte[] codecEncode(RequestCodec codec, List<Request> requests) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (Request request : requests) {
+			codec.write(request, out);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void codecDecode(RequestCodec codec, byte[] bytes, int count) throws Exception {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		for (int i = 0; i < count; i++) {
+			codec.read(in);
+		}
+	}
+
+	private static void checkRoundTrip(RequestCodec codec, List<Request> requests) throws Exception {
+		for (Request request : requests) {
+			Request copy = codec.decode(codec.encode(request));
+			if (copy.getClass() != request.getClass() || copy.getCommitIndex() != request.getCommitIndex()
+					|| !describe(copy).equals(describe(request))) {
+				throw new IllegalStateException("Round trip changed " + request);
+			}
+		}
+	}
+
+	private static String describe(Request request) throws Exception {
+		if (!(request instanceof ModifierRequest)) {
+			return "";
+		}
+		return describe(((ConstantModifier<?>) ((ModifierRequest<?>) request).get()).getValue());
+	}
+
+	private static String describe(Object obj) throws Exception {
+		if (obj instanceof List) {
+			StringBuilder builder = new StringBuilder("[");
+			for (Object element : (List<?>) obj) {
+				builder.append(describe(element)).append(",");
+			}
+			return builder.append("]").toString();
+		}
+		if (!(obj instanceof Packet)) {
+			return String.valueOf(obj);
+		}
+		StringBuilder builder = new StringBuilder(obj.getClass().getSimpleName()).append("{");
+		for (Class<?> type = obj.getClass(); type != Object.class; type = type.getSuperclass()) {
+			for (Field field : type.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					field.setAccessible(true);
+					builder.append(field.getName()).append("=").append(describe(field.get(obj))).append(",");
+				}
+			}
+		}
+		return builder.append("}").toString();
+	}
+
+	private static void print(String format, int bytes, int count, double encode, double decode) {
+		System.out.printf("%-24s %12.1f %14.0f %14.0f%n", format, bytes / (double) count, count / encode,
+				count / decode);
+	}
+
+	private interface Job {
+		void run() throws Exception;
+	}
+
+	private static double time(int iterations, Job job) throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			job.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			job.run();
+		}
+		return (System.nanoTime() - start) / 1e9 / iterations;
+	}
+}